@@ -0,0 +1,102 @@
+package com.manzo.smart_ring;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Prints two JMH JSON result files side by side: throughput and bytes
+ * allocated per op for every benchmark and parameter combination, with the
+ * change from the baseline. Usage: {@code BaselineReport <baseline> <results>}.
+ */
+public final class BaselineReport {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BaselineReport() {
+    }
+
+    /** One benchmark run's throughput and, with the gc profiler, allocation per op. */
+    private static final class Score {
+        final double opsPerSecond;
+        final double bytesPerOp; // NaN without -prof gc
+
+        Score(double opsPerSecond, double bytesPerOp) {
+            this.opsPerSecond = opsPerSecond;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BaselineReport <baseline.json> <results.json>");
+            System.exit(2);
+        }
+        if (!Files.exists(Paths.get(args[0]))) {
+            System.err.println("No baseline at " + args[0] + "; run jmh, then jmhBaseline");
+            System.exit(1);
+        }
+        Map<String, Score> baseline = read(Paths.get(args[0]));
+        Map<String, Score> results = read(Paths.get(args[1]));
+
+        System.out.println(String.format(Locale.US, "%-78s %14s %14s %8s %10s %10s %8s",
+                "benchmark", "base ops/s", "ops/s", "change", "base B/op", "B/op", "change"));
+        for (Map.Entry<String, Score> entry : results.entrySet()) {
+            Score current = entry.getValue();
+            Score base = baseline.get(entry.getKey());
+            System.out.println(String.format(Locale.US, "%-78s %14s %14.0f %8s %10s %10s %8s",
+                    entry.getKey(),
+                    base != null ? String.format(Locale.US, "%.0f", base.opsPerSecond) : "-",
+                    current.opsPerSecond,
+                    base != null ? change(base.opsPerSecond, current.opsPerSecond) : "new",
+                    base != null ? bytes(base.bytesPerOp) : "-",
+                    bytes(current.bytesPerOp),
+                    base != null ? change(base.bytesPerOp, current.bytesPerOp) : "new"));
+        }
+        for (String name : baseline.keySet()) {
+            if (!results.containsKey(name)) {
+                System.out.println(String.format(Locale.US, "%-78s %14s", name, "not run"));
+            }
+        }
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        JSONArray runs = new JSONArray(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (int i = 0; i < runs.length(); i++) {
+            JSONObject run = runs.getJSONObject(i);
+            String name = run.getString("benchmark").replace("com.manzo.smart_ring.", "");
+            JSONObject params = run.optJSONObject("params");
+            if (params != null) {
+                StringBuilder key = new StringBuilder(name);
+                for (String param : params.keySet().stream().sorted().toArray(String[]::new)) {
+                    key.append(' ').append(param).append('=').append(params.getString(param));
+                }
+                name = key.toString();
+            }
+            JSONObject secondary = run.optJSONObject("secondaryMetrics");
+            JSONObject allocation = secondary != null ? secondary.optJSONObject(ALLOCATION) : null;
+            scores.put(name, new Score(run.getJSONObject("primaryMetric").getDouble("score"),
+                    allocation != null ? allocation.getDouble("score") : Double.NaN));
+        }
+        return scores;
+    }
+
+    private static String bytes(double value) {
+        return Double.isNaN(value) ? "-" : String.format(Locale.US, "%.1f", value);
+    }
+
+    private static String change(double from, double to) {
+        if (Double.isNaN(from) || Double.isNaN(to) || from == 0) {
+            return "-";
+        }
+        return String.format(Locale.US, "%+.1f%%", (to - from) / from * 100);
+    }
+}
@@ -0,0 +1,135 @@
+package com.manzo.smart_ring;
+
+import android.os.Looper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.flutter.plugin.common.EventChannel.EventSink;
+
+/**
+ * Cost of getting events from an SDK callback to {@code eventSink.success}:
+ * the legacy post-per-event JSON path against {@link EventDispatcher}'s
+ * per-frame binary batches. The stub main looper runs a "frame" every
+ * {@code eventsPerFrame} events. One op is one event, encoding and delivery
+ * included; run with {@code -prof gc} for bytes allocated per event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+    private static final int EVENTS = 256;
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+    private static final String ERROR_MESSAGE = "Measurement timed out after 30 seconds";
+
+    @Param({"1", "16", "256"})
+    public int eventsPerFrame;
+
+    @Param({"realtimeHeartRate", "measurementStatus", "measurementError"})
+    public String event;
+
+    /** Stands in for Flutter's sink; keeps what it got so nothing is optimized away. */
+    private static final class CountingSink implements EventSink {
+        long delivered;
+        Object last;
+
+        @Override
+        public void success(Object event) {
+            delivered++;
+            last = event;
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+        }
+
+        @Override
+        public void endOfStream() {
+        }
+    }
+
+    private CountingSink sink;
+    private LegacyEvents legacy;
+    private EventDispatcher dispatcher;
+    private EventDispatcher device;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sink = new CountingSink();
+        legacy = new LegacyEvents(sink);
+        dispatcher = new EventDispatcher(new PluginMetrics());
+        dispatcher.setEventSink(sink);
+        device = dispatcher.forDevice(1, ADDRESS);
+        Looper.drain();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.shutdown();
+        Looper.drain();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long legacyPostPerEvent() {
+        for (int i = 0; i < EVENTS; i++) {
+            switch (event) {
+                case "realtimeHeartRate":
+                    legacy.sendToFlutter("realtimeHeartRate", String.valueOf(60 + (i & 0x3F)));
+                    break;
+                case "measurementStatus":
+                    legacy.sendToFlutter("measurementStatus", LegacyEvents.statusJson((i & 1) != 0, (i & 2) != 0,
+                            (i & 4) != 0, (i & 8) != 0, (i & 16) != 0, (i & 32) != 0));
+                    break;
+                default:
+                    legacy.sendToFlutter("measurementError", LegacyEvents.errorJson("heartRate", ERROR_MESSAGE));
+                    break;
+            }
+            if ((i + 1) % eventsPerFrame == 0) {
+                Looper.drain();
+            }
+        }
+        Looper.drain();
+        return sink.delivered;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long batchedBinary() {
+        for (int i = 0; i < EVENTS; i++) {
+            switch (event) {
+                case "realtimeHeartRate":
+                    device.dispatchInt(EventCodec.REALTIME_HEART_RATE, 60 + (i & 0x3F));
+                    break;
+                case "measurementStatus":
+                    device.dispatchInt(EventCodec.MEASUREMENT_STATUS, i & 0x3F);
+                    break;
+                default:
+                    device.dispatchError("heartRate", null, ERROR_MESSAGE);
+                    break;
+            }
+            if ((i + 1) % eventsPerFrame == 0) {
+                Looper.drain();
+            }
+        }
+        Looper.drain();
+        return sink.delivered;
+    }
+}
@@ -0,0 +1,133 @@
+package com.manzo.smart_ring;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning one event into its wire form, legacy JSON strings against
+ * {@link EventCodec} records, per event class. One op is one event; run with
+ * {@code -prof gc} (the {@code jmh} task does) for bytes allocated per event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventEncodingBenchmark {
+    private static final int DEVICE = 1;
+    private static final String ERROR_MESSAGE = "Measurement timed out after 30 seconds\n"
+            + "ring reported \"busy\"";
+
+    private EventCodec codec;
+    private List<Float> temperatures;
+    private float[] series;
+    private int bits;
+    private int heartRate;
+
+    @Setup
+    public void setUp() {
+        codec = new EventCodec(1024);
+        // Readings arrive as a day of slots, mostly empty before the current one
+        Float[] slots = new Float[48];
+        Arrays.fill(slots, 0.0f);
+        slots[20] = 36.6f;
+        slots[21] = 36.7f;
+        temperatures = Arrays.asList(slots);
+        series = new float[slots.length];
+    }
+
+    // Varies the input so nothing folds into a constant
+    private int nextBits() {
+        bits = (bits + 1) & 0x3F;
+        return bits;
+    }
+
+    private int nextHeartRate() {
+        heartRate = (heartRate + 1) & 0x3F;
+        return 60 + heartRate;
+    }
+
+    @Benchmark
+    public String statusLegacyJson() {
+        int b = nextBits();
+        return LegacyEvents.statusJson((b & 1) != 0, (b & 2) != 0, (b & 4) != 0, (b & 8) != 0,
+                (b & 16) != 0, (b & 32) != 0);
+    }
+
+    @Benchmark
+    public int statusBinary() {
+        codec.reset();
+        codec.beginRecord(EventCodec.MEASUREMENT_STATUS, DEVICE, System.currentTimeMillis()).putInt(nextBits());
+        return codec.size();
+    }
+
+    @Benchmark
+    public String errorLegacyJson() {
+        return LegacyEvents.errorJson("heartRate", ERROR_MESSAGE);
+    }
+
+    @Benchmark
+    public int errorBinary() {
+        codec.reset();
+        codec.beginRecord(EventCodec.MEASUREMENT_ERROR, DEVICE, System.currentTimeMillis())
+                .putString("heartRate")
+                .putString(null)
+                .putString(ERROR_MESSAGE);
+        return codec.size();
+    }
+
+    @Benchmark
+    public String temperatureLegacyFormat() {
+        return LegacyEvents.temperature(temperatures);
+    }
+
+    // The whole series as f32s plus the current reading, as DeviceSession sends them
+    @Benchmark
+    public int temperatureBinary() {
+        int count = temperatures.size();
+        for (int i = 0; i < count; i++) {
+            Float temperature = temperatures.get(i);
+            series[i] = temperature != null ? temperature : 0f;
+        }
+        float celsius = 0;
+        for (int i = 0; i < count; i++) {
+            if (series[i] != 0f) {
+                celsius = series[i];
+                break;
+            }
+        }
+        codec.reset();
+        long now = System.currentTimeMillis();
+        codec.beginRecord(EventCodec.TEMPERATURE_SERIES, DEVICE, now).putByte(0).putInt(count)
+                .putFloats(series, 0, count);
+        codec.beginRecord(EventCodec.BODY_TEMPERATURE, DEVICE, now)
+                .putFloat(celsius)
+                .putFloat(1f);
+        return codec.size();
+    }
+
+    @Benchmark
+    public String realtimeHeartRateLegacyString() {
+        return String.valueOf(nextHeartRate());
+    }
+
+    @Benchmark
+    public int realtimeHeartRateBinary() {
+        codec.reset();
+        codec.beginRecord(EventCodec.REALTIME_HEART_RATE, DEVICE, System.currentTimeMillis()).putInt(nextHeartRate());
+        return codec.size();
+    }
+}
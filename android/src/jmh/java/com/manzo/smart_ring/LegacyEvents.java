@@ -0,0 +1,90 @@
+package com.manzo.smart_ring;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.json.JSONObject;
+
+import io.flutter.plugin.common.EventChannel.EventSink;
+
+/**
+ * The per-event JSON path the plugin used before {@link EventDispatcher}, kept
+ * as written so the benchmarks have something to compare against: a fresh
+ * {@link Handler} and main-looper post per event, a {@code {event, data}} map
+ * per delivery and string payloads built with {@link JSONObject}, chained
+ * {@link String#replace} and {@link String#format}.
+ */
+final class LegacyEvents {
+    private static final String TAG = "SmartRingPlugin";
+
+    private final EventSink eventSink;
+
+    LegacyEvents(EventSink eventSink) {
+        this.eventSink = eventSink;
+    }
+
+    static String statusJson(boolean temperature, boolean heartRate, boolean hrv, boolean stress,
+                             boolean bloodOxygen, boolean fullMeasurement) {
+        boolean anyMeasurement = temperature || heartRate || hrv || stress || bloodOxygen || fullMeasurement;
+
+        Map<String, Boolean> statusMap = new HashMap<>();
+        statusMap.put("temperature", temperature);
+        statusMap.put("heartRate", heartRate);
+        statusMap.put("hrv", hrv);
+        statusMap.put("stress", stress);
+        statusMap.put("bloodOxygen", bloodOxygen);
+        statusMap.put("fullMeasurement", fullMeasurement);
+        statusMap.put("anyMeasurement", anyMeasurement);
+
+        String statusJson = new JSONObject(statusMap).toString();
+        Log.d(TAG, "Sending measurement status: " + statusJson);
+        return statusJson;
+    }
+
+    static String errorJson(String measurementType, String errorMessage) {
+        // Escape error message to prevent JSON parsing issues
+        String escapedMessage = errorMessage.replace("\"", "\\\"").replace("\n", "\\n");
+        return "{\"type\":\"" + measurementType + "\",\"error\":\"" + escapedMessage + "\"}";
+    }
+
+    // The onHistoryTempChange payload: the first non-zero reading, or null
+    static String temperature(List<Float> tempList) {
+        Log.d(TAG, "Temperature measurement received: "
+                + tempList.stream().map(String::valueOf).collect(Collectors.joining(",")));
+
+        Float currentTemperature = null;
+        for (Float temperature : tempList) {
+            if (temperature != null && temperature != 0.0f) {
+                currentTemperature = temperature;
+                break;
+            }
+        }
+        return currentTemperature != null ? String.format("%.1f", currentTemperature) : null;
+    }
+
+    void sendToFlutter(final String eventName, final String dataToSend) {
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                if (eventSink != null) {
+                    try {
+                        Map<String, Object> event = new HashMap<>();
+                        event.put("event", eventName);
+                        event.put("data", dataToSend);
+                        eventSink.success(event);
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error sending event to Flutter: " + e.getMessage());
+                    }
+                } else {
+                    Log.w(TAG, "Event sink and channel are null, cannot send event: " + eventName);
+                }
+            }
+        });
+    }
+}
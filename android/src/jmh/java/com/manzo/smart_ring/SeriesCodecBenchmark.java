@@ -0,0 +1,81 @@
+package com.manzo.smart_ring;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode throughput of {@link SeriesCodec} on a day of per-minute
+ * samples shaped like ring data: a little timestamp jitter, slowly drifting
+ * integer vitals and 0.1 degree temperature steps. One op is one sample.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeriesCodecBenchmark {
+    private static final int SAMPLES = 24 * 60;
+
+    @Param({"heartRate", "bodyTemperature"})
+    public String series;
+
+    private final long[] timestamps = new long[SAMPLES];
+    private final float[] values = new float[SAMPLES];
+    private final long[] decodedTimestamps = new long[SAMPLES];
+    private final float[] decodedValues = new float[SAMPLES];
+    private final SeriesCodec.ByteSink sink = new SeriesCodec.ByteSink(SAMPLES * 2);
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        boolean temperature = series.equals("bodyTemperature");
+        Random random = new Random(1);
+        long timestamp = 1_700_000_000_000L;
+        int level = temperature ? 365 : 68;
+        for (int i = 0; i < SAMPLES; i++) {
+            // Live readings land within a few hundred ms of the minute mark
+            timestamp += 60_000 + random.nextInt(401) - 200;
+            level = temperature ? Math.max(355, Math.min(375, level + random.nextInt(5) - 2))
+                    : Math.max(45, Math.min(150, level + random.nextInt(5) - 2));
+            timestamps[i] = timestamp;
+            values[i] = temperature ? level * 0.1f : level;
+        }
+        SeriesCodec.encode(timestamps, values, 0, SAMPLES, sink);
+        encoded = sink.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public int encode() {
+        sink.reset();
+        SeriesCodec.encode(timestamps, values, 0, SAMPLES, sink);
+        return sink.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public int decode() {
+        int offset = 0;
+        int decoded = 0;
+        while (offset < encoded.length) {
+            int count = SeriesCodec.blockCount(encoded, offset);
+            offset += SeriesCodec.decodeBlock(encoded, offset, decodedTimestamps, decodedValues, decoded);
+            decoded += count;
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,24 @@
+package android.os;
+
+/** Benchmark stand-in: posts go to the stub {@link Looper}'s queue; delays are ignored. */
+public class Handler {
+    private final Looper looper;
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public final boolean post(Runnable runnable) {
+        looper.enqueue(runnable);
+        return true;
+    }
+
+    public final boolean postDelayed(Runnable runnable, long delayMillis) {
+        looper.enqueue(runnable);
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable runnable) {
+        looper.remove(runnable);
+    }
+}
@@ -0,0 +1,39 @@
+package android.os;
+
+import java.util.ArrayDeque;
+
+/**
+ * Benchmark stand-in for the main looper: a plain queue that {@link #drain}
+ * runs on the calling thread, so a benchmark decides when a "frame" happens.
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper();
+
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    void enqueue(Runnable runnable) {
+        queue.add(runnable);
+    }
+
+    void remove(Runnable runnable) {
+        queue.removeIf(queued -> queued == runnable);
+    }
+
+    /** Not in Android: runs everything posted so far, including what those posts post. */
+    public static int drain() {
+        int ran = 0;
+        Runnable next;
+        while ((next = MAIN.queue.poll()) != null) {
+            next.run();
+            ran++;
+        }
+        return ran;
+    }
+}
@@ -0,0 +1,26 @@
+package android.view;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/** Benchmark stand-in: a frame callback runs on the next {@link Looper#drain}. */
+public final class Choreographer {
+    private static final Choreographer INSTANCE = new Choreographer();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    private Choreographer() {
+    }
+
+    public static Choreographer getInstance() {
+        return INSTANCE;
+    }
+
+    public void postFrameCallback(final FrameCallback callback) {
+        handler.post(() -> callback.doFrame(System.nanoTime()));
+    }
+}
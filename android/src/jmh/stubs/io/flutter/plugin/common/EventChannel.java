@@ -0,0 +1,15 @@
+package io.flutter.plugin.common;
+
+/** Benchmark stand-in for the part of the Flutter event channel the plugin touches. */
+public final class EventChannel {
+    private EventChannel() {
+    }
+
+    public interface EventSink {
+        void success(Object event);
+
+        void error(String errorCode, String errorMessage, Object errorDetails);
+
+        void endOfStream();
+    }
+}
@@ -0,0 +1,7 @@
+package io.flutter.plugin.common;
+
+/** Benchmark stand-in for the method channel events fall back to without a listener. */
+public class MethodChannel {
+    public void invokeMethod(String method, Object arguments) {
+    }
+}
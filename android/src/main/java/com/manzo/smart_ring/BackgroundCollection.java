@@ -0,0 +1,110 @@
+package com.manzo.smart_ring;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What the plugin collects while no Flutter engine needs to be attached: which
+ * rings, which measurement and how often. Persisted, so
+ * {@link RingCollectionService} can pick collection back up on its own after
+ * the system restarts the process. Immutable.
+ */
+final class BackgroundCollection {
+    private static final String PREFS_NAME = "smart_ring_background";
+    private static final String KEY_INTERVAL_MS = "intervalMs";
+    private static final String KEY_MEASUREMENT = "measurement";
+    private static final String KEY_ADDRESSES = "addresses";
+    private static final String KEY_STARTED_AT_MS = "startedAtMs";
+    private static final String KEY_LAST_RUN_AT_MS = "lastRunAtMs";
+
+    static final String FULL_MEASUREMENT = "full";
+    private static final List<String> MEASUREMENTS = Arrays.asList(
+            FULL_MEASUREMENT, "temperature", "heartRate", "hrv", "stress", "bloodOxygen");
+
+    // Idle-mode alarms fire at most about every 9 minutes anyway
+    static final long MIN_INTERVAL_MS = 5 * 60 * 1000L;
+    static final long MAX_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+    static final long DEFAULT_INTERVAL_MS = 30 * 60 * 1000L;
+
+    final long intervalMs;
+    final String measurement; // FULL_MEASUREMENT or a single measurement type
+    final List<String> addresses;
+    final long startedAtMs;
+
+    BackgroundCollection(long intervalMs, String measurement, List<String> addresses, long startedAtMs) {
+        if (intervalMs < MIN_INTERVAL_MS || intervalMs > MAX_INTERVAL_MS) {
+            throw new IllegalArgumentException("intervalMs must be between " + MIN_INTERVAL_MS + " and "
+                    + MAX_INTERVAL_MS);
+        }
+        if (!MEASUREMENTS.contains(measurement)) {
+            throw new IllegalArgumentException("measurement must be one of " + MEASUREMENTS);
+        }
+        if (addresses == null || addresses.isEmpty()) {
+            throw new IllegalArgumentException("at least one device address is required");
+        }
+        for (String address : addresses) {
+            if (address == null || address.isEmpty() || address.indexOf(',') >= 0) {
+                throw new IllegalArgumentException("invalid device address: " + address);
+            }
+        }
+        this.intervalMs = intervalMs;
+        this.measurement = measurement;
+        this.addresses = Collections.unmodifiableList(new ArrayList<>(addresses));
+        this.startedAtMs = startedAtMs;
+    }
+
+    // The persisted collection, or null when none is running or what was saved no longer parses
+    static BackgroundCollection load(Context context) {
+        SharedPreferences prefs = prefs(context);
+        String addresses = prefs.getString(KEY_ADDRESSES, null);
+        if (addresses == null) {
+            return null;
+        }
+        try {
+            return new BackgroundCollection(prefs.getLong(KEY_INTERVAL_MS, DEFAULT_INTERVAL_MS),
+                    prefs.getString(KEY_MEASUREMENT, FULL_MEASUREMENT), Arrays.asList(addresses.split(",")),
+                    prefs.getLong(KEY_STARTED_AT_MS, 0));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    boolean save(Context context) {
+        StringBuilder joined = new StringBuilder();
+        for (String address : addresses) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(address);
+        }
+        return prefs(context).edit()
+                .putLong(KEY_INTERVAL_MS, intervalMs)
+                .putString(KEY_MEASUREMENT, measurement)
+                .putString(KEY_ADDRESSES, joined.toString())
+                .putLong(KEY_STARTED_AT_MS, startedAtMs)
+                .remove(KEY_LAST_RUN_AT_MS)
+                .commit();
+    }
+
+    static void clear(Context context) {
+        prefs(context).edit().clear().commit();
+    }
+
+    // Written without waiting for the disk; a lost write only understates the last run
+    static void recordRun(Context context, long runAtMs) {
+        prefs(context).edit().putLong(KEY_LAST_RUN_AT_MS, runAtMs).apply();
+    }
+
+    static long lastRunAtMs(Context context) {
+        return prefs(context).getLong(KEY_LAST_RUN_AT_MS, 0);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,29 @@
+package com.manzo.smart_ring;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff shared by reconnects and measurement retries.
+ *
+ * Attempt n waits {@code min(maxMs, baseMs * 2^(n-1))}; with jitter, half of
+ * that is fixed and half random ("equal jitter"), so callers that failed
+ * together do not retry in lockstep while the wait still grows.
+ */
+final class Backoff {
+    private Backoff() {
+    }
+
+    // attempt is 1-based; maxMs == baseMs gives a fixed delay
+    static long delayMs(long baseMs, long maxMs, int attempt, boolean jitter, Random random) {
+        long ceiling = maxMs;
+        // Stop doubling once past the ceiling, before the shift overflows
+        if (attempt - 1 < 62 && baseMs <= maxMs >> Math.min(attempt - 1, 62)) {
+            ceiling = baseMs << (attempt - 1);
+        }
+        if (!jitter) {
+            return ceiling;
+        }
+        long half = ceiling / 2;
+        return ceiling - half + (half > 0 ? (long) (random.nextDouble() * (half + 1)) : 0);
+    }
+}
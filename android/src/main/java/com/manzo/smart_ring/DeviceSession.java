@@ -0,0 +1,1780 @@
+package com.manzo.smart_ring;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.crrepa.ble.conn.CRPBleConnection;
+import com.crrepa.ble.conn.CRPBleDevice;
+import com.crrepa.ble.conn.bean.CRPHeartRateInfo;
+import com.crrepa.ble.conn.bean.CRPHistoryBloodOxygenInfo;
+import com.crrepa.ble.conn.bean.CRPHistoryHeartRateInfo;
+import com.crrepa.ble.conn.bean.CRPHistoryHrvInfo;
+import com.crrepa.ble.conn.bean.CRPHistoryStressInfo;
+import com.crrepa.ble.conn.bean.CRPHistoryTempInfo;
+import com.crrepa.ble.conn.bean.CRPTimingBloodOxygenInfo;
+import com.crrepa.ble.conn.bean.CRPTimingHrvInfo;
+import com.crrepa.ble.conn.listener.CRPBatteryListener;
+import com.crrepa.ble.conn.listener.CRPBleConnectionStateListener;
+import com.crrepa.ble.conn.listener.CRPBloodOxygenChangeListener;
+import com.crrepa.ble.conn.listener.CRPDeviceRssiListener;
+import com.crrepa.ble.conn.listener.CRPHeartRateChangeListener;
+import com.crrepa.ble.conn.listener.CRPHrvChangeListener;
+import com.crrepa.ble.conn.listener.CRPStressChangeListener;
+import com.crrepa.ble.conn.listener.CRPTempChangeListener;
+import com.crrepa.ble.conn.type.CRPHistoryDay;
+
+/**
+ * One ring connection: its SDK connection and listeners, connection state,
+ * measurement flags, retry and full-measurement sequence state, timers and
+ * history/timing syncs.
+ *
+ * Sessions are owned by {@link SmartRingPlugin}, keyed by device address. Every
+ * event a session emits is tagged with its connection slot.
+ *
+ * SDK callbacks, timers and the measurement state machine all run on a single
+ * worker thread shared by the sessions, so the main looper only delivers
+ * batched events. Timers live on a {@link TimerWheel} advanced by that worker,
+ * one cancellable token per measurement, retry and connection attempt. Measurement status is an atomic bit set that method calls
+ * read and claim from any thread; everything else marked "worker only" is
+ * confined to the worker. Latencies, retries and timeouts go to the plugin's
+ * {@link PluginMetrics}. Realtime heart rate is thinned out by a
+ * {@link RealtimeAggregator} before it is dispatched, and results are scored
+ * by a {@link ReadingQuality} before they are accepted. Failed measurements
+ * are retried as the run's {@link RetryPolicy.Plan} says.
+ *
+ * When the {@link ReconnectPolicy} allows it, a ring that drops after having
+ * connected is reconnected through the same device handle with backoff, and
+ * the measurement and syncs the drop cut short are started again.
+ */
+final class DeviceSession {
+    private static final String TAG = "DeviceSession";
+
+    /** Notified when the ring finishes connecting and when the session is closed. */
+    interface Callback {
+        void onConnected(DeviceSession session);
+
+        void onClosed(DeviceSession session);
+    }
+
+    // Status bits shared with MeasurementStatus.fromBits on the Dart side
+    static final int STATUS_TEMPERATURE = 1;
+    static final int STATUS_HEART_RATE = 1 << 1;
+    static final int STATUS_HRV = 1 << 2;
+    static final int STATUS_STRESS = 1 << 3;
+    static final int STATUS_BLOOD_OXYGEN = 1 << 4;
+    static final int STATUS_FULL_MEASUREMENT = 1 << 5;
+
+    private static final long CONNECTION_TIMEOUT_MS = 30000;
+
+    final String address;
+    final int slot;
+
+    private final EventDispatcher eventDispatcher;
+    private final HistorySync historySync;
+    private final TimingSync timingSync;
+    private final TimeSeriesStore timeSeriesStore;
+    private final MeasurementTimeouts timeouts;
+    private final PluginMetrics metrics;
+    private final ReconnectPolicy reconnectPolicy;
+    private final RealtimeAggregator realtimeHeartRate; // worker only
+    private final ReadingQuality readingQuality = new ReadingQuality(); // worker only
+    private final Callback callback;
+    private final ScheduledExecutorService worker;
+    private final TimerWheel timers; // worker only
+
+    private volatile CRPBleConnection bleConnection;
+    private volatile int lastConnectionState = 0;
+    private final TemperatureTrend temperatureTrend = new TemperatureTrend(); // worker only
+    private float[] temperatures = new float[TemperatureTrend.WINDOW]; // worker only, reused per series
+    // Slots of the latest series that were not stored before, sized like temperatures (worker only)
+    private long[] newTemperatureTimes = new long[TemperatureTrend.WINDOW];
+    private float[] newTemperatures = new float[TemperatureTrend.WINDOW];
+
+    // STATUS_* bits of the running measurements
+    private final AtomicInteger status = new AtomicInteger();
+    // Bits Dart was last sent, so unchanged status is not sent again (worker only)
+    private int reportedStatus = 0;
+
+    // Retry mechanism, counted per measurement since full-measurement steps overlap (worker only)
+    private final Map<String, Integer> retryCounts = new HashMap<>();
+    private RetryPolicy.Plan retryPlan = RetryPolicy.Plan.DEFAULT;
+    // Time the current run's retries have taken, and when each pending retry was decided (worker only)
+    private long retrySpentMs = 0;
+    private final Map<String, Long> retryStartedAt = new HashMap<>();
+    // Last RSSI the ring reported, for retries that need a good link (worker only)
+    private int lastRssi = RetryPolicy.ANY_RSSI;
+    private long lastRssiAtMs = 0;
+
+    // Plan of the running full measurement, null when none is running (worker only)
+    private MeasurementScheduler fullMeasurement;
+
+    // Pending timeout or retry of each measurement, so a result only cancels its own (worker only)
+    private final Map<String, TimerWheel.Timeout> measurementTimers = new HashMap<>();
+    private TimerWheel.Timeout connectionTimeout; // worker only
+    private TimerWheel.Timeout realtimeWindowTimer; // worker only
+
+    // System.nanoTime() at which each running measurement was started (worker only)
+    private final Map<String, Long> measurementStartedAt = new HashMap<>();
+    private long connectStartedAt = 0; // worker only
+
+    // Auto-reconnect (worker only unless volatile)
+    private final Random jitter = new Random();
+    private volatile CRPBleDevice bleDevice;
+    private volatile boolean reconnecting = false;
+    private boolean closed = false;
+    private boolean everConnected = false;
+    private int reconnectAttempts = 0;
+    private long droppedAt = 0;
+    private TimerWheel.Timeout reconnectTimer;
+    // Work the drop cut short, started again once reconnected
+    private int interruptedStatus = 0;
+    private boolean interruptedHistorySync = false;
+    private boolean interruptedTimingSync = false;
+
+    DeviceSession(String address, int slot, EventDispatcher eventDispatcher, HistoryWatermarks watermarks,
+                  TimeSeriesStore timeSeriesStore, MeasurementTimeouts timeouts, PluginMetrics metrics,
+                  ReconnectPolicy reconnectPolicy, RealtimeAggregator.Settings realtimeSettings, Callback callback,
+                  ScheduledExecutorService worker, TimerWheel timers) {
+        this.address = address;
+        this.slot = slot;
+        this.eventDispatcher = eventDispatcher;
+        this.timeSeriesStore = timeSeriesStore;
+        this.timeouts = timeouts;
+        this.metrics = metrics;
+        this.reconnectPolicy = reconnectPolicy;
+        realtimeHeartRate = new RealtimeAggregator(realtimeSettings, realtimeSink);
+        this.callback = callback;
+        this.worker = worker;
+        this.timers = timers;
+        historySync = new HistorySync(eventDispatcher, timers);
+        historySync.setWatermarks(watermarks);
+        timingSync = new TimingSync(eventDispatcher, timers);
+        timingSync.setWatermarks(watermarks, address);
+        timingSync.setStore(timeSeriesStore);
+    }
+
+    CRPBleConnection connection() {
+        return bleConnection;
+    }
+
+    // Any thread; see TimingSync.configure
+    void configureTiming(byte metric, int interval) {
+        TimingSync.configure(bleConnection, metric, interval);
+        if (metric == TimingSync.METRIC_TEMPERATURE) {
+            timingSync.setTemperatureTiming(interval > 0);
+        }
+    }
+
+    int connectionState() {
+        return lastConnectionState;
+    }
+
+    boolean isConnected() {
+        return bleConnection != null && lastConnectionState == 2;
+    }
+
+    // Returns the sync id, or -1 when a history sync is already running
+    int startHistorySync(final List<String> metrics, final int chunkSize, final boolean incremental) {
+        final int syncId = historySync.claim();
+        if (syncId < 0) {
+            return -1;
+        }
+        post(new Runnable() {
+            @Override
+            public void run() {
+                historySync.start(syncId, bleConnection, address, metrics, chunkSize, incremental);
+            }
+        });
+        return syncId;
+    }
+
+    // Returns false when syncId is not the latest sync; the watermarks advance on the worker
+    boolean acknowledgeHistory(final int syncId, final int chunkIndex) {
+        if (syncId != historySync.latestSyncId()) {
+            return false;
+        }
+        post(new Runnable() {
+            @Override
+            public void run() {
+                historySync.acknowledge(syncId, chunkIndex);
+            }
+        });
+        return true;
+    }
+
+    void cancelHistorySync() {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                historySync.cancel();
+            }
+        });
+    }
+
+    // Returns the sync id, or -1 when a timing pull is already running
+    int startTimingSync(final List<String> metrics, final int days) {
+        final int syncId = timingSync.claim();
+        if (syncId < 0) {
+            return -1;
+        }
+        post(new Runnable() {
+            @Override
+            public void run() {
+                timingSync.start(syncId, bleConnection, address, metrics, days);
+            }
+        });
+        return syncId;
+    }
+
+    void cancelTimingSync() {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                timingSync.cancel();
+            }
+        });
+    }
+
+    boolean isReconnecting() {
+        return reconnecting;
+    }
+
+    // device is the plugin's cached handle for this address, null if it could not be obtained
+    void connect(CRPBleDevice device) {
+        try {
+            if (device == null) {
+                throw new IllegalArgumentException("no device with address " + address);
+            }
+            bleDevice = device;
+            attach(device.connect());
+        } catch (Exception e) {
+            Log.e(TAG, "Error connecting to device: " + e.getMessage());
+            eventDispatcher.dispatchString(EventCodec.CONNECTION_ERROR, "Failed to connect: " + e.getMessage());
+            callback.onClosed(this);
+        }
+    }
+
+    // Takes over a connection that is being established
+    void attach(CRPBleConnection connection) {
+        final long attachedAt = System.nanoTime();
+        bleConnection = connection;
+        connection.setConnectionStateListener(bleConnectionStateListener);
+        connection.setDeviceRssiListener(rssiListener);
+
+        // Add connection timeout
+        post(new Runnable() {
+            @Override
+            public void run() {
+                connectStartedAt = attachedAt;
+                cancelConnectionTimeout();
+                connectionTimeout = schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        connectionTimeout = null;
+                        if (bleConnection != null && lastConnectionState != 2) {
+                            Log.w(TAG, "Connection attempt to " + address + " timed out");
+                            metrics.increment(PluginMetrics.CONNECT_TIMEOUTS);
+                            if (reconnecting) {
+                                scheduleReconnect();
+                                return;
+                            }
+                            eventDispatcher.dispatchInt(EventCodec.CONNECTION_STATE, 0);
+                            eventDispatcher.dispatchString(EventCodec.CONNECTION_ERROR, "Connection timed out after 30 seconds");
+                            disconnectNow();
+                        }
+                    }
+                }, CONNECTION_TIMEOUT_MS);
+            }
+        });
+    }
+
+    // Skips the backoff wait of a pending reconnect, e.g. when the user asks to connect
+    void reconnectImmediately() {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                if (reconnectTimer != null) {
+                    reconnectTimer.cancel();
+                    reconnectTimer = null;
+                    reconnectNow();
+                }
+            }
+        });
+    }
+
+    void disconnect() {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                disconnectNow();
+            }
+        });
+    }
+
+    // Releases the connection without reporting it, for engine detach
+    void close() {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                closeNow();
+            }
+        });
+    }
+
+    private void disconnectNow() {
+        closeNow();
+        eventDispatcher.dispatchInt(EventCodec.CONNECTION_STATE, 0);
+        Log.i(TAG, "Device " + address + " disconnected successfully.");
+        callback.onClosed(this);
+    }
+
+    private void closeNow() {
+        closed = true;
+        reconnecting = false;
+        if (reconnectTimer != null) {
+            reconnectTimer.cancel();
+            reconnectTimer = null;
+        }
+        try {
+            // Stop any ongoing measurements
+            stopMeasurementsNow();
+            cancelConnectionTimeout();
+            cancelRealtimeWindow();
+            historySync.cancel();
+            timingSync.cancel();
+            timingSync.setStore(null);
+
+            CRPBleConnection connection = bleConnection;
+            bleConnection = null;
+            lastConnectionState = 0;
+            if (connection != null) {
+                connection.setConnectionStateListener(null);
+                connection.close();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error disconnecting: " + e.getMessage());
+        }
+    }
+
+    boolean isAnyMeasurementInProgress() {
+        return status.get() != 0;
+    }
+
+    // Returns false when another measurement is already running on this ring
+    boolean startSingleMeasurement(String measurementType, final RetryPolicy.Plan plan) {
+        // Claiming the status bits decides the race between concurrent callers
+        if (!status.compareAndSet(0, statusBit(measurementType))) {
+            return false;
+        }
+        post(new Runnable() {
+            @Override
+            public void run() {
+                startRun(plan);
+                startMeasurement(measurementType, false);
+            }
+        });
+        return true;
+    }
+
+    boolean startFullMeasurement(final RetryPolicy.Plan plan) {
+        if (!status.compareAndSet(0, STATUS_FULL_MEASUREMENT)) {
+            return false;
+        }
+        post(new Runnable() {
+            @Override
+            public void run() {
+                startRun(plan);
+                fullMeasurement = new MeasurementScheduler(plan.criticalSteps);
+                // Send status update BEFORE starting first measurement
+                sendMeasurementStatusUpdate();
+                // Temperature and the PPG chain start together
+                for (String step : fullMeasurement.start()) {
+                    if (!isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                        break;
+                    }
+                    startMeasurement(step, true);
+                }
+            }
+        });
+        return true;
+    }
+
+    // STATUS_* bits, 0 when nothing is running
+    int measurementStatus() {
+        return status.get();
+    }
+
+    void stopAllMeasurements() {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                stopMeasurementsNow();
+            }
+        });
+    }
+
+    private void stopMeasurementsNow() {
+        try {
+            if (bleConnection != null) {
+                if (isMeasuring(STATUS_TEMPERATURE)) {
+                    releaseTimingTemp();
+                }
+
+                if (isMeasuring(STATUS_HEART_RATE)) {
+                    try {
+                        bleConnection.stopMeasureHeartRate();
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error stopping heart rate: " + e.getMessage());
+                    }
+                }
+
+                if (isMeasuring(STATUS_HRV)) {
+                    try {
+                        bleConnection.stopMeasureHrv();
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error stopping HRV: " + e.getMessage());
+                    }
+                }
+
+                if (isMeasuring(STATUS_STRESS)) {
+                    try {
+                        bleConnection.stopMeasureStress();
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error stopping stress: " + e.getMessage());
+                    }
+                }
+
+                if (isMeasuring(STATUS_BLOOD_OXYGEN)) {
+                    try {
+                        bleConnection.stopMeasureBloodOxygen();
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error stopping blood oxygen: " + e.getMessage());
+                    }
+                }
+            }
+
+            // Reset all states
+            cancelMeasurementTimers();
+            status.set(0);
+            fullMeasurement = null;
+            measurementStartedAt.clear();
+
+            sendMeasurementStatusUpdate();
+        } catch (Exception e) {
+            Log.e(TAG, "Error in stopAllMeasurements: " + e.getMessage());
+        }
+    }
+
+    private static int statusBit(String measurementType) {
+        switch (measurementType) {
+            case "temperature":
+                return STATUS_TEMPERATURE;
+            case "heartRate":
+                return STATUS_HEART_RATE;
+            case "hrv":
+                return STATUS_HRV;
+            case "stress":
+                return STATUS_STRESS;
+            case "bloodOxygen":
+                return STATUS_BLOOD_OXYGEN;
+            default:
+                return 0;
+        }
+    }
+
+    private boolean isMeasuring(int bit) {
+        return (status.get() & bit) != 0;
+    }
+
+    private void setMeasuring(int bit, boolean measuring) {
+        if (measuring) {
+            status.getAndUpdate(bits -> bits | bit);
+        } else {
+            status.getAndUpdate(bits -> bits & ~bit);
+        }
+    }
+
+    // Sends the status bits when they differ from what Dart last got
+    private void sendMeasurementStatusUpdate() {
+        int bits = status.get();
+        if (bits == reportedStatus) {
+            return;
+        }
+        reportedStatus = bits;
+        Log.d(TAG, "Sending measurement status for " + address + ": " + Integer.toBinaryString(bits));
+        eventDispatcher.dispatchInt(EventCodec.MEASUREMENT_STATUS, bits);
+    }
+
+    void sendError(String measurementType, String errorMessage) {
+        eventDispatcher.dispatchError(measurementType, null, errorMessage);
+    }
+
+    void sendDetailedError(String measurementType, Exception e) {
+        String errorMessage = e.getMessage() != null ? e.getMessage() : "Unknown error";
+        eventDispatcher.dispatchError(measurementType, e.getClass().getSimpleName(), errorMessage);
+    }
+
+    private void startListeners() {
+        if (bleConnection != null) {
+            try {
+                bleConnection.setBatteryListener(batteryListener);
+                bleConnection.setTempChangeListener(temperatureChangeListener);
+                bleConnection.setHrvChangeListener(hrvChangeListener);
+                bleConnection.setHeartRateChangeListener(heartRateChangeListener);
+                bleConnection.setStressChangeListener(stressChangeListener);
+                bleConnection.setBloodOxygenChangeListener(bloodOxygenChangeListener);
+            } catch (Exception e) {
+                Log.e(TAG, "Error setting listeners: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean isRetrying(String measurementType) {
+        Integer attempt = retryCounts.get(measurementType);
+        return attempt != null && attempt > 0;
+    }
+
+    // Runs task on the worker; tasks arriving after shutdown are dropped. Events the
+    // task dispatches date their latency from now, when the callback arrived.
+    private void post(final Runnable task) {
+        final long postedAt = System.nanoTime();
+        try {
+            worker.execute(guarded(new Runnable() {
+                @Override
+                public void run() {
+                    metrics.recordNanos(PluginMetrics.WORKER_QUEUE, System.nanoTime() - postedAt);
+                    EventDispatcher.setCallbackOrigin(postedAt);
+                    try {
+                        task.run();
+                    } finally {
+                        EventDispatcher.setCallbackOrigin(0);
+                    }
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Worker stopped, dropping task for " + address);
+        }
+    }
+
+    // Emits the realtime heart rate window once it has run its length, even if no sample follows
+    private void scheduleRealtimeWindowClose(long delayMs) {
+        if (realtimeWindowTimer != null) {
+            realtimeWindowTimer.cancel();
+        }
+        realtimeWindowTimer = schedule(new Runnable() {
+            @Override
+            public void run() {
+                realtimeWindowTimer = null;
+                long remaining = realtimeHeartRate.closeIfDue(System.nanoTime() / 1_000_000);
+                if (remaining > 0) {
+                    scheduleRealtimeWindowClose(remaining);
+                }
+            }
+        }, delayMs);
+    }
+
+    private void cancelRealtimeWindow() {
+        if (realtimeWindowTimer != null) {
+            realtimeWindowTimer.cancel();
+            realtimeWindowTimer = null;
+        }
+        realtimeHeartRate.reset();
+    }
+
+    private final RealtimeAggregator.Sink realtimeSink = new RealtimeAggregator.Sink() {
+        @Override
+        public void onSample(int value) {
+            eventDispatcher.dispatchInt(EventCodec.REALTIME_HEART_RATE, value);
+        }
+
+        @Override
+        public void onWindow(int count, int min, int max, float mean, int last, long durationMs) {
+            eventDispatcher.dispatchHeartRateWindow(count, min, max, mean, last, durationMs);
+        }
+    };
+
+    private TimerWheel.Timeout schedule(Runnable task, long delayMs) {
+        return timers.schedule(guarded(task), delayMs);
+    }
+
+    // An exception must not take the worker thread down with it
+    private Runnable guarded(final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Error on worker for " + address + ": " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    private void scheduleMeasurementTimer(final String measurementType, final Runnable task, long delayMs) {
+        cancelMeasurementTimer(measurementType);
+        TimerWheel.Timeout timer = schedule(new Runnable() {
+            @Override
+            public void run() {
+                measurementTimers.remove(measurementType);
+                task.run();
+            }
+        }, delayMs);
+        measurementTimers.put(measurementType, timer);
+    }
+
+    private void cancelMeasurementTimer(String measurementType) {
+        TimerWheel.Timeout timer = measurementTimers.remove(measurementType);
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
+    // Cancels the pending timeout and records how long the ring took to answer.
+    // Late answers to a timed-out attempt are recorded too, so a too-short
+    // timeout can grow again.
+    private void onMeasurementResult(String measurementType) {
+        cancelMeasurementTimer(measurementType);
+        chargeRetryTime(measurementType);
+        Long startedAt = measurementStartedAt.remove(measurementType);
+        if (startedAt != null) {
+            long latencyNanos = System.nanoTime() - startedAt;
+            timeouts.record(measurementType, latencyNanos / 1_000_000);
+            metrics.recordNanos(PluginMetrics.MEASUREMENT + measurementType, latencyNanos);
+        }
+    }
+
+    private void cancelMeasurementTimers() {
+        for (TimerWheel.Timeout timer : measurementTimers.values()) {
+            timer.cancel();
+        }
+        measurementTimers.clear();
+    }
+
+    private boolean shouldReconnect() {
+        return !closed && everConnected && bleDevice != null && reconnectPolicy.isEnabled();
+    }
+
+    // Waits out the backoff of the next attempt, or gives up and closes the session
+    private void scheduleReconnect() {
+        if (reconnectTimer != null) {
+            return;
+        }
+        int attempt = reconnectAttempts + 1;
+        if (!reconnectPolicy.allows(attempt)) {
+            Log.w(TAG, "Giving up reconnecting to " + address + " after " + reconnectAttempts + " attempts");
+            metrics.increment(PluginMetrics.RECONNECT_FAILURES);
+            eventDispatcher.dispatchString(EventCodec.CONNECTION_ERROR,
+                    "Reconnect failed after " + reconnectAttempts + " attempts");
+            closeNow();
+            callback.onClosed(this);
+            return;
+        }
+        reconnectAttempts = attempt;
+        reconnecting = true;
+        long delayMs = reconnectPolicy.delayMs(attempt, jitter);
+        Log.i(TAG, "Reconnecting to " + address + " in " + delayMs + " ms, attempt " + attempt);
+        eventDispatcher.dispatchReconnect(attempt, delayMs);
+        reconnectTimer = schedule(new Runnable() {
+            @Override
+            public void run() {
+                reconnectTimer = null;
+                reconnectNow();
+            }
+        }, delayMs);
+    }
+
+    private void reconnectNow() {
+        if (closed) {
+            return;
+        }
+        CRPBleConnection stale = bleConnection;
+        bleConnection = null;
+        if (stale != null) {
+            try {
+                stale.setConnectionStateListener(null);
+                stale.close();
+            } catch (Exception e) {
+                Log.e(TAG, "Error closing dropped connection: " + e.getMessage());
+            }
+        }
+        metrics.increment(PluginMetrics.RECONNECT_ATTEMPTS);
+        try {
+            attach(bleDevice.connect());
+        } catch (Exception e) {
+            Log.e(TAG, "Error reconnecting to " + address + ": " + e.getMessage());
+            scheduleReconnect();
+        }
+    }
+
+    // Starts again what the drop cut short; the ring lost its state with the link
+    private void resumeInterruptedWork() {
+        int work = interruptedStatus;
+        interruptedStatus = 0;
+        if ((work & STATUS_FULL_MEASUREMENT) != 0) {
+            Log.d(TAG, "Resuming full measurement on " + address);
+            startFullMeasurement(retryPlan);
+        } else {
+            for (String type : new String[]{"temperature", "heartRate", "hrv", "stress", "bloodOxygen"}) {
+                if ((work & statusBit(type)) != 0) {
+                    Log.d(TAG, "Resuming " + type + " measurement on " + address);
+                    startSingleMeasurement(type, retryPlan);
+                    break;
+                }
+            }
+        }
+        if (interruptedHistorySync) {
+            interruptedHistorySync = false;
+            historySync.resume(bleConnection);
+        }
+        if (interruptedTimingSync) {
+            interruptedTimingSync = false;
+            timingSync.resume(bleConnection);
+        }
+    }
+
+    private void cancelConnectionTimeout() {
+        if (connectionTimeout != null) {
+            connectionTimeout.cancel();
+            connectionTimeout = null;
+        }
+    }
+
+    // Worker only
+    private void startRun(RetryPolicy.Plan plan) {
+        retryPlan = plan;
+        retryCounts.clear();
+        retryStartedAt.clear();
+        retrySpentMs = 0;
+    }
+
+    // Retries the measurement under its policy, or reports it failed once the retries or the budget run out
+    private void retryMeasurement(String measurementType, boolean isPartOfSequence) {
+        chargeRetryTime(measurementType);
+        RetryPolicy policy = retryPlan.policy(measurementType);
+        Integer attempt = retryCounts.get(measurementType);
+        int retryCount = attempt != null ? attempt : 0;
+        long delayMs = policy.delayMs(retryCount + 1, jitter);
+        if (retryCount < policy.retries && retrySpentMs + delayMs < retryPlan.budgetMs) {
+            retryCount++;
+            retryCounts.put(measurementType, retryCount);
+            metrics.increment(PluginMetrics.RETRIES + measurementType);
+            Log.d(TAG, "Retrying " + measurementType + " measurement in " + delayMs + " ms, attempt " + retryCount
+                    + " of " + policy.retries);
+            retryStartedAt.put(measurementType, System.nanoTime());
+            if (policy.minRssi != RetryPolicy.ANY_RSSI) {
+                // Have a fresh reading by the time the retry is due
+                requestRssi();
+            }
+            scheduleRetry(measurementType, isPartOfSequence, delayMs);
+        } else {
+            String reason;
+            if (retryCount < policy.retries) {
+                metrics.increment(PluginMetrics.RETRY_BUDGET_EXHAUSTED);
+                reason = "retry budget of " + retryPlan.budgetMs + " ms used up after " + retryCount + " retries";
+            } else {
+                reason = "failed after " + policy.retries + " attempts";
+            }
+            retryCounts.remove(measurementType);
+            metrics.increment(PluginMetrics.FAILURES + measurementType);
+            sendError(measurementType, "Measurement " + reason);
+
+            if (isPartOfSequence) {
+                handleSequenceFailure(measurementType);
+            }
+        }
+    }
+
+    // Starts the retry after delayMs, holding it back while the link is weaker than the policy allows
+    private void scheduleRetry(final String measurementType, final boolean isPartOfSequence, final long delayMs) {
+        final long scheduledAtMs = System.nanoTime() / 1_000_000;
+        scheduleMeasurementTimer(measurementType, new Runnable() {
+            @Override
+            public void run() {
+                RetryPolicy policy = retryPlan.policy(measurementType);
+                // Only a reading taken since the retry was scheduled counts; without one, go ahead
+                if (lastRssi < policy.minRssi && lastRssiAtMs >= scheduledAtMs) {
+                    Long decidedAt = retryStartedAt.get(measurementType);
+                    long waitedMs = decidedAt != null ? (System.nanoTime() - decidedAt) / 1_000_000 : 0;
+                    if (retrySpentMs + waitedMs + delayMs < retryPlan.budgetMs) {
+                        Log.d(TAG, "Holding back " + measurementType + " retry, RSSI " + lastRssi + " dBm");
+                        metrics.increment(PluginMetrics.RETRIES_DEFERRED + measurementType);
+                        requestRssi();
+                        scheduleRetry(measurementType, isPartOfSequence, delayMs);
+                        return;
+                    }
+                }
+                startMeasurement(measurementType, isPartOfSequence);
+            }
+        }, delayMs);
+    }
+
+    // Adds the time since the pending retry of measurementType was decided to the run's retry time
+    private void chargeRetryTime(String measurementType) {
+        Long decidedAt = retryStartedAt.remove(measurementType);
+        if (decidedAt != null) {
+            long spentMs = (System.nanoTime() - decidedAt) / 1_000_000;
+            retrySpentMs += spentMs;
+            metrics.add(PluginMetrics.RETRY_TIME + measurementType, spentMs);
+        }
+    }
+
+    private void requestRssi() {
+        try {
+            bleConnection.readDeviceRssi();
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading RSSI: " + e.getMessage());
+        }
+    }
+
+    private final CRPDeviceRssiListener rssiListener = new CRPDeviceRssiListener() {
+        @Override
+        public void onDeviceRssi(final int rssi) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    lastRssi = rssi;
+                    lastRssiAtMs = System.nanoTime() / 1_000_000;
+                }
+            });
+        }
+    };
+
+    // Scores an in-range result; one scoring too low is sent back for a retry and -1 returned
+    private float scoreResult(String measurementType, double value) {
+        double quality = readingQuality.scoreResult(measurementType, System.nanoTime() / 1_000_000, value);
+        if (quality >= ReadingQuality.ACCEPT_SCORE) {
+            return (float) quality;
+        }
+        Log.w(TAG, "Rejecting implausible " + measurementType + " reading " + value + ", quality " + quality);
+        metrics.increment(PluginMetrics.REJECTED + measurementType);
+        retryMeasurement(measurementType, isMeasuring(STATUS_FULL_MEASUREMENT));
+        return -1;
+    }
+
+    private void handleSequenceFailure(String failedMeasurement) {
+        Log.d(TAG, "Handling sequence failure for: " + failedMeasurement);
+        if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+            finishSequenceStep(failedMeasurement, false);
+        }
+    }
+
+    // Reports a finished step and starts the next one on its lane right away
+    private void finishSequenceStep(String step, boolean succeeded) {
+        MeasurementScheduler plan = fullMeasurement;
+        if (!isMeasuring(STATUS_FULL_MEASUREMENT) || plan == null) {
+            return;
+        }
+        if (!plan.isRunning(step)) {
+            Log.d(TAG, "Ignoring " + step + " result, not a running step of the full measurement");
+            return;
+        }
+        retryCounts.remove(step);
+        String next = plan.onFinished(step, succeeded);
+        eventDispatcher.dispatchFullMeasurementProgress(step, succeeded, plan.completedSteps(), plan.totalSteps(),
+                plan.elapsedMs());
+
+        if (plan.isAborted()) {
+            // End full measurement on critical failure
+            setMeasuring(STATUS_FULL_MEASUREMENT, false);
+            fullMeasurement = null;
+            sendMeasurementStatusUpdate();
+            sendError("fullMeasurement", "Critical measurement " + step + " failed after "
+                    + retryPlan.policy(step).retries + " attempts");
+        } else if (next != null) {
+            startMeasurement(next, true);
+        } else if (plan.isComplete()) {
+            // All measurements complete
+            Log.d(TAG, "Full measurement of " + address + " finished in " + plan.elapsedMs() + " ms, "
+                    + plan.succeededSteps() + "/" + plan.totalSteps() + " steps succeeded");
+            setMeasuring(STATUS_FULL_MEASUREMENT, false);
+            fullMeasurement = null;
+            sendMeasurementStatusUpdate();
+            eventDispatcher.dispatchEmpty(EventCodec.FULL_MEASUREMENT_COMPLETE);
+        }
+    }
+
+    private void startMeasurement(String measurementType, boolean isPartOfSequence) {
+        if (bleConnection == null || lastConnectionState != 2) {
+            String errorMsg = bleConnection == null ? "No device connected" : "Device not ready (state: " + lastConnectionState + ")";
+            // Release the bit claimed by startSingleMeasurement
+            setMeasuring(statusBit(measurementType), false);
+            sendMeasurementStatusUpdate();
+            sendError(measurementType, errorMsg);
+            if (isPartOfSequence) {
+                handleSequenceFailure(measurementType);
+            }
+            return;
+        }
+
+        measurementStartedAt.put(measurementType, System.nanoTime());
+        switch (measurementType) {
+            case "temperature":
+                startTemperatureMeasurement(isPartOfSequence);
+                break;
+            case "heartRate":
+                startHeartRateMeasurement(isPartOfSequence);
+                break;
+            case "hrv":
+                startHrvMeasurement(isPartOfSequence);
+                break;
+            case "stress":
+                startStressMeasurement(isPartOfSequence);
+                break;
+            case "bloodOxygen":
+                startBloodOxygenMeasurement(isPartOfSequence);
+                break;
+        }
+    }
+
+    // Individual measurement methods
+    private void startTemperatureMeasurement(boolean isPartOfSequence) {
+        if (bleConnection != null && lastConnectionState == 2) {
+            setMeasuring(STATUS_TEMPERATURE, true);
+            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
+            try {
+                bleConnection.enableTimingTemp();
+                // Set timeout
+                scheduleMeasurementTimer("temperature", new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isMeasuring(STATUS_TEMPERATURE)) {
+                            Log.w(TAG, "Temperature measurement timed out");
+                            metrics.increment(PluginMetrics.TIMEOUTS + "temperature");
+                            releaseTimingTemp();
+                            setMeasuring(STATUS_TEMPERATURE, false);
+                            sendMeasurementStatusUpdate();
+                            retryMeasurement("temperature", isPartOfSequence);
+                        }
+                    }
+                }, timeouts.timeoutMs("temperature"));
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting temperature measurement: " + e.getMessage());
+                setMeasuring(STATUS_TEMPERATURE, false);
+                sendMeasurementStatusUpdate();
+                sendDetailedError("temperature", e);
+
+                if (isPartOfSequence) {
+                    handleSequenceFailure("temperature");
+                }
+            }
+        }
+    }
+
+    // Ends a temperature measurement's use of the ring's timed sampling, which stays on if the app configured it
+    private void releaseTimingTemp() {
+        if (timingSync.isTemperatureTimingOn()) {
+            return;
+        }
+        try {
+            bleConnection.disableTimingTemp();
+        } catch (Exception e) {
+            Log.e(TAG, "Error disabling temperature timing: " + e.getMessage());
+        }
+    }
+
+    private void startHrvMeasurement(boolean isPartOfSequence) {
+        if (bleConnection != null && lastConnectionState == 2) {
+            setMeasuring(STATUS_HRV, true);
+            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
+            try {
+                bleConnection.startMeasureHrv();
+
+                // Set timeout
+                scheduleMeasurementTimer("hrv", new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isMeasuring(STATUS_HRV)) {
+                            Log.w(TAG, "HRV measurement timed out");
+                            metrics.increment(PluginMetrics.TIMEOUTS + "hrv");
+                            try {
+                                bleConnection.stopMeasureHrv();
+                            } catch (Exception e) {
+                                Log.e(TAG, "Error stopping HRV measurement: " + e.getMessage());
+                            }
+                            setMeasuring(STATUS_HRV, false);
+                            sendMeasurementStatusUpdate();
+                            retryMeasurement("hrv", isPartOfSequence);
+                        }
+                    }
+                }, timeouts.timeoutMs("hrv"));
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting HRV measurement: " + e.getMessage());
+                setMeasuring(STATUS_HRV, false);
+                sendMeasurementStatusUpdate();
+                sendDetailedError("hrv", e);
+
+                if (isPartOfSequence) {
+                    handleSequenceFailure("hrv");
+                }
+            }
+        }
+    }
+
+    private void startHeartRateMeasurement(boolean isPartOfSequence) {
+        if (bleConnection != null && lastConnectionState == 2) {
+            setMeasuring(STATUS_HEART_RATE, true);
+            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
+            try {
+                bleConnection.startMeasureHeartRate();
+                // Set timeout
+                scheduleMeasurementTimer("heartRate", new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isMeasuring(STATUS_HEART_RATE)) {
+                            Log.w(TAG, "Heart rate measurement timed out");
+                            metrics.increment(PluginMetrics.TIMEOUTS + "heartRate");
+                            try {
+                                bleConnection.stopMeasureHeartRate();
+                            } catch (Exception e) {
+                                Log.e(TAG, "Error stopping heart rate measurement: " + e.getMessage());
+                            }
+                            setMeasuring(STATUS_HEART_RATE, false);
+                            sendMeasurementStatusUpdate();
+                            retryMeasurement("heartRate", isPartOfSequence);
+                        }
+                    }
+                }, timeouts.timeoutMs("heartRate"));
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting heart rate measurement: " + e.getMessage());
+                setMeasuring(STATUS_HEART_RATE, false);
+                sendMeasurementStatusUpdate();
+                sendDetailedError("heartRate", e);
+
+                if (isPartOfSequence) {
+                    handleSequenceFailure("heartRate");
+                }
+            }
+        }
+    }
+
+    private void startStressMeasurement(boolean isPartOfSequence) {
+        if (bleConnection != null && lastConnectionState == 2) {
+            setMeasuring(STATUS_STRESS, true);
+            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
+            try {
+                bleConnection.startMeasureStress();
+
+                // Set timeout
+                scheduleMeasurementTimer("stress", new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isMeasuring(STATUS_STRESS)) {
+                            Log.w(TAG, "Stress measurement timed out");
+                            metrics.increment(PluginMetrics.TIMEOUTS + "stress");
+                            try {
+                                bleConnection.stopMeasureStress();
+                            } catch (Exception e) {
+                                Log.e(TAG, "Error stopping stress measurement: " + e.getMessage());
+                            }
+                            setMeasuring(STATUS_STRESS, false);
+                            sendMeasurementStatusUpdate();
+                            retryMeasurement("stress", isPartOfSequence);
+                        }
+                    }
+                }, timeouts.timeoutMs("stress"));
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting stress measurement: " + e.getMessage());
+                setMeasuring(STATUS_STRESS, false);
+                sendMeasurementStatusUpdate();
+                sendDetailedError("stress", e);
+
+                if (isPartOfSequence) {
+                    handleSequenceFailure("stress");
+                }
+            }
+        }
+    }
+
+    private void startBloodOxygenMeasurement(boolean isPartOfSequence) {
+        if (bleConnection != null && lastConnectionState == 2) {
+            setMeasuring(STATUS_BLOOD_OXYGEN, true);
+            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
+            try {
+                bleConnection.startMeasureBloodOxygen();
+
+                // Set timeout
+                scheduleMeasurementTimer("bloodOxygen", new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isMeasuring(STATUS_BLOOD_OXYGEN)) {
+                            Log.w(TAG, "Blood oxygen measurement timed out");
+                            metrics.increment(PluginMetrics.TIMEOUTS + "bloodOxygen");
+                            try {
+                                bleConnection.stopMeasureBloodOxygen();
+                            } catch (Exception e) {
+                                Log.e(TAG, "Error stopping blood oxygen measurement: " + e.getMessage());
+                            }
+                            setMeasuring(STATUS_BLOOD_OXYGEN, false);
+                            sendMeasurementStatusUpdate();
+                            retryMeasurement("bloodOxygen", isPartOfSequence);
+                        }
+                    }
+                }, timeouts.timeoutMs("bloodOxygen"));
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting blood oxygen measurement: " + e.getMessage());
+                setMeasuring(STATUS_BLOOD_OXYGEN, false);
+                sendMeasurementStatusUpdate();
+                sendDetailedError("bloodOxygen", e);
+
+                if (isPartOfSequence) {
+                    handleSequenceFailure("bloodOxygen");
+                }
+            }
+        }
+    }
+
+    /////////////////////////Connection Listeners////////////////////////
+    private final CRPBleConnectionStateListener bleConnectionStateListener = new CRPBleConnectionStateListener() {
+        @Override
+        public void onConnectionStateChange(int state) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    lastConnectionState = state;
+                    Log.d(TAG, "Connection state of " + address + " changed to: " + state);
+                    switch (state) {
+                        case 0: // Disconnected
+                            Log.i(TAG, "Device disconnected");
+                            boolean reconnect = shouldReconnect();
+                            if (reconnect && !reconnecting) {
+                                // A live link dropped; note what it was doing
+                                droppedAt = System.nanoTime();
+                                interruptedStatus = status.get();
+                                interruptedHistorySync = historySync.isActive();
+                                interruptedTimingSync = timingSync.isActive();
+                            }
+                            resetAllMeasurementStates();
+                            historySync.cancel();
+                            timingSync.cancel();
+                            eventDispatcher.dispatchInt(EventCodec.CONNECTION_STATE, 0);
+                            if (reconnect) {
+                                scheduleReconnect();
+                            } else {
+                                // Nothing brings this link back; free its place in the pool
+                                closeNow();
+                                callback.onClosed(DeviceSession.this);
+                            }
+                            break;
+                        case 1: // Connecting
+                            Log.i(TAG, "Device connecting...");
+                            eventDispatcher.dispatchInt(EventCodec.CONNECTION_STATE, 1);
+                            break;
+                        case 2: // Connected
+                            Log.i(TAG, "Device connected successfully");
+                            cancelConnectionTimeout();
+                            if (connectStartedAt != 0) {
+                                metrics.recordNanos(PluginMetrics.CONNECT, System.nanoTime() - connectStartedAt);
+                                connectStartedAt = 0;
+                            }
+                            boolean resumed = reconnecting;
+                            if (resumed) {
+                                Log.i(TAG, "Reconnected to " + address + " after " + reconnectAttempts + " attempts");
+                                metrics.recordNanos(PluginMetrics.RECONNECT, System.nanoTime() - droppedAt);
+                                reconnecting = false;
+                                reconnectAttempts = 0;
+                            }
+                            everConnected = true;
+                            startListeners();
+                            eventDispatcher.dispatchInt(EventCodec.CONNECTION_STATE, 2);
+                            callback.onConnected(DeviceSession.this);
+                            if (resumed) {
+                                resumeInterruptedWork();
+                            }
+                            break;
+                   }
+                }
+            });
+        }
+    };
+
+    // Reset all measurement states
+    private void resetAllMeasurementStates() {
+        cancelMeasurementTimers();
+        cancelConnectionTimeout();
+
+        status.set(0);
+        fullMeasurement = null;
+        retryCounts.clear();
+        retryStartedAt.clear();
+        measurementStartedAt.clear();
+
+        sendMeasurementStatusUpdate();
+    }
+
+    /////////////////////////Battery Listeners////////////////////////
+    private final CRPBatteryListener batteryListener = new CRPBatteryListener() {
+        @Override
+        public void onBattery(int batteryLevel) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "Battery level: " + batteryLevel);
+                    eventDispatcher.dispatchInt(EventCodec.BATTERY, batteryLevel);
+
+                    if (batteryLevel < 15) {
+                        eventDispatcher.dispatchBatteryWarning(batteryLevel, false, "Battery level critical");
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onRealTimeBattery(int batteryLevel, int chargingStatus) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "Real-time battery level: " + batteryLevel + ", charging status: " + chargingStatus);
+                    eventDispatcher.dispatchBattery(EventCodec.REALTIME_BATTERY, batteryLevel, chargingStatus == 1);
+
+                    if (batteryLevel < 15) {
+                        eventDispatcher.dispatchBatteryWarning(batteryLevel, chargingStatus == 1, "Battery level critical");
+                    }
+                }
+            });
+        }
+    };
+
+    /////////////////////////HRV Listeners////////////////////////
+    private final CRPHrvChangeListener hrvChangeListener = new CRPHrvChangeListener() {
+        @Override
+        public void onHrv(int hrvValue) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Log.d(TAG, "HRV value: " + hrvValue);
+
+                        // Cancel timeout since we got a response
+                        onMeasurementResult("hrv");
+
+                        try {
+                            bleConnection.stopMeasureHrv();
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error stopping HRV measurement: " + e.getMessage());
+                        }
+
+                        setMeasuring(STATUS_HRV, false);
+                        sendMeasurementStatusUpdate();
+
+                        if (hrvValue > 0) {
+                            float quality = scoreResult("hrv", hrvValue);
+                            if (quality >= 0) {
+                                eventDispatcher.dispatchResult(EventCodec.HRV, hrvValue, quality);
+                                storeReading(TimeSeriesStore.METRIC_HRV, hrvValue);
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    finishSequenceStep("hrv", true);
+                                }
+                            }
+                        } else {
+                            if (isRetrying("hrv")) {
+                                retryMeasurement("hrv", isMeasuring(STATUS_FULL_MEASUREMENT));
+                            } else {
+                                sendError("hrv", "Invalid HRV reading");
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    handleSequenceFailure("hrv");
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error processing HRV data: " + e.getMessage());
+                        setMeasuring(STATUS_HRV, false);
+                        sendMeasurementStatusUpdate();
+                        sendDetailedError("hrv", e);
+
+                        if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                            handleSequenceFailure("hrv");
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onHistoryHrv(List<CRPHistoryHrvInfo> list) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "History HRV data received");
+                    historySync.onHistory(HistorySync.METRIC_HRV, list, new HistorySync.RecordReader<CRPHistoryHrvInfo>() {
+                        @Override
+                        public long timestampMs(CRPHistoryHrvInfo record) {
+                            return record.getDate() != null ? record.getDate().getTime() : 0;
+                        }
+
+                        @Override
+                        public int value(CRPHistoryHrvInfo record) {
+                            return record.getHrv();
+                        }
+                    });
+                }
+            });
+        }
+
+        @Override
+        public void onTimingInterval(int interval) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "HRV timing interval: " + interval);
+                    eventDispatcher.dispatchInt(EventCodec.HRV_TIMING_INTERVAL, interval);
+                }
+            });
+        }
+
+        @Override
+        public void onTimingHrv(CRPTimingHrvInfo hrvInfo) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "Timing HRV info received");
+                    timingSync.onTiming(TimingSync.METRIC_HRV, hrvInfo.getHistoryDay(), 0,
+                            TimingSync.SLOT_MINUTES, hrvInfo.getHrvList());
+                }
+            });
+        }
+    };
+
+    /////////////////////////Temperature Listeners////////////////////////
+    private final CRPTempChangeListener temperatureChangeListener = new CRPTempChangeListener() {
+        @Override
+        public void onTimingState(boolean state) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "Temperature timing state: " + state);
+                    // While a measurement runs, the state reflects the sampling it switched on
+                    if (!isMeasuring(STATUS_TEMPERATURE)) {
+                        timingSync.setTemperatureTiming(state);
+                    }
+                    eventDispatcher.dispatchBoolean(EventCodec.TEMPERATURE_TIMING_STATE, state);
+                }
+            });
+        }
+
+        @Override
+        public void onHistoryTempChange(CRPHistoryTempInfo tempInfo) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    // Pushes also arrive from the ring's own timed sampling and pulled days; only
+                    // today's series during a measurement started here answers it
+                    CRPHistoryDay day = tempInfo.getHistoryDay();
+                    boolean measuring = isMeasuring(STATUS_TEMPERATURE)
+                            && (day == null || day == CRPHistoryDay.TODAY);
+                    try {
+                        int count = unboxTemperatures(tempInfo.getTempList());
+                        Log.d(TAG, (measuring ? "Temperature measurement received: " : "Timed temperature received: ")
+                                + count + " readings");
+
+                        eventDispatcher.dispatchTemperatureSeries(day != null ? day.ordinal() : 0, temperatures, count);
+                        // Each slot is stored once at its own time, whichever flow brought it
+                        int stored = timingSync.onTiming(TimingSync.METRIC_TEMPERATURE, day, 0,
+                                TimingSync.SLOT_MINUTES, temperatures, count, newTemperatureTimes, newTemperatures);
+                        updateTemperatureTrend(stored);
+
+                        // Get the first valid temperature reading (current measurement)
+                        float currentTemperature = 0f;
+                        for (int i = 0; i < count; i++) {
+                            if (temperatures[i] != 0f) {
+                                currentTemperature = temperatures[i];
+                                break;
+                            }
+                        }
+
+                        if (!measuring) {
+                            // Leave the timed sampling on and the measurement state alone
+                            return;
+                        }
+
+                        // Cancel timeout since we got a response
+                        onMeasurementResult("temperature");
+                        releaseTimingTemp();
+
+                        setMeasuring(STATUS_TEMPERATURE, false);
+                        sendMeasurementStatusUpdate();
+
+                        if (currentTemperature != 0f) {
+                            float quality = scoreResult("temperature", currentTemperature);
+                            if (quality >= 0) {
+                                eventDispatcher.dispatchTemperature(currentTemperature, quality);
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    finishSequenceStep("temperature", true);
+                                }
+                            }
+                        } else {
+                            // No valid temperature was found
+                            if (isRetrying("temperature")) {
+                                retryMeasurement("temperature", isMeasuring(STATUS_FULL_MEASUREMENT));
+                            } else {
+                                sendError("temperature", "No valid temperature reading");
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    handleSequenceFailure("temperature");
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error processing temperature data: " + e.getMessage());
+                        if (!measuring) {
+                            return;
+                        }
+                        setMeasuring(STATUS_TEMPERATURE, false);
+                        sendMeasurementStatusUpdate();
+                        sendDetailedError("temperature", e);
+
+                        if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                            handleSequenceFailure("temperature");
+                        }
+                    }
+                }
+            });
+        }
+    };
+
+    // Feeds the first count newTemperatures, stored in time order, to the trend and reports it once (worker only)
+    private void updateTemperatureTrend(int count) {
+        float latest = 0f;
+        for (int i = 0; i < count; i++) {
+            float celsius = newTemperatures[i];
+            if (celsius >= 30f && celsius <= 45f) { // Plausible body temperature range
+                temperatureTrend.add(celsius);
+                latest = celsius;
+            }
+        }
+        if (latest != 0f) {
+            eventDispatcher.dispatchTemperatureTrend(latest, temperatureTrend.baseline(),
+                    temperatureTrend.deviation(), temperatureTrend.spread(), temperatureTrend.baselineSamples());
+        }
+    }
+
+    // Copies the SDK's boxed readings into temperatures, missing ones as 0; returns how many (worker only)
+    private int unboxTemperatures(List<Float> tempList) {
+        int count = tempList != null ? tempList.size() : 0;
+        if (temperatures.length < count) {
+            temperatures = new float[count];
+            newTemperatureTimes = new long[count];
+            newTemperatures = new float[count];
+        }
+        for (int i = 0; i < count; i++) {
+            Float temperature = tempList.get(i);
+            temperatures[i] = temperature != null ? temperature : 0f;
+        }
+        return count;
+    }
+
+    /////////////////////////Heart Rate Listeners////////////////////////
+    private final CRPHeartRateChangeListener heartRateChangeListener = new CRPHeartRateChangeListener() {
+        @Override
+        public void onTimingInterval(int interval) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "Heart rate timing interval: " + interval);
+                    eventDispatcher.dispatchInt(EventCodec.HEART_RATE_TIMING_INTERVAL, interval);
+                }
+            });
+        }
+
+        @Override
+        public void onRealtimeHeartRate(int heartRate) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    long nowMs = System.nanoTime() / 1_000_000;
+                    if (heartRate > 0 && heartRate < 250
+                            && !readingQuality.acceptRealtime("heartRate", nowMs, heartRate)) {
+                        metrics.increment(PluginMetrics.REJECTED + "realtimeHeartRate");
+                        return;
+                    }
+                    long windowMs = realtimeHeartRate.add(nowMs, heartRate);
+                    if (windowMs >= 0) {
+                        scheduleRealtimeWindowClose(windowMs);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onHeartRate(int heartRate) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Log.d(TAG, "Heart rate: " + heartRate);
+
+                        onMeasurementResult("heartRate");
+
+                        try {
+                            bleConnection.stopMeasureHeartRate();
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error stopping heart rate measurement: " + e.getMessage());
+                        }
+
+                        setMeasuring(STATUS_HEART_RATE, false);
+                        sendMeasurementStatusUpdate();
+
+                        if (heartRate > 0 && heartRate < 250) { // Valid heart rate range
+                            float quality = scoreResult("heartRate", heartRate);
+                            if (quality >= 0) {
+                                eventDispatcher.dispatchResult(EventCodec.HEART_RATE, heartRate, quality);
+                                storeReading(TimeSeriesStore.METRIC_HEART_RATE, heartRate);
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    finishSequenceStep("heartRate", true);
+                                }
+                            }
+                        } else {
+                            if (isRetrying("heartRate")) {
+                                retryMeasurement("heartRate", isMeasuring(STATUS_FULL_MEASUREMENT));
+                            } else {
+                                sendError("heartRate", "Invalid heart rate reading");
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    handleSequenceFailure("heartRate");
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error processing heart rate data: " + e.getMessage());
+                        setMeasuring(STATUS_HEART_RATE, false);
+                        sendMeasurementStatusUpdate();
+                        sendDetailedError("heartRate", e);
+
+                        if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                            handleSequenceFailure("heartRate");
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onHistoryHeartRate(List<CRPHistoryHeartRateInfo> list) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "History heart rate data received");
+                    historySync.onHistory(HistorySync.METRIC_HEART_RATE, list, new HistorySync.RecordReader<CRPHistoryHeartRateInfo>() {
+                        @Override
+                        public long timestampMs(CRPHistoryHeartRateInfo record) {
+                            return record.getDate() != null ? record.getDate().getTime() : 0;
+                        }
+
+                        @Override
+                        public int value(CRPHistoryHeartRateInfo record) {
+                            return record.getHr();
+                        }
+                    });
+                }
+            });
+        }
+
+        @Override
+        public void onTimingHeartRate(CRPHeartRateInfo heartRateInfo) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "Timing heart rate info received");
+                    timingSync.onTiming(TimingSync.METRIC_HEART_RATE, heartRateInfo.getHistoryDay(),
+                            heartRateInfo.getStartTime(), heartRateInfo.getTimeInterval(), heartRateInfo.getHrList());
+                }
+            });
+        }
+    };
+
+    ////////////////////////Blood Oxygen Listeners////////////////////////
+    private final CRPBloodOxygenChangeListener bloodOxygenChangeListener = new CRPBloodOxygenChangeListener() {
+        @Override
+        public void onTimingInterval(int interval) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "Blood oxygen timing interval: " + interval);
+                    eventDispatcher.dispatchInt(EventCodec.BLOOD_OXYGEN_TIMING_INTERVAL, interval);
+                }
+            });
+        }
+
+        @Override
+        public void onBloodOxygen(int bloodOxygen) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Log.d(TAG, "Blood oxygen: " + bloodOxygen);
+
+                        onMeasurementResult("bloodOxygen");
+
+                        try {
+                            bleConnection.stopMeasureBloodOxygen();
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error stopping blood oxygen measurement: " + e.getMessage());
+                        }
+
+                        setMeasuring(STATUS_BLOOD_OXYGEN, false);
+                        sendMeasurementStatusUpdate();
+
+                        if (bloodOxygen > 0 && bloodOxygen <= 100) { // Valid blood oxygen range
+                            float quality = scoreResult("bloodOxygen", bloodOxygen);
+                            if (quality >= 0) {
+                                eventDispatcher.dispatchResult(EventCodec.BLOOD_OXYGEN, bloodOxygen, quality);
+                                storeReading(TimeSeriesStore.METRIC_BLOOD_OXYGEN, bloodOxygen);
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    finishSequenceStep("bloodOxygen", true);
+                                }
+                            }
+                        } else {
+                            if (isRetrying("bloodOxygen")) {
+                                retryMeasurement("bloodOxygen", isMeasuring(STATUS_FULL_MEASUREMENT));
+                            } else {
+                                sendError("bloodOxygen", "Invalid blood oxygen reading");
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    handleSequenceFailure("bloodOxygen");
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error processing blood oxygen data: " + e.getMessage());
+                        setMeasuring(STATUS_BLOOD_OXYGEN, false);
+                        sendMeasurementStatusUpdate();
+                        sendDetailedError("bloodOxygen", e);
+
+                        if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                            handleSequenceFailure("bloodOxygen");
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onHistoryBloodOxygen(List<CRPHistoryBloodOxygenInfo> list) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "History blood oxygen data received");
+                    historySync.onHistory(HistorySync.METRIC_BLOOD_OXYGEN, list, new HistorySync.RecordReader<CRPHistoryBloodOxygenInfo>() {
+                        @Override
+                        public long timestampMs(CRPHistoryBloodOxygenInfo record) {
+                            return record.getDate() != null ? record.getDate().getTime() : 0;
+                        }
+
+                        @Override
+                        public int value(CRPHistoryBloodOxygenInfo record) {
+                            return record.getBo();
+                        }
+                    });
+                }
+            });
+        }
+
+        @Override
+        public void onTimingBloodOxygen(CRPTimingBloodOxygenInfo bloodOxygenInfo) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "Timing blood oxygen info received");
+                    timingSync.onTiming(TimingSync.METRIC_BLOOD_OXYGEN, bloodOxygenInfo.getHistoryDay(), 0,
+                            TimingSync.SLOT_MINUTES, bloodOxygenInfo.getList());
+                }
+            });
+        }
+    };
+
+    /////////////////////////Stress Listeners////////////////////////
+    private final CRPStressChangeListener stressChangeListener = new CRPStressChangeListener() {
+        @Override
+        public void onStressChange(int stress) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Log.d(TAG, "Stress level: " + stress);
+
+                        onMeasurementResult("stress");
+
+                        try {
+                            bleConnection.stopMeasureStress();
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error stopping stress measurement: " + e.getMessage());
+                        }
+
+                        setMeasuring(STATUS_STRESS, false);
+                        sendMeasurementStatusUpdate();
+
+                        if (stress >= 0 && stress <= 100) { // Valid stress range
+                            float quality = scoreResult("stress", stress);
+                            if (quality >= 0) {
+                                eventDispatcher.dispatchResult(EventCodec.STRESS, stress, quality);
+                                storeReading(TimeSeriesStore.METRIC_STRESS, stress);
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    finishSequenceStep("stress", true);
+                                }
+                            }
+                        } else {
+                            if (isRetrying("stress")) {
+                                retryMeasurement("stress", isMeasuring(STATUS_FULL_MEASUREMENT));
+                            } else {
+                                sendError("stress", "Invalid stress reading");
+
+                                if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                                    handleSequenceFailure("stress");
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error processing stress data: " + e.getMessage());
+                        setMeasuring(STATUS_STRESS, false);
+                        sendMeasurementStatusUpdate();
+                        sendDetailedError("stress", e);
+
+                        if (isMeasuring(STATUS_FULL_MEASUREMENT)) {
+                            handleSequenceFailure("stress");
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onHistoryStressChange(List<CRPHistoryStressInfo> list) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "History stress data received");
+                    historySync.onHistory(HistorySync.METRIC_STRESS, list, new HistorySync.RecordReader<CRPHistoryStressInfo>() {
+                        @Override
+                        public long timestampMs(CRPHistoryStressInfo record) {
+                            return record.getDate() != null ? record.getDate().getTime() : 0;
+                        }
+
+                        @Override
+                        public int value(CRPHistoryStressInfo record) {
+                            return record.getStress();
+                        }
+                    });
+                }
+            });
+        }
+    };
+
+    private void storeReading(byte metric, float value) {
+        if (timeSeriesStore != null) {
+            timeSeriesStore.append(metric, System.currentTimeMillis(), value);
+        }
+    }
+}
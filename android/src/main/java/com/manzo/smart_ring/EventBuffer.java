@@ -0,0 +1,326 @@
+package com.manzo.smart_ring;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded buffer of {@link EventCodec} records between the threads that
+ * dispatch events and their delivery to Flutter. It holds what the next batch
+ * will carry, and everything that arrives while no listener is attached, so
+ * the listener gets it replayed when it attaches.
+ *
+ * Each event category has a backpressure policy:
+ * <ul>
+ *   <li>{@link #DROP_OLDEST}: over capacity, the oldest records go first.</li>
+ *   <li>{@link #COALESCE_LATEST}: while no listener is attached or the buffer is
+ *   half full, a record replaces the undelivered one of the same type and
+ *   ring; over capacity it is dropped like {@link #DROP_OLDEST}.</li>
+ *   <li>{@link #KEEP_ALL}: kept past capacity, up to {@link #KEEP_ALL_LIMIT}
+ *   times it; beyond that the oldest go too.</li>
+ * </ul>
+ * Dropped and coalesced records are counted per category in {@link PluginMetrics}.
+ *
+ * Records are appended to one byte buffer; dropping one only marks it, and
+ * marked records are cut out when the batch is built or when they take up most
+ * of the buffer. Not thread-safe; {@link EventDispatcher} guards it with its
+ * batch lock.
+ */
+final class EventBuffer {
+    // Event categories
+    static final int STATUS = 0; // measurement status, connection, battery, progress and the temperature trend
+    static final int REALTIME = 1; // realtime heart rate samples and windows
+    static final int RESULTS = 2; // measurement results and errors
+    static final int HISTORY = 3; // history and timing chunks and temperature series, sent again by later syncs
+    static final int SCAN = 4; // scanned devices
+    static final String[] CATEGORY_NAMES = {"status", "realtime", "results", "history", "scan"};
+
+    // Policies
+    static final int DROP_OLDEST = 0;
+    static final int COALESCE_LATEST = 1;
+    static final int KEEP_ALL = 2;
+    static final String[] POLICY_NAMES = {"dropOldest", "coalesceLatest", "keepAll"};
+    private static final int[] DEFAULT_POLICIES = {COALESCE_LATEST, COALESCE_LATEST, KEEP_ALL, DROP_OLDEST,
+            DROP_OLDEST};
+
+    static final int DEFAULT_CAPACITY_BYTES = 256 * 1024;
+    static final int MIN_CAPACITY_BYTES = 4 * 1024;
+    static final int MAX_CAPACITY_BYTES = 16 * 1024 * 1024;
+    // Multiple of the capacity past which keepAll records are dropped too
+    static final int KEEP_ALL_LIMIT = 2;
+
+    // Slot bindings belong to no category and are never dropped
+    private static final int NO_CATEGORY = -1;
+    private static final int TYPE_LIMIT = 64;
+    private static final int[] CATEGORY_OF_TYPE = new int[TYPE_LIMIT];
+    private static final String[] DROPPED_COUNTERS = new String[CATEGORY_NAMES.length];
+    private static final String[] COALESCED_COUNTERS = new String[CATEGORY_NAMES.length];
+
+    static {
+        // A type missing below is dropped oldest first rather than kept
+        Arrays.fill(CATEGORY_OF_TYPE, HISTORY);
+        CATEGORY_OF_TYPE[EventCodec.DEVICE_SLOT] = NO_CATEGORY;
+        for (byte type : new byte[] {EventCodec.MEASUREMENT_STATUS, EventCodec.CONNECTION_STATE,
+                EventCodec.BATTERY, EventCodec.REALTIME_BATTERY, EventCodec.BATTERY_WARNING,
+                EventCodec.TEMPERATURE_TIMING_STATE, EventCodec.HEART_RATE_TIMING_INTERVAL,
+                EventCodec.HRV_TIMING_INTERVAL, EventCodec.BLOOD_OXYGEN_TIMING_INTERVAL,
+                EventCodec.HISTORY_SYNC_PROGRESS, EventCodec.TIMING_SYNC_PROGRESS,
+                EventCodec.FULL_MEASUREMENT_PROGRESS, EventCodec.RECONNECTING, EventCodec.SCAN_COMPLETE,
+                EventCodec.TEMPERATURE_TREND}) {
+            CATEGORY_OF_TYPE[type] = STATUS;
+        }
+        CATEGORY_OF_TYPE[EventCodec.REALTIME_HEART_RATE] = REALTIME;
+        CATEGORY_OF_TYPE[EventCodec.REALTIME_HEART_RATE_WINDOW] = REALTIME;
+        for (byte type : new byte[] {EventCodec.BODY_TEMPERATURE, EventCodec.HEART_RATE, EventCodec.HRV,
+                EventCodec.STRESS, EventCodec.BLOOD_OXYGEN, EventCodec.MEASUREMENT_ERROR,
+                EventCodec.FULL_MEASUREMENT_COMPLETE, EventCodec.CONNECTION_ERROR}) {
+            CATEGORY_OF_TYPE[type] = RESULTS;
+        }
+        CATEGORY_OF_TYPE[EventCodec.HISTORY_CHUNK] = HISTORY;
+        CATEGORY_OF_TYPE[EventCodec.TIMING_CHUNK] = HISTORY;
+        CATEGORY_OF_TYPE[EventCodec.TEMPERATURE_SERIES] = HISTORY;
+        CATEGORY_OF_TYPE[EventCodec.DEVICE_SCANNED] = SCAN;
+        for (int category = 0; category < CATEGORY_NAMES.length; category++) {
+            DROPPED_COUNTERS[category] = PluginMetrics.EVENTS_DROPPED + CATEGORY_NAMES[category];
+            COALESCED_COUNTERS[category] = PluginMetrics.EVENTS_COALESCED + CATEGORY_NAMES[category];
+        }
+    }
+
+    private final PluginMetrics metrics;
+    private final EventCodec records = new EventCodec(1024);
+    // Per record, slot bindings included: start offset, callback origin and whether it was dropped
+    private int[] offsets = new int[64];
+    private long[] origins = new long[64];
+    private boolean[] dropped = new boolean[64];
+    private int count = 0;
+    private int liveEvents = 0; // slot bindings excluded
+    private int droppedBytes = 0;
+    // Records before it are dropped or never droppable
+    private int dropCursor = 0;
+    // Records before it are dropped or slot bindings, for the keepAll limit
+    private int limitCursor = 0;
+    // Index + 1 of the newest record of each (type, slot); checked against the record before use
+    private final int[] latest = new int[TYPE_LIMIT << 8];
+    // Slots bound by a record in the buffer, and to which address
+    private final long[] boundSlots = new long[4];
+    private final String[] slotAddresses = new String[256];
+
+    private int capacityBytes = DEFAULT_CAPACITY_BYTES;
+    private final int[] policies = DEFAULT_POLICIES.clone();
+
+    EventBuffer(PluginMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the capacity and the policies of the categories named in
+     * {@code policyNames}; unnamed categories get their default policy.
+     *
+     * @throws IllegalArgumentException for an unknown category or policy or a capacity out of range
+     */
+    void configure(int capacityBytes, Map<String, String> policyNames) {
+        if (capacityBytes < MIN_CAPACITY_BYTES || capacityBytes > MAX_CAPACITY_BYTES) {
+            throw new IllegalArgumentException("bufferBytes must be between " + MIN_CAPACITY_BYTES + " and "
+                    + MAX_CAPACITY_BYTES);
+        }
+        int[] configured = DEFAULT_POLICIES.clone();
+        if (policyNames != null) {
+            for (Map.Entry<String, String> entry : policyNames.entrySet()) {
+                int category = Arrays.asList(CATEGORY_NAMES).indexOf(entry.getKey());
+                int policy = Arrays.asList(POLICY_NAMES).indexOf(entry.getValue());
+                if (category < 0 || policy < 0) {
+                    throw new IllegalArgumentException("unknown event category or policy: " + entry.getKey()
+                            + " = " + entry.getValue());
+                }
+                configured[category] = policy;
+            }
+        }
+        this.capacityBytes = capacityBytes;
+        System.arraycopy(configured, 0, policies, 0, policies.length);
+        // Records skipped as undroppable may be droppable now
+        dropCursor = 0;
+        limitCursor = 0;
+    }
+
+    int capacityBytes() {
+        return capacityBytes;
+    }
+
+    Map<String, String> policies() {
+        Map<String, String> named = new HashMap<>();
+        for (int category = 0; category < CATEGORY_NAMES.length; category++) {
+            named.put(CATEGORY_NAMES[category], POLICY_NAMES[policies[category]]);
+        }
+        return named;
+    }
+
+    boolean isEmpty() {
+        return liveEvents == 0;
+    }
+
+    int liveEvents() {
+        return liveEvents;
+    }
+
+    int liveBytes() {
+        return records.size() - droppedBytes;
+    }
+
+    /**
+     * Starts a record for the caller to write the payload of, after making room
+     * for it. {@code listening} says whether a listener takes the records.
+     */
+    EventCodec beginRecord(byte type, int device, String deviceAddress, long origin, long nowMs, boolean listening) {
+        trim();
+        int category = CATEGORY_OF_TYPE[type & (TYPE_LIMIT - 1)];
+        int key = (type & (TYPE_LIMIT - 1)) << 8 | device;
+        if (category != NO_CATEGORY && policies[category] == COALESCE_LATEST
+                && (!listening || liveBytes() >= capacityBytes / 2)) {
+            int previous = latest[key] - 1;
+            if (previous >= 0 && previous < count && !dropped[previous]
+                    && records.byteAt(offsets[previous]) == (type & 0xFF)
+                    && records.byteAt(offsets[previous] + 1) == device) {
+                drop(previous);
+                metrics.increment(COALESCED_COUNTERS[category]);
+            }
+        }
+        if (device != EventCodec.NO_DEVICE && ((boundSlots[device >>> 6] & (1L << device)) == 0
+                || !deviceAddress.equals(slotAddresses[device]))) {
+            // Each batch is decoded on its own, so bind the slot once per batch, and again if a
+            // long wait let another ring take it over
+            boundSlots[device >>> 6] |= 1L << device;
+            slotAddresses[device] = deviceAddress;
+            append(EventCodec.DEVICE_SLOT, device, nowMs, 0).putString(deviceAddress);
+        }
+        latest[key] = count + 1;
+        liveEvents++;
+        return append(type, device, nowMs, origin);
+    }
+
+    private EventCodec append(byte type, int device, long nowMs, long origin) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            origins = Arrays.copyOf(origins, count * 2);
+            dropped = Arrays.copyOf(dropped, count * 2);
+        }
+        offsets[count] = records.size();
+        origins[count] = origin;
+        dropped[count] = false;
+        count++;
+        return records.beginRecord(type, device, nowMs);
+    }
+
+    // Drops the oldest droppable records until the buffer is back within capacity, and
+    // the oldest of any category once keepAll records take it past its limit
+    private void trim() {
+        while (liveBytes() > capacityBytes && dropCursor < count) {
+            int index = dropCursor++;
+            int category = category(index);
+            if (dropped[index] || category == NO_CATEGORY || policies[category] == KEEP_ALL) {
+                continue;
+            }
+            dropCounted(index, category);
+        }
+        while (liveBytes() > (long) capacityBytes * KEEP_ALL_LIMIT && limitCursor < count) {
+            int index = limitCursor++;
+            int category = category(index);
+            if (dropped[index] || category == NO_CATEGORY) {
+                continue;
+            }
+            dropCounted(index, category);
+        }
+        if (droppedBytes > capacityBytes && droppedBytes > records.size() / 2) {
+            compact();
+        }
+    }
+
+    private int category(int index) {
+        return CATEGORY_OF_TYPE[records.byteAt(offsets[index]) & (TYPE_LIMIT - 1)];
+    }
+
+    private void dropCounted(int index, int category) {
+        drop(index);
+        metrics.increment(DROPPED_COUNTERS[category]);
+        metrics.increment(PluginMetrics.DROPPED_EVENTS);
+    }
+
+    private void drop(int index) {
+        dropped[index] = true;
+        droppedBytes += end(index) - offsets[index];
+        liveEvents--;
+    }
+
+    private int end(int index) {
+        return index + 1 < count ? offsets[index + 1] : records.size();
+    }
+
+    // Cuts dropped records out of the buffer, keeping the survivors in order
+    private void compact() {
+        int kept = 0;
+        int size = 0;
+        for (int index = 0; index < count; index++) {
+            if (dropped[index]) {
+                continue;
+            }
+            int start = offsets[index];
+            int length = end(index) - start;
+            records.move(start, start + length, size);
+            offsets[kept] = size;
+            origins[kept] = origins[index];
+            dropped[kept] = false;
+            latest[(records.byteAt(size) & (TYPE_LIMIT - 1)) << 8 | records.byteAt(size + 1)] = kept + 1;
+            size += length;
+            kept++;
+        }
+        records.truncate(size, kept);
+        count = kept;
+        droppedBytes = 0;
+        dropCursor = 0;
+        limitCursor = 0;
+    }
+
+    /**
+     * Callback origins of the live records, oldest first, for dispatch latency.
+     * Call before {@link #drain}.
+     */
+    long[] liveOrigins() {
+        long[] live = new long[liveEvents];
+        int next = 0;
+        for (int index = 0; index < count; index++) {
+            if (!dropped[index] && records.byteAt(offsets[index]) != EventCodec.DEVICE_SLOT) {
+                live[next++] = origins[index];
+            }
+        }
+        return live;
+    }
+
+    // The live records as one batch; leaves the buffer empty
+    byte[] drain() {
+        byte[] batch;
+        if (droppedBytes == 0) {
+            batch = records.toByteArray();
+        } else {
+            batch = new byte[liveBytes()];
+            int size = 0;
+            for (int index = 0; index < count; index++) {
+                if (!dropped[index]) {
+                    int start = offsets[index];
+                    records.copyTo(start, end(index), batch, size);
+                    size += end(index) - start;
+                }
+            }
+        }
+        clear();
+        return batch;
+    }
+
+    void clear() {
+        records.reset();
+        count = 0;
+        liveEvents = 0;
+        droppedBytes = 0;
+        dropCursor = 0;
+        limitCursor = 0;
+        Arrays.fill(boundSlots, 0);
+    }
+}
@@ -0,0 +1,198 @@
+package com.manzo.smart_ring;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding for the {@code smart_ring_events} stream.
+ *
+ * A batch is a sequence of little-endian records:
+ * {@code [u8 type][u8 device][i64 timestampMs][payload]}. Payload layout depends
+ * on the type; strings are {@code [u16 length][utf-8 bytes]}. The Dart decoder
+ * lives in {@code lib/smart_ring_event_codec.dart} and must be kept in sync.
+ *
+ * {@code device} is a connection slot, or {@link #NO_DEVICE} for events that do
+ * not belong to a connected ring such as scan results. A {@link #DEVICE_SLOT}
+ * record binds a slot to its address before the slot's first record in a batch.
+ */
+final class EventCodec {
+    // Measurement results: [i32 value][f32 quality], quality in [0, 1] from ReadingQuality
+    static final byte HEART_RATE = 2;
+    static final byte HRV = 4;
+    static final byte STRESS = 5;
+    static final byte BLOOD_OXYGEN = 6;
+
+    // Numeric events: [i32 value]
+    static final byte REALTIME_HEART_RATE = 3;
+    static final byte CONNECTION_STATE = 12;
+    static final byte BATTERY = 14;
+    static final byte HEART_RATE_TIMING_INTERVAL = 18;
+    static final byte HRV_TIMING_INTERVAL = 19;
+    static final byte BLOOD_OXYGEN_TIMING_INTERVAL = 20;
+
+    // [f32 celsius][f32 quality]
+    static final byte BODY_TEMPERATURE = 1;
+    // [str type][str errorType][str message]
+    static final byte MEASUREMENT_ERROR = 7;
+    // [i32 status bits]
+    static final byte MEASUREMENT_STATUS = 8;
+    // no payload
+    static final byte FULL_MEASUREMENT_COMPLETE = 9;
+    // [str name][str address][i32 rssi][u8 update], update is 0 the first time an address is reported
+    static final byte DEVICE_SCANNED = 10;
+    // no payload
+    static final byte SCAN_COMPLETE = 11;
+    // [str message]
+    static final byte CONNECTION_ERROR = 13;
+    // [i32 level][u8 charging]
+    static final byte REALTIME_BATTERY = 15;
+    // [i32 level][u8 charging][str message]
+    static final byte BATTERY_WARNING = 16;
+    // [u8 state]
+    static final byte TEMPERATURE_TIMING_STATE = 17;
+    // [u8 metric][i32 syncId][i32 chunkIndex][i32 count][count x i64 timestampMs][count x i32 value]
+    static final byte HISTORY_CHUNK = 21;
+    // [i32 syncId][u8 metric][i32 records][u8 completedMetrics][u8 totalMetrics][u8 flags]
+    static final byte HISTORY_SYNC_PROGRESS = 22;
+    // Same layouts as HISTORY_CHUNK and HISTORY_SYNC_PROGRESS, for ring-side timing data
+    static final byte TIMING_CHUNK = 23;
+    static final byte TIMING_SYNC_PROGRESS = 24;
+    // [str address], bound to the record's device slot for the rest of the batch
+    static final byte DEVICE_SLOT = 25;
+    // [str step][u8 succeeded][u8 completedSteps][u8 totalSteps][i32 elapsedMs]
+    static final byte FULL_MEASUREMENT_PROGRESS = 26;
+    // [i32 attempt][i32 delayMs], sent when a reconnect attempt is scheduled
+    static final byte RECONNECTING = 27;
+    // [i32 count][i32 min][i32 max][f32 mean][i32 last][i32 durationMs], one realtime heart rate window
+    static final byte REALTIME_HEART_RATE_WINDOW = 28;
+    // [u8 day][i32 count][count x f32 celsius], day 0 is today; 0 marks a slot without a reading
+    static final byte TEMPERATURE_SERIES = 29;
+    // [f32 celsius][f32 baseline][f32 deviation][f32 spread][i32 baselineSamples], see TemperatureTrend
+    static final byte TEMPERATURE_TREND = 30;
+
+    static final int NO_DEVICE = 0;
+
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private byte[] buffer;
+    private int position = 0;
+    private int recordCount = 0;
+
+    EventCodec(int initialCapacity) {
+        buffer = new byte[Math.max(initialCapacity, 64)];
+    }
+
+    int size() {
+        return position;
+    }
+
+    int recordCount() {
+        return recordCount;
+    }
+
+    boolean isEmpty() {
+        return recordCount == 0;
+    }
+
+    void reset() {
+        position = 0;
+        recordCount = 0;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    int byteAt(int offset) {
+        return buffer[offset] & 0xFF;
+    }
+
+    void copyTo(int from, int to, byte[] destination, int destinationOffset) {
+        System.arraycopy(buffer, from, destination, destinationOffset, to - from);
+    }
+
+    // Moves bytes [from, to) down to destination, for compacting records in place
+    void move(int from, int to, int destination) {
+        System.arraycopy(buffer, from, buffer, destination, to - from);
+    }
+
+    // Cuts the buffer back to its first size bytes, which hold that many records
+    void truncate(int size, int records) {
+        position = size;
+        recordCount = records;
+    }
+
+    EventCodec beginRecord(byte type, int device, long timestampMs) {
+        ensureCapacity(10);
+        buffer[position++] = type;
+        buffer[position++] = (byte) device;
+        writeLong(timestampMs);
+        recordCount++;
+        return this;
+    }
+
+    EventCodec putByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    EventCodec putBoolean(boolean value) {
+        return putByte(value ? 1 : 0);
+    }
+
+    EventCodec putInt(int value) {
+        ensureCapacity(4);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 24);
+        return this;
+    }
+
+    EventCodec putFloat(float value) {
+        return putInt(Float.floatToIntBits(value));
+    }
+
+    EventCodec putFloats(float[] values, int offset, int count) {
+        ensureCapacity(4 * count);
+        for (int i = offset; i < offset + count; i++) {
+            int bits = Float.floatToIntBits(values[i]);
+            buffer[position++] = (byte) bits;
+            buffer[position++] = (byte) (bits >>> 8);
+            buffer[position++] = (byte) (bits >>> 16);
+            buffer[position++] = (byte) (bits >>> 24);
+        }
+        return this;
+    }
+
+    EventCodec putLong(long value) {
+        ensureCapacity(8);
+        writeLong(value);
+        return this;
+    }
+
+    EventCodec putString(String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        ensureCapacity(2 + length);
+        buffer[position++] = (byte) length;
+        buffer[position++] = (byte) (length >>> 8);
+        System.arraycopy(bytes, 0, buffer, position, length);
+        position += length;
+        return this;
+    }
+
+    private void writeLong(long value) {
+        for (int i = 0; i < 8; i++) {
+            buffer[position++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = position + extra;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
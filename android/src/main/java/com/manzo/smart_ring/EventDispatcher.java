@@ -0,0 +1,478 @@
+package com.manzo.smart_ring;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel.EventSink;
+
+/**
+ * Gathers plugin events into a single binary batch and delivers it to Flutter
+ * once per frame (vsync) or once per configured interval, instead of one
+ * main-looper post and one channel crossing per event.
+ *
+ * Batches are {@code byte[]} encoded with {@link EventCodec}. Records wait in a
+ * bounded {@link EventBuffer}; while no listener is attached nothing is posted
+ * to the main thread, and the buffer is replayed when one attaches.
+ *
+ * The plugin owns a single dispatcher; {@link #forDevice} returns views that
+ * share its batch and tag their records with a connection slot.
+ *
+ * Every record is counted by type in {@link PluginMetrics}, and the time from
+ * the SDK callback that produced it (see {@link #setCallbackOrigin}) until
+ * {@code eventSink.success} is recorded as dispatch latency.
+ */
+final class EventDispatcher {
+    private static final String TAG = "EventDispatcher";
+
+    static final String MODE_FRAME = "frame";
+    static final String MODE_INTERVAL = "interval";
+
+    static final long DEFAULT_INTERVAL_MS = 50;
+
+    // System.nanoTime() of the SDK callback the current thread is handling, 0 if none
+    private static final ThreadLocal<long[]> CALLBACK_ORIGIN = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private final Batch batch;
+    private final int device;
+    private final String deviceAddress;
+
+    EventDispatcher() {
+        this(new PluginMetrics());
+    }
+
+    EventDispatcher(PluginMetrics metrics) {
+        this(new Batch(metrics), EventCodec.NO_DEVICE, null);
+    }
+
+    private EventDispatcher(Batch batch, int device, String deviceAddress) {
+        this.batch = batch;
+        this.device = device;
+        this.deviceAddress = deviceAddress;
+    }
+
+    // A view sharing this dispatcher's batch whose records carry the given slot
+    EventDispatcher forDevice(int slot, String address) {
+        return new EventDispatcher(batch, slot, address);
+    }
+
+    // Records dispatched by this thread until the next call date their latency from nanos; 0 clears it
+    static void setCallbackOrigin(long nanos) {
+        CALLBACK_ORIGIN.get()[0] = nanos;
+    }
+
+    void setEventSink(EventSink sink) {
+        batch.setEventSink(sink);
+    }
+
+    void configure(String newMode, long newIntervalMs) {
+        batch.configure(newMode, newIntervalMs);
+    }
+
+    // See EventBuffer.configure
+    void configureBuffer(int capacityBytes, Map<String, String> policies) {
+        synchronized (batch.lock) {
+            batch.buffer.configure(capacityBytes, policies);
+        }
+    }
+
+    Map<String, Object> getStats() {
+        return batch.getStats();
+    }
+
+    void resetStats() {
+        batch.resetStats();
+    }
+
+    int pendingEvents() {
+        synchronized (batch.lock) {
+            return batch.buffer.liveEvents();
+        }
+    }
+
+    void shutdown() {
+        batch.shutdown();
+    }
+
+    // The dispatch methods below are safe to call from any thread
+
+    void dispatchEmpty(byte type) {
+        synchronized (batch.lock) {
+            beginRecord(type);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchInt(byte type, int value) {
+        synchronized (batch.lock) {
+            beginRecord(type).putInt(value);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchFloat(byte type, float value) {
+        synchronized (batch.lock) {
+            beginRecord(type).putFloat(value);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchResult(byte type, int value, float quality) {
+        synchronized (batch.lock) {
+            beginRecord(type).putInt(value).putFloat(quality);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchTemperature(float celsius, float quality) {
+        synchronized (batch.lock) {
+            beginRecord(EventCodec.BODY_TEMPERATURE).putFloat(celsius).putFloat(quality);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchTemperatureSeries(int day, float[] celsius, int count) {
+        synchronized (batch.lock) {
+            beginRecord(EventCodec.TEMPERATURE_SERIES).putByte(day).putInt(count).putFloats(celsius, 0, count);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchTemperatureTrend(float celsius, float baseline, float deviation, float spread, int baselineSamples) {
+        synchronized (batch.lock) {
+            beginRecord(EventCodec.TEMPERATURE_TREND)
+                    .putFloat(celsius)
+                    .putFloat(baseline)
+                    .putFloat(deviation)
+                    .putFloat(spread)
+                    .putInt(baselineSamples);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchBoolean(byte type, boolean value) {
+        synchronized (batch.lock) {
+            beginRecord(type).putBoolean(value);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchString(byte type, String value) {
+        synchronized (batch.lock) {
+            beginRecord(type).putString(value);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchError(String measurementType, String errorType, String message) {
+        synchronized (batch.lock) {
+            beginRecord(EventCodec.MEASUREMENT_ERROR)
+                    .putString(measurementType)
+                    .putString(errorType)
+                    .putString(message);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchDevice(String name, String address, int rssi, boolean update) {
+        synchronized (batch.lock) {
+            beginRecord(EventCodec.DEVICE_SCANNED).putString(name).putString(address).putInt(rssi).putBoolean(update);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchBattery(byte type, int level, boolean charging) {
+        synchronized (batch.lock) {
+            beginRecord(type).putInt(level).putBoolean(charging);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchBatteryWarning(int level, boolean charging, String message) {
+        synchronized (batch.lock) {
+            beginRecord(EventCodec.BATTERY_WARNING).putInt(level).putBoolean(charging).putString(message);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    // type is HISTORY_CHUNK or TIMING_CHUNK
+    void dispatchHistoryChunk(byte type, byte metric, int syncId, int chunkIndex, long[] timestamps, int[] values,
+                              int offset, int count) {
+        synchronized (batch.lock) {
+            EventCodec codec = beginRecord(type)
+                    .putByte(metric)
+                    .putInt(syncId)
+                    .putInt(chunkIndex)
+                    .putInt(count);
+            for (int i = offset; i < offset + count; i++) {
+                codec.putLong(timestamps[i]);
+            }
+            for (int i = offset; i < offset + count; i++) {
+                codec.putInt(values[i]);
+            }
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    // type is HISTORY_SYNC_PROGRESS or TIMING_SYNC_PROGRESS
+    void dispatchHistoryProgress(byte type, int syncId, byte metric, int records, int completedMetrics,
+                                 int totalMetrics, int flags) {
+        synchronized (batch.lock) {
+            beginRecord(type)
+                    .putInt(syncId)
+                    .putByte(metric)
+                    .putInt(records)
+                    .putByte(completedMetrics)
+                    .putByte(totalMetrics)
+                    .putByte(flags);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchFullMeasurementProgress(String step, boolean succeeded, int completedSteps, int totalSteps,
+                                         long elapsedMs) {
+        synchronized (batch.lock) {
+            beginRecord(EventCodec.FULL_MEASUREMENT_PROGRESS)
+                    .putString(step)
+                    .putBoolean(succeeded)
+                    .putByte(completedSteps)
+                    .putByte(totalSteps)
+                    .putInt((int) Math.min(elapsedMs, Integer.MAX_VALUE));
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchHeartRateWindow(int count, int min, int max, float mean, int last, long durationMs) {
+        synchronized (batch.lock) {
+            beginRecord(EventCodec.REALTIME_HEART_RATE_WINDOW)
+                    .putInt(count)
+                    .putInt(min)
+                    .putInt(max)
+                    .putFloat(mean)
+                    .putInt(last)
+                    .putInt((int) durationMs);
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    void dispatchReconnect(int attempt, long delayMs) {
+        synchronized (batch.lock) {
+            beginRecord(EventCodec.RECONNECTING)
+                    .putInt(attempt)
+                    .putInt((int) Math.min(delayMs, Integer.MAX_VALUE));
+        }
+        batch.scheduleFlushIfPending();
+    }
+
+    // Guarded by batch.lock
+    private EventCodec beginRecord(byte type) {
+        return batch.beginRecord(type, device, deviceAddress);
+    }
+
+    /** Pending records, delivery settings and counters shared by all device views. */
+    private static final class Batch {
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private final Object lock = new Object();
+        private final PluginMetrics metrics;
+
+        // Guarded by lock
+        private final EventBuffer buffer;
+        private long oldestPendingNanos = 0;
+        private boolean flushScheduled = false;
+        private String mode = MODE_FRAME;
+        private long intervalMs = DEFAULT_INTERVAL_MS;
+
+        // Counters, guarded by lock
+        private long flushCount = 0;
+        private long eventCount = 0;
+        private int lastBatchSize = 0;
+        private int maxBatchSize = 0;
+        private long totalFlushLatencyNanos = 0;
+        private long maxFlushLatencyNanos = 0;
+        private int lastBatchBytes = 0;
+        private long totalBytes = 0;
+
+        private volatile EventSink eventSink;
+
+        Batch(PluginMetrics metrics) {
+            this.metrics = metrics;
+            buffer = new EventBuffer(metrics);
+        }
+
+        private final Runnable flushRunnable = new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+
+        private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                flush();
+            }
+        };
+
+        private final Runnable postFrameCallbackRunnable = new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(frameCallback);
+            }
+        };
+
+        void setEventSink(EventSink sink) {
+            eventSink = sink;
+            if (sink != null) {
+                // Replays what was buffered while nobody listened
+                scheduleFlushIfPending();
+            }
+        }
+
+        void configure(String newMode, long newIntervalMs) {
+            synchronized (lock) {
+                mode = MODE_INTERVAL.equals(newMode) ? MODE_INTERVAL : MODE_FRAME;
+                intervalMs = newIntervalMs > 0 ? newIntervalMs : DEFAULT_INTERVAL_MS;
+            }
+            Log.d(TAG, "Event delivery configured: mode=" + mode + ", intervalMs=" + intervalMs);
+        }
+
+        // Guarded by lock
+        private EventCodec beginRecord(byte type, int device, String deviceAddress) {
+            long nowNanos = System.nanoTime();
+            if (buffer.isEmpty()) {
+                oldestPendingNanos = nowNanos;
+            }
+            long origin = CALLBACK_ORIGIN.get()[0];
+            metrics.countEvent(type);
+            return buffer.beginRecord(type, device, deviceAddress, origin != 0 ? origin : nowNanos,
+                    System.currentTimeMillis(), eventSink != null);
+        }
+
+        private void scheduleFlushIfPending() {
+            boolean schedule;
+            String flushMode;
+            long delayMs;
+            synchronized (lock) {
+                // Without a listener the records stay buffered; don't wake the main thread for them
+                schedule = eventSink != null && !buffer.isEmpty() && !flushScheduled;
+                if (schedule) {
+                    flushScheduled = true;
+                }
+                flushMode = mode;
+                delayMs = intervalMs;
+            }
+            if (schedule) {
+                scheduleFlush(flushMode, delayMs);
+            }
+        }
+
+        private void scheduleFlush(String flushMode, long delayMs) {
+            if (MODE_INTERVAL.equals(flushMode)) {
+                mainHandler.postDelayed(flushRunnable, delayMs);
+            } else {
+                // Choreographer is bound to the calling looper, so register from the main thread
+                mainHandler.post(postFrameCallbackRunnable);
+            }
+        }
+
+        // Runs on the main thread
+        private void flush() {
+            byte[] batch;
+            int batchSize;
+            long[] origins;
+            EventSink sink;
+            synchronized (lock) {
+                flushScheduled = false;
+                sink = eventSink;
+                // A listener that left before the flush gets the records on its return
+                if (sink == null || buffer.isEmpty()) {
+                    return;
+                }
+                origins = buffer.liveOrigins();
+                batchSize = origins.length;
+                batch = buffer.drain();
+
+                long latency = System.nanoTime() - oldestPendingNanos;
+                flushCount++;
+                eventCount += batchSize;
+                lastBatchSize = batchSize;
+                maxBatchSize = Math.max(maxBatchSize, batchSize);
+                totalFlushLatencyNanos += latency;
+                maxFlushLatencyNanos = Math.max(maxFlushLatencyNanos, latency);
+                lastBatchBytes = batch.length;
+                totalBytes += batch.length;
+            }
+
+            try {
+                sink.success(batch);
+                recordDelivered(origins);
+            } catch (Exception e) {
+                Log.e(TAG, "Error sending event batch to Flutter: " + e.getMessage());
+                metrics.add(PluginMetrics.DROPPED_EVENTS, origins.length);
+            }
+        }
+
+        private void recordDelivered(long[] origins) {
+            long now = System.nanoTime();
+            for (long origin : origins) {
+                metrics.recordNanos(PluginMetrics.DISPATCH, now - origin);
+            }
+        }
+
+        Map<String, Object> getStats() {
+            Map<String, Object> stats = new HashMap<>();
+            synchronized (lock) {
+                stats.put("mode", mode);
+                stats.put("intervalMs", intervalMs);
+                stats.put("flushCount", flushCount);
+                stats.put("eventCount", eventCount);
+                stats.put("pendingEvents", buffer.liveEvents());
+                stats.put("pendingBytes", buffer.liveBytes());
+                stats.put("bufferBytes", buffer.capacityBytes());
+                stats.put("policies", buffer.policies());
+                stats.put("lastBatchSize", lastBatchSize);
+                stats.put("maxBatchSize", maxBatchSize);
+                stats.put("averageBatchSize", flushCount > 0 ? (double) eventCount / flushCount : 0.0);
+                stats.put("averageFlushLatencyMs",
+                        flushCount > 0 ? totalFlushLatencyNanos / 1e6 / flushCount : 0.0);
+                stats.put("maxFlushLatencyMs", maxFlushLatencyNanos / 1e6);
+                stats.put("lastBatchBytes", lastBatchBytes);
+                stats.put("totalBytes", totalBytes);
+            }
+            return stats;
+        }
+
+        void resetStats() {
+            synchronized (lock) {
+                flushCount = 0;
+                eventCount = 0;
+                lastBatchSize = 0;
+                maxBatchSize = 0;
+                totalFlushLatencyNanos = 0;
+                maxFlushLatencyNanos = 0;
+                lastBatchBytes = 0;
+                totalBytes = 0;
+            }
+        }
+
+        void shutdown() {
+            mainHandler.removeCallbacks(flushRunnable);
+            mainHandler.removeCallbacks(postFrameCallbackRunnable);
+            synchronized (lock) {
+                metrics.add(PluginMetrics.DROPPED_EVENTS, buffer.liveEvents());
+                buffer.clear();
+                flushScheduled = false;
+            }
+            eventSink = null;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.manzo.smart_ring;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.crrepa.ble.conn.CRPBleConnection;
+
+/**
+ * Pulls the ring's stored history one metric at a time and streams the records
+ * to Flutter in bounded chunks, followed by a progress event per metric.
+ *
+ * Only one metric query is in flight at a time so the history transfers don't
+ * compete for BLE airtime. Incremental syncs skip records at or before the
+ * device's persisted watermark; watermarks advance only when Dart acknowledges
+ * the chunks that carried the newer records.
+ *
+ * Confined to the session's worker thread, query timeouts included; only
+ * {@link #claim} and {@link #latestSyncId} may be called from other threads.
+ */
+final class HistorySync {
+    private static final String TAG = "HistorySync";
+
+    static final byte METRIC_HEART_RATE = 1;
+    static final byte METRIC_HRV = 2;
+    static final byte METRIC_BLOOD_OXYGEN = 3;
+    static final byte METRIC_STRESS = 4;
+    private static final int METRIC_SLOTS = 5;
+
+    static final int DEFAULT_CHUNK_SIZE = 64;
+    static final int MAX_CHUNK_SIZE = 512;
+    private static final long METRIC_TIMEOUT_MS = 15000;
+
+    static final int PROGRESS_COMPLETE = 1;
+    static final int PROGRESS_METRIC_FAILED = 1 << 1;
+
+    interface RecordReader<T> {
+        long timestampMs(T record);
+        int value(T record);
+    }
+
+    private final EventDispatcher eventDispatcher;
+    private final TimerWheel timers;
+    // Taken by the caller that starts a sync and released when it ends, so concurrent starts get one sync
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final AtomicInteger lastSyncId = new AtomicInteger();
+
+    private final ArrayDeque<Byte> pendingMetrics = new ArrayDeque<>();
+    private HistoryWatermarks watermarks;
+    private CRPBleConnection connection;
+    private String deviceAddress;
+    private final long[] startWatermarks = new long[METRIC_SLOTS];
+    // {metric, newest timestamp} per emitted chunk of the latest sync, indexed by chunk index
+    private final ArrayList<long[]> chunkLog = new ArrayList<>();
+    private int acknowledgedThrough = -1;
+    private int syncId = 0;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int chunkIndex = 0;
+    private int totalMetrics = 0;
+    private int completedMetrics = 0;
+    private byte currentMetric = 0;
+    private boolean active = false;
+    // Metrics of the latest sync, so it can be resumed after a reconnect
+    private List<String> requestedMetrics;
+
+    private TimerWheel.Timeout metricTimeout;
+
+    HistorySync(EventDispatcher eventDispatcher, TimerWheel timers) {
+        this.eventDispatcher = eventDispatcher;
+        this.timers = timers;
+    }
+
+    static byte metricFromName(String name) {
+        if (name == null) {
+            return 0;
+        }
+        switch (name) {
+            case "heartRate":
+                return METRIC_HEART_RATE;
+            case "hrv":
+                return METRIC_HRV;
+            case "bloodOxygen":
+                return METRIC_BLOOD_OXYGEN;
+            case "stress":
+                return METRIC_STRESS;
+            default:
+                return 0;
+        }
+    }
+
+    void setWatermarks(HistoryWatermarks watermarks) {
+        this.watermarks = watermarks;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    // Any thread: reserves the next sync id for start(), or returns -1 when a sync is already running
+    int claim() {
+        return claimed.compareAndSet(false, true) ? lastSyncId.incrementAndGet() : -1;
+    }
+
+    // Any thread
+    int latestSyncId() {
+        return lastSyncId.get();
+    }
+
+    // Runs the sync claimed as syncId
+    void start(int syncId, CRPBleConnection connection, String deviceAddress, List<String> metrics,
+               int requestedChunkSize, boolean incremental) {
+        this.syncId = syncId;
+        this.connection = connection;
+        this.deviceAddress = deviceAddress;
+        requestedMetrics = metrics != null ? new ArrayList<>(metrics) : null;
+        pendingMetrics.clear();
+        if (metrics == null || metrics.isEmpty()) {
+            pendingMetrics.add(METRIC_HEART_RATE);
+            pendingMetrics.add(METRIC_HRV);
+            pendingMetrics.add(METRIC_BLOOD_OXYGEN);
+            pendingMetrics.add(METRIC_STRESS);
+        } else {
+            for (String name : metrics) {
+                byte metric = metricFromName(name);
+                if (metric != 0 && !pendingMetrics.contains(metric)) {
+                    pendingMetrics.add(metric);
+                }
+            }
+        }
+        chunkSize = requestedChunkSize > 0 ? Math.min(requestedChunkSize, MAX_CHUNK_SIZE) : DEFAULT_CHUNK_SIZE;
+        totalMetrics = pendingMetrics.size();
+        completedMetrics = 0;
+        chunkIndex = 0;
+        chunkLog.clear();
+        acknowledgedThrough = -1;
+        for (byte metric = 0; metric < METRIC_SLOTS; metric++) {
+            startWatermarks[metric] = incremental && watermarks != null ? watermarks.get(deviceAddress, metric) : 0;
+        }
+        if (pendingMetrics.isEmpty()) {
+            claimed.set(false);
+            eventDispatcher.dispatchHistoryProgress(EventCodec.HISTORY_SYNC_PROGRESS, syncId, (byte) 0, 0,
+                    0, 0, PROGRESS_COMPLETE);
+            return;
+        }
+        active = true;
+        Log.d(TAG, "Starting history sync " + syncId + " for " + totalMetrics + " metrics");
+        queryNextMetric();
+    }
+
+    // Restarts the latest sync incrementally, so acknowledged chunks are not sent again
+    void resume(CRPBleConnection connection) {
+        int resumedSyncId = claim();
+        if (resumedSyncId >= 0) {
+            start(resumedSyncId, connection, deviceAddress, requestedMetrics, chunkSize, true);
+        }
+    }
+
+    void cancel() {
+        if (!active) {
+            return;
+        }
+        cancelMetricTimeout();
+        pendingMetrics.clear();
+        active = false;
+        connection = null;
+        claimed.set(false);
+        eventDispatcher.dispatchHistoryProgress(EventCodec.HISTORY_SYNC_PROGRESS, syncId, currentMetric, 0,
+                completedMetrics, totalMetrics, PROGRESS_COMPLETE | PROGRESS_METRIC_FAILED);
+    }
+
+    // Called from the SDK history listeners
+    <T> void onHistory(byte metric, List<T> records, RecordReader<T> reader) {
+        int count = records != null ? records.size() : 0;
+        Log.d(TAG, "History received for metric " + metric + ": " + count + " records");
+
+        long watermark = active && metric > 0 && metric < METRIC_SLOTS ? startWatermarks[metric] : 0;
+        long[] timestamps = new long[count];
+        int[] values = new int[count];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            T record = records.get(i);
+            if (record == null) {
+                continue;
+            }
+            long timestamp = reader.timestampMs(record);
+            if (timestamp <= watermark) {
+                continue;
+            }
+            timestamps[kept] = timestamp;
+            values[kept] = reader.value(record);
+            kept++;
+        }
+        // Ascending order makes cumulative chunk acknowledgements safe to turn into a watermark
+        SeriesCodec.sortByTimestamp(timestamps, values, kept);
+
+        int emitted = 0;
+        while (emitted < kept) {
+            int size = Math.min(chunkSize, kept - emitted);
+            chunkLog.add(new long[]{metric, timestamps[emitted + size - 1]});
+            eventDispatcher.dispatchHistoryChunk(EventCodec.HISTORY_CHUNK, metric, syncId, chunkIndex++,
+                    timestamps, values, emitted, size);
+            emitted += size;
+        }
+        Log.d(TAG, "Emitted " + emitted + " new records for metric " + metric + " (" + (count - kept) + " already synced)");
+
+        if (active && metric == currentMetric) {
+            finishMetric(metric, emitted, 0);
+        }
+    }
+
+    // Acknowledges every chunk of the sync up to and including chunkIndex
+    boolean acknowledge(int ackSyncId, int throughChunkIndex) {
+        if (ackSyncId != syncId || watermarks == null) {
+            return false;
+        }
+        int last = Math.min(throughChunkIndex, chunkLog.size() - 1);
+        if (last <= acknowledgedThrough) {
+            return true;
+        }
+        long[] advanced = new long[METRIC_SLOTS];
+        for (int i = acknowledgedThrough + 1; i <= last; i++) {
+            long[] entry = chunkLog.get(i);
+            int metric = (int) entry[0];
+            advanced[metric] = Math.max(advanced[metric], entry[1]);
+        }
+        if (!watermarks.advance(deviceAddress, advanced)) {
+            Log.e(TAG, "Failed to persist history watermarks for " + deviceAddress);
+            return false;
+        }
+        acknowledgedThrough = last;
+        return true;
+    }
+
+
+    private void finishMetric(byte metric, int records, int flags) {
+        cancelMetricTimeout();
+        completedMetrics++;
+        boolean complete = pendingMetrics.isEmpty();
+        eventDispatcher.dispatchHistoryProgress(EventCodec.HISTORY_SYNC_PROGRESS, syncId, metric, records,
+                completedMetrics, totalMetrics, flags | (complete ? PROGRESS_COMPLETE : 0));
+        if (complete) {
+            active = false;
+            connection = null;
+            claimed.set(false);
+            Log.d(TAG, "History sync " + syncId + " complete");
+        } else {
+            queryNextMetric();
+        }
+    }
+
+    private void queryNextMetric() {
+        currentMetric = pendingMetrics.poll();
+        metricTimeout = timers.schedule(new Runnable() {
+            @Override
+            public void run() {
+                metricTimeout = null;
+                if (!active) {
+                    return;
+                }
+                Log.w(TAG, "History query timed out for metric " + currentMetric);
+                finishMetric(currentMetric, 0, PROGRESS_METRIC_FAILED);
+            }
+        }, METRIC_TIMEOUT_MS);
+        try {
+            switch (currentMetric) {
+                case METRIC_HEART_RATE:
+                    connection.queryHistoryHeartRate();
+                    break;
+                case METRIC_HRV:
+                    connection.queryHistoryHrv();
+                    break;
+                case METRIC_BLOOD_OXYGEN:
+                    connection.queryHistoryBloodOxygen();
+                    break;
+                case METRIC_STRESS:
+                    connection.queryHistoryStress();
+                    break;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error querying history for metric " + currentMetric + ": " + e.getMessage());
+            finishMetric(currentMetric, 0, PROGRESS_METRIC_FAILED);
+        }
+    }
+
+    private void cancelMetricTimeout() {
+        if (metricTimeout != null) {
+            metricTimeout.cancel();
+            metricTimeout = null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.manzo.smart_ring;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Map;
+
+/**
+ * Persisted last-synced timestamp per device address and history metric.
+ *
+ * Watermarks only move forward, and all metrics acknowledged together are
+ * written in a single SharedPreferences commit.
+ */
+final class HistoryWatermarks {
+    private static final String PREFS_NAME = "smart_ring_history_watermarks";
+
+    private final SharedPreferences prefs;
+
+    HistoryWatermarks(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static String key(String deviceAddress, byte metric) {
+        return deviceAddress + "|" + metric;
+    }
+
+    long get(String deviceAddress, byte metric) {
+        if (deviceAddress == null) {
+            return 0;
+        }
+        return prefs.getLong(key(deviceAddress, metric), 0);
+    }
+
+    // metricWatermarks is indexed by metric id; zero entries are left untouched
+    boolean advance(String deviceAddress, long[] metricWatermarks) {
+        if (deviceAddress == null) {
+            return false;
+        }
+        SharedPreferences.Editor editor = prefs.edit();
+        boolean changed = false;
+        for (int metric = 0; metric < metricWatermarks.length; metric++) {
+            long watermark = metricWatermarks[metric];
+            if (watermark > get(deviceAddress, (byte) metric)) {
+                editor.putLong(key(deviceAddress, (byte) metric), watermark);
+                changed = true;
+            }
+        }
+        return !changed || editor.commit();
+    }
+
+    void reset(String deviceAddress) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (deviceAddress == null || entry.getKey().startsWith(deviceAddress + "|")) {
+                editor.remove(entry.getKey());
+            }
+        }
+        editor.commit();
+    }
+}
@@ -0,0 +1,70 @@
+package com.manzo.smart_ring;
+
+/**
+ * Fixed-size log-linear histogram of latencies in milliseconds.
+ *
+ * Buckets start at 100 ms and grow by 2^(1/4) (about 19%), so 48 ints cover
+ * 100 ms to roughly 400 s. Percentiles report the upper bound of their bucket,
+ * erring long. Counts are halved whenever the total reaches {@link #DECAY_AT},
+ * so old samples fade and the histogram follows a ring whose latency drifts.
+ *
+ * Not thread-safe; callers serialize access.
+ */
+final class LatencyHistogram {
+    static final int BUCKETS = 48;
+    private static final long BASE_MS = 100;
+    private static final int SUB_BUCKETS = 4; // per doubling
+    private static final long DECAY_AT = 1024;
+
+    private final int[] counts = new int[BUCKETS];
+    private long total = 0;
+
+    static int bucketOf(long latencyMs) {
+        if (latencyMs <= BASE_MS) {
+            return 0;
+        }
+        double octaves = Math.log((double) latencyMs / BASE_MS) / Math.log(2);
+        return (int) Math.min(BUCKETS - 1, Math.floor(octaves * SUB_BUCKETS));
+    }
+
+    // Exclusive upper bound of a bucket
+    static long upperBoundMs(int bucket) {
+        return (long) Math.ceil(BASE_MS * Math.pow(2, (bucket + 1) / (double) SUB_BUCKETS));
+    }
+
+    void record(long latencyMs) {
+        counts[bucketOf(latencyMs)]++;
+        total++;
+        if (total >= DECAY_AT) {
+            total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] >>= 1;
+                total += counts[i];
+            }
+        }
+    }
+
+    long total() {
+        return total;
+    }
+
+    /** Upper bound of the bucket holding the given percentile (0-1], or 0 if empty. */
+    long percentileMs(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundMs(i);
+            }
+        }
+        return upperBoundMs(BUCKETS - 1);
+    }
+
+    int[] counts() {
+        return counts.clone();
+    }
+}
@@ -0,0 +1,129 @@
+package com.manzo.smart_ring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plans a full measurement as parallel lanes of steps that may overlap.
+ *
+ * The ring has two independent sensors: the skin thermistor used for
+ * temperature and the optical (PPG) front end shared by HRV, heart rate,
+ * stress and SpO2. Steps on different lanes run at the same time; steps on the
+ * PPG lane run back to back, each starting as soon as the previous one reports.
+ * A failed critical step ends the whole plan. Only a step that is running can
+ * finish; late, duplicate or unsolicited results are ignored.
+ *
+ * Not thread-safe; callers serialize access.
+ */
+final class MeasurementScheduler {
+    private static final String[][] LANES = {
+            {"temperature"},
+            {"hrv", "heartRate", "stress", "bloodOxygen"},
+    };
+
+    private final Set<String> criticalSteps;
+    private final int[] nextIndex = new int[LANES.length];
+    // Index of the step running on each lane, -1 when none is
+    private final int[] running = new int[LANES.length];
+    private final long startNanos;
+    private final int totalSteps;
+    private int completedSteps = 0;
+    private int succeededSteps = 0;
+    private boolean aborted = false;
+
+    MeasurementScheduler(Set<String> criticalSteps) {
+        this.criticalSteps = criticalSteps;
+        startNanos = System.nanoTime();
+        int total = 0;
+        for (String[] lane : LANES) {
+            total += lane.length;
+        }
+        totalSteps = total;
+        Arrays.fill(running, -1);
+    }
+
+    // The first step of every lane, to be started together
+    List<String> start() {
+        List<String> steps = new ArrayList<>();
+        for (int lane = 0; lane < LANES.length; lane++) {
+            steps.add(startNext(lane));
+        }
+        return steps;
+    }
+
+    boolean isCritical(String step) {
+        return criticalSteps.contains(step);
+    }
+
+    // Whether step was started and has not reported yet
+    boolean isRunning(String step) {
+        int lane = laneOf(step);
+        return lane >= 0 && running[lane] >= 0 && LANES[lane][running[lane]].equals(step);
+    }
+
+    /**
+     * Records the outcome of {@code step} and returns the step to start next on
+     * its lane, or null when the lane is done or the plan was aborted. A step
+     * that is not running is ignored and null returned.
+     */
+    String onFinished(String step, boolean succeeded) {
+        if (!isRunning(step)) {
+            return null;
+        }
+        int lane = laneOf(step);
+        running[lane] = -1;
+        completedSteps++;
+        if (succeeded) {
+            succeededSteps++;
+        } else if (isCritical(step)) {
+            aborted = true;
+        }
+        if (aborted || nextIndex[lane] >= LANES[lane].length) {
+            return null;
+        }
+        return startNext(lane);
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    // All steps have reported
+    boolean isComplete() {
+        return completedSteps >= totalSteps;
+    }
+
+    int completedSteps() {
+        return completedSteps;
+    }
+
+    int succeededSteps() {
+        return succeededSteps;
+    }
+
+    int totalSteps() {
+        return totalSteps;
+    }
+
+    long elapsedMs() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private String startNext(int lane) {
+        running[lane] = nextIndex[lane]++;
+        return LANES[lane][running[lane]];
+    }
+
+    private static int laneOf(String step) {
+        for (int lane = 0; lane < LANES.length; lane++) {
+            for (String candidate : LANES[lane]) {
+                if (candidate.equals(step)) {
+                    return lane;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.manzo.smart_ring;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time-to-result histograms of one ring, per measurement type, and the
+ * timeouts derived from them.
+ *
+ * A measurement times out at the configured percentile of its observed
+ * latency, clamped to the policy's floor and ceiling. Until a type has
+ * {@link #MIN_SAMPLES} samples the ceiling is used, which is the old flat
+ * 90 s timeout. Kept per device address by the plugin so it survives
+ * reconnects.
+ */
+final class MeasurementTimeouts {
+    static final double DEFAULT_PERCENTILE = 0.99;
+    static final long DEFAULT_MIN_TIMEOUT_MS = 15000;
+    static final long DEFAULT_MAX_TIMEOUT_MS = 90000;
+    static final int MIN_SAMPLES = 5;
+
+    private static final String[] TYPES = {"temperature", "heartRate", "hrv", "stress", "bloodOxygen"};
+
+    /** Percentile, floor and ceiling shared by every ring. */
+    static final class Policy {
+        private double percentile = DEFAULT_PERCENTILE;
+        private long minTimeoutMs = DEFAULT_MIN_TIMEOUT_MS;
+        private long maxTimeoutMs = DEFAULT_MAX_TIMEOUT_MS;
+
+        // Returns false and keeps the current policy if the values make no sense
+        synchronized boolean configure(double percentile, long minTimeoutMs, long maxTimeoutMs) {
+            if (percentile <= 0 || percentile > 1 || minTimeoutMs <= 0 || maxTimeoutMs < minTimeoutMs) {
+                return false;
+            }
+            this.percentile = percentile;
+            this.minTimeoutMs = minTimeoutMs;
+            this.maxTimeoutMs = maxTimeoutMs;
+            return true;
+        }
+
+        synchronized long timeoutMs(LatencyHistogram histogram) {
+            if (histogram == null || histogram.total() < MIN_SAMPLES) {
+                return maxTimeoutMs;
+            }
+            return Math.max(minTimeoutMs, Math.min(maxTimeoutMs, histogram.percentileMs(percentile)));
+        }
+
+        synchronized double percentile() {
+            return percentile;
+        }
+    }
+
+    private final Policy policy;
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    MeasurementTimeouts(Policy policy) {
+        this.policy = policy;
+        for (String type : TYPES) {
+            histograms.put(type, new LatencyHistogram());
+        }
+    }
+
+    synchronized void record(String measurementType, long latencyMs) {
+        LatencyHistogram histogram = histograms.get(measurementType);
+        if (histogram != null) {
+            histogram.record(latencyMs);
+        }
+    }
+
+    synchronized long timeoutMs(String measurementType) {
+        return policy.timeoutMs(histograms.get(measurementType));
+    }
+
+    // Per type: timeoutMs, samples, p50Ms, p90Ms, p99Ms, percentileMs and the non-empty buckets
+    synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new HashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("timeoutMs", policy.timeoutMs(histogram));
+            stats.put("samples", histogram.total());
+            stats.put("p50Ms", histogram.percentileMs(0.5));
+            stats.put("p90Ms", histogram.percentileMs(0.9));
+            stats.put("p99Ms", histogram.percentileMs(0.99));
+            stats.put("percentileMs", histogram.percentileMs(policy.percentile()));
+
+            List<Long> bucketUpperMs = new ArrayList<>();
+            List<Integer> bucketCounts = new ArrayList<>();
+            int[] counts = histogram.counts();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    bucketUpperMs.add(LatencyHistogram.upperBoundMs(i));
+                    bucketCounts.add(counts[i]);
+                }
+            }
+            stats.put("bucketUpperMs", bucketUpperMs);
+            stats.put("bucketCounts", bucketCounts);
+            snapshot.put(entry.getKey(), stats);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,233 @@
+package com.manzo.smart_ring;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the whole plugin, read through the
+ * {@code getMetrics} method call.
+ *
+ * Everything here is lock-free: counters are {@link LongAdder}s and each
+ * histogram is an array of atomic buckets, so recording from the SDK, worker
+ * and main threads never blocks and never allocates once a name is known.
+ * Snapshots are not atomic across metrics, which is fine for charts.
+ */
+final class PluginMetrics {
+    // Histograms
+    static final String CONNECT = "connect"; // connect() until the ring reports connected
+    static final String MEASUREMENT = "measurement."; // + type, start until result
+    static final String DISPATCH = "dispatch"; // SDK callback until eventSink.success
+    static final String WORKER_QUEUE = "workerQueue"; // SDK callback until the worker runs it
+    static final String RECONNECT = "reconnect"; // link dropped until reconnected
+
+    // Counters
+    static final String RETRIES = "retries."; // + type
+    static final String RETRY_TIME = "retryTimeMs."; // + type, failure until the retried attempt reported
+    static final String RETRIES_DEFERRED = "retriesDeferred."; // + type, held back for a weak link
+    static final String RETRY_BUDGET_EXHAUSTED = "retryBudgetExhausted";
+    static final String TIMEOUTS = "timeouts."; // + type
+    static final String FAILURES = "failures."; // + type, retries exhausted
+    static final String REJECTED = "rejected."; // + type, results and realtime samples failing the quality check
+    static final String CONNECT_TIMEOUTS = "connectTimeouts";
+    static final String RECONNECT_ATTEMPTS = "reconnectAttempts";
+    static final String RECONNECT_FAILURES = "reconnectFailures"; // sessions given up on
+    static final String DROPPED_EVENTS = "droppedEvents";
+    static final String EVENTS_DROPPED = "eventsDropped."; // + event category, dropped by a full EventBuffer
+    static final String EVENTS_COALESCED = "eventsCoalesced."; // + event category, replaced by a newer record
+    static final String BACKGROUND_RUNS = "backgroundRuns";
+    static final String BACKGROUND_BUSY = "backgroundBusy"; // rings a background run found already measuring
+    static final String SCAN_ADVERTISEMENTS = "scanAdvertisements";
+    static final String SCAN_COALESCED = "scanCoalesced"; // advertisements not forwarded to Dart
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    // Indexed by EventCodec type
+    private final LongAdder[] eventsByType = new LongAdder[256];
+
+    PluginMetrics() {
+        for (int i = 0; i < eventsByType.length; i++) {
+            eventsByType[i] = new LongAdder();
+        }
+    }
+
+    void increment(String counter) {
+        add(counter, 1);
+    }
+
+    void add(String counter, long delta) {
+        LongAdder adder = counters.get(counter);
+        if (adder == null) {
+            LongAdder created = new LongAdder();
+            adder = counters.putIfAbsent(counter, created);
+            if (adder == null) {
+                adder = created;
+            }
+        }
+        adder.add(delta);
+    }
+
+    void recordNanos(String histogram, long nanos) {
+        Histogram target = histograms.get(histogram);
+        if (target == null) {
+            Histogram created = new Histogram();
+            target = histograms.putIfAbsent(histogram, created);
+            if (target == null) {
+                target = created;
+            }
+        }
+        target.record(nanos / 1_000);
+    }
+
+    void countEvent(byte type) {
+        eventsByType[type & 0xFF].increment();
+    }
+
+    long events(byte type) {
+        return eventsByType[type & 0xFF].sum();
+    }
+
+    long counter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    Histogram histogram(String histogram) {
+        return histograms.get(histogram);
+    }
+
+    // counters, histograms (count, meanMs, p50Ms, p90Ms, p99Ms, maxMs) and eventsByType keyed by EventCodec type
+    Map<String, Object> snapshot() {
+        Map<String, Object> counterValues = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            counterValues.put(entry.getKey(), entry.getValue().sum());
+        }
+        Map<String, Object> histogramValues = new HashMap<>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            histogramValues.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        Map<Integer, Long> events = new HashMap<>();
+        for (int i = 0; i < eventsByType.length; i++) {
+            long count = eventsByType[i].sum();
+            if (count > 0) {
+                events.put(i, count);
+            }
+        }
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("counters", counterValues);
+        snapshot.put("histograms", histogramValues);
+        snapshot.put("eventsByType", events);
+        return snapshot;
+    }
+
+    void reset() {
+        for (LongAdder adder : counters.values()) {
+            adder.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (LongAdder adder : eventsByType) {
+            adder.reset();
+        }
+    }
+
+    /**
+     * HDR-style histogram of microseconds: exact below 16 us, then 16 buckets
+     * per doubling (at most 6.25% wide) up to 2^40 us, about 12 days.
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int MAX_EXPONENT = 40;
+        static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumMicros = new LongAdder();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        static int bucketOf(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) Math.max(0, micros);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            if (exponent > MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            int shift = exponent - SUB_BUCKET_BITS;
+            return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+        }
+
+        // Largest value that falls in the bucket
+        static long upperBoundMicros(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+            long mantissa = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            return ((mantissa + 1) << shift) - 1;
+        }
+
+        void record(long micros) {
+            counts.incrementAndGet(bucketOf(micros));
+            count.increment();
+            sumMicros.add(micros);
+            long max = maxMicros.get();
+            while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+                max = maxMicros.get();
+            }
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        /** Upper bound of the bucket holding the given percentile (0-1], or 0 if empty. */
+        long percentileMicros(double percentile) {
+            long total = 0;
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = counts.get(i);
+                total += copy[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += copy[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundMicros(i), maxMicros.get());
+                }
+            }
+            return maxMicros.get();
+        }
+
+        Map<String, Object> snapshot() {
+            long samples = count.sum();
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("count", samples);
+            stats.put("meanMs", samples > 0 ? sumMicros.sum() / 1e3 / samples : 0.0);
+            stats.put("p50Ms", percentileMicros(0.5) / 1e3);
+            stats.put("p90Ms", percentileMicros(0.9) / 1e3);
+            stats.put("p99Ms", percentileMicros(0.99) / 1e3);
+            stats.put("maxMs", maxMicros.get() / 1e3);
+            return stats;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            sumMicros.reset();
+            maxMicros.set(0);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.manzo.smart_ring;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scores one ring's measurement results against what it measured recently.
+ *
+ * The range checks in {@link DeviceSession} only catch values no ring should
+ * report. Within range, a result is compared with the median of a reference:
+ * the realtime samples of the last {@link #REALTIME_MAX_AGE_MS} if there are
+ * enough, otherwise the results accepted in the last
+ * {@link #ACCEPTED_MAX_AGE_MS}. Its distance from the median, in robust
+ * standard deviations (1.4826 x MAD, floored per type so a steady reference
+ * does not make every small move an outlier), gives a score from 1 down to 0
+ * at {@link #ZERO_SCORE_Z}. Results below {@link #ACCEPT_SCORE} are sent back
+ * for a retry while the ring is still on the finger.
+ *
+ * A value that repeats the previous rejection is accepted: two readings in a
+ * row agreeing means the wearer's values really moved. Without a reference
+ * every in-range result scores 1. Realtime samples go through the same test so
+ * single spikes are dropped from the realtime stream. Worker only.
+ */
+final class ReadingQuality {
+    static final double ACCEPT_SCORE = 0.5;
+    static final double ZERO_SCORE_Z = 8;
+    static final int MIN_REFERENCE = 3;
+    static final long REALTIME_MAX_AGE_MS = 30_000;
+    static final long ACCEPTED_MAX_AGE_MS = 15 * 60_000;
+
+    private static final int CAPACITY = 16; // power of two
+    private static final double MAD_TO_SIGMA = 1.4826;
+
+    /** The latest values of one series with their times, oldest overwritten first. */
+    private static final class Samples {
+        final double[] values = new double[CAPACITY];
+        final long[] timesMs = new long[CAPACITY];
+        int next = 0;
+        int size = 0;
+        double rejected = Double.NaN; // last value that failed, if the next one has not passed yet
+
+        void add(long nowMs, double value) {
+            values[next] = value;
+            timesMs[next] = nowMs;
+            next = (next + 1) & (CAPACITY - 1);
+            size = Math.min(size + 1, CAPACITY);
+        }
+
+        // Copies the values younger than maxAgeMs into out and returns how many there are
+        int recent(long nowMs, long maxAgeMs, double[] out) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int index = (next - 1 - i) & (CAPACITY - 1);
+                if (nowMs - timesMs[index] > maxAgeMs) {
+                    break;
+                }
+                out[count++] = values[index];
+            }
+            return count;
+        }
+    }
+
+    private static final class Track {
+        final double minSpread;
+        final Samples realtime = new Samples();
+        final Samples accepted = new Samples();
+
+        Track(double minSpread) {
+            this.minSpread = minSpread;
+        }
+    }
+
+    private final Map<String, Track> tracks = new HashMap<>();
+    private final double[] scratch = new double[CAPACITY];
+
+    ReadingQuality() {
+        // Smallest spread taken as one standard deviation, in the unit of each type
+        tracks.put("temperature", new Track(0.3));
+        tracks.put("heartRate", new Track(4));
+        tracks.put("hrv", new Track(8));
+        tracks.put("stress", new Track(8));
+        tracks.put("bloodOxygen", new Track(1.5));
+    }
+
+    /** Scores a result; below {@link #ACCEPT_SCORE} it is remembered as rejected. */
+    double scoreResult(String measurementType, long nowMs, double value) {
+        Track track = tracks.get(measurementType);
+        if (track == null) {
+            return 1;
+        }
+        int count = track.realtime.recent(nowMs, REALTIME_MAX_AGE_MS, scratch);
+        double spread = track.minSpread;
+        if (count < MIN_REFERENCE) {
+            count = track.accepted.recent(nowMs, ACCEPTED_MAX_AGE_MS, scratch);
+            // Results minutes apart vary more than samples seconds apart
+            spread *= 2;
+        }
+        double score = judge(track.accepted, count, spread, value);
+        if (score >= ACCEPT_SCORE) {
+            track.accepted.add(nowMs, value);
+        }
+        return score;
+    }
+
+    /** Whether a realtime sample is plausible; every sample joins the reference either way. */
+    boolean acceptRealtime(String measurementType, long nowMs, double value) {
+        Track track = tracks.get(measurementType);
+        if (track == null) {
+            return true;
+        }
+        int count = track.realtime.recent(nowMs, REALTIME_MAX_AGE_MS, scratch);
+        boolean accepted = judge(track.realtime, count, track.minSpread, value) >= ACCEPT_SCORE;
+        track.realtime.add(nowMs, value);
+        return accepted;
+    }
+
+    // Scores value against the first count values of scratch and tracks rejections in samples
+    private double judge(Samples samples, int count, double minSpread, double value) {
+        if (count < MIN_REFERENCE) {
+            samples.rejected = Double.NaN;
+            return 1;
+        }
+        double median = median(scratch, count);
+        for (int i = 0; i < count; i++) {
+            scratch[i] = Math.abs(scratch[i] - median);
+        }
+        double sigma = Math.max(MAD_TO_SIGMA * median(scratch, count), minSpread);
+        double score = Math.max(0, 1 - Math.abs(value - median) / sigma / ZERO_SCORE_Z);
+        if (score < ACCEPT_SCORE && !Double.isNaN(samples.rejected)
+                && Math.abs(value - samples.rejected) <= minSpread) {
+            score = ACCEPT_SCORE;
+        }
+        samples.rejected = score < ACCEPT_SCORE ? value : Double.NaN;
+        return score;
+    }
+
+    // Insertion sort in place; the arrays hold at most CAPACITY values
+    private static double median(double[] values, int count) {
+        for (int i = 1; i < count; i++) {
+            double value = values[i];
+            int j = i - 1;
+            while (j >= 0 && values[j] > value) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+        int middle = count / 2;
+        return count % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+}
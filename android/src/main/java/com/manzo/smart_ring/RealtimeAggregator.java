@@ -0,0 +1,181 @@
+package com.manzo.smart_ring;
+
+/**
+ * Thins out one ring's realtime heart rate before it crosses the channel.
+ *
+ * In {@link #MODE_RAW} every sample is forwarded. {@link #MODE_DECIMATE}
+ * forwards the first sample of each window and drops the rest.
+ * {@link #MODE_WINDOW} forwards nothing per sample and instead emits the
+ * count, min, max, mean and last sample of each window once it closes.
+ *
+ * A window opens with its first sample and closes at the first sample
+ * arriving after it, or when the session's timer calls
+ * {@link #closeIfDue(long)}. Samples are kept in a fixed primitive ring
+ * buffer, so the per-sample path never allocates; in a window holding more
+ * than {@link #CAPACITY} samples, min, max and mean cover the latest ones
+ * while count covers them all. Worker only, except {@link Settings}.
+ */
+final class RealtimeAggregator {
+    static final int MODE_RAW = 0;
+    static final int MODE_DECIMATE = 1;
+    static final int MODE_WINDOW = 2;
+
+    static final long DEFAULT_WINDOW_MS = 1000;
+    static final long MIN_WINDOW_MS = 100;
+    static final long MAX_WINDOW_MS = 60000;
+    static final int CAPACITY = 256; // power of two
+
+    private static final int MASK = CAPACITY - 1;
+
+    /** Receives what survives aggregation. */
+    interface Sink {
+        void onSample(int value);
+
+        void onWindow(int count, int min, int max, float mean, int last, long durationMs);
+    }
+
+    /** Mode and window length shared by every ring; raw by default. */
+    static final class Settings {
+        private volatile Config config = new Config(MODE_RAW, DEFAULT_WINDOW_MS);
+
+        // Returns false and keeps the current settings if the values make no sense
+        boolean configure(int mode, long windowMs) {
+            if (mode < MODE_RAW || mode > MODE_WINDOW || windowMs < MIN_WINDOW_MS || windowMs > MAX_WINDOW_MS) {
+                return false;
+            }
+            config = new Config(mode, windowMs);
+            return true;
+        }
+
+        Config config() {
+            return config;
+        }
+    }
+
+    // Immutable, so a session sees mode and window length change together
+    static final class Config {
+        final int mode;
+        final long windowMs;
+
+        Config(int mode, long windowMs) {
+            this.mode = mode;
+            this.windowMs = windowMs;
+        }
+    }
+
+    private final Settings settings;
+    private final Sink sink;
+    private Config config;
+
+    private final int[] values = new int[CAPACITY];
+    private int head = 0;
+    private int size = 0;
+    private int count = 0;
+    private int last = 0;
+    private boolean windowOpen = false;
+    private long windowStartMs = 0;
+
+    private boolean decimating = false;
+    private long lastForwardedMs = 0;
+
+    RealtimeAggregator(Settings settings, Sink sink) {
+        this.settings = settings;
+        this.sink = sink;
+        config = settings.config();
+    }
+
+    // Returns the delay after which closeIfDue should run if the sample opened a window, otherwise -1
+    long add(long nowMs, int value) {
+        Config current = settings.config();
+        if (current != config) {
+            // Settings changed: report the window built under the old ones
+            flush(nowMs);
+            decimating = false;
+            config = current;
+        }
+
+        switch (config.mode) {
+            case MODE_DECIMATE:
+                if (!decimating || nowMs - lastForwardedMs >= config.windowMs) {
+                    decimating = true;
+                    lastForwardedMs = nowMs;
+                    sink.onSample(value);
+                }
+                return -1;
+            case MODE_WINDOW:
+                long opened = -1;
+                if (windowOpen && nowMs - windowStartMs >= config.windowMs) {
+                    closeWindow(config.windowMs);
+                }
+                if (!windowOpen) {
+                    windowOpen = true;
+                    windowStartMs = nowMs;
+                    opened = config.windowMs;
+                }
+                push(value);
+                return opened;
+            default:
+                sink.onSample(value);
+                return -1;
+        }
+    }
+
+    // Closes the open window if it has run its length; returns the time it still has left, else 0
+    long closeIfDue(long nowMs) {
+        if (!windowOpen) {
+            return 0;
+        }
+        long remaining = windowStartMs + config.windowMs - nowMs;
+        if (remaining > 0) {
+            return remaining;
+        }
+        closeWindow(config.windowMs);
+        return 0;
+    }
+
+    /** Emits the open window however short it is. */
+    void flush(long nowMs) {
+        if (windowOpen) {
+            closeWindow(Math.min(nowMs - windowStartMs, config.windowMs));
+        }
+    }
+
+    /** Drops the open window and decimation state, e.g. when the session closes. */
+    void reset() {
+        windowOpen = false;
+        head = 0;
+        size = 0;
+        count = 0;
+        decimating = false;
+    }
+
+    private void push(int value) {
+        values[(head + size) & MASK] = value;
+        if (size < CAPACITY) {
+            size++;
+        } else {
+            head = (head + 1) & MASK;
+        }
+        count++;
+        last = value;
+    }
+
+    private void closeWindow(long durationMs) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            int value = values[(head + i) & MASK];
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+        int windowCount = count;
+        float mean = (float) sum / size;
+        windowOpen = false;
+        head = 0;
+        size = 0;
+        count = 0;
+        sink.onWindow(windowCount, min, max, mean, last, durationMs);
+    }
+}
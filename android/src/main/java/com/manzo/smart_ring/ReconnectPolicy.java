@@ -0,0 +1,46 @@
+package com.manzo.smart_ring;
+
+import java.util.Random;
+
+/**
+ * Whether and how sessions reconnect after the link drops.
+ *
+ * Attempts back off from the initial delay up to the maximum with equal
+ * jitter (see {@link Backoff}), so rings that dropped together do not retry in
+ * lockstep. Shared by every session and configured from Dart; off by default.
+ */
+final class ReconnectPolicy {
+    static final long DEFAULT_INITIAL_DELAY_MS = 500;
+    static final long DEFAULT_MAX_DELAY_MS = 30000;
+    static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private boolean enabled = false;
+    private long initialDelayMs = DEFAULT_INITIAL_DELAY_MS;
+    private long maxDelayMs = DEFAULT_MAX_DELAY_MS;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS; // 0 retries forever
+
+    // Returns false and keeps the current policy if the values make no sense
+    synchronized boolean configure(boolean enabled, long initialDelayMs, long maxDelayMs, int maxAttempts) {
+        if (initialDelayMs <= 0 || maxDelayMs < initialDelayMs || maxAttempts < 0) {
+            return false;
+        }
+        this.enabled = enabled;
+        this.initialDelayMs = initialDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxAttempts = maxAttempts;
+        return true;
+    }
+
+    synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    // Whether attempt (1-based) is still allowed
+    synchronized boolean allows(int attempt) {
+        return maxAttempts == 0 || attempt <= maxAttempts;
+    }
+
+    synchronized long delayMs(int attempt, Random random) {
+        return Backoff.delayMs(initialDelayMs, maxDelayMs, attempt, true, random);
+    }
+}
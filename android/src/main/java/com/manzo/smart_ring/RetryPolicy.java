@@ -0,0 +1,184 @@
+package com.manzo.smart_ring;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * How one measurement type is retried after a timeout or an unusable reading.
+ *
+ * Fixed backoff waits {@code delayMs} before every retry; exponential doubles
+ * it from {@code delayMs} up to {@code maxDelayMs}. With jitter the wait is
+ * drawn from the upper half of that ("equal jitter", as for reconnects). With
+ * {@code minRssi} set a retry is held back while the link is weaker than that,
+ * rather than spent on a connection likely to fail it again.
+ */
+final class RetryPolicy {
+    static final int DEFAULT_RETRIES = 2;
+    static final long DEFAULT_DELAY_MS = 2000;
+    static final long DEFAULT_MAX_DELAY_MS = 30000;
+    static final int ANY_RSSI = Integer.MIN_VALUE;
+
+    static final RetryPolicy DEFAULT = new RetryPolicy(DEFAULT_RETRIES, false, DEFAULT_DELAY_MS,
+            DEFAULT_MAX_DELAY_MS, false, ANY_RSSI);
+
+    private static final String[] TYPES = {"temperature", "heartRate", "hrv", "stress", "bloodOxygen"};
+
+    final int retries;
+    final boolean exponential;
+    final long delayMs;
+    final long maxDelayMs;
+    final boolean jitter;
+    final int minRssi;
+
+    RetryPolicy(int retries, boolean exponential, long delayMs, long maxDelayMs, boolean jitter, int minRssi) {
+        this.retries = retries;
+        this.exponential = exponential;
+        this.delayMs = delayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.jitter = jitter;
+        this.minRssi = minRssi;
+    }
+
+    // Wait before retry (1-based)
+    long delayMs(int retry, Random random) {
+        return Backoff.delayMs(delayMs, exponential ? maxDelayMs : delayMs, retry, jitter, random);
+    }
+
+    /**
+     * The retry policies of one measurement run, the total time its retries may
+     * take and the steps whose failure ends a full measurement.
+     */
+    static final class Plan {
+        static final long UNLIMITED_BUDGET_MS = Long.MAX_VALUE;
+
+        static final Plan DEFAULT = new Plan(Collections.<String, RetryPolicy>emptyMap(), RetryPolicy.DEFAULT,
+                UNLIMITED_BUDGET_MS, Collections.singleton("heartRate"));
+
+        private final Map<String, RetryPolicy> policies;
+        private final RetryPolicy fallback;
+        final long budgetMs;
+        final Set<String> criticalSteps;
+
+        private Plan(Map<String, RetryPolicy> policies, RetryPolicy fallback, long budgetMs,
+                     Set<String> criticalSteps) {
+            this.policies = policies;
+            this.fallback = fallback;
+            this.budgetMs = budgetMs;
+            this.criticalSteps = criticalSteps;
+        }
+
+        RetryPolicy policy(String measurementType) {
+            RetryPolicy policy = policies.get(measurementType);
+            return policy != null ? policy : fallback;
+        }
+
+        /**
+         * Reads the {@code attempts} argument of a start call: null for the
+         * defaults, a retry count for fixed 2 s retries, or a map of
+         * {@code attempts}, {@code backoff} ("fixed" or "exponential"),
+         * {@code delayMs}, {@code maxDelayMs}, {@code jitter} and
+         * {@code minRssi} for every type, {@code types} overriding them per
+         * type, {@code budgetMs} and {@code critical}, a list of types.
+         */
+        static Plan parse(Object attempts) {
+            if (attempts == null) {
+                return DEFAULT;
+            }
+            if (attempts instanceof Number) {
+                int retries = ((Number) attempts).intValue();
+                if (retries <= 0) {
+                    return DEFAULT;
+                }
+                return new Plan(Collections.<String, RetryPolicy>emptyMap(), new RetryPolicy(retries, false,
+                        DEFAULT_DELAY_MS, DEFAULT_MAX_DELAY_MS, false, ANY_RSSI), UNLIMITED_BUDGET_MS,
+                        DEFAULT.criticalSteps);
+            }
+            if (!(attempts instanceof Map)) {
+                throw new IllegalArgumentException("attempts must be a number or a map");
+            }
+            Map<?, ?> map = (Map<?, ?>) attempts;
+            RetryPolicy fallback = policy(map, RetryPolicy.DEFAULT);
+
+            Map<String, RetryPolicy> policies = new HashMap<>();
+            Object types = map.get("types");
+            if (types instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) types).entrySet()) {
+                    String type = String.valueOf(entry.getKey());
+                    if (!isType(type) || !(entry.getValue() instanceof Map)) {
+                        throw new IllegalArgumentException("types." + type + " is not a measurement type policy");
+                    }
+                    policies.put(type, policy((Map<?, ?>) entry.getValue(), fallback));
+                }
+            } else if (types != null) {
+                throw new IllegalArgumentException("types must be a map");
+            }
+
+            long budgetMs = UNLIMITED_BUDGET_MS;
+            Object budget = map.get("budgetMs");
+            if (budget instanceof Number) {
+                budgetMs = ((Number) budget).longValue();
+                if (budgetMs <= 0) {
+                    throw new IllegalArgumentException("budgetMs must be positive");
+                }
+            }
+
+            Set<String> criticalSteps = DEFAULT.criticalSteps;
+            Object critical = map.get("critical");
+            if (critical instanceof Collection) {
+                criticalSteps = new HashSet<>();
+                for (Object type : (Collection<?>) critical) {
+                    if (!isType(String.valueOf(type))) {
+                        throw new IllegalArgumentException("critical contains unknown type " + type);
+                    }
+                    criticalSteps.add(String.valueOf(type));
+                }
+            } else if (critical != null) {
+                throw new IllegalArgumentException("critical must be a list of measurement types");
+            }
+            return new Plan(policies, fallback, budgetMs, criticalSteps);
+        }
+
+        // Fields missing from map are taken from base
+        private static RetryPolicy policy(Map<?, ?> map, RetryPolicy base) {
+            int retries = intValue(map, "attempts", base.retries);
+            Object backoff = map.get("backoff");
+            if (backoff != null && !"fixed".equals(backoff) && !"exponential".equals(backoff)) {
+                throw new IllegalArgumentException("backoff must be fixed or exponential");
+            }
+            boolean exponential = backoff != null ? "exponential".equals(backoff) : base.exponential;
+            long delayMs = longValue(map, "delayMs", base.delayMs);
+            long maxDelayMs = longValue(map, "maxDelayMs", Math.max(base.maxDelayMs, delayMs));
+            Object jitter = map.get("jitter");
+            int minRssi = intValue(map, "minRssi", base.minRssi);
+            if (retries < 0 || delayMs < 0 || maxDelayMs < delayMs) {
+                throw new IllegalArgumentException("attempts >= 0 and 0 <= delayMs <= maxDelayMs are required");
+            }
+            return new RetryPolicy(retries, exponential, delayMs, maxDelayMs,
+                    jitter instanceof Boolean ? (Boolean) jitter : base.jitter, minRssi);
+        }
+
+        private static int intValue(Map<?, ?> map, String key, int fallback) {
+            Object value = map.get(key);
+            return value instanceof Number ? ((Number) value).intValue() : fallback;
+        }
+
+        private static long longValue(Map<?, ?> map, String key, long fallback) {
+            Object value = map.get(key);
+            return value instanceof Number ? ((Number) value).longValue() : fallback;
+        }
+
+        private static boolean isType(String type) {
+            for (String candidate : TYPES) {
+                if (candidate.equals(type)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.manzo.smart_ring;
+
+import android.app.AlarmManager;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Keeps the process and the ring connections alive while background collection
+ * runs, with or without a Flutter engine attached. An idle-allowed alarm wakes
+ * it every interval to measure; readings land in the plugin's
+ * {@link TimeSeriesStore}s and Flutter reads them on its next launch. No
+ * engine is started for a collection run.
+ *
+ * <p>If the system kills the process, the sticky restart rebuilds a headless
+ * plugin core from the persisted {@link BackgroundCollection}.
+ */
+public class RingCollectionService extends Service {
+    private static final String TAG = "RingCollectionService";
+
+    static final String ACTION_START = "com.manzo.smart_ring.action.START_COLLECTION";
+    static final String ACTION_COLLECT = "com.manzo.smart_ring.action.COLLECT";
+
+    private static final String CHANNEL_ID = "smart_ring_collection";
+    private static final int NOTIFICATION_ID = 0x52494e47;
+    // Covers a full measurement at the longest measurement timeout, with room for a reconnect
+    private static final long WAKE_LOCK_TIMEOUT_MS = 3 * 60 * 1000L;
+
+    private PowerManager.WakeLock wakeLock;
+
+    static void start(Context context) {
+        Intent intent = new Intent(context, RingCollectionService.class).setAction(ACTION_START);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.startForegroundService(intent);
+        } else {
+            context.startService(intent);
+        }
+    }
+
+    static void stop(Context context) {
+        alarmManager(context).cancel(collectIntent(context));
+        context.stopService(new Intent(context, RingCollectionService.class));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Every start must promote the service, even one that is about to stop
+        startForeground();
+        SmartRingPlugin core = SmartRingPlugin.collectingCore(getApplicationContext());
+        BackgroundCollection collection = core != null ? core.backgroundCollection() : null;
+        if (collection == null) {
+            Log.d(TAG, "No background collection configured, stopping");
+            alarmManager(this).cancel(collectIntent(this));
+            stopSelf(startId);
+            return START_NOT_STICKY;
+        }
+        // A null intent is a sticky restart after the process died; measure right away
+        if (intent == null || ACTION_COLLECT.equals(intent.getAction())) {
+            holdWakeLock();
+            core.collectInBackground();
+        }
+        scheduleNext(collection.intervalMs);
+        return START_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void startForeground() {
+        NotificationManager notifications = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        Notification.Builder builder;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            notifications.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Ring data collection",
+                    NotificationManager.IMPORTANCE_LOW));
+            builder = new Notification.Builder(this, CHANNEL_ID);
+        } else {
+            builder = new Notification.Builder(this);
+        }
+        builder.setSmallIcon(getApplicationInfo().icon)
+                .setContentTitle("Collecting ring data")
+                .setOngoing(true);
+        Intent launch = getPackageManager().getLaunchIntentForPackage(getPackageName());
+        if (launch != null) {
+            builder.setContentIntent(PendingIntent.getActivity(this, 0, launch, PendingIntent.FLAG_IMMUTABLE));
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, builder.build(), ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE);
+        } else {
+            startForeground(NOTIFICATION_ID, builder.build());
+        }
+    }
+
+    // Keeps the CPU up while the run's measurements complete; timed, so a stuck run cannot drain the battery
+    private void holdWakeLock() {
+        if (wakeLock == null) {
+            PowerManager power = (PowerManager) getSystemService(Context.POWER_SERVICE);
+            wakeLock = power.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "smart_ring:collection");
+            wakeLock.setReferenceCounted(false);
+        }
+        wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+    }
+
+    // Inexact, but fires in Doze; exact idle alarms need a permission most apps cannot justify
+    private void scheduleNext(long intervalMs) {
+        alarmManager(this).setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP,
+                SystemClock.elapsedRealtime() + intervalMs, collectIntent(this));
+    }
+
+    // The service already runs in the foreground when the alarm fires, so a plain start is allowed
+    private static PendingIntent collectIntent(Context context) {
+        Intent intent = new Intent(context, RingCollectionService.class).setAction(ACTION_COLLECT);
+        return PendingIntent.getService(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private static AlarmManager alarmManager(Context context) {
+        return (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    }
+}
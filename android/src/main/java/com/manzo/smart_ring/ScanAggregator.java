@@ -0,0 +1,193 @@
+package com.manzo.smart_ring;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters and coalesces scan advertisements by MAC address.
+ *
+ * A ring advertises several times a second, so a crowded room produces
+ * thousands of packets per scan. Packets failing the {@link ScanFilter} are
+ * dropped. The first packet of each address is reported right away; after that
+ * a device is reported again only when its name changes or its RSSI moves by
+ * {@code rssiDeltaDb}, and at most once per {@code minUpdateIntervalMs}.
+ * Changes held back by the rate limit are flushed when the scan completes.
+ *
+ * With a limit of N only the N strongest matches are reported: a device is
+ * reported once it ranks among them, and a stronger newcomer takes the place of
+ * the weakest. Once N matches have held their places for {@code settleMs} the
+ * scan is {@link #isSatisfied() satisfied} and can end early.
+ *
+ * Devices are kept in an access-ordered LRU of {@code capacity} entries, so a
+ * long scan in a busy place stays memory-stable; an evicted device that shows
+ * up again is treated as new.
+ */
+final class ScanAggregator {
+    static final int DEFAULT_CAPACITY = 256;
+    static final long DEFAULT_MIN_UPDATE_INTERVAL_MS = 1000;
+    static final int DEFAULT_RSSI_DELTA_DB = 5;
+    static final long DEFAULT_SETTLE_MS = 1000;
+
+    /** Receives the devices worth reporting. */
+    interface Listener {
+        void onDevice(String name, String address, int rssi, boolean update);
+    }
+
+    private static final class Device {
+        final String address;
+        String name;
+        int rssi;
+        boolean ranked;
+        boolean reported;
+        String reportedName;
+        int reportedRssi;
+        long reportedAtMs;
+
+        Device(String address) {
+            this.address = address;
+        }
+    }
+
+    private final TimerWheel.Clock clock;
+    private final Listener listener;
+    private final int capacity;
+    private final long minUpdateIntervalMs;
+    private final int rssiDeltaDb;
+    private final long settleMs;
+    private final Map<String, Device> devices;
+
+    // Current top-N; unused when limit is 0
+    private final List<Device> ranked = new ArrayList<>();
+    private ScanFilter filter = ScanFilter.ANY;
+    private int limit = 0;
+    private long rankChangedAtMs = 0;
+    private long advertisements = 0;
+
+    ScanAggregator(TimerWheel.Clock clock, final int capacity, long minUpdateIntervalMs, int rssiDeltaDb,
+                   long settleMs, Listener listener) {
+        this.clock = clock;
+        this.listener = listener;
+        this.capacity = capacity;
+        this.minUpdateIntervalMs = minUpdateIntervalMs;
+        this.rssiDeltaDb = rssiDeltaDb;
+        this.settleMs = settleMs;
+        devices = new LinkedHashMap<String, Device>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Device> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                if (eldest.getValue().ranked) {
+                    ranked.remove(eldest.getValue());
+                }
+                return true;
+            }
+        };
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /** Starts a new scan keeping what {@code filter} accepts, the strongest {@code limit} (0 for all). */
+    synchronized void start(ScanFilter filter, int limit) {
+        devices.clear();
+        ranked.clear();
+        this.filter = filter;
+        this.limit = limit;
+        rankChangedAtMs = clock.nowMs();
+        advertisements = 0;
+    }
+
+    // Returns true if the packet was reported, false if it was filtered out or coalesced
+    synchronized boolean onAdvertisement(String name, String address, int rssi) {
+        advertisements++;
+        if (!filter.matches(name, address, rssi)) {
+            return false;
+        }
+        long now = clock.nowMs();
+        Device device = devices.get(address);
+        if (device == null) {
+            device = new Device(address);
+            devices.put(address, device);
+        }
+        device.name = name != null ? name : "Unknown";
+        device.rssi = rssi;
+
+        if (!device.ranked && !rank(device, now)) {
+            return false;
+        }
+        if (!device.reported) {
+            report(device, now, false);
+            return true;
+        }
+        if (hasChanged(device) && now - device.reportedAtMs >= minUpdateIntervalMs) {
+            report(device, now, true);
+            return true;
+        }
+        return false;
+    }
+
+    /** Reports every change still held back by the rate limit. */
+    synchronized void flush() {
+        long now = clock.nowMs();
+        for (Device device : devices.values()) {
+            if (device.reported && device.ranked && hasChanged(device)) {
+                report(device, now, true);
+            }
+        }
+    }
+
+    /** Whether the top N is full and has not changed for the settle time. */
+    synchronized boolean isSatisfied() {
+        return limit > 0 && ranked.size() >= limit && clock.nowMs() - rankChangedAtMs >= settleMs;
+    }
+
+    synchronized int size() {
+        return devices.size();
+    }
+
+    synchronized long advertisements() {
+        return advertisements;
+    }
+
+    // Admits the device to the top N if it has room or beats the weakest; always true without a limit
+    private boolean rank(Device device, long now) {
+        if (limit <= 0) {
+            device.ranked = true;
+            return true;
+        }
+        if (ranked.size() >= limit) {
+            Device weakest = ranked.get(0);
+            for (Device candidate : ranked) {
+                if (candidate.rssi < weakest.rssi) {
+                    weakest = candidate;
+                }
+            }
+            if (device.rssi <= weakest.rssi) {
+                return false;
+            }
+            weakest.ranked = false;
+            ranked.remove(weakest);
+        }
+        device.ranked = true;
+        ranked.add(device);
+        rankChangedAtMs = now;
+        return true;
+    }
+
+    private boolean hasChanged(Device device) {
+        return !device.name.equals(device.reportedName)
+                || Math.abs(device.rssi - device.reportedRssi) >= rssiDeltaDb;
+    }
+
+    private void report(Device device, long now, boolean update) {
+        device.reported = true;
+        device.reportedName = device.name;
+        device.reportedRssi = device.rssi;
+        device.reportedAtMs = now;
+        listener.onDevice(device.name, device.address, device.rssi, update);
+    }
+}
@@ -0,0 +1,41 @@
+package com.manzo.smart_ring;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Which advertisements a scan keeps: an optional case-insensitive name prefix,
+ * a minimum RSSI and an optional allow-list of addresses. Packets that fail
+ * are dropped before they reach the {@link ScanAggregator}.
+ */
+final class ScanFilter {
+    static final ScanFilter ANY = new ScanFilter(null, Integer.MIN_VALUE, null);
+
+    private final String namePrefix;
+    private final int minRssi;
+    private final Set<String> addresses; // upper case, empty for any
+
+    ScanFilter(String namePrefix, int minRssi, Collection<String> addresses) {
+        this.namePrefix = namePrefix != null && !namePrefix.isEmpty() ? namePrefix : null;
+        this.minRssi = minRssi;
+        this.addresses = new HashSet<>();
+        if (addresses != null) {
+            for (String address : addresses) {
+                this.addresses.add(address.toUpperCase(Locale.US));
+            }
+        }
+    }
+
+    // name is null for devices that advertise none, which a name prefix never matches
+    boolean matches(String name, String address, int rssi) {
+        if (rssi < minRssi) {
+            return false;
+        }
+        if (namePrefix != null && (name == null || !name.regionMatches(true, 0, namePrefix, 0, namePrefix.length()))) {
+            return false;
+        }
+        return addresses.isEmpty() || (address != null && addresses.contains(address.toUpperCase(Locale.US)));
+    }
+}
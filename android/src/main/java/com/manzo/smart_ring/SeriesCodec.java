@@ -0,0 +1,414 @@
+package com.manzo.smart_ring;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Block codec for stored vital-sign series.
+ *
+ * Samples are encoded in blocks of at most {@link #BLOCK_SIZE} records. A block
+ * is a byte-aligned header {@code [u8 mode][u16 count][i64 firstTs][i32 firstValueBits]}
+ * followed by an MSB-first bit stream: delta-of-delta timestamps, then values as
+ * either zigzag deltas (when every value in the block is a whole number, as for
+ * heart rate, SpO2 and stress) or Gorilla-style XOR of the float bits. The Dart
+ * decoder lives in {@code lib/smart_ring_series_codec.dart} and must be kept in sync.
+ */
+final class SeriesCodec {
+    static final int BLOCK_SIZE = 256;
+    static final int BLOCK_HEADER_BYTES = 15;
+
+    static final byte MODE_XOR = 0;
+    static final byte MODE_INTEGER = 1;
+
+    // Largest magnitude stored exactly by a float
+    private static final float MAX_EXACT_INTEGER = 1 << 24;
+
+    // sortByTimestamp packs the index into the low bits of the timestamp when both fit
+    private static final int PACKED_INDEX_BITS = 20;
+    private static final int PACKED_INDEX_MASK = (1 << PACKED_INDEX_BITS) - 1;
+    private static final long MAX_PACKED_TIMESTAMP = Long.MAX_VALUE >>> PACKED_INDEX_BITS;
+
+    private SeriesCodec() {
+    }
+
+    /**
+     * Encodes {@code count} time-ordered samples starting at {@code offset} as
+     * consecutive blocks appended to {@code out}.
+     */
+    static void encode(long[] timestamps, float[] values, int offset, int count, ByteSink out) {
+        BitWriter writer = new BitWriter(out);
+        int end = offset + count;
+        for (int start = offset; start < end; start += BLOCK_SIZE) {
+            encodeBlock(timestamps, values, start, Math.min(BLOCK_SIZE, end - start), writer);
+        }
+    }
+
+    private static void encodeBlock(long[] timestamps, float[] values, int start, int count, BitWriter writer) {
+        byte mode = MODE_INTEGER;
+        for (int i = start; i < start + count; i++) {
+            float value = values[i];
+            if (value != (float) Math.rint(value) || Math.abs(value) > MAX_EXACT_INTEGER) {
+                mode = MODE_XOR;
+                break;
+            }
+        }
+
+        ByteSink out = writer.out;
+        out.put(mode);
+        out.put(count);
+        out.put(count >>> 8);
+        out.putLong(timestamps[start]);
+        out.putInt(Float.floatToIntBits(values[start]));
+
+        long previousTs = timestamps[start];
+        long previousDelta = 0;
+        for (int i = start + 1; i < start + count; i++) {
+            long delta = timestamps[i] - previousTs;
+            writeDeltaOfDelta(writer, delta - previousDelta);
+            previousDelta = delta;
+            previousTs = timestamps[i];
+        }
+
+        if (mode == MODE_INTEGER) {
+            int previous = (int) values[start];
+            for (int i = start + 1; i < start + count; i++) {
+                int value = (int) values[i];
+                writeIntegerDelta(writer, value - previous);
+                previous = value;
+            }
+        } else {
+            int previousBits = Float.floatToIntBits(values[start]);
+            int windowLeading = -1;
+            int windowTrailing = 0;
+            for (int i = start + 1; i < start + count; i++) {
+                int bits = Float.floatToIntBits(values[i]);
+                int xor = bits ^ previousBits;
+                previousBits = bits;
+                if (xor == 0) {
+                    writer.write(0, 1);
+                    continue;
+                }
+                int leading = Math.min(Integer.numberOfLeadingZeros(xor), 31);
+                int trailing = Integer.numberOfTrailingZeros(xor);
+                if (windowLeading >= 0 && leading >= windowLeading && trailing >= windowTrailing) {
+                    writer.write(0b10, 2);
+                    writer.write(xor >>> windowTrailing, 32 - windowLeading - windowTrailing);
+                } else {
+                    int length = 32 - leading - trailing;
+                    writer.write(0b11, 2);
+                    writer.write(leading, 5);
+                    writer.write(length - 1, 5);
+                    writer.write(xor >>> trailing, length);
+                    windowLeading = leading;
+                    windowTrailing = trailing;
+                }
+            }
+        }
+        writer.align();
+    }
+
+    private static void writeDeltaOfDelta(BitWriter writer, long dod) {
+        if (dod == 0) {
+            writer.write(0, 1);
+        } else if (dod >= -64 && dod <= 63) {
+            writer.write(0b10, 2);
+            writer.write(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            writer.write(0b110, 3);
+            writer.write(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            writer.write(0b1110, 4);
+            writer.write(dod, 12);
+        } else if (dod >= Integer.MIN_VALUE && dod <= Integer.MAX_VALUE) {
+            writer.write(0b11110, 5);
+            writer.write(dod, 32);
+        } else {
+            writer.write(0b11111, 5);
+            writer.write(dod >>> 32, 32);
+            writer.write(dod, 32);
+        }
+    }
+
+    private static void writeIntegerDelta(BitWriter writer, int delta) {
+        long zigzag = ((long) delta << 1) ^ ((long) delta >> 63);
+        if (zigzag == 0) {
+            writer.write(0, 1);
+        } else if (zigzag < 16) {
+            writer.write(0b10, 2);
+            writer.write(zigzag, 4);
+        } else if (zigzag < 256) {
+            writer.write(0b110, 3);
+            writer.write(zigzag, 8);
+        } else {
+            writer.write(0b111, 3);
+            writer.write(zigzag, 33);
+        }
+    }
+
+    /**
+     * Decodes the block at {@code offset} into the output arrays starting at
+     * {@code outOffset}, which must have room for {@link #BLOCK_SIZE} samples.
+     *
+     * @return the number of bytes consumed
+     */
+    static int decodeBlock(byte[] data, int offset, long[] timestamps, float[] values, int outOffset) {
+        int mode = data[offset];
+        int count = (data[offset + 1] & 0xFF) | (data[offset + 2] & 0xFF) << 8;
+        long firstTs = 0;
+        for (int i = 0; i < 8; i++) {
+            firstTs |= (long) (data[offset + 3 + i] & 0xFF) << (8 * i);
+        }
+        int firstBits = 0;
+        for (int i = 0; i < 4; i++) {
+            firstBits |= (data[offset + 11 + i] & 0xFF) << (8 * i);
+        }
+        if (count == 0) {
+            return BLOCK_HEADER_BYTES;
+        }
+
+        BitReader reader = new BitReader(data, offset + BLOCK_HEADER_BYTES);
+        timestamps[outOffset] = firstTs;
+        long previousDelta = 0;
+        for (int i = 1; i < count; i++) {
+            previousDelta += readDeltaOfDelta(reader);
+            timestamps[outOffset + i] = timestamps[outOffset + i - 1] + previousDelta;
+        }
+
+        values[outOffset] = Float.intBitsToFloat(firstBits);
+        if (mode == MODE_INTEGER) {
+            int previous = (int) values[outOffset];
+            for (int i = 1; i < count; i++) {
+                previous += readIntegerDelta(reader);
+                values[outOffset + i] = previous;
+            }
+        } else {
+            int previousBits = firstBits;
+            int windowLeading = 0;
+            int windowTrailing = 0;
+            for (int i = 1; i < count; i++) {
+                if (reader.read(1) != 0) {
+                    if (reader.read(1) != 0) {
+                        windowLeading = (int) reader.read(5);
+                        windowTrailing = 32 - windowLeading - ((int) reader.read(5) + 1);
+                    }
+                    int xor = (int) reader.read(32 - windowLeading - windowTrailing) << windowTrailing;
+                    previousBits ^= xor;
+                }
+                values[outOffset + i] = Float.intBitsToFloat(previousBits);
+            }
+        }
+        return reader.bytePosition() - offset;
+    }
+
+    static int blockCount(byte[] data, int offset) {
+        return (data[offset + 1] & 0xFF) | (data[offset + 2] & 0xFF) << 8;
+    }
+
+    /**
+     * Puts the first {@code count} samples in timestamp order before
+     * {@link #encode}, keeping samples with equal timestamps in their order.
+     */
+    static void sortByTimestamp(long[] timestamps, float[] values, int count) {
+        int[] order = sortTimestamps(timestamps, count);
+        if (order == null) {
+            return;
+        }
+        float[] unsorted = Arrays.copyOf(values, count);
+        for (int i = 0; i < count; i++) {
+            values[i] = unsorted[order[i]];
+        }
+    }
+
+    static void sortByTimestamp(long[] timestamps, int[] values, int count) {
+        int[] order = sortTimestamps(timestamps, count);
+        if (order == null) {
+            return;
+        }
+        int[] unsorted = Arrays.copyOf(values, count);
+        for (int i = 0; i < count; i++) {
+            values[i] = unsorted[order[i]];
+        }
+    }
+
+    // Sorts the timestamps in place and returns the original index of each, or null if they were in order
+    private static int[] sortTimestamps(final long[] timestamps, int count) {
+        boolean sorted = true;
+        boolean packable = count <= PACKED_INDEX_MASK + 1;
+        for (int i = 0; i < count; i++) {
+            sorted &= i == 0 || timestamps[i - 1] <= timestamps[i];
+            packable &= timestamps[i] >= 0 && timestamps[i] <= MAX_PACKED_TIMESTAMP;
+        }
+        if (sorted) {
+            return null;
+        }
+        int[] order = new int[count];
+        if (packable) {
+            // Sort keys of (timestamp << 20 | index); fine for epoch millis and up to 1M records
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = (timestamps[i] << PACKED_INDEX_BITS) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < count; i++) {
+                order[i] = (int) (keys[i] & PACKED_INDEX_MASK);
+            }
+        } else {
+            Integer[] boxed = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                boxed[i] = i;
+            }
+            Arrays.sort(boxed, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Long.compare(timestamps[a], timestamps[b]);
+                }
+            });
+            for (int i = 0; i < count; i++) {
+                order[i] = boxed[i];
+            }
+        }
+        long[] unsorted = Arrays.copyOf(timestamps, count);
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = unsorted[order[i]];
+        }
+        return order;
+    }
+
+    private static long readDeltaOfDelta(BitReader reader) {
+        if (reader.read(1) == 0) {
+            return 0;
+        }
+        if (reader.read(1) == 0) {
+            return reader.readSigned(7);
+        }
+        if (reader.read(1) == 0) {
+            return reader.readSigned(9);
+        }
+        if (reader.read(1) == 0) {
+            return reader.readSigned(12);
+        }
+        if (reader.read(1) == 0) {
+            return reader.readSigned(32);
+        }
+        return reader.read(32) << 32 | reader.read(32);
+    }
+
+    private static int readIntegerDelta(BitReader reader) {
+        long zigzag;
+        if (reader.read(1) == 0) {
+            return 0;
+        } else if (reader.read(1) == 0) {
+            zigzag = reader.read(4);
+        } else if (reader.read(1) == 0) {
+            zigzag = reader.read(8);
+        } else {
+            zigzag = reader.read(33);
+        }
+        return (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+
+    /** Growable byte buffer the codec writes blocks into. */
+    static final class ByteSink {
+        private byte[] buffer;
+        private int position = 0;
+
+        ByteSink(int initialCapacity) {
+            buffer = new byte[Math.max(initialCapacity, 64)];
+        }
+
+        int size() {
+            return position;
+        }
+
+        byte[] array() {
+            return buffer;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        void reset() {
+            position = 0;
+        }
+
+        void put(int value) {
+            if (position == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void putInt(int value) {
+            for (int i = 0; i < 4; i++) {
+                put(value >>> (8 * i));
+            }
+        }
+
+        void putLong(long value) {
+            for (int i = 0; i < 8; i++) {
+                put((int) (value >>> (8 * i)));
+            }
+        }
+    }
+
+    private static final class BitWriter {
+        final ByteSink out;
+        private long pending = 0;
+        private int pendingBits = 0;
+
+        BitWriter(ByteSink out) {
+            this.out = out;
+        }
+
+        // Writes the low `bits` bits of value, most significant first; bits <= 33
+        void write(long value, int bits) {
+            pending = (pending << bits) | (value & ((1L << bits) - 1));
+            pendingBits += bits;
+            while (pendingBits >= 8) {
+                pendingBits -= 8;
+                out.put((int) (pending >>> pendingBits));
+            }
+        }
+
+        void align() {
+            if (pendingBits > 0) {
+                out.put((int) (pending << (8 - pendingBits)));
+            }
+            pending = 0;
+            pendingBits = 0;
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] data;
+        private int position;
+        private long pending = 0;
+        private int pendingBits = 0;
+
+        BitReader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        // bits <= 33
+        long read(int bits) {
+            while (pendingBits < bits) {
+                pending = (pending << 8) | (data[position++] & 0xFF);
+                pendingBits += 8;
+            }
+            pendingBits -= bits;
+            return (pending >>> pendingBits) & ((1L << bits) - 1);
+        }
+
+        long readSigned(int bits) {
+            long value = read(bits);
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+
+        // Unread bits of the current byte are block padding
+        int bytePosition() {
+            return position;
+        }
+    }
+}
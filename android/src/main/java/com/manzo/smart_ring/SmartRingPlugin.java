@@ -3,13 +3,22 @@ package com.manzo.smart_ring;
 import androidx.annotation.NonNull;
 import android.content.Context;
 import android.util.Log;
-import org.json.JSONObject;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
+import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
@@ -19,1118 +28,965 @@ import io.flutter.plugin.common.EventChannel.EventSink;
 import io.flutter.plugin.common.EventChannel.StreamHandler;
 
 import com.crrepa.ble.CRPBleClient;
-import com.crrepa.ble.conn.CRPBleConnection;
+import com.crrepa.ble.conn.CRPBleDevice;
 import com.crrepa.ble.scan.bean.CRPScanDevice;
 import com.crrepa.ble.scan.callback.CRPScanCallback;
-import com.crrepa.ble.conn.listener.CRPBleConnectionStateListener;
-import com.crrepa.ble.conn.bean.CRPHistoryBloodOxygenInfo;
-import com.crrepa.ble.conn.bean.CRPHistoryHrvInfo;
-import com.crrepa.ble.conn.bean.CRPHistoryStressInfo;
-import com.crrepa.ble.conn.bean.CRPHistoryTempInfo;
-import com.crrepa.ble.conn.bean.CRPTimingBloodOxygenInfo;
-import com.crrepa.ble.conn.bean.CRPTimingHrvInfo;
-import com.crrepa.ble.conn.listener.CRPBatteryListener;
-import com.crrepa.ble.conn.CRPBleDevice;
-import com.crrepa.ble.conn.bean.CRPHeartRateInfo;
-import com.crrepa.ble.conn.bean.CRPHistoryHeartRateInfo;
-import com.crrepa.ble.conn.listener.CRPBloodOxygenChangeListener;
-import com.crrepa.ble.conn.listener.CRPHeartRateChangeListener;
-import com.crrepa.ble.conn.listener.CRPHrvChangeListener;
-import com.crrepa.ble.conn.listener.CRPStressChangeListener;
-import com.crrepa.ble.conn.listener.CRPTempChangeListener;
-import android.os.Handler;
-import android.os.Looper;
-
-public class SmartRingPlugin implements FlutterPlugin, MethodCallHandler {
+
+public class SmartRingPlugin implements FlutterPlugin, MethodCallHandler, DeviceSession.Callback {
     private static final String TAG = "SmartRingPlugin";
+
+    // Measurement deadlines are seconds apart; 512 ticks of 250 ms cover 128 s per turn
+    private static final long TIMER_TICK_MS = 250;
+    private static final int TIMER_SLOTS = 512;
+    // How long stop() waits for queued worker tasks before closing the stores
+    private static final long STOP_TIMEOUT_MS = 500;
+
+    // Android's GATT client typically tops out at 7 links; some stacks allow more
+    static final int DEFAULT_MAX_CONNECTIONS = 7;
+    static final int MAX_CONNECTIONS_LIMIT = 15;
+    static final long DEFAULT_SCAN_DURATION_MS = 30000;
+    private static final int DEVICE_HANDLE_CACHE_SIZE = 32;
+    // Event slots are a u8 and 0 means "no device"
+    private static final int MAX_SLOT = 255;
+    private static final String SERIES_DIR = "smart_ring_series";
+
+    // The core running background collection, bound to an engine or not. Guarded by SmartRingPlugin.class.
+    private static SmartRingPlugin collectingCore;
+
+    /** Hands out SDK device handles by address. */
+    interface DeviceSource {
+        CRPBleDevice getBleDevice(String address);
+    }
+
     private CRPBleClient bleClient;
-    private CRPScanCallback scanCallback;
+    // Replaces bleClient for connects when set; tests connect to simulated rings through it
+    private final DeviceSource deviceSource;
+    // The running scan's callback; callbacks of earlier scans ignore themselves
+    private volatile CRPScanCallback scanCallback;
+    private final ScanAggregator scanAggregator = new ScanAggregator(TimerWheel.SYSTEM_CLOCK,
+            ScanAggregator.DEFAULT_CAPACITY, ScanAggregator.DEFAULT_MIN_UPDATE_INTERVAL_MS,
+            ScanAggregator.DEFAULT_RSSI_DELTA_DB, ScanAggregator.DEFAULT_SETTLE_MS, new ScanAggregator.Listener() {
+                @Override
+                public void onDevice(String name, String address, int rssi, boolean update) {
+                    eventDispatcher.dispatchDevice(name, address, rssi, update);
+                }
+            });
     private MethodChannel channel;
     private EventChannel eventChannel;
     private EventSink eventSink;
+    private final PluginMetrics metrics = new PluginMetrics();
+    private final EventDispatcher eventDispatcher = new EventDispatcher(metrics);
+    private boolean timingSyncOnConnect = true;
+    private int timingSyncDays = TimingSync.MAX_DAYS;
+    private HistoryWatermarks historyWatermarks;
+    private File seriesRoot;
     private Context context;
-    private CRPBleConnection bleConnection;
-    private double lastNonNullTemperature = 0.0;
-    
-    // Measurement status trackers
-    private boolean isMeasuringTemperature = false;
-    private boolean isMeasuringHeartRate = false;
-    private boolean isMeasuringHrv = false;
-    private boolean isMeasuringStress = false;
-    private boolean isMeasuringBloodOxygen = false;
-    private boolean isFullMeasurementInProgress = false;
-    
-    // Timeout handlers for measurements
-    private Handler timeoutHandler = new Handler(Looper.getMainLooper());
-    private static final long MEASUREMENT_TIMEOUT_MS = 90000; // 90 seconds timeout
-
-    // Retry mechanism
-    private int retryCount = 0;
-    private int maxRetries = 2; // Default value
-    private String currentRetryType = "";
-    
-    // Measurement sequence for full measurement
-    private final String[] measurementSequence = {"temperature", "hrv", "heartRate", "stress", "bloodOxygen"};
-    private int currentSequenceIndex = 0;
-    
-    // Connection state tracking
-    private int lastConnectionState = 0;
-    
+    // Runs SDK callbacks, timers and the measurement state machine of every session
+    private ScheduledThreadPoolExecutor worker;
+    // Deadlines of every session, advanced on the worker only while timers are pending
+    private TimerWheel timers;
+
+    // Connection registry keyed by device address, in connection order. Guarded by itself.
+    private final Map<String, DeviceSession> sessions = new LinkedHashMap<>();
+    // Stores this core acquired, by device address; shared with any other core on the same files. Guarded by itself.
+    private final Map<String, TimeSeriesStore> stores = new HashMap<>();
+    // Latency histograms per device address, kept across reconnects. Guarded by itself.
+    private final Map<String, MeasurementTimeouts> timeouts = new HashMap<>();
+    private final MeasurementTimeouts.Policy timeoutPolicy = new MeasurementTimeouts.Policy();
+    private final ReconnectPolicy reconnectPolicy = new ReconnectPolicy();
+    private final RealtimeAggregator.Settings realtimeSettings = new RealtimeAggregator.Settings();
+    // SDK device handles of recently used addresses, reused by connects and reconnects. Guarded by sessions.
+    private final Map<String, CRPBleDevice> deviceHandles = new LinkedHashMap<String, CRPBleDevice>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CRPBleDevice> eldest) {
+            return size() > DEVICE_HANDLE_CACHE_SIZE;
+        }
+    };
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int lastSlot = 0;
+    // Target of calls that carry no deviceAddress: the most recently connected ring
+    private String defaultDeviceAddress;
+
+    // The core this engine's channels are bound to: this plugin, or the collecting core it picked up
+    private SmartRingPlugin core;
+    // Whether an engine's channels are bound to this core. Guarded by SmartRingPlugin.class.
+    private boolean bound;
+    // What this core collects while no engine needs it; null when background collection is off
+    private volatile BackgroundCollection backgroundCollection;
+    // Rings a background run is connecting, measured once they report connected. Guarded by sessions.
+    private final Set<String> collectOnConnect = new HashSet<>();
+
+    public SmartRingPlugin() {
+        this(null);
+    }
+
+    SmartRingPlugin(DeviceSource deviceSource) {
+        this.deviceSource = deviceSource;
+    }
+
     @Override
     public void onMethodCall(MethodCall call, Result result) {
+        DeviceSession session;
         switch (call.method) {
             case "startScan":
-                startScan();
-                result.success(null);
+                Number minRssi = call.argument("minRssi");
+                Number scanLimit = call.argument("limit");
+                Number scanDurationMs = call.argument("durationMs");
+                int maxResults = scanLimit != null ? scanLimit.intValue() : 0;
+                long durationMs = scanDurationMs != null ? scanDurationMs.longValue() : DEFAULT_SCAN_DURATION_MS;
+                if (maxResults < 0 || maxResults > scanAggregator.capacity()) {
+                    result.error("INVALID_ARGUMENT", "limit must be between 0 and " + scanAggregator.capacity(), null);
+                } else if (durationMs <= 0) {
+                    result.error("INVALID_ARGUMENT", "durationMs must be positive", null);
+                } else {
+                    startScan(new ScanFilter(call.argument("namePrefix"),
+                            minRssi != null ? minRssi.intValue() : Integer.MIN_VALUE,
+                            call.<List<String>>argument("addresses")), maxResults, durationMs);
+                    result.success(null);
+                }
                 break;
 
             case "connectToDevice":
                 String deviceAddress = call.argument("deviceAddress");
-                Log.d(TAG, "Device address: " + deviceAddress);               
-                connectToDevice(deviceAddress);
-                result.success(null);
+                Log.d(TAG, "Device address: " + deviceAddress);
+                if (deviceAddress == null || deviceAddress.isEmpty()) {
+                    result.error("INVALID_ARGUMENT", "deviceAddress is required", null);
+                } else if (!connectToDevice(deviceAddress)) {
+                    result.error("CONNECTION_LIMIT", "Connection pool is full (" + maxConnections + " devices)", null);
+                } else {
+                    result.success(null);
+                }
                 break;
 
-            case "startTemperatureMeasurement":
-                if (!isAnyMeasurementInProgress()) {
-                    Integer attempts = call.argument("attempts");
-                    retryCount = 0;
-                    maxRetries = (attempts != null && attempts > 0) ? attempts : 2;
-                    startMeasurement("temperature", false);
-                    result.success(true);
+            case "getConnectedDevices":
+                result.success(connectedDevices());
+                break;
+
+            case "setMaxConnections":
+                Number max = call.argument("maxConnections");
+                if (max == null || max.intValue() < 1) {
+                    result.error("INVALID_ARGUMENT", "maxConnections must be at least 1", null);
                 } else {
-                    result.success(false);
+                    synchronized (sessions) {
+                        maxConnections = Math.min(max.intValue(), MAX_CONNECTIONS_LIMIT);
+                    }
+                    result.success(maxConnections);
                 }
                 break;
 
+            case "startTemperatureMeasurement":
+                startMeasurement(call, result, "temperature");
+                break;
+
             case "startHeartRateMeasurement":
-                if (!isAnyMeasurementInProgress()) {
-                    Integer attempts = call.argument("attempts");
-                    retryCount = 0;
-                    maxRetries = (attempts != null && attempts > 0) ? attempts : 2;
-                    startMeasurement("heartRate", false);
-                    result.success(true);
-                } else {
-                    result.success(false);
-                }
+                startMeasurement(call, result, "heartRate");
                 break;
 
             case "startHrvMeasurement":
-                if (!isAnyMeasurementInProgress()) {
-                    Integer attempts = call.argument("attempts");
-                    retryCount = 0;
-                    maxRetries = (attempts != null && attempts > 0) ? attempts : 2;
-                    startMeasurement("hrv", false);
-                    result.success(true);
-                } else {
-                    result.success(false);
-                }
+                startMeasurement(call, result, "hrv");
                 break;
 
             case "startStressMeasurement":
-                if (!isAnyMeasurementInProgress()) {
-                    Integer attempts = call.argument("attempts");
-                    retryCount = 0;
-                    maxRetries = (attempts != null && attempts > 0) ? attempts : 2;
-                    startMeasurement("stress", false);
-                    result.success(true);
-                } else {
-                    result.success(false);
-                }
+                startMeasurement(call, result, "stress");
                 break;
 
             case "startBloodOxygenMeasurement":
-                if (!isAnyMeasurementInProgress()) {
-                    Integer attempts = call.argument("attempts");
-                    retryCount = 0;
-                    maxRetries = (attempts != null && attempts > 0) ? attempts : 2;
-                    startMeasurement("bloodOxygen", false);
-                    result.success(true);
-                } else {
-                    result.success(false);
-                }
+                startMeasurement(call, result, "bloodOxygen");
                 break;
 
             case "startFullMeasurement":
-                if (!isAnyMeasurementInProgress()) {
-                    Integer attempts = call.argument("attempts");
-                    retryCount = 0;
-                    maxRetries = (attempts != null && attempts > 0) ? attempts : 2;
-                    isFullMeasurementInProgress = true;
-                    currentSequenceIndex = 0;
-                    // Send status update BEFORE starting first measurement
-                    sendMeasurementStatusUpdate();
-                    startMeasurement(measurementSequence[currentSequenceIndex], true);
-                    result.success(true);
-                } else {
-                    result.success(false);
+                session = connectedSession(call, result);
+                if (session != null) {
+                    RetryPolicy.Plan fullPlan = retryPlan(call, result);
+                    if (fullPlan != null) {
+                        result.success(session.startFullMeasurement(fullPlan));
+                    }
                 }
                 break;
 
             case "getMeasurementStatus":
-                Map<String, Boolean> statusMap = new HashMap<>();
-                statusMap.put("temperature", isMeasuringTemperature);
-                statusMap.put("heartRate", isMeasuringHeartRate);
-                statusMap.put("hrv", isMeasuringHrv);
-                statusMap.put("stress", isMeasuringStress);
-                statusMap.put("bloodOxygen", isMeasuringBloodOxygen);
-                statusMap.put("fullMeasurement", isFullMeasurementInProgress);
-                statusMap.put("anyMeasurement", isAnyMeasurementInProgress());
-                result.success(statusMap);
+                session = session(call);
+                if (session == null) {
+                    result.error("NO_CONNECTION", "No device connected", null);
+                } else {
+                    result.success(session.measurementStatus());
+                }
                 break;
 
             case "stopAllMeasurements":
-                stopAllMeasurements();
+                session = session(call);
+                if (session != null) {
+                    session.stopAllMeasurements();
+                }
                 result.success(null);
                 break;
 
             case "getBatteryLevel":
                 Log.d(TAG, "Manual battery request - checking connection...");
-                if (bleConnection != null && lastConnectionState == 2) {
+                session = session(call);
+                if (session != null && session.isConnected()) {
                     try {
                         Log.i(TAG, "MANUAL_BATTERY_REQUEST_SENT - User requested battery level");
-                        bleConnection.queryBattery();
+                        session.connection().queryBattery();
                         result.success(null);
                     } catch (Exception e) {
                         Log.e(TAG, "Error querying battery: " + e.getMessage());
-                        sendToFlutter("measurementError", createDetailedErrorJson("battery", e));
+                        session.sendDetailedError("battery", e);
                         result.error("BATTERY_ERROR", "Failed to query battery: " + e.getMessage(), null);
                     }
                 } else {
-                    String errorMessage = (bleConnection == null) ? 
-                        "No device connected" : 
-                        "Device is not connected (connection state: " + lastConnectionState + ")";
+                    String errorMessage = (session == null) ?
+                        "No device connected" :
+                        "Device is not connected (connection state: " + session.connectionState() + ")";
                     Log.w(TAG, "BATTERY_REQUEST_REJECTED - " + errorMessage);
-                    sendToFlutter("measurementError", createErrorJson("battery", errorMessage));
+                    if (session != null) {
+                        session.sendError("battery", errorMessage);
+                    } else {
+                        eventDispatcher.dispatchError("battery", null, errorMessage);
+                    }
                     result.error("NO_CONNECTION", errorMessage, null);
                 }
                 break;
 
             case "disconnect":
-                disconnectFromDevice();
+                session = session(call);
+                if (session != null) {
+                    session.disconnect();
+                }
                 result.success(null);
                 break;
 
-            default:
-                result.notImplemented();
+            case "syncHistory":
+                session = connectedSession(call, result);
+                if (session != null) {
+                    List<String> metrics = call.argument("metrics");
+                    Integer chunkSize = call.argument("chunkSize");
+                    Boolean incremental = call.argument("incremental");
+                    int syncId = session.startHistorySync(metrics,
+                            chunkSize != null ? chunkSize : HistorySync.DEFAULT_CHUNK_SIZE,
+                            incremental == null || incremental);
+                    result.success(syncId > 0 ? syncId : null);
+                }
                 break;
-        }
-    }
 
-    private boolean isAnyMeasurementInProgress() {
-        return isMeasuringTemperature || isMeasuringHeartRate || isMeasuringHrv || 
-               isMeasuringStress || isMeasuringBloodOxygen || isFullMeasurementInProgress;
-    }
+            case "acknowledgeHistory":
+                Integer ackSyncId = call.argument("syncId");
+                Integer ackChunkIndex = call.argument("chunkIndex");
+                session = session(call);
+                if (ackSyncId == null || ackChunkIndex == null) {
+                    result.error("INVALID_ARGUMENT", "syncId and chunkIndex are required", null);
+                } else {
+                    result.success(session != null && session.acknowledgeHistory(ackSyncId, ackChunkIndex));
+                }
+                break;
 
-    private void stopAllMeasurements() {
-        try {
-            if (bleConnection != null) {
-                if (isMeasuringTemperature) {
-                    try {
-                        bleConnection.disableTimingTemp();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error disabling temperature: " + e.getMessage());
-                    }
+            case "resetHistoryWatermarks":
+                if (historyWatermarks != null) {
+                    historyWatermarks.reset(call.argument("deviceAddress"));
                 }
-                
-                if (isMeasuringHeartRate) {
-                    try {
-                        bleConnection.stopMeasureHeartRate();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error stopping heart rate: " + e.getMessage());
-                    }
+                result.success(null);
+                break;
+
+            case "cancelHistorySync":
+                session = session(call);
+                if (session != null) {
+                    session.cancelHistorySync();
                 }
+                result.success(null);
+                break;
 
-                if (isMeasuringHrv) {
-                    try {
-                        bleConnection.stopMeasureHrv();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error stopping HRV: " + e.getMessage());
-                    }
+            case "configureEventDelivery":
+                String deliveryMode = call.argument("mode");
+                Number intervalMs = call.argument("intervalMs");
+                Number bufferBytes = call.argument("bufferBytes");
+                try {
+                    eventDispatcher.configureBuffer(
+                            bufferBytes != null ? bufferBytes.intValue() : EventBuffer.DEFAULT_CAPACITY_BYTES,
+                            call.<Map<String, String>>argument("policies"));
+                } catch (IllegalArgumentException e) {
+                    result.error("INVALID_ARGUMENT", e.getMessage(), null);
+                    return;
                 }
+                eventDispatcher.configure(deliveryMode,
+                        intervalMs != null ? intervalMs.longValue() : EventDispatcher.DEFAULT_INTERVAL_MS);
+                result.success(null);
+                break;
 
-                if (isMeasuringStress) {
-                    try {
-                        bleConnection.stopMeasureStress();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error stopping stress: " + e.getMessage());
-                    }
+            case "configureTimingMeasurement":
+                session = connectedSession(call, result);
+                if (session == null) {
+                    return;
+                }
+                byte timingMetric = TimingSync.metricFromName(call.argument("metric"));
+                Number timingInterval = call.argument("interval");
+                if (timingMetric == 0 || timingInterval == null) {
+                    result.error("INVALID_ARGUMENT", "metric and interval are required", null);
+                    return;
+                }
+                try {
+                    session.configureTiming(timingMetric, timingInterval.intValue());
+                    result.success(null);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error configuring timing measurement: " + e.getMessage());
+                    result.error("TIMING_ERROR", e.getMessage(), null);
                 }
+                break;
 
-                if (isMeasuringBloodOxygen) {
-                    try {
-                        bleConnection.stopMeasureBloodOxygen();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error stopping blood oxygen: " + e.getMessage());
-                    }
+            case "queryTimingMeasurementState":
+                session = connectedSession(call, result);
+                if (session == null) {
+                    return;
                 }
-            }
-            
-            // Reset all states
-            isMeasuringTemperature = false;
-            isMeasuringHeartRate = false;
-            isMeasuringHrv = false;
-            isMeasuringStress = false;
-            isMeasuringBloodOxygen = false;
-            isFullMeasurementInProgress = false;
-            
-            sendMeasurementStatusUpdate();
-        } catch (Exception e) {
-            Log.e(TAG, "Error in stopAllMeasurements: " + e.getMessage());
-        }
-    }
+                try {
+                    TimingSync.queryState(session.connection());
+                    result.success(null);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error querying timing state: " + e.getMessage());
+                    result.error("TIMING_ERROR", e.getMessage(), null);
+                }
+                break;
 
-    // Centralized method to send measurement status updates
-    private void sendMeasurementStatusUpdate() {
-        try {
-            // Calculate anyMeasurement based on current state
-            boolean anyMeasurement = isMeasuringTemperature || isMeasuringHeartRate || 
-                                    isMeasuringHrv || isMeasuringStress || 
-                                    isMeasuringBloodOxygen || isFullMeasurementInProgress;
-            
-            Map<String, Boolean> statusMap = new HashMap<>();
-            statusMap.put("temperature", isMeasuringTemperature);
-            statusMap.put("heartRate", isMeasuringHeartRate);
-            statusMap.put("hrv", isMeasuringHrv);
-            statusMap.put("stress", isMeasuringStress);
-            statusMap.put("bloodOxygen", isMeasuringBloodOxygen);
-            statusMap.put("fullMeasurement", isFullMeasurementInProgress);
-            statusMap.put("anyMeasurement", anyMeasurement);
-            
-            String statusJson = new JSONObject(statusMap).toString();
-            Log.d(TAG, "Sending measurement status: " + statusJson);
-            sendToFlutter("measurementStatus", statusJson);
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating status JSON: " + e.getMessage());
-        }
-    }
-    
-    private String createStatusJson(String measurementType, boolean status) {
-        return "{\"type\":\"" + measurementType + "\",\"measuring\":" + status + "}";
-    }
-    
-    private String createErrorJson(String measurementType, String errorMessage) {
-        // Escape error message to prevent JSON parsing issues
-        String escapedMessage = errorMessage.replace("\"", "\\\"").replace("\n", "\\n");
-        return "{\"type\":\"" + measurementType + "\",\"error\":\"" + escapedMessage + "\"}";
-    }
-    
-    private String createDetailedErrorJson(String measurementType, Exception e) {
-        String errorType = e.getClass().getSimpleName();
-        String errorMessage = e.getMessage() != null ? e.getMessage() : "Unknown error";
-        errorMessage = errorMessage.replace("\"", "\\\"").replace("\n", "\\n");
-        
-        return "{\"type\":\"" + measurementType + 
-               "\",\"errorType\":\"" + errorType + 
-               "\",\"errorMessage\":\"" + errorMessage + "\"}";
-    }
-    
-    private void startListeners() {
-        if (bleConnection != null) {
-            try {
-                bleConnection.setBatteryListener(batteryListener);
-                bleConnection.setTempChangeListener(temperatureChangeListener);
-                bleConnection.setHrvChangeListener(hrvChangeListener);
-                bleConnection.setHeartRateChangeListener(heartRateChangeListener);
-                bleConnection.setStressChangeListener(stressChangeListener);
-                bleConnection.setBloodOxygenChangeListener(bloodOxygenChangeListener);
-            } catch (Exception e) {
-                Log.e(TAG, "Error setting listeners: " + e.getMessage());
-            }
-        }
-    }
+            case "syncTimingData":
+                session = connectedSession(call, result);
+                if (session == null) {
+                    return;
+                }
+                List<String> timingMetrics = call.argument("metrics");
+                Number timingDays = call.argument("days");
+                int timingSyncId = session.startTimingSync(timingMetrics,
+                        timingDays != null ? timingDays.intValue() : TimingSync.MAX_DAYS);
+                result.success(timingSyncId >= 0 ? timingSyncId : null);
+                break;
 
-    private void sendToFlutter(String eventName, String dataToSend) {
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
-            @Override
-            public void run() {
-                if (eventSink != null) {
-                    try {
-                        Map<String, Object> event = new HashMap<>();
-                        event.put("event", eventName);
-                        event.put("data", dataToSend);
-                        eventSink.success(event);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error sending event to Flutter: " + e.getMessage());
-                    }
-                } else {
-                    // Fallback to method channel for backward compatibility
-                    if (channel != null) {
-                        try {
-                            channel.invokeMethod(eventName, dataToSend);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error sending to Flutter: " + e.getMessage());
-                        }
-                    } else {
-                        Log.w(TAG, "Event sink and channel are null, cannot send event: " + eventName);
-                    }
+            case "cancelTimingSync":
+                session = session(call);
+                if (session != null) {
+                    session.cancelTimingSync();
                 }
-            }
-        });
-    }
+                result.success(null);
+                break;
 
-    private void retryMeasurement(String measurementType, boolean isPartOfSequence) {
-        if (retryCount < maxRetries) {
-            retryCount++;
-            currentRetryType = measurementType;
-            Log.d(TAG, "Retrying " + measurementType + " measurement, attempt " + retryCount + " of " + maxRetries);
-            
-            // Add a small delay before retrying
-            timeoutHandler.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    startMeasurement(measurementType, isPartOfSequence);
+            case "configureTimingSync":
+                Boolean syncOnConnect = call.argument("syncOnConnect");
+                Number syncDays = call.argument("days");
+                timingSyncOnConnect = syncOnConnect == null || syncOnConnect;
+                timingSyncDays = syncDays != null ? syncDays.intValue() : TimingSync.MAX_DAYS;
+                result.success(null);
+                break;
+
+            case "queryRange":
+                TimeSeriesStore rangeStore = store(call, result);
+                if (rangeStore == null) {
+                    return;
                 }
-            }, 2000); // 2 second delay before retry
-        } else {
-            retryCount = 0;
-            currentRetryType = "";
-            sendToFlutter("measurementError", createErrorJson(measurementType, 
-                        "Measurement failed after " + maxRetries + " attempts"));
-                        
-            if (isPartOfSequence) {
-                handleSequenceFailure(measurementType);
-            }
-        }
-    }
-    
-    private void handleSequenceFailure(String failedMeasurement) {
-        Log.d(TAG, "Handling sequence failure for: " + failedMeasurement);
-        if (isFullMeasurementInProgress) {
-            // Decide whether to continue sequence or abort
-            boolean criticalFailure = 
-                                      "heartRate".equals(failedMeasurement);
-            //"temperature".equals(failedMeasurement) || 
-            if (criticalFailure) {
-                // End full measurement on critical failure
-                isFullMeasurementInProgress = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createErrorJson("fullMeasurement", 
-                            "Critical measurement " + failedMeasurement + " failed after " + maxRetries + " attempts"));
-            } else {
-                // Try to continue with next measurement in sequence
-                proceedToNextMeasurement();
-            }
-        }
-    }
-    
-    private void proceedToNextMeasurement() {
-        if (isFullMeasurementInProgress) {
-            currentSequenceIndex++;
-            if (currentSequenceIndex < measurementSequence.length) {
-                retryCount = 0;
-                // Add delay between measurements
-                timeoutHandler.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        startMeasurement(measurementSequence[currentSequenceIndex], true);
-                    }
-                }, 1000); // 1 second delay between measurements
-            } else {
-                // All measurements complete
-                isFullMeasurementInProgress = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("fullMeasurementComplete", "true");
-            }
-        }
-    }
-    
-    private void startMeasurement(String measurementType, boolean isPartOfSequence) {
-        if (bleConnection == null || lastConnectionState != 2) {
-            String errorMsg = bleConnection == null ? "No device connected" : "Device not ready (state: " + lastConnectionState + ")";
-            sendToFlutter("measurementError", createErrorJson(measurementType, errorMsg));
-            if (isPartOfSequence) {
-                handleSequenceFailure(measurementType);
-            }
-            return;
-        }
-        
-        switch (measurementType) {
-            case "temperature":
-                startTemperatureMeasurement(isPartOfSequence);
+                byte seriesMetric = TimeSeriesStore.metricFromName(call.argument("metric"));
+                Number fromMs = call.argument("from");
+                Number toMs = call.argument("to");
+                Number limit = call.argument("limit");
+                if (seriesMetric == 0 || fromMs == null || toMs == null) {
+                    result.error("INVALID_ARGUMENT", "metric, from and to are required", null);
+                    return;
+                }
+                TimeSeriesStore.QueryResult range = rangeStore.queryRange(seriesMetric,
+                        fromMs.longValue(), toMs.longValue(),
+                        limit != null ? limit.intValue() : TimeSeriesStore.DEFAULT_QUERY_LIMIT);
+                Map<String, Object> rangeResult = new HashMap<>();
+                rangeResult.put("timestamps", range.timestamps);
+                rangeResult.put("values", range.values);
+                rangeResult.put("truncated", range.truncated);
+                result.success(rangeResult);
                 break;
-            case "heartRate":
-                startHeartRateMeasurement(isPartOfSequence);
+
+            case "exportRange":
+                TimeSeriesStore exportStore = store(call, result);
+                if (exportStore == null) {
+                    return;
+                }
+                byte exportMetric = TimeSeriesStore.metricFromName(call.argument("metric"));
+                Number exportFromMs = call.argument("from");
+                Number exportToMs = call.argument("to");
+                if (exportMetric == 0 || exportFromMs == null || exportToMs == null) {
+                    result.error("INVALID_ARGUMENT", "metric, from and to are required", null);
+                    return;
+                }
+                result.success(exportStore.exportRange(exportMetric,
+                        exportFromMs.longValue(), exportToMs.longValue()));
                 break;
-            case "hrv":
-                startHrvMeasurement(isPartOfSequence);
+
+            case "readCollectedData":
+                readCollectedData(call, result);
                 break;
-            case "stress":
-                startStressMeasurement(isPartOfSequence);
+
+            case "startBackgroundCollection":
+                startBackgroundCollection(call, result);
                 break;
-            case "bloodOxygen":
-                startBloodOxygenMeasurement(isPartOfSequence);
+
+            case "stopBackgroundCollection":
+                stopBackgroundCollection();
+                result.success(null);
                 break;
-        }
-    }
 
-    public void startScan() {
-        try {
-            bleClient = CRPBleClient.create(context);
-            scanCallback = new CRPScanCallback() {
-                @Override
-                public void onScanning(CRPScanDevice device) {
-                    try {
-                        Map<String, String> deviceData = new HashMap<>();
-                        String deviceName = device.getDevice().getName();
-                        String deviceAddress = device.getDevice().getAddress();
-                        deviceData.put("name", deviceName != null ? deviceName : "Unknown");
-                        deviceData.put("address", deviceAddress != null ? deviceAddress : "");
-                        sendToFlutter("onDeviceScanned", new JSONObject(deviceData).toString());
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error processing scanned device: " + e.getMessage());
-                    }
+            case "getBackgroundCollectionStatus":
+                result.success(backgroundCollectionStatus());
+                break;
+
+            case "configureMeasurementTimeouts":
+                Number percentile = call.argument("percentile");
+                Number minTimeoutMs = call.argument("minTimeoutMs");
+                Number maxTimeoutMs = call.argument("maxTimeoutMs");
+                if (timeoutPolicy.configure(
+                        percentile != null ? percentile.doubleValue() : MeasurementTimeouts.DEFAULT_PERCENTILE,
+                        minTimeoutMs != null ? minTimeoutMs.longValue() : MeasurementTimeouts.DEFAULT_MIN_TIMEOUT_MS,
+                        maxTimeoutMs != null ? maxTimeoutMs.longValue() : MeasurementTimeouts.DEFAULT_MAX_TIMEOUT_MS)) {
+                    result.success(null);
+                } else {
+                    result.error("INVALID_ARGUMENT",
+                            "percentile must be in (0, 1] and 0 < minTimeoutMs <= maxTimeoutMs", null);
                 }
+                break;
 
-                @Override
-                public void onScanComplete(List<CRPScanDevice> list) {
-                    sendToFlutter("onScanComplete", "true");
+            case "configureAutoReconnect":
+                Boolean reconnectEnabled = call.argument("enabled");
+                Number initialDelayMs = call.argument("initialDelayMs");
+                Number maxDelayMs = call.argument("maxDelayMs");
+                Number maxAttempts = call.argument("maxAttempts");
+                if (reconnectPolicy.configure(reconnectEnabled == null || reconnectEnabled,
+                        initialDelayMs != null ? initialDelayMs.longValue() : ReconnectPolicy.DEFAULT_INITIAL_DELAY_MS,
+                        maxDelayMs != null ? maxDelayMs.longValue() : ReconnectPolicy.DEFAULT_MAX_DELAY_MS,
+                        maxAttempts != null ? maxAttempts.intValue() : ReconnectPolicy.DEFAULT_MAX_ATTEMPTS)) {
+                    result.success(null);
+                } else {
+                    result.error("INVALID_ARGUMENT",
+                            "0 < initialDelayMs <= maxDelayMs and maxAttempts >= 0 are required", null);
                 }
-            };
-            bleClient.scanDevice(scanCallback, 30000);
-        } catch (Exception e) {
-            Log.e(TAG, "Error starting scan: " + e.getMessage());
-        }
-    }
+                break;
 
-    private void connectToDevice(String deviceAddress) {
-        try {
-            if (bleClient == null) {
-                bleClient = CRPBleClient.create(context);
-            }
-            
-            CRPBleDevice bleDevice = bleClient.getBleDevice(deviceAddress);
-            bleConnection = bleDevice.connect();
-            bleConnection.setConnectionStateListener(bleConnectionStateListener);
-            
-            // Add connection timeout
-            timeoutHandler.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    if (bleConnection != null && lastConnectionState != 2) {
-                        Log.w(TAG, "Connection attempt timed out");
-                        sendToFlutter("onConnectionStateChanged", "0");
-                        sendToFlutter("connectionError", "Connection timed out after 30 seconds");
-                        disconnectFromDevice();
+            case "configureRealtimeHeartRate":
+                String realtimeMode = call.argument("mode");
+                Number realtimeWindowMs = call.argument("windowMs");
+                int mode = "decimate".equals(realtimeMode) ? RealtimeAggregator.MODE_DECIMATE
+                        : "window".equals(realtimeMode) ? RealtimeAggregator.MODE_WINDOW
+                        : realtimeMode == null || "raw".equals(realtimeMode) ? RealtimeAggregator.MODE_RAW : -1;
+                if (realtimeSettings.configure(mode,
+                        realtimeWindowMs != null ? realtimeWindowMs.longValue() : RealtimeAggregator.DEFAULT_WINDOW_MS)) {
+                    result.success(null);
+                } else {
+                    result.error("INVALID_ARGUMENT", "mode must be raw, decimate or window and windowMs between "
+                            + RealtimeAggregator.MIN_WINDOW_MS + " and " + RealtimeAggregator.MAX_WINDOW_MS, null);
+                }
+                break;
+
+            case "getMeasurementTimeouts":
+                String timeoutsAddress = call.argument("deviceAddress");
+                if (timeoutsAddress == null) {
+                    synchronized (sessions) {
+                        timeoutsAddress = defaultDeviceAddress;
                     }
                 }
-            }, 30000); // 30 second timeout
-        } catch (Exception e) {
-            Log.e(TAG, "Error connecting to device: " + e.getMessage());
-            sendToFlutter("connectionError", "Failed to connect: " + e.getMessage());
+                if (timeoutsAddress == null) {
+                    result.error("INVALID_ARGUMENT", "deviceAddress is required when no device is connected", null);
+                    return;
+                }
+                result.success(timeoutsFor(timeoutsAddress).snapshot());
+                break;
+
+            case "getEventDeliveryStats":
+                result.success(eventDispatcher.getStats());
+                break;
+
+            case "resetEventDeliveryStats":
+                eventDispatcher.resetStats();
+                result.success(null);
+                break;
+
+            case "getMetrics":
+                result.success(getMetrics());
+                break;
+
+            case "resetMetrics":
+                metrics.reset();
+                result.success(null);
+                break;
+
+            default:
+                result.notImplemented();
+                break;
         }
     }
 
-    private void disconnectFromDevice() {
-        try {
-            // Stop any ongoing measurements
-            stopAllMeasurements();
-            
-            if (bleConnection != null) {
-                bleConnection.setConnectionStateListener(null);
-                bleConnection.close();
-                bleConnection = null;
+    private void startMeasurement(MethodCall call, Result result, String measurementType) {
+        DeviceSession session = connectedSession(call, result);
+        if (session != null) {
+            RetryPolicy.Plan plan = retryPlan(call, result);
+            if (plan != null) {
+                result.success(session.startSingleMeasurement(measurementType, plan));
             }
-            
-            lastConnectionState = 0;
-            sendToFlutter("onConnectionStateChanged", "0");
-            Log.i(TAG, "Device disconnected successfully.");
-        } catch (Exception e) {
-            Log.e(TAG, "Error disconnecting: " + e.getMessage());
         }
     }
-    
-    // Individual measurement methods
-    private void startTemperatureMeasurement(boolean isPartOfSequence) {
-        if (bleConnection != null && lastConnectionState == 2) {
-            isMeasuringTemperature = true;
-            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
-            try {
-                bleConnection.enableTimingTemp();
-                // Set timeout
-                timeoutHandler.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (isMeasuringTemperature) {
-                            Log.w(TAG, "Temperature measurement timed out");
-                            try {
-                                bleConnection.disableTimingTemp();
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error disabling temperature timing: " + e.getMessage());
-                            }
-                            isMeasuringTemperature = false;
-                            sendMeasurementStatusUpdate();
-                            retryMeasurement("temperature", isPartOfSequence);
-                        }
-                    }
-                }, MEASUREMENT_TIMEOUT_MS);
-            } catch (Exception e) {
-                Log.e(TAG, "Error starting temperature measurement: " + e.getMessage());
-                isMeasuringTemperature = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("temperature", e));
-                
-                if (isPartOfSequence) {
-                    handleSequenceFailure("temperature");
-                }
-            }
+
+    // The retry plan in the call's "attempts" argument; null after reporting a malformed one
+    private RetryPolicy.Plan retryPlan(MethodCall call, Result result) {
+        try {
+            return RetryPolicy.Plan.parse(call.argument("attempts"));
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return null;
         }
     }
 
-    private void startHrvMeasurement(boolean isPartOfSequence) {
-        if (bleConnection != null && lastConnectionState == 2) {
-            isMeasuringHrv = true;
-            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
-            try {
-                bleConnection.startMeasureHrv();
-                
-                // Set timeout
-                timeoutHandler.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (isMeasuringHrv) {
-                            Log.w(TAG, "HRV measurement timed out");
-                            try {
-                                bleConnection.stopMeasureHrv();
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error stopping HRV measurement: " + e.getMessage());
-                            }
-                            isMeasuringHrv = false;
-                            sendMeasurementStatusUpdate();
-                            retryMeasurement("hrv", isPartOfSequence);
-                        }
-                    }
-                }, MEASUREMENT_TIMEOUT_MS);
-            } catch (Exception e) {
-                Log.e(TAG, "Error starting HRV measurement: " + e.getMessage());
-                isMeasuringHrv = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("hrv", e));
-                
-                if (isPartOfSequence) {
-                    handleSequenceFailure("hrv");
-                }
+    // Every non-empty exportRange of the rings in one reply, so Flutter catches up on
+    // a background collection in a single round trip
+    private void readCollectedData(MethodCall call, Result result) {
+        if (seriesRoot == null) {
+            result.error("NOT_ATTACHED", "Plugin is not attached to an engine", null);
+            return;
+        }
+        Number fromMs = call.argument("from");
+        Number toMs = call.argument("to");
+        if (fromMs == null) {
+            result.error("INVALID_ARGUMENT", "from is required", null);
+            return;
+        }
+        Set<String> addresses = new LinkedHashSet<>();
+        List<String> requested = call.argument("deviceAddresses");
+        if (requested != null) {
+            addresses.addAll(requested);
+        } else {
+            BackgroundCollection collection = backgroundCollection;
+            if (collection != null) {
+                addresses.addAll(collection.addresses);
+            }
+            synchronized (stores) {
+                addresses.addAll(stores.keySet());
             }
         }
-    }
-    
-    private void startHeartRateMeasurement(boolean isPartOfSequence) {
-        if (bleConnection != null && lastConnectionState == 2) {
-            isMeasuringHeartRate = true;
-            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
-            try {
-                bleConnection.startMeasureHeartRate();
-                // Set timeout
-                timeoutHandler.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (isMeasuringHeartRate) {
-                            Log.w(TAG, "Heart rate measurement timed out");
-                            try {
-                                bleConnection.stopMeasureHeartRate();
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error stopping heart rate measurement: " + e.getMessage());
-                            }
-                            isMeasuringHeartRate = false;
-                            sendMeasurementStatusUpdate();
-                            retryMeasurement("heartRate", isPartOfSequence);
-                        }
-                    }
-                }, MEASUREMENT_TIMEOUT_MS);
-            } catch (Exception e) {
-                Log.e(TAG, "Error starting heart rate measurement: " + e.getMessage());
-                isMeasuringHeartRate = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("heartRate", e));
-                
-                if (isPartOfSequence) {
-                    handleSequenceFailure("heartRate");
+        long to = toMs != null ? toMs.longValue() : System.currentTimeMillis();
+        List<Map<String, Object>> exports = new ArrayList<>();
+        for (String address : addresses) {
+            TimeSeriesStore store = storeFor(address);
+            for (byte metric = 1; TimeSeriesStore.metricName(metric) != null; metric++) {
+                byte[] data = store.exportRange(metric, fromMs.longValue(), to);
+                // [u8 metric][i32 count], little-endian
+                if ((data[1] | data[2] | data[3] | data[4]) == 0) {
+                    continue;
                 }
+                Map<String, Object> export = new HashMap<>();
+                export.put("deviceAddress", address);
+                export.put("data", data);
+                exports.add(export);
             }
         }
+        result.success(exports);
     }
 
-    private void startStressMeasurement(boolean isPartOfSequence) {
-        if (bleConnection != null && lastConnectionState == 2) {
-            isMeasuringStress = true;
-            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
-            try {
-                bleConnection.startMeasureStress();
-                
-                // Set timeout
-                timeoutHandler.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (isMeasuringStress) {
-                            Log.w(TAG, "Stress measurement timed out");
-                            try {
-                                bleConnection.stopMeasureStress();
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error stopping stress measurement: " + e.getMessage());
-                            }
-                            isMeasuringStress = false;
-                            sendMeasurementStatusUpdate();
-                            retryMeasurement("stress", isPartOfSequence);
-                        }
+    private void startBackgroundCollection(MethodCall call, Result result) {
+        if (context == null) {
+            result.error("NOT_ATTACHED", "Plugin is not attached to an engine", null);
+            return;
+        }
+        List<String> addresses = call.argument("deviceAddresses");
+        if (addresses == null) {
+            // Default to the rings connected right now
+            addresses = new ArrayList<>();
+            synchronized (sessions) {
+                for (DeviceSession session : sessions.values()) {
+                    if (session.isConnected()) {
+                        addresses.add(session.address);
                     }
-                }, MEASUREMENT_TIMEOUT_MS);
-            } catch (Exception e) {
-                Log.e(TAG, "Error starting stress measurement: " + e.getMessage());
-                isMeasuringStress = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("stress", e));
-                
-                if (isPartOfSequence) {
-                    handleSequenceFailure("stress");
                 }
             }
         }
+        Number intervalMs = call.argument("intervalMs");
+        String measurement = call.argument("measurement");
+        BackgroundCollection collection;
+        try {
+            collection = new BackgroundCollection(
+                    intervalMs != null ? intervalMs.longValue() : BackgroundCollection.DEFAULT_INTERVAL_MS,
+                    measurement != null ? measurement : BackgroundCollection.FULL_MEASUREMENT,
+                    addresses, System.currentTimeMillis());
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return;
+        }
+        synchronized (SmartRingPlugin.class) {
+            if (collectingCore != null && collectingCore != this) {
+                result.error("ALREADY_COLLECTING", "Another engine runs background collection", null);
+                return;
+            }
+            if (!collection.save(context)) {
+                result.error("STORAGE_ERROR", "Could not save the background collection", null);
+                return;
+            }
+            backgroundCollection = collection;
+            collectingCore = this;
+        }
+        RingCollectionService.start(context);
+        result.success(null);
     }
-    
-    private void startBloodOxygenMeasurement(boolean isPartOfSequence) {
-        if (bleConnection != null && lastConnectionState == 2) {
-            isMeasuringBloodOxygen = true;
-            sendMeasurementStatusUpdate(); // Send status AFTER setting the flag
-            try {
-                bleConnection.startMeasureBloodOxygen();
-                
-                // Set timeout
-                timeoutHandler.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (isMeasuringBloodOxygen) {
-                            Log.w(TAG, "Blood oxygen measurement timed out");
-                            try {
-                                bleConnection.stopMeasureBloodOxygen();
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error stopping blood oxygen measurement: " + e.getMessage());
-                            }
-                            isMeasuringBloodOxygen = false;
-                            sendMeasurementStatusUpdate();
-                            retryMeasurement("bloodOxygen", isPartOfSequence);
-                        }
-                    }
-                }, MEASUREMENT_TIMEOUT_MS);
-            } catch (Exception e) {
-                Log.e(TAG, "Error starting blood oxygen measurement: " + e.getMessage());
-                isMeasuringBloodOxygen = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("bloodOxygen", e));
-                
-                if (isPartOfSequence) {
-                    handleSequenceFailure("bloodOxygen");
-                }
+
+    private void stopBackgroundCollection() {
+        synchronized (SmartRingPlugin.class) {
+            if (collectingCore != this) {
+                return;
             }
+            collectingCore = null;
+            backgroundCollection = null;
         }
+        synchronized (sessions) {
+            collectOnConnect.clear();
+        }
+        BackgroundCollection.clear(context);
+        RingCollectionService.stop(context);
     }
-    
-    /////////////////////////Connection Listeners////////////////////////
-    private final CRPBleConnectionStateListener bleConnectionStateListener = new CRPBleConnectionStateListener() {
-        @Override
-        public void onConnectionStateChange(int state) {
-            lastConnectionState = state;
-            Log.d(TAG, "Connection state changed to: " + state);
-            switch (state) {
-                case 0: // Disconnected
-                    Log.i(TAG, "Device disconnected");
-                    resetAllMeasurementStates();
-                    sendToFlutter("onConnectionStateChanged", "0");
-                    break;
-                case 1: // Connecting
-                    Log.i(TAG, "Device connecting...");
-                    sendToFlutter("onConnectionStateChanged", "1");
-                    break;
-                case 2: // Connected
-                    Log.i(TAG, "Device connected successfully");
-                    timeoutHandler.removeCallbacksAndMessages(null);
-                    startListeners();
-                    sendToFlutter("onConnectionStateChanged", "2");
-                    break;
-           }
+
+    private Map<String, Object> backgroundCollectionStatus() {
+        Map<String, Object> status = new HashMap<>();
+        BackgroundCollection collection = backgroundCollection;
+        status.put("active", collection != null);
+        if (collection != null) {
+            status.put("intervalMs", collection.intervalMs);
+            status.put("measurement", collection.measurement);
+            status.put("deviceAddresses", new ArrayList<>(collection.addresses));
+            status.put("startedAtMs", collection.startedAtMs);
+            status.put("lastRunAtMs", BackgroundCollection.lastRunAtMs(context));
         }
-    };
-    
-    // Reset all measurement states
-    private void resetAllMeasurementStates() {
-        timeoutHandler.removeCallbacksAndMessages(null);
-        
-        isMeasuringTemperature = false;
-        isMeasuringHeartRate = false;
-        isMeasuringHrv = false;
-        isMeasuringStress = false;
-        isMeasuringBloodOxygen = false;
-        isFullMeasurementInProgress = false;
-        retryCount = 0;
-        currentRetryType = "";
-        currentSequenceIndex = 0;
-        
-        sendMeasurementStatusUpdate();
+        return status;
     }
 
-    /////////////////////////Battery Listeners////////////////////////
-    private final CRPBatteryListener batteryListener = new CRPBatteryListener() {
-        @Override
-        public void onBattery(int batteryLevel) {
-            Log.d(TAG, "Battery level: " + batteryLevel);
-            sendToFlutter("onBattery", String.valueOf(batteryLevel));
-
-            if (batteryLevel < 15) {
-                Map<String, Object> warning = new HashMap<>();
-                warning.put("level", batteryLevel);
-                warning.put("message", "Battery level critical");
-                try {
-                    sendToFlutter("batteryWarning", new JSONObject(warning).toString());
-                } catch (Exception e) {
-                    Log.e(TAG, "Error sending battery warning: " + e.getMessage());
-                }
+    BackgroundCollection backgroundCollection() {
+        return backgroundCollection;
+    }
+
+    // The core running background collection. After the process was restarted without an
+    // engine, rebuilds a headless one from the saved collection. Null when collection is off.
+    static SmartRingPlugin collectingCore(Context applicationContext) {
+        synchronized (SmartRingPlugin.class) {
+            if (collectingCore != null) {
+                return collectingCore;
+            }
+            BackgroundCollection saved = BackgroundCollection.load(applicationContext);
+            if (saved == null) {
+                return null;
             }
+            Log.d(TAG, "Resuming background collection without an engine");
+            SmartRingPlugin headless = new SmartRingPlugin();
+            headless.context = applicationContext;
+            headless.start(new HistoryWatermarks(applicationContext),
+                    new File(applicationContext.getFilesDir(), SERIES_DIR));
+            headless.backgroundCollection = saved;
+            collectingCore = headless;
+            return headless;
         }
+    }
 
-        @Override
-        public void onRealTimeBattery(int batteryLevel, int chargingStatus) {
-            Log.d(TAG, "Real-time battery level: " + batteryLevel + ", charging status: " + chargingStatus);
-            sendToFlutter("onRealTimeBattery", String.valueOf(batteryLevel));
-            
-            if (batteryLevel < 15) {
-                Map<String, Object> warning = new HashMap<>();
-                warning.put("level", batteryLevel);
-                warning.put("charging", chargingStatus == 1);
-                warning.put("message", "Battery level critical");
-                try {
-                    sendToFlutter("batteryWarning", new JSONObject(warning).toString());
-                } catch (Exception e) {
-                    Log.e(TAG, "Error sending battery warning: " + e.getMessage());
-                }
-            }
+    // One collection run: measures the connected rings and connects the others, which
+    // measure as soon as they are up. Readings reach the stores through the sessions.
+    void collectInBackground() {
+        BackgroundCollection collection = backgroundCollection;
+        if (collection == null) {
+            return;
         }
-    };
-    
-    /////////////////////////HRV Listeners////////////////////////
-    private CRPHrvChangeListener hrvChangeListener = new CRPHrvChangeListener() {
-        @Override
-        public void onHrv(int hrvValue) {
-            try {
-                Log.d(TAG, "HRV value: " + hrvValue);
-                
-                // Cancel timeout since we got a response
-                timeoutHandler.removeCallbacksAndMessages(null);
-                
-                try {
-                    bleConnection.stopMeasureHrv();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error stopping HRV measurement: " + e.getMessage());
-                }
-                
-                isMeasuringHrv = false;
-                sendMeasurementStatusUpdate();
-                
-                if (hrvValue > 0) {
-                    sendToFlutter("hrv", String.valueOf(hrvValue));
-                    
-                    if (isFullMeasurementInProgress) {
-                        proceedToNextMeasurement();
-                    }
-                } else {
-                    if ("hrv".equals(currentRetryType)) {
-                        retryMeasurement("hrv", isFullMeasurementInProgress);
-                    } else {
-                        sendToFlutter("measurementError", createErrorJson("hrv", "Invalid HRV reading"));
-                        
-                        if (isFullMeasurementInProgress) {
-                            handleSequenceFailure("hrv");
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error processing HRV data: " + e.getMessage());
-                isMeasuringHrv = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("hrv", e));
-                
-                if (isFullMeasurementInProgress) {
-                    handleSequenceFailure("hrv");
+        metrics.increment(PluginMetrics.BACKGROUND_RUNS);
+        for (String address : collection.addresses) {
+            DeviceSession session;
+            synchronized (sessions) {
+                session = sessions.get(address);
+            }
+            if (session != null && session.isConnected()) {
+                startCollectionMeasurement(session, collection);
+                continue;
+            }
+            synchronized (sessions) {
+                collectOnConnect.add(address);
+            }
+            if (!connectToDevice(address)) {
+                synchronized (sessions) {
+                    collectOnConnect.remove(address);
                 }
             }
         }
+        BackgroundCollection.recordRun(context, System.currentTimeMillis());
+    }
 
-        @Override
-        public void onHistoryHrv(List<CRPHistoryHrvInfo> list) {
-            Log.d(TAG, "History HRV data received");
+    private void startCollectionMeasurement(DeviceSession session, BackgroundCollection collection) {
+        boolean started = BackgroundCollection.FULL_MEASUREMENT.equals(collection.measurement)
+                ? session.startFullMeasurement(RetryPolicy.Plan.DEFAULT)
+                : session.startSingleMeasurement(collection.measurement, RetryPolicy.Plan.DEFAULT);
+        if (!started) {
+            // Whatever the ring is measuring now is stored all the same
+            metrics.increment(PluginMetrics.BACKGROUND_BUSY);
+        }
+    }
+
+    // PluginMetrics snapshot plus the current depth of every queue
+    private Map<String, Object> getMetrics() {
+        Map<String, Object> snapshot = metrics.snapshot();
+        Map<String, Object> queues = new HashMap<>();
+        ScheduledThreadPoolExecutor currentWorker = worker;
+        queues.put("worker", currentWorker != null ? currentWorker.getQueue().size() : 0);
+        queues.put("pendingEvents", eventDispatcher.pendingEvents());
+        synchronized (sessions) {
+            queues.put("sessions", sessions.size());
         }
+        snapshot.put("queues", queues);
+        return snapshot;
+    }
 
-        @Override
-        public void onTimingInterval(int interval) {
-            Log.d(TAG, "HRV timing interval: " + interval);
-            sendToFlutter("hrvTimingInterval", String.valueOf(interval));
+    // The session named by the call's deviceAddress, or the default one when it has none
+    private DeviceSession session(MethodCall call) {
+        String address = call.argument("deviceAddress");
+        synchronized (sessions) {
+            return sessions.get(address != null ? address : defaultDeviceAddress);
         }
+    }
 
-        @Override
-        public void onTimingHrv(CRPTimingHrvInfo hrvInfo) {
-            Log.d(TAG, "Timing HRV info received");
+    // Like session(), but replies NO_CONNECTION and returns null unless the ring is connected
+    private DeviceSession connectedSession(MethodCall call, Result result) {
+        DeviceSession session = session(call);
+        if (session == null) {
+            result.error("NO_CONNECTION", "No device connected", null);
+            return null;
         }
-    };
-    
-    /////////////////////////Temperature Listeners////////////////////////
-    private CRPTempChangeListener temperatureChangeListener = new CRPTempChangeListener() {
-        @Override
-        public void onTimingState(boolean state) {
-            Log.d(TAG, "Temperature timing state: " + state);
-            sendToFlutter("temperatureTimingState", String.valueOf(state));
+        if (!session.isConnected()) {
+            result.error("NO_CONNECTION",
+                    "Device is not connected (connection state: " + session.connectionState() + ")", null);
+            return null;
         }
+        return session;
+    }
 
-        @Override
-        public void onHistoryTempChange(CRPHistoryTempInfo tempInfo) {
-            try {
-                List<Float> tempList = tempInfo.getTempList();
-                Log.d(TAG, "Temperature measurement received: " + 
-                      tempList.stream().map(String::valueOf).collect(Collectors.joining(",")));
-
-                // Cancel timeout since we got a response
-                timeoutHandler.removeCallbacksAndMessages(null);
-
-                // Get the first valid temperature reading (current measurement)
-                Float currentTemperature = null;
-                for (Float temperature : tempList) {
-                    if (temperature != null && temperature != 0.0f) {
-                        currentTemperature = temperature;
-                        lastNonNullTemperature = temperature;
-                        break;
-                    }
-                }
-                
-                try {
-                    bleConnection.disableTimingTemp();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error disabling temperature timing: " + e.getMessage());
-                }
-                
-                isMeasuringTemperature = false;
-                sendMeasurementStatusUpdate();
-
-                if (currentTemperature != null) {
-                    sendToFlutter("bodyTemperature", String.format("%.1f", currentTemperature));
-                    
-                    if (isFullMeasurementInProgress) {
-                        proceedToNextMeasurement();
-                    }
-                } else {
-                    // No valid temperature was found
-                    if ("temperature".equals(currentRetryType)) {
-                        retryMeasurement("temperature", isFullMeasurementInProgress);
-                    } else {
-                        sendToFlutter("measurementError", createErrorJson("temperature", "No valid temperature reading"));
-                        
-                        if (isFullMeasurementInProgress) {
-                            handleSequenceFailure("temperature");
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error processing temperature data: " + e.getMessage());
-                isMeasuringTemperature = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("temperature", e));
-                
-                if (isFullMeasurementInProgress) {
-                    handleSequenceFailure("temperature");
-                }
+    // Stores outlive sessions so a ring's data stays queryable after it disconnects
+    private TimeSeriesStore store(MethodCall call, Result result) {
+        if (seriesRoot == null) {
+            result.error("NOT_ATTACHED", "Plugin is not attached to an engine", null);
+            return null;
+        }
+        String address = call.argument("deviceAddress");
+        if (address == null) {
+            synchronized (sessions) {
+                address = defaultDeviceAddress;
             }
         }
-    };
-    
-    /////////////////////////Heart Rate Listeners////////////////////////
-    private CRPHeartRateChangeListener heartRateChangeListener = new CRPHeartRateChangeListener() {
-        @Override
-        public void onTimingInterval(int interval) {
-            Log.d(TAG, "Heart rate timing interval: " + interval);
-            sendToFlutter("heartRateTimingInterval", String.valueOf(interval));
+        if (address == null) {
+            result.error("INVALID_ARGUMENT", "deviceAddress is required when no device is connected", null);
+            return null;
+        }
+        return storeFor(address);
+    }
+
+    private TimeSeriesStore storeFor(String address) {
+        synchronized (stores) {
+            TimeSeriesStore store = stores.get(address);
+            if (store == null) {
+                store = TimeSeriesStore.acquire(new File(seriesRoot, address.replace(':', '_')),
+                        TimeSeriesStore.DEFAULT_RETENTION_MS);
+                stores.put(address, store);
+            }
+            return store;
         }
+    }
 
-        @Override
-        public void onRealtimeHeartRate(int heartRate) {
-            Log.d(TAG, "Real-time heart rate: " + heartRate);
-            sendToFlutter("realtimeHeartRate", String.valueOf(heartRate));
+    private MeasurementTimeouts timeoutsFor(String address) {
+        synchronized (timeouts) {
+            MeasurementTimeouts deviceTimeouts = timeouts.get(address);
+            if (deviceTimeouts == null) {
+                deviceTimeouts = new MeasurementTimeouts(timeoutPolicy);
+                timeouts.put(address, deviceTimeouts);
+            }
+            return deviceTimeouts;
         }
+    }
 
-        @Override
-        public void onHeartRate(int heartRate) {
-            try {
-                Log.d(TAG, "Heart rate: " + heartRate);
-                
-                timeoutHandler.removeCallbacksAndMessages(null);
-                
-                try {
-                    bleConnection.stopMeasureHeartRate();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error stopping heart rate measurement: " + e.getMessage());
-                }
-                
-                isMeasuringHeartRate = false;
-                sendMeasurementStatusUpdate();
-                
-                if (heartRate > 0 && heartRate < 250) { // Valid heart rate range
-                    sendToFlutter("heartRate", String.valueOf(heartRate));
-                    
-                    if (isFullMeasurementInProgress) {
-                        proceedToNextMeasurement();
+    private List<Map<String, Object>> connectedDevices() {
+        List<Map<String, Object>> devices = new ArrayList<>();
+        synchronized (sessions) {
+            for (DeviceSession session : sessions.values()) {
+                Map<String, Object> device = new HashMap<>();
+                device.put("address", session.address);
+                device.put("connectionState", session.connectionState());
+                device.put("isDefault", session.address.equals(defaultDeviceAddress));
+                devices.add(device);
+            }
+        }
+        return devices;
+    }
+
+    // Scans for durationMs, or until the strongest `limit` matches of the filter have settled
+    public void startScan(ScanFilter filter, int limit, long durationMs) {
+        try {
+            if (bleClient == null) {
+                bleClient = CRPBleClient.create(context);
+            }
+            scanAggregator.start(filter, limit);
+            CRPScanCallback callback = new CRPScanCallback() {
+                @Override
+                public void onScanning(CRPScanDevice device) {
+                    if (scanCallback != this) {
+                        return;
                     }
-                } else {
-                    if ("heartRate".equals(currentRetryType)) {
-                        retryMeasurement("heartRate", isFullMeasurementInProgress);
-                    } else {
-                        sendToFlutter("measurementError", createErrorJson("heartRate", "Invalid heart rate reading"));
-                        
-                        if (isFullMeasurementInProgress) {
-                            handleSequenceFailure("heartRate");
+                    try {
+                        metrics.increment(PluginMetrics.SCAN_ADVERTISEMENTS);
+                        // Reported once per address, then only on a name or RSSI change
+                        if (!scanAggregator.onAdvertisement(device.getDevice().getName(),
+                                device.getDevice().getAddress(), device.getRssi())) {
+                            metrics.increment(PluginMetrics.SCAN_COALESCED);
                         }
+                        if (scanAggregator.isSatisfied()) {
+                            Log.d(TAG, "Found the " + limit + " strongest matches, ending scan early");
+                            bleClient.cancelScan();
+                            finishScan(this);
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error processing scanned device: " + e.getMessage());
                     }
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Error processing heart rate data: " + e.getMessage());
-                isMeasuringHeartRate = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("heartRate", e));
-                
-                if (isFullMeasurementInProgress) {
-                    handleSequenceFailure("heartRate");
+
+                @Override
+                public void onScanComplete(List<CRPScanDevice> list) {
+                    finishScan(this);
                 }
-            }
+            };
+            scanCallback = callback;
+            bleClient.scanDevice(callback, durationMs);
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting scan: " + e.getMessage());
         }
+    }
 
-        @Override
-        public void onHistoryHeartRate(List<CRPHistoryHeartRateInfo> list) {
-            Log.d(TAG, "History heart rate data received");
+    // Reports held-back updates and SCAN_COMPLETE once per scan, whether it timed out or ended early
+    private synchronized void finishScan(CRPScanCallback callback) {
+        if (scanCallback != callback) {
+            return;
         }
+        scanCallback = null;
+        scanAggregator.flush();
+        Log.d(TAG, "Scan complete: " + scanAggregator.size() + " devices from "
+                + scanAggregator.advertisements() + " advertisements");
+        eventDispatcher.dispatchEmpty(EventCodec.SCAN_COMPLETE);
+    }
 
-        @Override
-        public void onTimingHeartRate(CRPHeartRateInfo heartRateInfo) {
-            Log.d(TAG, "Timing heart rate info received");
-        }
-    };
-    
-    ////////////////////////Blood Oxygen Listeners////////////////////////
-    private CRPBloodOxygenChangeListener bloodOxygenChangeListener = new CRPBloodOxygenChangeListener() {
-        @Override
-        public void onTimingInterval(int interval) {
-            Log.d(TAG, "Blood oxygen timing interval: " + interval);
-            sendToFlutter("bloodOxygenTimingInterval", String.valueOf(interval));
+    // Returns false when the pool is full
+    private boolean connectToDevice(String deviceAddress) {
+        DeviceSession session;
+        synchronized (sessions) {
+            DeviceSession existing = sessions.get(deviceAddress);
+            if (existing != null && existing.isReconnecting()) {
+                // Waiting out a reconnect backoff; try right away instead
+                existing.reconnectImmediately();
+                defaultDeviceAddress = deviceAddress;
+                return true;
+            }
+            if (existing != null && existing.connection() != null && existing.connectionState() != 0) {
+                // Already connected or connecting
+                defaultDeviceAddress = deviceAddress;
+                return true;
+            }
+            if (existing != null) {
+                existing.close();
+                sessions.remove(deviceAddress);
+            } else if (sessions.size() >= maxConnections) {
+                Log.w(TAG, "Connection pool full, rejecting " + deviceAddress);
+                return false;
+            }
+            int slot = nextFreeSlot();
+            session = new DeviceSession(deviceAddress, slot, eventDispatcher.forDevice(slot, deviceAddress),
+                    historyWatermarks, storeFor(deviceAddress), timeoutsFor(deviceAddress), metrics, reconnectPolicy,
+                    realtimeSettings, this, worker, timers);
+            sessions.put(deviceAddress, session);
+            defaultDeviceAddress = deviceAddress;
         }
+        session.connect(deviceHandle(deviceAddress));
+        return true;
+    }
 
-        @Override
-        public void onBloodOxygen(int bloodOxygen) {
-            try {
-                Log.d(TAG, "Blood oxygen: " + bloodOxygen);
-                
-                timeoutHandler.removeCallbacksAndMessages(null);
-                
-                try {
-                    bleConnection.stopMeasureBloodOxygen();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error stopping blood oxygen measurement: " + e.getMessage());
-                }
-                
-                isMeasuringBloodOxygen = false;
-                sendMeasurementStatusUpdate();
-
-                if (bloodOxygen > 0 && bloodOxygen <= 100) { // Valid blood oxygen range
-                    sendToFlutter("bloodOxygen", String.valueOf(bloodOxygen));
-                    
-                    if (isFullMeasurementInProgress) {
-                        isFullMeasurementInProgress = false;
-                        sendMeasurementStatusUpdate();
-                        sendToFlutter("fullMeasurementComplete", "true");
-                    }
-                } else {
-                    if ("bloodOxygen".equals(currentRetryType)) {
-                        retryMeasurement("bloodOxygen", isFullMeasurementInProgress);
-                    } else {
-                        sendToFlutter("measurementError", createErrorJson("bloodOxygen", "Invalid blood oxygen reading"));
-                        
-                        if (isFullMeasurementInProgress) {
-                            handleSequenceFailure("bloodOxygen");
-                        }
+    // The cached SDK handle for the address, or null if the SDK rejects it
+    private CRPBleDevice deviceHandle(String address) {
+        try {
+            if (deviceSource == null && bleClient == null) {
+                bleClient = CRPBleClient.create(context);
+            }
+            synchronized (sessions) {
+                CRPBleDevice device = deviceHandles.get(address);
+                if (device == null) {
+                    device = deviceSource != null ? deviceSource.getBleDevice(address)
+                            : bleClient.getBleDevice(address);
+                    if (device != null) {
+                        deviceHandles.put(address, device);
                     }
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Error processing blood oxygen data: " + e.getMessage());
-                isMeasuringBloodOxygen = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("bloodOxygen", e));
-                
-                if (isFullMeasurementInProgress) {
-                    handleSequenceFailure("bloodOxygen");
-                }
+                return device;
             }
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting device " + address + ": " + e.getMessage());
+            return null;
         }
+    }
 
-        @Override
-        public void onHistoryBloodOxygen(List<CRPHistoryBloodOxygenInfo> list) {
-            Log.d(TAG, "History blood oxygen data received");
+    // Slots rotate through 1..255, so a freed slot is not handed out again while
+    // records tagged with it may still be waiting in a batch. Guarded by sessions.
+    private int nextFreeSlot() {
+        for (int i = 0; i < MAX_SLOT; i++) {
+            int slot = (lastSlot + i) % MAX_SLOT + 1;
+            boolean used = false;
+            for (DeviceSession session : sessions.values()) {
+                if (session.slot == slot) {
+                    used = true;
+                    break;
+                }
+            }
+            if (!used) {
+                lastSlot = slot;
+                return slot;
+            }
         }
+        throw new IllegalStateException("No free device slot");
+    }
 
-        @Override
-        public void onTimingBloodOxygen(CRPTimingBloodOxygenInfo bloodOxygenInfo) {
-            Log.d(TAG, "Timing blood oxygen info received");
+    @Override
+    public void onConnected(DeviceSession session) {
+        if (timingSyncOnConnect) {
+            // Pull what the ring sampled on its own while we were away
+            session.startTimingSync(null, timingSyncDays);
         }
-    };
-    
-    /////////////////////////Stress Listeners////////////////////////
-    private CRPStressChangeListener stressChangeListener = new CRPStressChangeListener() {
-        @Override
-        public void onStressChange(int stress) {
-            try {
-                Log.d(TAG, "Stress level: " + stress);
-                
-                timeoutHandler.removeCallbacksAndMessages(null);
-                
-                try {
-                    bleConnection.stopMeasureStress();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error stopping stress measurement: " + e.getMessage());
-                }
-                
-                isMeasuringStress = false;
-                sendMeasurementStatusUpdate();
-                
-                if (stress >= 0 && stress <= 100) { // Valid stress range
-                    sendToFlutter("stress", String.valueOf(stress));
-                    
-                    if (isFullMeasurementInProgress) {
-                        proceedToNextMeasurement();
-                    }
-                } else {
-                    if ("stress".equals(currentRetryType)) {
-                        retryMeasurement("stress", isFullMeasurementInProgress);
-                    } else {
-                        sendToFlutter("measurementError", createErrorJson("stress", "Invalid stress reading"));
-                        
-                        if (isFullMeasurementInProgress) {
-                            handleSequenceFailure("stress");
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error processing stress data: " + e.getMessage());
-                isMeasuringStress = false;
-                sendMeasurementStatusUpdate();
-                sendToFlutter("measurementError", createDetailedErrorJson("stress", e));
-                
-                if (isFullMeasurementInProgress) {
-                    handleSequenceFailure("stress");
+        boolean collect;
+        synchronized (sessions) {
+            collect = collectOnConnect.remove(session.address);
+        }
+        BackgroundCollection collection = backgroundCollection;
+        if (collect && collection != null) {
+            startCollectionMeasurement(session, collection);
+        }
+    }
+
+    @Override
+    public void onClosed(DeviceSession session) {
+        synchronized (sessions) {
+            if (sessions.get(session.address) != session) {
+                return;
+            }
+            sessions.remove(session.address);
+            if (session.address.equals(defaultDeviceAddress)) {
+                // Fall back to the most recently connected remaining ring
+                defaultDeviceAddress = null;
+                for (String address : sessions.keySet()) {
+                    defaultDeviceAddress = address;
                 }
             }
         }
+    }
 
-        @Override
-        public void onHistoryStressChange(List<CRPHistoryStressInfo> list) {
-            Log.d(TAG, "History stress data received");
+    private void cleanupResources() {
+        List<DeviceSession> open;
+        synchronized (sessions) {
+            open = new ArrayList<>(sessions.values());
+            sessions.clear();
+            deviceHandles.clear();
+            defaultDeviceAddress = null;
+        }
+        for (DeviceSession session : open) {
+            session.close();
         }
-    };
 
-    private void cleanupResources() {
-        timeoutHandler.removeCallbacksAndMessages(null);
-        resetAllMeasurementStates();
-        
         if (bleClient != null) {
             try {
                 bleClient.cancelScan();
@@ -1139,42 +995,140 @@ public class SmartRingPlugin implements FlutterPlugin, MethodCallHandler {
             }
         }
     }
-    
+
     @Override
     public void onAttachedToEngine(@NonNull FlutterPluginBinding flutterPluginBinding) {
-        channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "smart_ring");
-        eventChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), "smart_ring_events");
-        context = flutterPluginBinding.getApplicationContext();
+        SmartRingPlugin picked;
+        synchronized (SmartRingPlugin.class) {
+            // A core left collecting in the background still holds the rings and their readings
+            picked = collectingCore != null && !collectingCore.bound ? collectingCore : this;
+            picked.bound = true;
+        }
+        core = picked;
+        if (picked == this) {
+            context = flutterPluginBinding.getApplicationContext();
+            start(new HistoryWatermarks(context), new File(context.getFilesDir(), SERIES_DIR));
+            resumeSavedCollection();
+        } else {
+            Log.d(TAG, "Picking up the core that collected in the background");
+        }
+        picked.bind(flutterPluginBinding.getBinaryMessenger());
+    }
+
+    // A collection saved before the process died resumes on the next launch, if no restarted service beat us to it
+    private void resumeSavedCollection() {
+        BackgroundCollection saved = BackgroundCollection.load(context);
+        synchronized (SmartRingPlugin.class) {
+            if (saved == null || collectingCore != null) {
+                return;
+            }
+            backgroundCollection = saved;
+            collectingCore = this;
+        }
+        RingCollectionService.start(context);
+    }
+
+    private void bind(BinaryMessenger messenger) {
+        channel = new MethodChannel(messenger, "smart_ring");
+        eventChannel = new EventChannel(messenger, "smart_ring_events");
         channel.setMethodCallHandler(this);
-        
+
         eventChannel.setStreamHandler(new StreamHandler() {
             @Override
             public void onListen(Object arguments, EventSink events) {
                 eventSink = events;
+                eventDispatcher.setEventSink(events);
                 Log.d(TAG, "Event channel listener attached");
             }
 
             @Override
             public void onCancel(Object arguments) {
                 eventSink = null;
+                eventDispatcher.setEventSink(null);
                 Log.d(TAG, "Event channel listener cancelled");
             }
         });
     }
 
-    @Override
-    public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
-        if (bleConnection != null) {
-            stopAllMeasurements();
-            bleConnection.close();
-        }
-        cleanupResources();
+    // Leaves the core running without an engine; events stay buffered until the next listener
+    private void unbind() {
         channel.setMethodCallHandler(null);
         eventChannel.setStreamHandler(null);
+        eventDispatcher.setEventSink(null);
         channel = null;
         eventChannel = null;
         eventSink = null;
-        context = null;
     }
-}
 
+    // Everything attaching does besides the channels, so tests can run the plugin without an engine
+    void start(HistoryWatermarks watermarks, File seriesRoot) {
+        historyWatermarks = watermarks;
+        this.seriesRoot = seriesRoot;
+        worker = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "SmartRingWorker");
+            }
+        });
+        // Pending timeouts and retries die with the engine
+        worker.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        final ScheduledThreadPoolExecutor timerWorker = worker;
+        timers = new TimerWheel(TimerWheel.SYSTEM_CLOCK, TIMER_TICK_MS, TIMER_SLOTS, new TimerWheel.Waker() {
+            @Override
+            public void wakeIn(long delayMs) {
+                try {
+                    timerWorker.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            timers.advance();
+                        }
+                    }, delayMs, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    Log.w(TAG, "Worker stopped, timers no longer advance");
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
+        SmartRingPlugin detached = core;
+        core = null;
+        detached.unbind();
+        boolean keepCollecting;
+        synchronized (SmartRingPlugin.class) {
+            detached.bound = false;
+            keepCollecting = collectingCore == detached;
+        }
+        if (keepCollecting) {
+            Log.d(TAG, "Engine detached, collection continues in the background");
+        } else {
+            detached.stop();
+            detached.context = null;
+        }
+    }
+
+    // Undoes start(): closes every session and stops the worker
+    void stop() {
+        cleanupResources();
+        // Sessions close on the worker; shutdown still runs the queued closes
+        worker.shutdown();
+        try {
+            // Queued tasks may still append; a store closed under a late one just drops the reading
+            if (!worker.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Worker still busy after " + STOP_TIMEOUT_MS + " ms, closing stores anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+        eventDispatcher.shutdown();
+        synchronized (stores) {
+            for (TimeSeriesStore store : stores.values()) {
+                store.release();
+            }
+            stores.clear();
+        }
+        seriesRoot = null;
+    }
+}
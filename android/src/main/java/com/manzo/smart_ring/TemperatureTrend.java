@@ -0,0 +1,86 @@
+package com.manzo.smart_ring;
+
+/**
+ * Rolling body temperature baseline of one ring: the mean and spread of its
+ * last {@link #WINDOW} plausible readings, and how far each new reading sits
+ * from the baseline of the readings before it.
+ *
+ * Readings are kept in a fixed primitive ring buffer with running sums, so
+ * {@link #add} is O(1) and never allocates. The sums are rebuilt from the
+ * buffer once per lap to keep floating-point drift from accumulating.
+ * Worker only.
+ */
+final class TemperatureTrend {
+    static final int WINDOW = 24 * 60 / TimingSync.SLOT_MINUTES; // a day of ring-timed slots
+
+    private final float[] readings = new float[WINDOW];
+    private int count = 0;
+    private int next = 0;
+    private double sum = 0;
+    private double sumSquares = 0;
+
+    // As of the latest add()
+    private float baseline = Float.NaN;
+    private float deviation = 0;
+    private float spread = 0;
+    private int baselineSamples = 0;
+
+    void add(float celsius) {
+        baselineSamples = count;
+        if (count > 0) {
+            double mean = sum / count;
+            baseline = (float) mean;
+            deviation = (float) (celsius - mean);
+            spread = (float) Math.sqrt(Math.max(0, sumSquares / count - mean * mean));
+        } else {
+            // Nothing to compare against yet
+            baseline = celsius;
+            deviation = 0;
+            spread = 0;
+        }
+
+        if (count == WINDOW) {
+            float dropped = readings[next];
+            sum -= dropped;
+            sumSquares -= (double) dropped * dropped;
+        } else {
+            count++;
+        }
+        readings[next] = celsius;
+        sum += celsius;
+        sumSquares += (double) celsius * celsius;
+        next = (next + 1) % WINDOW;
+        if (next == 0) {
+            resum();
+        }
+    }
+
+    private void resum() {
+        sum = 0;
+        sumSquares = 0;
+        for (int i = 0; i < count; i++) {
+            sum += readings[i];
+            sumSquares += (double) readings[i] * readings[i];
+        }
+    }
+
+    // Mean of the readings before the latest one; the latest reading itself if it was the first
+    float baseline() {
+        return baseline;
+    }
+
+    // Latest reading minus baseline()
+    float deviation() {
+        return deviation;
+    }
+
+    // Standard deviation of the readings before the latest one
+    float spread() {
+        return spread;
+    }
+
+    // How many readings baseline() covers
+    int baselineSamples() {
+        return baselineSamples;
+    }
+}
@@ -0,0 +1,665 @@
+package com.manzo.smart_ring;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * On-device append-only store for ring readings.
+ *
+ * Each metric has its own directory of fixed-size segment files. A segment is
+ * a 32-byte header followed by fixed-width {@code [i64 timestampMs][f32 value]}
+ * records, and only the segment currently being appended to stays memory-mapped.
+ * Once a segment fills up it is sealed: its records are sorted and rewritten as
+ * {@link SeriesCodec} blocks behind a small block index, and the raw file is
+ * removed. Range queries use the per-segment min/max timestamps kept in memory
+ * to skip segments, then binary search the raw records or the block index, so
+ * they only touch the pages or blocks that hold matching records. Backfilled
+ * history lands after newer live readings, so when the matching segments are
+ * unsorted or overlap, the readings are put in time order before the limit.
+ *
+ * Two stores mapping the same files would overwrite each other's appends, so
+ * the plugin takes them through {@link #acquire}, which hands every engine in
+ * the process the same store per directory.
+ */
+final class TimeSeriesStore {
+    private static final String TAG = "TimeSeriesStore";
+
+    static final byte METRIC_HEART_RATE = 1;
+    static final byte METRIC_HRV = 2;
+    static final byte METRIC_BLOOD_OXYGEN = 3;
+    static final byte METRIC_STRESS = 4;
+    static final byte METRIC_BODY_TEMPERATURE = 5;
+    private static final String[] METRIC_NAMES = {
+            null, "heartRate", "hrv", "bloodOxygen", "stress", "bodyTemperature"
+    };
+
+    private static final int MAGIC = 0x53524753; // "SRGS"
+    private static final int SEALED_MAGIC = 0x53524743; // "SRGC"
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 12;
+    static final int RECORDS_PER_SEGMENT = 32768; // ~384 KB, about three weeks of per-minute data
+    private static final int SEGMENT_BYTES = HEADER_BYTES + RECORDS_PER_SEGMENT * RECORD_BYTES;
+
+    // Header layout, shared by raw and sealed segments
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_COUNT = 8;
+    private static final int OFFSET_SORTED = 12;
+    private static final int OFFSET_MIN_TS = 16;
+    private static final int OFFSET_MAX_TS = 24;
+
+    // Sealed segments follow the header with [i32 blockCount] and
+    // blockCount x [i64 firstTs][i64 lastTs][i32 offset] before the block data
+    private static final int BLOCK_INDEX_ENTRY_BYTES = 20;
+
+    private static final String RAW_SUFFIX = ".seg";
+    private static final String SEALED_SUFFIX = ".blk";
+
+    static final int DEFAULT_QUERY_LIMIT = 10000;
+    static final long DEFAULT_RETENTION_MS = 180L * 24 * 60 * 60 * 1000;
+
+    static final class Segment {
+        final File file;
+        final boolean sealed;
+        int count;
+        boolean sorted;
+        long minTs;
+        long maxTs;
+        // Block index of a sealed segment, loaded on first query
+        long[] blockFirstTs;
+        long[] blockLastTs;
+        int[] blockOffsets;
+
+        Segment(File file, boolean sealed) {
+            this.file = file;
+            this.sealed = sealed;
+        }
+    }
+
+    // Readings collected by a range scan, in scan order until sorted
+    private static final class Range {
+        long[] timestamps;
+        float[] values;
+        int count = 0;
+        boolean truncated = false;
+        final int max;
+
+        Range(int max) {
+            this.max = max;
+            timestamps = new long[Math.min(max, 256)];
+            values = new float[timestamps.length];
+        }
+
+        // Returns false once the limit is reached
+        boolean add(long timestamp, float value) {
+            if (count == max) {
+                truncated = true;
+                return false;
+            }
+            if (count == timestamps.length) {
+                int grown = (int) Math.min(max, timestamps.length * 2L);
+                timestamps = Arrays.copyOf(timestamps, grown);
+                values = Arrays.copyOf(values, grown);
+            }
+            timestamps[count] = timestamp;
+            values[count] = value;
+            count++;
+            return true;
+        }
+    }
+
+    static final class QueryResult {
+        final long[] timestamps;
+        final double[] values;
+        final boolean truncated;
+
+        QueryResult(long[] timestamps, double[] values, boolean truncated) {
+            this.timestamps = timestamps;
+            this.values = values;
+            this.truncated = truncated;
+        }
+    }
+
+    // Stores handed out by acquire(), keyed by normalized absolute directory path. Guarded by itself.
+    private static final Map<String, TimeSeriesStore> SHARED = new HashMap<>();
+
+    private final File rootDir;
+    private final long retentionMs;
+    // acquire() calls not yet released. Guarded by SHARED.
+    private int users = 0;
+    // Segments of each metric in creation order, which is not time order once older readings are backfilled;
+    // indexed by metric, null entries until opened
+    private final List<List<Segment>> segments =
+            new ArrayList<>(Collections.<List<Segment>>nCopies(METRIC_NAMES.length, null));
+    private final MappedByteBuffer[] activeBuffers = new MappedByteBuffer[METRIC_NAMES.length];
+    private final Segment[] activeSegments = new Segment[METRIC_NAMES.length];
+    private final long[] scratchTimestamps = new long[SeriesCodec.BLOCK_SIZE];
+    private final float[] scratchValues = new float[SeriesCodec.BLOCK_SIZE];
+    private boolean opened = false;
+    // Set by close(); the store then ignores appends and answers queries with nothing
+    private boolean closed = false;
+
+    TimeSeriesStore(File rootDir, long retentionMs) {
+        this.rootDir = rootDir;
+        this.retentionMs = retentionMs;
+    }
+
+    // Returns the process-wide store of rootDir; every call must be paired with release()
+    static TimeSeriesStore acquire(File rootDir, long retentionMs) {
+        String key = keyOf(rootDir);
+        synchronized (SHARED) {
+            TimeSeriesStore store = SHARED.get(key);
+            if (store == null) {
+                store = new TimeSeriesStore(rootDir, retentionMs);
+                SHARED.put(key, store);
+            }
+            store.users++;
+            return store;
+        }
+    }
+
+    // Closes the store once the last acquire() is released
+    void release() {
+        synchronized (SHARED) {
+            if (--users > 0) {
+                return;
+            }
+            SHARED.remove(keyOf(rootDir));
+            // Closed under the lock so a new acquire() can't map the files while this one still holds them
+            close();
+        }
+    }
+
+    private static String keyOf(File rootDir) {
+        return rootDir.getAbsoluteFile().toPath().normalize().toString();
+    }
+
+    static byte metricFromName(String name) {
+        for (byte i = 1; i < METRIC_NAMES.length; i++) {
+            if (METRIC_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    static String metricName(byte metric) {
+        return metric > 0 && metric < METRIC_NAMES.length ? METRIC_NAMES[metric] : null;
+    }
+
+    // Reads only the segment headers; segment bodies are mapped on demand
+    private void ensureOpen() {
+        if (opened) {
+            return;
+        }
+        opened = true;
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        for (byte metric = 1; metric < METRIC_NAMES.length; metric++) {
+            List<Segment> list = new ArrayList<>();
+            File dir = new File(rootDir, METRIC_NAMES[metric]);
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    boolean sealed = name.endsWith(SEALED_SUFFIX);
+                    if (!sealed && !name.endsWith(RAW_SUFFIX)) {
+                        continue;
+                    }
+                    if (!sealed && sealedFileFor(file).exists()) {
+                        // Sealing finished but the raw file outlived a crash
+                        if (!file.delete()) {
+                            Log.w(TAG, "Could not delete sealed raw segment " + file);
+                        }
+                        continue;
+                    }
+                    Segment segment = readHeader(file, sealed);
+                    if (segment == null) {
+                        continue;
+                    }
+                    if (segment.count > 0 && segment.maxTs < cutoff) {
+                        if (!file.delete()) {
+                            Log.w(TAG, "Could not delete expired segment " + file);
+                        }
+                        continue;
+                    }
+                    list.add(segment);
+                }
+            }
+            Collections.sort(list, new Comparator<Segment>() {
+                @Override
+                public int compare(Segment a, Segment b) {
+                    return a.file.getName().compareTo(b.file.getName());
+                }
+            });
+            segments.set(metric, list);
+        }
+    }
+
+    private static File sealedFileFor(File rawFile) {
+        String name = rawFile.getName();
+        return new File(rawFile.getParentFile(),
+                name.substring(0, name.length() - RAW_SUFFIX.length()) + SEALED_SUFFIX);
+    }
+
+    private static Segment readHeader(File file, boolean sealed) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < HEADER_BYTES) {
+                return null;
+            }
+            MappedByteBuffer header = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(OFFSET_MAGIC) != (sealed ? SEALED_MAGIC : MAGIC)
+                    || header.getInt(OFFSET_VERSION) != VERSION) {
+                Log.w(TAG, "Ignoring segment with unknown header: " + file);
+                return null;
+            }
+            Segment segment = new Segment(file, sealed);
+            segment.count = header.getInt(OFFSET_COUNT);
+            segment.sorted = header.getInt(OFFSET_SORTED) != 0;
+            segment.minTs = header.getLong(OFFSET_MIN_TS);
+            segment.maxTs = header.getLong(OFFSET_MAX_TS);
+            return segment;
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading segment header " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    synchronized boolean append(byte metric, long timestampMs, float value) {
+        if (closed || metricName(metric) == null) {
+            return false;
+        }
+        try {
+            ensureOpen();
+            MappedByteBuffer buffer = activeBuffer(metric);
+            Segment segment = activeSegments[metric];
+            if (segment.count >= RECORDS_PER_SEGMENT) {
+                buffer = rollSegment(metric);
+                segment = activeSegments[metric];
+            }
+
+            int offset = HEADER_BYTES + segment.count * RECORD_BYTES;
+            buffer.putLong(offset, timestampMs);
+            buffer.putFloat(offset + 8, value);
+
+            if (segment.count == 0) {
+                segment.minTs = timestampMs;
+                segment.maxTs = timestampMs;
+            } else {
+                if (timestampMs < segment.maxTs) {
+                    segment.sorted = false;
+                    buffer.putInt(OFFSET_SORTED, 0);
+                }
+                segment.minTs = Math.min(segment.minTs, timestampMs);
+                segment.maxTs = Math.max(segment.maxTs, timestampMs);
+            }
+            buffer.putLong(OFFSET_MIN_TS, segment.minTs);
+            buffer.putLong(OFFSET_MAX_TS, segment.maxTs);
+            // Publish the record last so a crash never exposes a half-written one
+            segment.count++;
+            buffer.putInt(OFFSET_COUNT, segment.count);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error appending " + metricName(metric) + " reading: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private MappedByteBuffer activeBuffer(byte metric) throws IOException {
+        if (activeBuffers[metric] != null) {
+            return activeBuffers[metric];
+        }
+        List<Segment> list = segments.get(metric);
+        Segment last = list.isEmpty() ? null : list.get(list.size() - 1);
+        if (last != null && !last.sealed && last.count < RECORDS_PER_SEGMENT) {
+            activeSegments[metric] = last;
+            activeBuffers[metric] = map(last.file, FileChannel.MapMode.READ_WRITE);
+            return activeBuffers[metric];
+        }
+        return rollSegment(metric);
+    }
+
+    private MappedByteBuffer rollSegment(byte metric) throws IOException {
+        List<Segment> list = segments.get(metric);
+        Segment last = list.isEmpty() ? null : list.get(list.size() - 1);
+        if (last != null && !last.sealed && last.count >= RECORDS_PER_SEGMENT) {
+            activeBuffers[metric] = null;
+            activeSegments[metric] = null;
+            try {
+                list.set(list.size() - 1, seal(last));
+            } catch (IOException e) {
+                // The raw segment stays queryable; sealing is retried on the next roll
+                Log.e(TAG, "Error sealing segment " + last.file + ": " + e.getMessage());
+            }
+        }
+
+        File dir = new File(rootDir, METRIC_NAMES[metric]);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        // Zero-padded sequence numbers keep lexical order equal to creation order. Stores written before
+        // segments were numbered used the first timestamp instead; the next number still sorts after those.
+        long sequence = last != null ? sequenceOf(last.file) + 1 : 0;
+        File file = new File(dir, String.format(Locale.US, "%020d", sequence) + RAW_SUFFIX);
+        while (file.exists() || sealedFileFor(file).exists()) {
+            sequence++;
+            file = new File(dir, String.format(Locale.US, "%020d", sequence) + RAW_SUFFIX);
+        }
+        MappedByteBuffer buffer = map(file, FileChannel.MapMode.READ_WRITE);
+        buffer.putInt(OFFSET_MAGIC, MAGIC);
+        buffer.putInt(OFFSET_VERSION, VERSION);
+        buffer.putInt(OFFSET_COUNT, 0);
+        buffer.putInt(OFFSET_SORTED, 1);
+
+        Segment segment = new Segment(file, false);
+        segment.sorted = true;
+        segments.get(metric).add(segment);
+        activeSegments[metric] = segment;
+        activeBuffers[metric] = buffer;
+        return buffer;
+    }
+
+    private static long sequenceOf(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(0, name.indexOf('.')));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+
+    private static MappedByteBuffer map(File file, FileChannel.MapMode mode) throws IOException {
+        String rafMode = mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw";
+        try (RandomAccessFile raf = new RandomAccessFile(file, rafMode)) {
+            long size = mode == FileChannel.MapMode.READ_ONLY ? raf.length() : SEGMENT_BYTES;
+            MappedByteBuffer buffer = raf.getChannel().map(mode, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    // Rewrites a full raw segment as time-ordered codec blocks
+    private Segment seal(Segment raw) throws IOException {
+        MappedByteBuffer buffer = map(raw.file, FileChannel.MapMode.READ_ONLY);
+        int count = raw.count;
+        long[] timestamps = new long[count];
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_BYTES + i * RECORD_BYTES;
+            timestamps[i] = buffer.getLong(offset);
+            values[i] = buffer.getFloat(offset + 8);
+        }
+        if (!raw.sorted) {
+            SeriesCodec.sortByTimestamp(timestamps, values, count);
+        }
+
+        int blockCount = (count + SeriesCodec.BLOCK_SIZE - 1) / SeriesCodec.BLOCK_SIZE;
+        int dataStart = HEADER_BYTES + 4 + blockCount * BLOCK_INDEX_ENTRY_BYTES;
+        SeriesCodec.ByteSink blocks = new SeriesCodec.ByteSink(count * 2);
+        Segment sealed = new Segment(sealedFileFor(raw.file), true);
+        sealed.count = count;
+        sealed.sorted = true;
+        sealed.minTs = raw.minTs;
+        sealed.maxTs = raw.maxTs;
+        sealed.blockFirstTs = new long[blockCount];
+        sealed.blockLastTs = new long[blockCount];
+        sealed.blockOffsets = new int[blockCount + 1];
+        for (int block = 0; block < blockCount; block++) {
+            int start = block * SeriesCodec.BLOCK_SIZE;
+            int size = Math.min(SeriesCodec.BLOCK_SIZE, count - start);
+            sealed.blockFirstTs[block] = timestamps[start];
+            sealed.blockLastTs[block] = timestamps[start + size - 1];
+            sealed.blockOffsets[block] = dataStart + blocks.size();
+            SeriesCodec.encode(timestamps, values, start, size, blocks);
+        }
+        sealed.blockOffsets[blockCount] = dataStart + blocks.size();
+
+        java.nio.ByteBuffer header = ByteBuffer.allocate(dataStart).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(OFFSET_MAGIC, SEALED_MAGIC);
+        header.putInt(OFFSET_VERSION, VERSION);
+        header.putInt(OFFSET_COUNT, count);
+        header.putInt(OFFSET_SORTED, 1);
+        header.putLong(OFFSET_MIN_TS, sealed.minTs);
+        header.putLong(OFFSET_MAX_TS, sealed.maxTs);
+        header.position(HEADER_BYTES);
+        header.putInt(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            header.putLong(sealed.blockFirstTs[block]);
+            header.putLong(sealed.blockLastTs[block]);
+            header.putInt(sealed.blockOffsets[block]);
+        }
+
+        File temp = new File(raw.file.getParentFile(), raw.file.getName() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.setLength(0);
+            raf.write(header.array());
+            raf.write(blocks.array(), 0, blocks.size());
+            raf.getFD().sync();
+        }
+        if (!temp.renameTo(sealed.file)) {
+            throw new IOException("Cannot rename " + temp + " to " + sealed.file);
+        }
+        if (!raw.file.delete()) {
+            Log.w(TAG, "Could not delete sealed raw segment " + raw.file);
+        }
+        Log.d(TAG, "Sealed " + raw.file.getName() + ": " + count + " records, "
+                + (count * RECORD_BYTES) + " -> " + (dataStart + blocks.size()) + " bytes");
+        return sealed;
+    }
+
+
+    private static void loadBlockIndex(Segment segment, RandomAccessFile raf) throws IOException {
+        if (segment.blockOffsets != null) {
+            return;
+        }
+        raf.seek(HEADER_BYTES);
+        int blockCount = Integer.reverseBytes(raf.readInt());
+        byte[] index = new byte[blockCount * BLOCK_INDEX_ENTRY_BYTES];
+        raf.readFully(index);
+        java.nio.ByteBuffer entries = ByteBuffer.wrap(index).order(ByteOrder.LITTLE_ENDIAN);
+        long[] firstTs = new long[blockCount];
+        long[] lastTs = new long[blockCount];
+        int[] offsets = new int[blockCount + 1];
+        for (int block = 0; block < blockCount; block++) {
+            firstTs[block] = entries.getLong();
+            lastTs[block] = entries.getLong();
+            offsets[block] = entries.getInt();
+        }
+        offsets[blockCount] = (int) raf.length();
+        segment.blockFirstTs = firstTs;
+        segment.blockLastTs = lastTs;
+        segment.blockOffsets = offsets;
+    }
+
+    private void scanSealed(Segment segment, long fromMs, long toMs, Range range) {
+        try (RandomAccessFile raf = new RandomAccessFile(segment.file, "r")) {
+            loadBlockIndex(segment, raf);
+            int blockCount = segment.blockFirstTs.length;
+            // First block whose last timestamp reaches fromMs
+            int low = 0;
+            int high = blockCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (segment.blockLastTs[mid] < fromMs) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            byte[] block = new byte[0];
+            for (int b = low; b < blockCount && segment.blockFirstTs[b] <= toMs; b++) {
+                int length = segment.blockOffsets[b + 1] - segment.blockOffsets[b];
+                if (block.length < length) {
+                    block = new byte[length];
+                }
+                raf.seek(segment.blockOffsets[b]);
+                raf.readFully(block, 0, length);
+                SeriesCodec.decodeBlock(block, 0, scratchTimestamps, scratchValues, 0);
+                int count = SeriesCodec.blockCount(block, 0);
+                for (int i = 0; i < count; i++) {
+                    long timestamp = scratchTimestamps[i];
+                    if (timestamp < fromMs) {
+                        continue;
+                    }
+                    if (timestamp > toMs || !range.add(timestamp, scratchValues[i])) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading sealed segment " + segment.file + ": " + e.getMessage());
+        }
+    }
+
+    synchronized QueryResult queryRange(byte metric, long fromMs, long toMs, int limit) {
+        Range range = collect(metric, fromMs, toMs, limit > 0 ? limit : DEFAULT_QUERY_LIMIT);
+        double[] values = new double[range.count];
+        for (int i = 0; i < range.count; i++) {
+            values[i] = range.values[i];
+        }
+        return new QueryResult(Arrays.copyOf(range.timestamps, range.count), values, range.truncated);
+    }
+
+    /**
+     * Encodes every reading of {@code metric} between the bounds for export as
+     * {@code [u8 metric][i32 count]} followed by {@link SeriesCodec} blocks.
+     */
+    synchronized byte[] exportRange(byte metric, long fromMs, long toMs) {
+        Range range = collect(metric, fromMs, toMs, Integer.MAX_VALUE);
+        SeriesCodec.ByteSink out = new SeriesCodec.ByteSink(5 + range.count * 2);
+        out.put(metric);
+        out.putInt(range.count);
+        SeriesCodec.encode(range.timestamps, range.values, 0, range.count, out);
+        return out.toByteArray();
+    }
+
+    // Guarded by this
+    private Range collect(byte metric, long fromMs, long toMs, int max) {
+        if (closed || metricName(metric) == null || fromMs > toMs) {
+            return new Range(max);
+        }
+        ensureOpen();
+
+        List<Segment> matching = new ArrayList<>();
+        for (Segment segment : segments.get(metric)) {
+            if (segment.count > 0 && segment.maxTs >= fromMs && segment.minTs <= toMs) {
+                matching.add(segment);
+            }
+        }
+        Collections.sort(matching, new Comparator<Segment>() {
+            @Override
+            public int compare(Segment a, Segment b) {
+                return Long.compare(a.minTs, b.minTs);
+            }
+        });
+        // Sorted segments that don't overlap can be read back to back and stop at the limit
+        boolean ordered = true;
+        long previousMaxTs = Long.MIN_VALUE;
+        for (Segment segment : matching) {
+            if (!segment.sorted || segment.minTs < previousMaxTs) {
+                ordered = false;
+                break;
+            }
+            previousMaxTs = segment.maxTs;
+        }
+
+        Range range = new Range(ordered ? max : Integer.MAX_VALUE);
+        for (Segment segment : matching) {
+            if (segment.sealed) {
+                scanSealed(segment, fromMs, toMs, range);
+            } else {
+                scanRaw(metric, segment, fromMs, toMs, range);
+            }
+            if (range.truncated) {
+                break;
+            }
+        }
+        if (!ordered) {
+            // Backfilled or unsorted readings: order everything in range, then keep the oldest max
+            SeriesCodec.sortByTimestamp(range.timestamps, range.values, range.count);
+            if (range.count > max) {
+                range.count = max;
+                range.truncated = true;
+            }
+        }
+        return range;
+    }
+
+    private void scanRaw(byte metric, Segment segment, long fromMs, long toMs, Range range) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = segment == activeSegments[metric]
+                    ? activeBuffers[metric]
+                    : map(segment.file, FileChannel.MapMode.READ_ONLY);
+        } catch (IOException e) {
+            Log.e(TAG, "Error mapping segment " + segment.file + ": " + e.getMessage());
+            return;
+        }
+
+        int start = segment.sorted ? lowerBound(buffer, segment.count, fromMs) : 0;
+        for (int i = start; i < segment.count; i++) {
+            int offset = HEADER_BYTES + i * RECORD_BYTES;
+            long timestamp = buffer.getLong(offset);
+            if (timestamp > toMs) {
+                if (segment.sorted) {
+                    return;
+                }
+                continue;
+            }
+            if (timestamp < fromMs) {
+                continue;
+            }
+            if (!range.add(timestamp, buffer.getFloat(offset + 8))) {
+                return;
+            }
+        }
+    }
+
+    // First record index with timestamp >= fromMs in a time-ordered segment
+    private static int lowerBound(MappedByteBuffer buffer, int count, long fromMs) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(HEADER_BYTES + mid * RECORD_BYTES) < fromMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    synchronized void flush() {
+        for (MappedByteBuffer buffer : activeBuffers) {
+            if (buffer != null) {
+                buffer.force();
+            }
+        }
+    }
+
+    // Releases the mappings for good: later appends return false and queries come back empty
+    synchronized void close() {
+        flush();
+        Arrays.fill(activeBuffers, null);
+        Arrays.fill(activeSegments, null);
+        Collections.fill(segments, null);
+        closed = true;
+    }
+}
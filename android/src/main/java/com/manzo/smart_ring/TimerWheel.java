@@ -0,0 +1,178 @@
+package com.manzo.smart_ring;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timer wheel for measurement, retry and connection deadlines.
+ *
+ * Deadlines are rounded up to a tick and hashed into one of {@code slots}
+ * buckets; each bucket is a doubly linked list, so scheduling and cancelling
+ * are O(1) and a tick only visits one bucket however many timers are pending.
+ * Deadlines further out than one revolution stay in their bucket until their
+ * tick comes round.
+ *
+ * The wheel does not keep time itself: {@link #advance()} fires everything due
+ * by the {@link Clock}, and an optional {@link Waker} is asked to call it again
+ * one tick later while timers are pending. Not thread-safe; callers confine it
+ * to one thread.
+ */
+final class TimerWheel {
+    /** Monotonic milliseconds. */
+    interface Clock {
+        long nowMs();
+    }
+
+    /** Arranges for {@link #advance()} to be called after a delay. */
+    interface Waker {
+        void wakeIn(long delayMs);
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nowMs() {
+            return System.nanoTime() / 1_000_000;
+        }
+    };
+
+    // Timeout.bucket of a timer that ran or was cancelled, and of one collected for firing
+    private static final int DONE = -1;
+    private static final int DUE = -2;
+
+    /** A scheduled task; cancel it to drop it from the wheel. */
+    final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private int bucket = DONE;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        boolean isPending() {
+            return bucket != DONE;
+        }
+
+        // Returns false if the task already ran or was cancelled
+        boolean cancel() {
+            if (bucket == DONE) {
+                return false;
+            }
+            if (bucket == DUE) {
+                // Collected by the running advance() but not fired yet
+                bucket = DONE;
+            } else {
+                unlink(this);
+            }
+            return true;
+        }
+    }
+
+    private final Clock clock;
+    private final Waker waker;
+    private final long tickMs;
+    private final Timeout[] heads;
+    private final long startMs;
+    private long tick = 0;
+    private int pending = 0;
+    private boolean awake = false;
+
+    TimerWheel(Clock clock, long tickMs, int slots, Waker waker) {
+        if (tickMs <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("tickMs and slots must be positive");
+        }
+        this.clock = clock;
+        this.tickMs = tickMs;
+        this.waker = waker;
+        heads = new Timeout[slots];
+        startMs = clock.nowMs();
+    }
+
+    long tickMs() {
+        return tickMs;
+    }
+
+    int pending() {
+        return pending;
+    }
+
+    /** Runs {@code task} from {@link #advance()} once {@code delayMs} has passed. */
+    Timeout schedule(Runnable task, long delayMs) {
+        long dueMs = clock.nowMs() - startMs + Math.max(0, delayMs);
+        // Round up so a timer never fires early; never into a tick already processed
+        long deadlineTick = Math.max(tick + 1, (dueMs + tickMs - 1) / tickMs);
+        Timeout timeout = new Timeout(task, deadlineTick);
+        link(timeout, (int) (deadlineTick % heads.length));
+        wake();
+        return timeout;
+    }
+
+    /** Fires every timer due by now and returns how many ran. */
+    int advance() {
+        awake = false;
+        long target = (clock.nowMs() - startMs) / tickMs;
+        List<Timeout> due = new ArrayList<>();
+        while (tick < target && pending > 0) {
+            tick++;
+            Timeout timeout = heads[(int) (tick % heads.length)];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.deadlineTick <= tick) {
+                    unlink(timeout);
+                    timeout.bucket = DUE;
+                    due.add(timeout);
+                }
+                timeout = next;
+            }
+        }
+        // Nothing left to fire in the skipped ticks
+        tick = Math.max(tick, target);
+
+        // Tasks run after the sweep, so they may schedule or cancel freely
+        int fired = 0;
+        for (Timeout timeout : due) {
+            if (timeout.bucket == DUE) {
+                timeout.bucket = DONE;
+                fired++;
+                timeout.task.run();
+            }
+        }
+        wake();
+        return fired;
+    }
+
+    private void wake() {
+        if (waker != null && !awake && pending > 0) {
+            awake = true;
+            waker.wakeIn(tickMs);
+        }
+    }
+
+    private void link(Timeout timeout, int bucket) {
+        timeout.bucket = bucket;
+        timeout.next = heads[bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        heads[bucket] = timeout;
+        pending++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = DONE;
+        pending--;
+    }
+}
@@ -0,0 +1,419 @@
+package com.manzo.smart_ring;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.crrepa.ble.conn.CRPBleConnection;
+import com.crrepa.ble.conn.type.CRPHistoryDay;
+
+/**
+ * Configures the ring's own periodic sampling and pulls the samples it has
+ * accumulated, day by day, into the time-series store.
+ *
+ * The ring keeps up to {@link #MAX_DAYS} days of timing data as one value per
+ * {@link #SLOT_MINUTES}-minute slot from local midnight, with 0 for slots it did
+ * not measure. Days are pulled oldest first and only days at or after the
+ * device's persisted timing watermark are queried, so a pull on every connect
+ * usually costs one query per metric. Samples are stored natively, so the
+ * watermark advances as soon as each day is stored; the chunks streamed to
+ * Flutter are informational and need no acknowledgement. Temperature days come
+ * back as floats through the temperature listener, which streams them to
+ * Flutter as series events, so they are stored here without timing chunks.
+ *
+ * Confined to the session's worker thread like {@link HistorySync}; only
+ * {@link #claim} may be called from other threads.
+ */
+final class TimingSync {
+    private static final String TAG = "TimingSync";
+
+    // Metric ids match HistorySync and TimeSeriesStore
+    static final byte METRIC_HEART_RATE = HistorySync.METRIC_HEART_RATE;
+    static final byte METRIC_HRV = HistorySync.METRIC_HRV;
+    static final byte METRIC_BLOOD_OXYGEN = HistorySync.METRIC_BLOOD_OXYGEN;
+    static final byte METRIC_TEMPERATURE = 5;
+
+    // Timing watermarks live next to the history ones under shifted metric slots
+    private static final int WATERMARK_SLOT_OFFSET = 8;
+    private static final int WATERMARK_SLOTS = WATERMARK_SLOT_OFFSET + METRIC_TEMPERATURE + 1;
+
+    static final int SLOT_MINUTES = 5;
+    static final int MAX_DAYS = 15; // TODAY through DAYS_AGO_14
+    private static final long QUERY_TIMEOUT_MS = 10000;
+
+    private final EventDispatcher eventDispatcher;
+    private final TimerWheel timers;
+    // Taken by the caller that starts a pull and released when it ends
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final AtomicInteger lastSyncId = new AtomicInteger();
+
+    // {metric, days ago} pairs still to query, oldest day of each metric first
+    private final ArrayDeque<int[]> pendingQueries = new ArrayDeque<>();
+    private HistoryWatermarks watermarks;
+    // Newest sample stored per metric, so repeated pushes are stored once even without persisted watermarks
+    private final long[] storedThrough = new long[METRIC_TEMPERATURE + 1];
+    private TimeSeriesStore store;
+    private CRPBleConnection connection;
+    private String deviceAddress;
+    private int syncId = 0;
+    private int chunkIndex = 0;
+    private int totalMetrics = 0;
+    private int completedMetrics = 0;
+    private int metricRecords = 0;
+    private int[] currentQuery;
+    private boolean active = false;
+    // Request of the latest pull, so it can be resumed after a reconnect
+    private List<String> requestedMetrics;
+    private int requestedDays = MAX_DAYS;
+    // Whether the app has the ring sample temperature on its own timer, so measurements leave it on
+    private volatile boolean temperatureTiming = false;
+
+    private TimerWheel.Timeout queryTimeout;
+
+    TimingSync(EventDispatcher eventDispatcher, TimerWheel timers) {
+        this.eventDispatcher = eventDispatcher;
+        this.timers = timers;
+    }
+
+    static byte metricFromName(String name) {
+        if ("temperature".equals(name) || "bodyTemperature".equals(name)) {
+            return METRIC_TEMPERATURE;
+        }
+        byte metric = HistorySync.metricFromName(name);
+        return metric == HistorySync.METRIC_STRESS ? 0 : metric;
+    }
+
+    // Pushes can arrive before any pull, so the device is known up front
+    void setWatermarks(HistoryWatermarks watermarks, String deviceAddress) {
+        this.watermarks = watermarks;
+        this.deviceAddress = deviceAddress;
+    }
+
+    void setStore(TimeSeriesStore store) {
+        this.store = store;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    // Any thread
+    void setTemperatureTiming(boolean on) {
+        temperatureTiming = on;
+    }
+
+    // Any thread
+    boolean isTemperatureTimingOn() {
+        return temperatureTiming;
+    }
+
+    // Any thread: reserves the next sync id for start(), or returns -1 when a pull is already running
+    int claim() {
+        return claimed.compareAndSet(false, true) ? lastSyncId.incrementAndGet() : -1;
+    }
+
+    // interval is in the ring's own units, as reported by the timing interval callbacks; 0 disables
+    static void configure(CRPBleConnection connection, byte metric, int interval) {
+        switch (metric) {
+            case METRIC_HEART_RATE:
+                if (interval > 0) {
+                    connection.enableTimingHeartRate(interval);
+                } else {
+                    connection.disableTimingHeartRate();
+                }
+                break;
+            case METRIC_HRV:
+                if (interval > 0) {
+                    connection.enableTimingHrv(interval);
+                } else {
+                    connection.disableTimingHrv();
+                }
+                break;
+            case METRIC_BLOOD_OXYGEN:
+                if (interval > 0) {
+                    connection.enableTimingBloodOxygen(interval);
+                } else {
+                    connection.disableTimingBloodOxygen();
+                }
+                break;
+            case METRIC_TEMPERATURE:
+                if (interval > 0) {
+                    connection.enableTimingTemp();
+                } else {
+                    connection.disableTimingTemp();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported timing metric " + metric);
+        }
+    }
+
+    // Results arrive through the timing interval and state callbacks
+    static void queryState(CRPBleConnection connection) {
+        connection.queryTimingHeartRateState();
+        connection.queryTimingHrvState();
+        connection.queryTimingBloodOxygenState();
+        connection.queryTimingTempState();
+    }
+
+    // Runs the pull claimed as syncId
+    void start(int syncId, CRPBleConnection connection, String deviceAddress, List<String> metrics, int days) {
+        this.syncId = syncId;
+        this.connection = connection;
+        this.deviceAddress = deviceAddress;
+        int maxDays = days > 0 ? Math.min(days, MAX_DAYS) : MAX_DAYS;
+        requestedMetrics = metrics != null ? new ArrayList<>(metrics) : null;
+        requestedDays = maxDays;
+
+        pendingQueries.clear();
+        totalMetrics = 0;
+        byte[] requested = metrics == null || metrics.isEmpty()
+                ? new byte[]{METRIC_HEART_RATE, METRIC_HRV, METRIC_BLOOD_OXYGEN, METRIC_TEMPERATURE}
+                : new byte[metrics.size()];
+        if (metrics != null && !metrics.isEmpty()) {
+            for (int i = 0; i < metrics.size(); i++) {
+                requested[i] = metricFromName(metrics.get(i));
+            }
+        }
+        boolean[] seen = new boolean[METRIC_TEMPERATURE + 1];
+        long todayStart = dayStartMs(0);
+        for (byte metric : requested) {
+            if (metric == 0 || seen[metric]) {
+                continue;
+            }
+            seen[metric] = true;
+            int metricDays = maxDays;
+            long watermark = watermark(metric);
+            if (watermark > 0) {
+                long daysSince = (todayStart - watermark + 24L * 60 * 60 * 1000 - 1) / (24L * 60 * 60 * 1000);
+                metricDays = (int) Math.max(1, Math.min(maxDays, daysSince + 1));
+            }
+            for (int daysAgo = metricDays - 1; daysAgo >= 0; daysAgo--) {
+                pendingQueries.add(new int[]{metric, daysAgo});
+            }
+            totalMetrics++;
+        }
+
+        chunkIndex = 0;
+        completedMetrics = 0;
+        metricRecords = 0;
+        currentQuery = null;
+        if (pendingQueries.isEmpty()) {
+            claimed.set(false);
+            eventDispatcher.dispatchHistoryProgress(EventCodec.TIMING_SYNC_PROGRESS, syncId, (byte) 0, 0,
+                    0, 0, HistorySync.PROGRESS_COMPLETE);
+            return;
+        }
+        active = true;
+        Log.d(TAG, "Starting timing pull " + syncId + ": " + pendingQueries.size() + " day queries");
+        queryNext();
+    }
+
+    // Restarts the latest pull; days already stored are skipped by the watermarks
+    void resume(CRPBleConnection connection) {
+        int resumedSyncId = claim();
+        if (resumedSyncId >= 0) {
+            start(resumedSyncId, connection, deviceAddress, requestedMetrics, requestedDays);
+        }
+    }
+
+    void cancel() {
+        if (!active) {
+            return;
+        }
+        cancelQueryTimeout();
+        pendingQueries.clear();
+        active = false;
+        connection = null;
+        claimed.set(false);
+        eventDispatcher.dispatchHistoryProgress(EventCodec.TIMING_SYNC_PROGRESS, syncId,
+                currentQuery != null ? (byte) currentQuery[0] : 0, metricRecords,
+                completedMetrics, totalMetrics, HistorySync.PROGRESS_COMPLETE | HistorySync.PROGRESS_METRIC_FAILED);
+        currentQuery = null;
+    }
+
+    // Called from the SDK timing listeners, for pulled days and unsolicited pushes alike
+    void onTiming(byte metric, CRPHistoryDay day, long dayStartMs, int intervalMinutes,
+                  List<Integer> slots) {
+        int count = slots != null ? slots.size() : 0;
+        float[] slotValues = new float[count];
+        for (int i = 0; i < count; i++) {
+            Integer value = slots.get(i);
+            slotValues[i] = value != null ? value : 0;
+        }
+        long[] timestamps = new long[count];
+        float[] stored = new float[count];
+        int kept = storeNew(metric, day, dayStartMs, intervalMinutes, slotValues, count, timestamps, stored);
+
+        int[] values = new int[kept];
+        for (int i = 0; i < kept; i++) {
+            values[i] = (int) stored[i];
+        }
+        for (int emitted = 0; emitted < kept; emitted += HistorySync.MAX_CHUNK_SIZE) {
+            int size = Math.min(HistorySync.MAX_CHUNK_SIZE, kept - emitted);
+            eventDispatcher.dispatchHistoryChunk(EventCodec.TIMING_CHUNK, metric, syncId, chunkIndex++,
+                    timestamps, values, emitted, size);
+        }
+        onDayAnswered(metric, day, kept);
+    }
+
+    /**
+     * Float variant for temperature days, pulled or pushed. The caller has
+     * already streamed the slots to Flutter; the samples newer than the last
+     * stored one are left in {@code timestamps} and {@code values}, which must
+     * hold {@code count} entries, and their number is returned.
+     */
+    int onTiming(byte metric, CRPHistoryDay day, long dayStartMs, int intervalMinutes,
+                 float[] slots, int count, long[] timestamps, float[] values) {
+        int kept = storeNew(metric, day, dayStartMs, intervalMinutes, slots, count, timestamps, values);
+        onDayAnswered(metric, day, kept);
+        return kept;
+    }
+
+    // Stores the slots after the metric's watermark that are not in the future and copies them out
+    private int storeNew(byte metric, CRPHistoryDay day, long dayStartMs, int intervalMinutes,
+                         float[] slots, int count, long[] timestamps, float[] values) {
+        int daysAgo = day != null ? day.getValue() : 0;
+        long start = dayStartMs > 0 ? dayStartMs : dayStartMs(daysAgo);
+        long stepMs = (intervalMinutes > 0 ? intervalMinutes : SLOT_MINUTES) * 60_000L;
+        long watermark = watermark(metric);
+        long now = System.currentTimeMillis();
+
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            float value = slots[i];
+            long timestamp = start + i * stepMs;
+            // 0 marks a slot the ring did not measure
+            if (!(value > 0) || timestamp <= watermark || timestamp > now) {
+                continue;
+            }
+            timestamps[kept] = timestamp;
+            values[kept] = value;
+            kept++;
+        }
+        Log.d(TAG, "Timing data for metric " + metric + ", day " + daysAgo + ": " + kept + " new samples");
+
+        if (kept > 0) {
+            if (store != null) {
+                for (int i = 0; i < kept; i++) {
+                    store.append(metric, timestamps[i], values[i]);
+                }
+            }
+            advanceWatermark(metric, timestamps[kept - 1]);
+        }
+        return kept;
+    }
+
+    private void onDayAnswered(byte metric, CRPHistoryDay day, int kept) {
+        int daysAgo = day != null ? day.getValue() : 0;
+        if (active && currentQuery != null && currentQuery[0] == metric && currentQuery[1] == daysAgo) {
+            metricRecords += kept;
+            finishQuery(0);
+        }
+    }
+
+    private long watermark(byte metric) {
+        long persisted = watermarks != null
+                ? watermarks.get(deviceAddress, (byte) (WATERMARK_SLOT_OFFSET + metric)) : 0;
+        return Math.max(persisted, storedThrough[metric]);
+    }
+
+    private void advanceWatermark(byte metric, long timestamp) {
+        storedThrough[metric] = Math.max(storedThrough[metric], timestamp);
+        if (watermarks == null) {
+            return;
+        }
+        long[] advanced = new long[WATERMARK_SLOTS];
+        advanced[WATERMARK_SLOT_OFFSET + metric] = timestamp;
+        if (!watermarks.advance(deviceAddress, advanced)) {
+            Log.e(TAG, "Failed to persist timing watermark for " + deviceAddress);
+        }
+    }
+
+    // Local midnight of the given day, matching the ring's day boundaries
+    private static long dayStartMs(int daysAgo) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_MONTH, -daysAgo);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private void finishQuery(int flags) {
+        cancelQueryTimeout();
+        byte metric = (byte) currentQuery[0];
+        int[] next = pendingQueries.peek();
+        boolean metricDone = next == null || next[0] != metric;
+        if (metricDone || flags != 0) {
+            if (flags != 0) {
+                // Later days of a failed metric would leave a gap behind the watermark
+                while (pendingQueries.peek() != null && pendingQueries.peek()[0] == metric) {
+                    pendingQueries.poll();
+                }
+            }
+            completedMetrics++;
+            boolean complete = pendingQueries.isEmpty();
+            eventDispatcher.dispatchHistoryProgress(EventCodec.TIMING_SYNC_PROGRESS, syncId, metric, metricRecords,
+                    completedMetrics, totalMetrics, flags | (complete ? HistorySync.PROGRESS_COMPLETE : 0));
+            metricRecords = 0;
+        }
+        currentQuery = null;
+        if (pendingQueries.isEmpty()) {
+            active = false;
+            connection = null;
+            claimed.set(false);
+            Log.d(TAG, "Timing pull " + syncId + " complete");
+        } else {
+            queryNext();
+        }
+    }
+
+    private void queryNext() {
+        currentQuery = pendingQueries.poll();
+        CRPHistoryDay day = CRPHistoryDay.values()[currentQuery[1]];
+        queryTimeout = timers.schedule(new Runnable() {
+            @Override
+            public void run() {
+                queryTimeout = null;
+                if (!active || currentQuery == null) {
+                    return;
+                }
+                Log.w(TAG, "Timing query timed out for metric " + currentQuery[0] + ", day " + currentQuery[1]);
+                finishQuery(HistorySync.PROGRESS_METRIC_FAILED);
+            }
+        }, QUERY_TIMEOUT_MS);
+        try {
+            switch (currentQuery[0]) {
+                case METRIC_HEART_RATE:
+                    connection.queryHistoryTimingHeartRate(day);
+                    break;
+                case METRIC_HRV:
+                    connection.queryHistoryTimingHrv(day);
+                    break;
+                case METRIC_BLOOD_OXYGEN:
+                    connection.queryHistoryTimingBloodOxygen(day);
+                    break;
+                case METRIC_TEMPERATURE:
+                    connection.queryHistoryTemp(day);
+                    break;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error querying timing data for metric " + currentQuery[0] + ": " + e.getMessage());
+            finishQuery(HistorySync.PROGRESS_METRIC_FAILED);
+        }
+    }
+
+    private void cancelQueryTimeout() {
+        if (queryTimeout != null) {
+            queryTimeout.cancel();
+            queryTimeout = null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Argument checks of {@link BackgroundCollection}, which guard both
+ * {@code startBackgroundCollection} and what a restarted service loads.
+ */
+public class BackgroundCollectionTest {
+    private static final List<String> RINGS = Arrays.asList("AA:BB:CC:DD:EE:01", "AA:BB:CC:DD:EE:02");
+
+    private static void assertRejected(long intervalMs, String measurement, List<String> addresses) {
+        try {
+            new BackgroundCollection(intervalMs, measurement, addresses, 0);
+            fail("accepted " + intervalMs + ", " + measurement + ", " + addresses);
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void acceptsEveryMeasurementWithinTheIntervalBounds() {
+        for (String measurement : new String[] {"full", "temperature", "heartRate", "hrv", "stress", "bloodOxygen"}) {
+            new BackgroundCollection(BackgroundCollection.MIN_INTERVAL_MS, measurement, RINGS, 0);
+            new BackgroundCollection(BackgroundCollection.MAX_INTERVAL_MS, measurement, RINGS, 0);
+        }
+    }
+
+    @Test
+    public void rejectsIntervalsOutsideTheBounds() {
+        assertRejected(BackgroundCollection.MIN_INTERVAL_MS - 1, "full", RINGS);
+        assertRejected(BackgroundCollection.MAX_INTERVAL_MS + 1, "full", RINGS);
+        assertRejected(0, "full", RINGS);
+    }
+
+    @Test
+    public void rejectsUnknownMeasurementsAndMissingOrUnstorableAddresses() {
+        assertRejected(BackgroundCollection.DEFAULT_INTERVAL_MS, "steps", RINGS);
+        assertRejected(BackgroundCollection.DEFAULT_INTERVAL_MS, "full", null);
+        assertRejected(BackgroundCollection.DEFAULT_INTERVAL_MS, "full", Collections.<String>emptyList());
+        assertRejected(BackgroundCollection.DEFAULT_INTERVAL_MS, "full", Arrays.asList("AA:BB", ""));
+        // Addresses are saved comma-separated
+        assertRejected(BackgroundCollection.DEFAULT_INTERVAL_MS, "full", Arrays.asList("AA:BB,CC:DD"));
+    }
+
+    @Test
+    public void keepsItsOwnCopyOfTheAddresses() {
+        List<String> addresses = new ArrayList<>(RINGS);
+        BackgroundCollection collection = new BackgroundCollection(BackgroundCollection.DEFAULT_INTERVAL_MS,
+                "hrv", addresses, 0);
+        addresses.clear();
+        assertEquals(RINGS, collection.addresses);
+    }
+}
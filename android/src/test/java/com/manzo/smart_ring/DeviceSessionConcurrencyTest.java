@@ -0,0 +1,193 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.crrepa.ble.conn.listener.CRPBleConnectionStateListener;
+import com.crrepa.ble.conn.listener.CRPHeartRateChangeListener;
+import com.crrepa.ble.conn.listener.CRPHrvChangeListener;
+import com.crrepa.ble.conn.listener.CRPStressChangeListener;
+
+/**
+ * Hammers a {@link DeviceSession} with SDK callbacks and method calls from many
+ * threads at once and checks that every callback is handled exactly once, on
+ * the worker thread, and that measurement status stays consistent and is
+ * only sent when it changes.
+ */
+public class DeviceSessionConcurrencyTest {
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+    private static final String WORKER_NAME = "SmartRingWorker";
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 500;
+
+    private final PluginMetrics metrics = new PluginMetrics();
+    private ScheduledThreadPoolExecutor worker;
+    private RingSimulator simulator;
+    private RingSimulator.Link link;
+    private DeviceSession session;
+
+    @Before
+    public void setUp() throws Exception {
+        worker = new ScheduledThreadPoolExecutor(1, runnable -> new Thread(runnable, WORKER_NAME));
+        simulator = new RingSimulator(new RingSimulator.Script().manual());
+        session = new DeviceSession(ADDRESS, 1, new EventDispatcher(metrics), null, null,
+                new MeasurementTimeouts(new MeasurementTimeouts.Policy()), metrics, new ReconnectPolicy(),
+                new RealtimeAggregator.Settings(),
+                new DeviceSession.Callback() {
+                    @Override
+                    public void onConnected(DeviceSession session) {
+                    }
+
+                    @Override
+                    public void onClosed(DeviceSession session) {
+                    }
+                }, worker, new TimerWheel(TimerWheel.SYSTEM_CLOCK, 250, 512, null));
+
+        session.connect(simulator.getBleDevice(ADDRESS));
+        link = simulator.links(ADDRESS).get(0);
+        link.reportState(CRPBleConnectionStateListener.STATE_CONNECTED);
+        drain();
+        assertTrue(session.isConnected());
+    }
+
+    @After
+    public void tearDown() {
+        worker.shutdownNow();
+        simulator.shutdown();
+    }
+
+    // Waits until every task queued so far has run on the worker
+    private void drain() throws Exception {
+        worker.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    private static void runConcurrently(int threads, final Runnable task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> started = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                task.run();
+            });
+            thread.start();
+            started.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : started) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void concurrentStartsClaimTheRingOnce() throws Exception {
+        final AtomicInteger accepted = new AtomicInteger();
+        runConcurrently(THREADS * 4, () -> {
+            if (session.startSingleMeasurement("heartRate", RetryPolicy.Plan.parse(1))) {
+                accepted.incrementAndGet();
+            }
+        });
+        drain();
+
+        assertEquals(1, accepted.get());
+        assertEquals(1, link.count("startMeasureHeartRate"));
+        assertEquals(DeviceSession.STATUS_HEART_RATE, session.measurementStatus());
+        assertFalse(session.startFullMeasurement(RetryPolicy.Plan.parse(1)));
+    }
+
+    @Test
+    public void statusIsSentOnlyWhenItChanges() throws Exception {
+        long sent = metrics.events(EventCodec.MEASUREMENT_STATUS);
+        assertTrue(session.startSingleMeasurement("heartRate", RetryPolicy.Plan.parse(1)));
+        drain();
+        assertEquals(sent + 1, metrics.events(EventCodec.MEASUREMENT_STATUS));
+
+        CRPHeartRateChangeListener heartRate = link.listener("setHeartRateChangeListener");
+        heartRate.onHeartRate(70);
+        drain();
+        assertEquals(0, session.measurementStatus());
+        assertEquals(sent + 2, metrics.events(EventCodec.MEASUREMENT_STATUS));
+
+        // Nothing is running, so stopping changes nothing and sends nothing
+        session.stopAllMeasurements();
+        session.stopAllMeasurements();
+        drain();
+        assertEquals(sent + 2, metrics.events(EventCodec.MEASUREMENT_STATUS));
+    }
+
+    @Test
+    public void callbacksFromManyThreadsAreHandledOnTheWorker() throws Exception {
+        CRPHeartRateChangeListener heartRate = link.listener("setHeartRateChangeListener");
+        CRPHrvChangeListener hrv = link.listener("setHrvChangeListener");
+        CRPStressChangeListener stress = link.listener("setStressChangeListener");
+        assertNotNull(heartRate);
+
+        runConcurrently(THREADS, () -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                heartRate.onHeartRate(70);
+                hrv.onHrv(45);
+                stress.onStressChange(30);
+                heartRate.onRealtimeHeartRate(71);
+                if (i % 50 == 0) {
+                    session.startSingleMeasurement("stress", RetryPolicy.Plan.parse(1));
+                    session.measurementStatus();
+                }
+            }
+        });
+        drain();
+
+        // Every result callback stops its measurement exactly once
+        assertEquals(THREADS * ROUNDS, link.count("stopMeasureHeartRate"));
+        assertEquals(THREADS * ROUNDS, link.count("stopMeasureHrv"));
+        assertEquals(THREADS * ROUNDS, link.count("stopMeasureStress"));
+        for (String thread : simulator.callThreads) {
+            assertEquals(WORKER_NAME, thread);
+        }
+
+        session.stopAllMeasurements();
+        drain();
+        assertFalse(session.isAnyMeasurementInProgress());
+        assertEquals(0, session.measurementStatus());
+    }
+
+    @Test
+    public void startAndStopFromManyThreadsLeaveConsistentStatus() throws Exception {
+        final String[] types = {"temperature", "heartRate", "hrv", "stress", "bloodOxygen"};
+        final AtomicInteger index = new AtomicInteger();
+        runConcurrently(THREADS, () -> {
+            int offset = index.getAndIncrement();
+            for (int i = 0; i < ROUNDS; i++) {
+                if ((i + offset) % 3 == 0) {
+                    session.stopAllMeasurements();
+                } else if ((i + offset) % 7 == 0) {
+                    session.startFullMeasurement(RetryPolicy.Plan.parse(1));
+                } else {
+                    session.startSingleMeasurement(types[(i + offset) % types.length], RetryPolicy.Plan.parse(1));
+                }
+            }
+        });
+        session.stopAllMeasurements();
+        drain();
+
+        assertFalse(session.isAnyMeasurementInProgress());
+        for (String thread : simulator.callThreads) {
+            assertEquals(WORKER_NAME, thread);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A {@link DeviceSession} whose link drops: backoff reconnects through the
+ * same device handle, resumes the interrupted measurement, and gives up after
+ * the policy's attempts.
+ */
+public class DeviceSessionReconnectTest {
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final PluginMetrics metrics = new PluginMetrics();
+    private final ReconnectPolicy policy = new ReconnectPolicy();
+    private final RingSimulator simulator = new RingSimulator(new RingSimulator.Script().manual());
+    private ScheduledThreadPoolExecutor worker;
+    private DeviceSession session;
+
+    @Before
+    public void setUp() {
+        worker = new ScheduledThreadPoolExecutor(1);
+        final TimerWheel[] timers = new TimerWheel[1];
+        timers[0] = new TimerWheel(TimerWheel.SYSTEM_CLOCK, 5, 64,
+                delayMs -> worker.schedule(() -> timers[0].advance(), delayMs, TimeUnit.MILLISECONDS));
+        session = new DeviceSession(ADDRESS, 1, new EventDispatcher(metrics), null, null,
+                new MeasurementTimeouts(new MeasurementTimeouts.Policy()), metrics, policy,
+                new RealtimeAggregator.Settings(),
+                new DeviceSession.Callback() {
+                    @Override
+                    public void onConnected(DeviceSession session) {
+                    }
+
+                    @Override
+                    public void onClosed(DeviceSession session) {
+                        closed.countDown();
+                    }
+                }, worker, timers[0]);
+    }
+
+    @After
+    public void tearDown() {
+        worker.shutdownNow();
+        simulator.shutdown();
+    }
+
+    private void drain() throws Exception {
+        worker.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    private List<RingSimulator.Link> connections() {
+        return simulator.links(ADDRESS);
+    }
+
+    private RingSimulator.Link awaitConnection(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (connections().size() < count) {
+            assertTrue("no reconnect attempt " + count, System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        drain();
+        return connections().get(count - 1);
+    }
+
+    private void connect() throws Exception {
+        session.connect(simulator.getBleDevice(ADDRESS));
+        awaitConnection(1).reportState(2);
+        drain();
+        assertTrue(session.isConnected());
+    }
+
+    @Test
+    public void reconnectsThroughTheSameHandleAndResumesTheMeasurement() throws Exception {
+        assertTrue(policy.configure(true, 10, 40, 5));
+        connect();
+        assertTrue(session.startSingleMeasurement("heartRate", RetryPolicy.Plan.parse(1)));
+        drain();
+        assertEquals(1, connections().get(0).count("startMeasureHeartRate"));
+
+        connections().get(0).reportState(0);
+        drain();
+        assertTrue(session.isReconnecting());
+        assertFalse(session.isAnyMeasurementInProgress());
+
+        RingSimulator.Link second = awaitConnection(2);
+        assertEquals(1, connections().get(0).count("close"));
+        second.reportState(2);
+        drain();
+        drain();
+
+        assertTrue(session.isConnected());
+        assertFalse(session.isReconnecting());
+        assertEquals(1, second.count("startMeasureHeartRate"));
+        assertEquals(DeviceSession.STATUS_HEART_RATE, session.measurementStatus());
+        assertEquals(1, metrics.histogram(PluginMetrics.RECONNECT).count());
+        assertEquals(1, metrics.counter(PluginMetrics.RECONNECT_ATTEMPTS));
+    }
+
+    @Test
+    public void givesUpAfterTheAllowedAttempts() throws Exception {
+        assertTrue(policy.configure(true, 5, 20, 3));
+        connect();
+
+        connections().get(0).reportState(0);
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            // Each attempt fails straight away
+            awaitConnection(attempt + 1).reportState(0);
+        }
+
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertFalse(session.isReconnecting());
+        assertEquals(4, connections().size());
+        assertEquals(3, metrics.counter(PluginMetrics.RECONNECT_ATTEMPTS));
+        assertEquals(1, metrics.counter(PluginMetrics.RECONNECT_FAILURES));
+    }
+
+    @Test
+    public void staysDownWhenAutoReconnectIsOff() throws Exception {
+        connect();
+        connections().get(0).reportState(0);
+        drain();
+        Thread.sleep(100);
+
+        assertFalse(session.isReconnecting());
+        assertEquals(1, connections().size());
+    }
+
+    @Test
+    public void userDisconnectDoesNotReconnect() throws Exception {
+        assertTrue(policy.configure(true, 5, 20, 3));
+        connect();
+        session.disconnect();
+        drain();
+        Thread.sleep(100);
+
+        assertTrue(closed.await(1, TimeUnit.SECONDS));
+        assertEquals(1, connections().size());
+    }
+}
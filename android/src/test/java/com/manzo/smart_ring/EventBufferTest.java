@@ -0,0 +1,214 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * {@link EventBuffer} policies: coalescing status and realtime values,
+ * dropping the oldest history and scan records, keeping results up to the
+ * keepAll limit, and rebinding a slot that changed rings while the buffer waited.
+ */
+public class EventBufferTest {
+    private static final String RING_A = "AA:BB:CC:DD:EE:01";
+    private static final String RING_B = "AA:BB:CC:DD:EE:02";
+    // Payload of every HISTORY_CHUNK record below
+    private static final int CHUNK_INTS = 100;
+
+    private final PluginMetrics metrics = new PluginMetrics();
+    private final EventBuffer buffer = new EventBuffer(metrics);
+    private long origin = 0;
+
+    private void add(byte type, int device, String address, int value, boolean listening) {
+        EventCodec codec = buffer.beginRecord(type, device, address, ++origin, 0, listening);
+        if (type == EventCodec.HISTORY_CHUNK) {
+            for (int i = 0; i < CHUNK_INTS; i++) {
+                codec.putInt(value);
+            }
+        } else {
+            codec.putInt(value);
+        }
+    }
+
+    // Drains the buffer as "type@address=value" strings, slot bindings applied
+    private List<String> drain() {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.drain()).order(ByteOrder.LITTLE_ENDIAN);
+        String[] addresses = new String[256];
+        List<String> records = new ArrayList<>();
+        while (bytes.hasRemaining()) {
+            int type = bytes.get();
+            int device = bytes.get() & 0xFF;
+            bytes.getLong();
+            if (type == EventCodec.DEVICE_SLOT) {
+                byte[] address = new byte[bytes.getShort()];
+                bytes.get(address);
+                addresses[device] = new String(address, StandardCharsets.UTF_8);
+                continue;
+            }
+            int value = bytes.getInt();
+            if (type == EventCodec.HISTORY_CHUNK) {
+                bytes.position(bytes.position() + 4 * (CHUNK_INTS - 1));
+            }
+            records.add(type + "@" + addresses[device] + "=" + value);
+        }
+        return records;
+    }
+
+    @Test
+    public void statusAndRealtimeKeepOnlyTheLatestPerRingWhileNobodyListens() {
+        for (int i = 0; i < 5; i++) {
+            add(EventCodec.MEASUREMENT_STATUS, 1, RING_A, i, false);
+            add(EventCodec.REALTIME_HEART_RATE, 1, RING_A, 60 + i, false);
+        }
+        add(EventCodec.MEASUREMENT_STATUS, 2, RING_B, 7, false);
+        add(EventCodec.HEART_RATE, 1, RING_A, 72, false);
+
+        assertEquals(4, buffer.liveEvents());
+        assertEquals(List.of("8@" + RING_A + "=4", "3@" + RING_A + "=64", "8@" + RING_B + "=7",
+                "2@" + RING_A + "=72"), drain());
+        assertEquals(4, metrics.counter(PluginMetrics.EVENTS_COALESCED + "status"));
+        assertEquals(4, metrics.counter(PluginMetrics.EVENTS_COALESCED + "realtime"));
+        assertEquals(0, metrics.counter(PluginMetrics.DROPPED_EVENTS));
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void aListenerKeepingUpGetsEverySample() {
+        for (int i = 0; i < 100; i++) {
+            add(EventCodec.REALTIME_HEART_RATE, 1, RING_A, i, true);
+        }
+        assertEquals(100, drain().size());
+        assertEquals(0, metrics.counter(PluginMetrics.EVENTS_COALESCED + "realtime"));
+    }
+
+    @Test
+    public void overflowDropsTheOldestHistoryButNeverResults() {
+        buffer.configure(EventBuffer.MIN_CAPACITY_BYTES, null);
+        add(EventCodec.HEART_RATE, 1, RING_A, -1, true);
+        int chunks = 100;
+        for (int i = 0; i < chunks; i++) {
+            add(EventCodec.HISTORY_CHUNK, 1, RING_A, i, true);
+        }
+        add(EventCodec.HEART_RATE, 1, RING_A, -2, true);
+
+        long dropped = metrics.counter(PluginMetrics.EVENTS_DROPPED + "history");
+        assertTrue("dropped " + dropped, dropped > 80);
+        assertEquals(dropped, metrics.counter(PluginMetrics.DROPPED_EVENTS));
+        // The records past capacity are the last one, just begun
+        assertTrue(buffer.liveBytes() <= EventBuffer.MIN_CAPACITY_BYTES + 10 + 4 * CHUNK_INTS);
+
+        List<String> records = drain();
+        assertEquals(chunks + 2 - dropped, records.size());
+        assertEquals("2@" + RING_A + "=-1", records.get(0));
+        assertEquals("21@" + RING_A + "=" + dropped, records.get(1));
+        assertEquals("21@" + RING_A + "=" + (chunks - 1), records.get(records.size() - 2));
+        assertEquals("2@" + RING_A + "=-2", records.get(records.size() - 1));
+    }
+
+    @Test
+    public void keepAllOutgrowsTheCapacityUpToItsLimit() {
+        buffer.configure(EventBuffer.MIN_CAPACITY_BYTES, Map.of("history", "keepAll"));
+        for (int i = 0; i < 15; i++) {
+            add(EventCodec.HISTORY_CHUNK, 1, RING_A, i, false);
+        }
+        assertEquals(15, buffer.liveEvents());
+        assertTrue(buffer.liveBytes() > EventBuffer.MIN_CAPACITY_BYTES);
+        assertEquals(0, metrics.counter(PluginMetrics.DROPPED_EVENTS));
+
+        for (int i = 15; i < 100; i++) {
+            add(EventCodec.HISTORY_CHUNK, 1, RING_A, i, false);
+        }
+        long dropped = metrics.counter(PluginMetrics.EVENTS_DROPPED + "history");
+        assertTrue("dropped " + dropped, dropped > 70);
+        assertTrue(buffer.liveBytes()
+                <= EventBuffer.MIN_CAPACITY_BYTES * EventBuffer.KEEP_ALL_LIMIT + 10 + 4 * CHUNK_INTS);
+        List<String> records = drain();
+        assertEquals("21@" + RING_A + "=" + dropped, records.get(0));
+        assertEquals("21@" + RING_A + "=99", records.get(records.size() - 1));
+    }
+
+    @Test
+    public void seriesPushedWithNobodyListeningStayBounded() {
+        buffer.configure(EventBuffer.MIN_CAPACITY_BYTES, null);
+        // A day of background collection: timed temperature series and their trend, a result now and then
+        for (int i = 0; i < 10_000; i++) {
+            add(EventCodec.TEMPERATURE_SERIES, 1, RING_A, i, false);
+            add(EventCodec.TEMPERATURE_TREND, 1, RING_A, i, false);
+            if (i % 1_000 == 0) {
+                add(EventCodec.BODY_TEMPERATURE, 1, RING_A, i, false);
+            }
+        }
+        assertTrue(buffer.liveBytes() <= EventBuffer.MIN_CAPACITY_BYTES + 100);
+        assertTrue(metrics.counter(PluginMetrics.EVENTS_DROPPED + "history") > 9_000);
+        assertEquals(9_999, metrics.counter(PluginMetrics.EVENTS_COALESCED + "status"));
+
+        List<String> records = drain();
+        assertEquals(10, records.stream().filter(record -> record.startsWith("1@")).count());
+        assertTrue(records.contains("30@" + RING_A + "=9999"));
+    }
+
+    @Test
+    public void longWaitsStayBoundedAndInOrder() {
+        buffer.configure(EventBuffer.MIN_CAPACITY_BYTES, null);
+        // Hours of realtime samples, scan results and a result now and then with nobody listening
+        for (int i = 0; i < 100_000; i++) {
+            add(EventCodec.REALTIME_HEART_RATE, 1, RING_A, i, false);
+            add(EventCodec.DEVICE_SCANNED, EventCodec.NO_DEVICE, null, i, false);
+            if (i % 10_000 == 0) {
+                add(EventCodec.HRV, 1, RING_A, i, false);
+            }
+        }
+        assertTrue(buffer.liveBytes() <= EventBuffer.MIN_CAPACITY_BYTES + 100);
+
+        List<String> records = drain();
+        List<String> results = new ArrayList<>();
+        int lastScan = -1;
+        for (String record : records) {
+            int value = Integer.parseInt(record.substring(record.indexOf('=') + 1));
+            if (record.startsWith("4@")) {
+                results.add(record);
+            } else if (record.startsWith("10@")) {
+                assertTrue(value > lastScan);
+                lastScan = value;
+            }
+        }
+        assertEquals(10, results.size());
+        assertEquals(99_999, lastScan);
+        assertTrue(records.contains("3@" + RING_A + "=99999"));
+    }
+
+    @Test
+    public void aSlotTakenOverByAnotherRingIsBoundAgain() {
+        add(EventCodec.HEART_RATE, 1, RING_A, 70, false);
+        add(EventCodec.HEART_RATE, 1, RING_B, 80, false);
+        add(EventCodec.HEART_RATE, 1, RING_B, 81, false);
+
+        assertEquals(List.of("2@" + RING_A + "=70", "2@" + RING_B + "=80", "2@" + RING_B + "=81"), drain());
+    }
+
+    @Test
+    public void configureRejectsUnknownNamesAndCapacitiesOutOfRange() {
+        for (Runnable configure : new Runnable[] {
+                () -> buffer.configure(EventBuffer.MIN_CAPACITY_BYTES - 1, null),
+                () -> buffer.configure(EventBuffer.MAX_CAPACITY_BYTES + 1, null),
+                () -> buffer.configure(EventBuffer.DEFAULT_CAPACITY_BYTES, Map.of("steps", "keepAll")),
+                () -> buffer.configure(EventBuffer.DEFAULT_CAPACITY_BYTES, Map.of("status", "dropNewest"))}) {
+            try {
+                configure.run();
+                fail("accepted");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        assertEquals("coalesceLatest", buffer.policies().get("status"));
+        assertEquals(EventBuffer.DEFAULT_CAPACITY_BYTES, buffer.capacityBytes());
+    }
+}
@@ -0,0 +1,63 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * {@link MeasurementScheduler} lanes: the PPG steps run one after another next
+ * to temperature, and only the running step of a lane can finish.
+ */
+public class MeasurementSchedulerTest {
+    @Test
+    public void lanesRunSideBySideAndStepsBackToBack() {
+        MeasurementScheduler plan = new MeasurementScheduler(Set.of());
+        assertEquals(List.of("temperature", "hrv"), plan.start());
+
+        assertNull(plan.onFinished("temperature", true));
+        assertEquals("heartRate", plan.onFinished("hrv", true));
+        assertEquals("stress", plan.onFinished("heartRate", false));
+        assertEquals("bloodOxygen", plan.onFinished("stress", true));
+        assertFalse(plan.isComplete());
+        assertNull(plan.onFinished("bloodOxygen", true));
+
+        assertTrue(plan.isComplete());
+        assertEquals(5, plan.completedSteps());
+        assertEquals(4, plan.succeededSteps());
+    }
+
+    @Test
+    public void duplicateAndOutOfOrderResultsAreIgnored() {
+        MeasurementScheduler plan = new MeasurementScheduler(Set.of("stress"));
+        plan.start();
+
+        // Not started yet: must not start a second PPG step or count
+        assertFalse(plan.isRunning("heartRate"));
+        assertNull(plan.onFinished("heartRate", true));
+        // A failed critical step that is not running cannot abort the plan
+        assertNull(plan.onFinished("stress", false));
+        assertEquals(0, plan.completedSteps());
+        assertFalse(plan.isAborted());
+
+        assertEquals("heartRate", plan.onFinished("hrv", true));
+        // The same result a second time
+        assertNull(plan.onFinished("hrv", true));
+        assertNull(plan.onFinished("temperature", true));
+        assertNull(plan.onFinished("temperature", true));
+        assertEquals(2, plan.completedSteps());
+        assertTrue(plan.isRunning("heartRate"));
+
+        assertEquals("stress", plan.onFinished("heartRate", true));
+        assertEquals("bloodOxygen", plan.onFinished("stress", true));
+        assertNull(plan.onFinished("bloodOxygen", true));
+        assertTrue(plan.isComplete());
+        assertEquals(5, plan.completedSteps());
+        assertEquals(5, plan.succeededSteps());
+    }
+}
@@ -0,0 +1,114 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * {@link LatencyHistogram} bucketing and {@link MeasurementTimeouts} deriving
+ * clamped percentile timeouts from it.
+ */
+public class MeasurementTimeoutsTest {
+
+    @Test
+    public void bucketsGrowByAQuarterOctaveAndNeverUnderstate() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(0, LatencyHistogram.bucketOf(100));
+        assertEquals(4, LatencyHistogram.bucketOf(200));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE / 2));
+        for (long latency = 101; latency < 300_000; latency = latency * 11 / 10) {
+            assertTrue("bucket too small for " + latency,
+                    LatencyHistogram.upperBoundMs(LatencyHistogram.bucketOf(latency)) >= latency);
+        }
+    }
+
+    @Test
+    public void percentileIsTheUpperBoundOfItsBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentileMs(0.99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(20_000);
+        }
+        histogram.record(60_000);
+
+        long p50 = histogram.percentileMs(0.5);
+        assertTrue(p50 >= 20_000 && p50 < 20_000 * 1.2);
+        assertEquals(p50, histogram.percentileMs(0.99));
+        assertTrue(histogram.percentileMs(1.0) >= 60_000);
+    }
+
+    @Test
+    public void countsDecaySoOldSamplesFade() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 1_000; i++) {
+            histogram.record(60_000);
+        }
+        for (int i = 0; i < 6_000; i++) {
+            histogram.record(10_000);
+        }
+        assertTrue(histogram.total() < 1_024);
+        assertTrue(histogram.percentileMs(0.99) < 15_000);
+    }
+
+    @Test
+    public void usesTheCeilingUntilThereAreEnoughSamples() {
+        MeasurementTimeouts timeouts = new MeasurementTimeouts(new MeasurementTimeouts.Policy());
+        for (int i = 0; i < MeasurementTimeouts.MIN_SAMPLES - 1; i++) {
+            timeouts.record("heartRate", 20_000);
+        }
+        assertEquals(MeasurementTimeouts.DEFAULT_MAX_TIMEOUT_MS, timeouts.timeoutMs("heartRate"));
+
+        timeouts.record("heartRate", 20_000);
+        long timeout = timeouts.timeoutMs("heartRate");
+        assertTrue(timeout >= 20_000 && timeout < 25_000);
+        // Other types are unaffected
+        assertEquals(MeasurementTimeouts.DEFAULT_MAX_TIMEOUT_MS, timeouts.timeoutMs("hrv"));
+    }
+
+    @Test
+    public void timeoutsAreClampedToThePolicy() {
+        MeasurementTimeouts.Policy policy = new MeasurementTimeouts.Policy();
+        MeasurementTimeouts timeouts = new MeasurementTimeouts(policy);
+        for (int i = 0; i < 20; i++) {
+            timeouts.record("temperature", 1_000);
+            timeouts.record("stress", 300_000);
+        }
+        assertEquals(MeasurementTimeouts.DEFAULT_MIN_TIMEOUT_MS, timeouts.timeoutMs("temperature"));
+        assertEquals(MeasurementTimeouts.DEFAULT_MAX_TIMEOUT_MS, timeouts.timeoutMs("stress"));
+
+        assertTrue(policy.configure(0.9, 500, 120_000));
+        assertTrue(timeouts.timeoutMs("temperature") < 1_200);
+        assertEquals(120_000, timeouts.timeoutMs("stress"));
+    }
+
+    @Test
+    public void rejectsNonsensePolicies() {
+        MeasurementTimeouts.Policy policy = new MeasurementTimeouts.Policy();
+        assertFalse(policy.configure(0, 1_000, 2_000));
+        assertFalse(policy.configure(1.5, 1_000, 2_000));
+        assertFalse(policy.configure(0.9, 0, 2_000));
+        assertFalse(policy.configure(0.9, 3_000, 2_000));
+        assertEquals(MeasurementTimeouts.DEFAULT_PERCENTILE, policy.percentile(), 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void snapshotListsOnlyNonEmptyBuckets() {
+        MeasurementTimeouts timeouts = new MeasurementTimeouts(new MeasurementTimeouts.Policy());
+        timeouts.record("bloodOxygen", 30_000);
+        timeouts.record("bloodOxygen", 30_000);
+        timeouts.record("bloodOxygen", 45_000);
+
+        Map<String, Object> snapshot = timeouts.snapshot();
+        assertEquals(5, snapshot.size());
+        Map<String, Object> stats = (Map<String, Object>) snapshot.get("bloodOxygen");
+        assertEquals(3L, stats.get("samples"));
+        assertEquals(2, ((List<?>) stats.get("bucketCounts")).size());
+        assertEquals(MeasurementTimeouts.DEFAULT_MAX_TIMEOUT_MS, stats.get("timeoutMs"));
+    }
+}
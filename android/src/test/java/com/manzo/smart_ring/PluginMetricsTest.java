@@ -0,0 +1,90 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * {@link PluginMetrics} histogram precision and lock-free recording from many
+ * threads.
+ */
+public class PluginMetricsTest {
+
+    @Test
+    public void bucketsAreExactAtFirstThenWithinSixPercent() {
+        for (long micros = 0; micros < 16; micros++) {
+            assertEquals(micros, PluginMetrics.Histogram.upperBoundMicros(PluginMetrics.Histogram.bucketOf(micros)));
+        }
+        int previous = -1;
+        for (long micros = 16; micros < 1L << 40; micros = micros * 9 / 8 + 1) {
+            int bucket = PluginMetrics.Histogram.bucketOf(micros);
+            long upper = PluginMetrics.Histogram.upperBoundMicros(bucket);
+            assertTrue("bucket too small for " + micros, upper >= micros);
+            assertTrue("bucket too wide for " + micros, upper <= micros * 1.0625 + 1);
+            assertTrue(bucket > previous);
+            previous = bucket;
+        }
+        assertEquals(PluginMetrics.Histogram.BUCKETS - 1, PluginMetrics.Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesAndMaxOfAKnownDistribution() {
+        PluginMetrics.Histogram histogram = new PluginMetrics.Histogram();
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i * 1_000L); // 1 ms to 1 s
+        }
+        assertEquals(1_000, histogram.count());
+        assertEquals(500_000, histogram.percentileMicros(0.5), 500_000 * 0.0625);
+        assertEquals(990_000, histogram.percentileMicros(0.99), 990_000 * 0.0625);
+        // Never beyond the largest value seen
+        assertEquals(1_000_000, histogram.percentileMicros(1.0));
+
+        Map<String, Object> stats = histogram.snapshot();
+        assertEquals(500.5, (Double) stats.get("meanMs"), 0.001);
+        assertEquals(1_000.0, (Double) stats.get("maxMs"), 0.001);
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileMicros(0.5));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void concurrentRecordingLosesNothing() throws InterruptedException {
+        final PluginMetrics metrics = new PluginMetrics();
+        final int threads = 8;
+        final int rounds = 10_000;
+        List<Thread> started = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    metrics.increment(PluginMetrics.RETRIES + "heartRate");
+                    metrics.recordNanos(PluginMetrics.DISPATCH, (i % 100) * 1_000_000L);
+                    metrics.countEvent(EventCodec.HEART_RATE);
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+        for (Thread thread : started) {
+            thread.join();
+        }
+
+        assertEquals(threads * rounds, metrics.counter(PluginMetrics.RETRIES + "heartRate"));
+        assertEquals(threads * rounds, metrics.histogram(PluginMetrics.DISPATCH).count());
+        Map<String, Object> snapshot = metrics.snapshot();
+        Map<Integer, Long> events = (Map<Integer, Long>) snapshot.get("eventsByType");
+        assertEquals(Long.valueOf(threads * rounds), events.get((int) EventCodec.HEART_RATE));
+        Map<String, Object> dispatch =
+                (Map<String, Object>) ((Map<String, Object>) snapshot.get("histograms")).get(PluginMetrics.DISPATCH);
+        assertEquals(99.0, (Double) dispatch.get("maxMs"), 0.001);
+
+        metrics.reset();
+        assertEquals(0, metrics.counter(PluginMetrics.RETRIES + "heartRate"));
+    }
+}
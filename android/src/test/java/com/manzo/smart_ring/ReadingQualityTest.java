@@ -0,0 +1,72 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * {@link ReadingQuality} scoring results against recent realtime samples and
+ * accepted results, rejecting outliers and letting confirmed changes through.
+ */
+public class ReadingQualityTest {
+    private final ReadingQuality quality = new ReadingQuality();
+
+    @Test
+    public void resultsWithoutAReferenceScoreOne() {
+        assertEquals(1, quality.scoreResult("heartRate", 0, 180), 0);
+        assertEquals(1, quality.scoreResult("bloodOxygen", 0, 97), 0);
+        assertEquals(1, quality.scoreResult("unknown", 0, 5), 0);
+    }
+
+    @Test
+    public void resultIsScoredAgainstTheRealtimeSamples() {
+        int[] samples = {68, 71, 70, 72, 69, 70};
+        for (int i = 0; i < samples.length; i++) {
+            assertTrue(quality.acceptRealtime("heartRate", i * 1000, samples[i]));
+        }
+
+        assertTrue(quality.scoreResult("heartRate", 6000, 71) > 0.95);
+        assertTrue(quality.scoreResult("heartRate", 6000, 84) < 0.95);
+        assertTrue(quality.scoreResult("heartRate", 6000, 140) < ReadingQuality.ACCEPT_SCORE);
+        // The samples are too old to judge by
+        assertEquals(1, quality.scoreResult("heartRate", 60_000, 140), 0);
+    }
+
+    @Test
+    public void jumpFromRecentResultsIsRejectedUntilARetryConfirmsIt() {
+        for (int i = 0; i < 4; i++) {
+            quality.scoreResult("bloodOxygen", i * 60_000, 97 + i % 2);
+        }
+        assertTrue(quality.scoreResult("bloodOxygen", 300_000, 98) > 0.9);
+
+        assertTrue(quality.scoreResult("bloodOxygen", 310_000, 82) < ReadingQuality.ACCEPT_SCORE);
+        // A different outlier does not confirm it
+        assertTrue(quality.scoreResult("bloodOxygen", 320_000, 75) < ReadingQuality.ACCEPT_SCORE);
+        assertEquals(ReadingQuality.ACCEPT_SCORE, quality.scoreResult("bloodOxygen", 330_000, 76), 0);
+    }
+
+    @Test
+    public void acceptedResultsExpire() {
+        for (int i = 0; i < 5; i++) {
+            quality.scoreResult("stress", i * 1000, 20);
+        }
+        assertTrue(quality.scoreResult("stress", 10_000, 100) < ReadingQuality.ACCEPT_SCORE);
+        assertEquals(1, quality.scoreResult("stress", 10_000 + ReadingQuality.ACCEPTED_MAX_AGE_MS + 5000, 100), 0);
+    }
+
+    @Test
+    public void realtimeSpikesAreDroppedButStepsGetThrough() {
+        long nowMs = 0;
+        for (int i = 0; i < 8; i++) {
+            assertTrue(quality.acceptRealtime("heartRate", nowMs += 1000, 70 + i % 3));
+        }
+        assertFalse(quality.acceptRealtime("heartRate", nowMs += 1000, 150));
+        assertTrue(quality.acceptRealtime("heartRate", nowMs += 1000, 71));
+
+        // Started running: the first sample is held back, the one confirming it passes
+        assertFalse(quality.acceptRealtime("heartRate", nowMs += 1000, 120));
+        assertTrue(quality.acceptRealtime("heartRate", nowMs += 1000, 122));
+    }
+}
@@ -0,0 +1,94 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * {@link RealtimeAggregator} forwarding, decimating and summarising realtime
+ * heart rate per window.
+ */
+public class RealtimeAggregatorTest {
+    private final RealtimeAggregator.Settings settings = new RealtimeAggregator.Settings();
+    private final List<String> emitted = new ArrayList<>();
+    private final RealtimeAggregator aggregator = new RealtimeAggregator(settings, new RealtimeAggregator.Sink() {
+        @Override
+        public void onSample(int value) {
+            emitted.add("sample " + value);
+        }
+
+        @Override
+        public void onWindow(int count, int min, int max, float mean, int last, long durationMs) {
+            emitted.add("window " + count + " " + min + "/" + max + "/" + mean + "/" + last + " " + durationMs);
+        }
+    });
+
+    @Test
+    public void rawForwardsEverySample() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(-1, aggregator.add(i * 20, 60 + i));
+        }
+        assertEquals(List.of("sample 60", "sample 61", "sample 62", "sample 63", "sample 64"), emitted);
+    }
+
+    @Test
+    public void decimateForwardsOneSamplePerWindow() {
+        assertTrue(settings.configure(RealtimeAggregator.MODE_DECIMATE, 1000));
+        for (int i = 0; i < 50; i++) {
+            aggregator.add(i * 100, 60 + i);
+        }
+        assertEquals(5, emitted.size());
+        assertEquals(List.of("sample 60", "sample 70", "sample 80", "sample 90", "sample 100"), emitted);
+    }
+
+    @Test
+    public void windowSummarisesAndClosesOnTheTimerOrTheNextSample() {
+        assertTrue(settings.configure(RealtimeAggregator.MODE_WINDOW, 1000));
+        assertEquals(1000, aggregator.add(0, 70));
+        assertEquals(-1, aggregator.add(300, 64));
+        assertEquals(-1, aggregator.add(600, 80));
+        assertTrue(emitted.isEmpty());
+
+        // The timer fired a little early
+        assertEquals(10, aggregator.closeIfDue(990));
+        assertEquals(0, aggregator.closeIfDue(1000));
+        assertEquals(List.of("window 3 64/80/71.333336/80 1000"), emitted);
+
+        // No timer: the first sample after the window closes it and opens the next
+        assertEquals(1000, aggregator.add(5000, 90));
+        assertEquals(1000, aggregator.add(6200, 91));
+        assertEquals("window 1 90/90/90.0/90 1000", emitted.get(1));
+        assertEquals(0, aggregator.closeIfDue(7200));
+        assertEquals(3, emitted.size());
+    }
+
+    @Test
+    public void crowdedWindowCountsEverySampleButStaysBounded() {
+        assertTrue(settings.configure(RealtimeAggregator.MODE_WINDOW, 60000));
+        int samples = RealtimeAggregator.CAPACITY * 4;
+        for (int i = 0; i < samples; i++) {
+            // The first samples, lost to the ring buffer, are the extreme ones
+            aggregator.add(i, i < samples - RealtimeAggregator.CAPACITY ? 200 : 60 + i % 2);
+        }
+        aggregator.flush(samples);
+        assertEquals(List.of("window " + samples + " 60/61/60.5/61 " + samples), emitted);
+    }
+
+    @Test
+    public void changingSettingsFlushesTheOpenWindow() {
+        assertTrue(settings.configure(RealtimeAggregator.MODE_WINDOW, 1000));
+        aggregator.add(0, 70);
+        aggregator.add(400, 72);
+        assertTrue(settings.configure(RealtimeAggregator.MODE_RAW, 1000));
+        aggregator.add(500, 74);
+
+        assertEquals(List.of("window 2 70/72/71.0/72 500", "sample 74"), emitted);
+        assertFalse(settings.configure(RealtimeAggregator.MODE_WINDOW, 10));
+        assertFalse(settings.configure(7, 1000));
+    }
+}
@@ -0,0 +1,103 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * {@link RetryPolicy} backoff and {@link RetryPolicy.Plan} parsing of the
+ * {@code attempts} argument.
+ */
+public class RetryPolicyTest {
+    private final Random random = new Random(42);
+
+    @Test
+    public void legacyCountKeepsFixedTwoSecondRetries() {
+        assertSame(RetryPolicy.Plan.DEFAULT, RetryPolicy.Plan.parse(null));
+        assertSame(RetryPolicy.Plan.DEFAULT, RetryPolicy.Plan.parse(0));
+
+        RetryPolicy.Plan plan = RetryPolicy.Plan.parse(3);
+        RetryPolicy policy = plan.policy("hrv");
+        assertEquals(3, policy.retries);
+        assertEquals(2000, policy.delayMs(1, random));
+        assertEquals(2000, policy.delayMs(3, random));
+        assertEquals(Set.of("heartRate"), plan.criticalSteps);
+        assertEquals(RetryPolicy.Plan.UNLIMITED_BUDGET_MS, plan.budgetMs);
+    }
+
+    @Test
+    public void exponentialBackoffDoublesUpToTheCeilingWithJitterInItsUpperHalf() {
+        RetryPolicy policy = new RetryPolicy(10, true, 500, 8000, false, RetryPolicy.ANY_RSSI);
+        assertEquals(500, policy.delayMs(1, random));
+        assertEquals(1000, policy.delayMs(2, random));
+        assertEquals(8000, policy.delayMs(5, random));
+        assertEquals(8000, policy.delayMs(200, random));
+
+        RetryPolicy jittered = new RetryPolicy(10, true, 500, 8000, true, RetryPolicy.ANY_RSSI);
+        for (int retry = 1; retry < 100; retry++) {
+            long ceiling = Math.min(8000, retry < 20 ? 500L << (retry - 1) : 8000);
+            long delay = jittered.delayMs(retry, random);
+            assertTrue(delay >= ceiling / 2 && delay <= ceiling);
+        }
+    }
+
+    @Test
+    public void mapSetsDefaultsPerTypeOverridesBudgetAndCriticalSteps() {
+        RetryPolicy.Plan plan = RetryPolicy.Plan.parse(Map.of(
+                "attempts", 4,
+                "backoff", "exponential",
+                "delayMs", 1000,
+                "jitter", true,
+                "budgetMs", 60000,
+                "critical", List.of("heartRate", "bloodOxygen"),
+                "types", Map.of("temperature", Map.of("attempts", 1, "backoff", "fixed", "minRssi", -75))));
+
+        RetryPolicy hrv = plan.policy("hrv");
+        assertEquals(4, hrv.retries);
+        assertTrue(hrv.exponential);
+        assertTrue(hrv.jitter);
+        assertEquals(RetryPolicy.DEFAULT_MAX_DELAY_MS, hrv.maxDelayMs);
+        assertEquals(RetryPolicy.ANY_RSSI, hrv.minRssi);
+
+        // Overrides inherit what they leave out
+        RetryPolicy temperature = plan.policy("temperature");
+        assertEquals(1, temperature.retries);
+        assertFalse(temperature.exponential);
+        assertEquals(1000, temperature.delayMs);
+        assertTrue(temperature.jitter);
+        assertEquals(-75, temperature.minRssi);
+
+        assertEquals(60000, plan.budgetMs);
+        assertEquals(Set.of("heartRate", "bloodOxygen"), plan.criticalSteps);
+    }
+
+    @Test
+    public void malformedMapsAreRejected() {
+        Object[] malformed = {
+                "two",
+                Map.of("backoff", "linear"),
+                Map.of("attempts", -1),
+                Map.of("delayMs", 5000, "maxDelayMs", 1000),
+                Map.of("budgetMs", 0),
+                Map.of("critical", List.of("steps")),
+                Map.of("types", Map.of("pulse", Map.of())),
+        };
+        for (Object attempts : malformed) {
+            try {
+                RetryPolicy.Plan.parse(attempts);
+                fail("accepted " + attempts);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+}
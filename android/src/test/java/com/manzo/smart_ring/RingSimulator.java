@@ -0,0 +1,413 @@
+package com.manzo.smart_ring;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.crrepa.ble.conn.CRPBleConnection;
+import com.crrepa.ble.conn.CRPBleDevice;
+import com.crrepa.ble.conn.bean.CRPHistoryTempInfo;
+import com.crrepa.ble.conn.listener.CRPBatteryListener;
+import com.crrepa.ble.conn.listener.CRPBleConnectionStateListener;
+import com.crrepa.ble.conn.listener.CRPBloodOxygenChangeListener;
+import com.crrepa.ble.conn.listener.CRPDeviceRssiListener;
+import com.crrepa.ble.conn.listener.CRPHeartRateChangeListener;
+import com.crrepa.ble.conn.listener.CRPHrvChangeListener;
+import com.crrepa.ble.conn.listener.CRPStressChangeListener;
+import com.crrepa.ble.conn.listener.CRPTempChangeListener;
+import com.crrepa.ble.conn.type.CRPHistoryDay;
+
+/**
+ * Simulated rings behind the part of the SDK the plugin uses: connecting, the
+ * measurement start and stop calls with their listeners, and RSSI and battery
+ * reads. Each answer comes from the simulator's own radio threads after a
+ * scripted latency, as SDK callbacks do. A {@link Script} can also lose
+ * results, drop the link instead of answering, and {@link #burst} pushes
+ * realtime heart rate from several threads as fast as they go;
+ * {@link #pushTimedTemperature} stands in for the ring's timed sampling, whose
+ * days the rings also hand back to {@code queryHistoryTemp}, and
+ * {@link #dropLink} for a ring walking out of range.
+ *
+ * <p>With a {@link Script#manual} script the rings neither connect nor answer
+ * on their own: the test drives each {@link Link} through its listeners.
+ */
+final class RingSimulator implements SmartRingPlugin.DeviceSource {
+    /** How every ring behaves; set up before the simulator is built. */
+    static final class Script {
+        long connectLatencyMs = 5;
+        long minLatencyMs = 1;
+        long maxLatencyMs = 5;
+        double lossRate = 0; // measurement never answers
+        double dropoutRate = 0; // link drops instead of answering
+        int rssi = -60;
+        long seed = 1;
+        boolean manual = false; // links wait for the test to report states and results
+
+        Script latency(long minMs, long maxMs) {
+            minLatencyMs = minMs;
+            maxLatencyMs = maxMs;
+            return this;
+        }
+
+        Script loss(double rate) {
+            lossRate = rate;
+            return this;
+        }
+
+        Script dropouts(double rate) {
+            dropoutRate = rate;
+            return this;
+        }
+
+        Script manual() {
+            manual = true;
+            return this;
+        }
+    }
+
+    private final Script script;
+    private final Random random;
+    private final ScheduledThreadPoolExecutor radio;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    // Across all rings
+    final AtomicInteger connects = new AtomicInteger();
+    final AtomicInteger dropouts = new AtomicInteger();
+    final AtomicInteger lost = new AtomicInteger();
+    final AtomicLong results = new AtomicLong();
+    // Thread of every SDK call made on a link
+    final Queue<String> callThreads = new ConcurrentLinkedQueue<>();
+
+    RingSimulator(Script script) {
+        this.script = script;
+        random = new Random(script.seed);
+        radio = new ScheduledThreadPoolExecutor(2, runnable -> new Thread(runnable, "RingRadio"));
+    }
+
+    @Override
+    public CRPBleDevice getBleDevice(String address) {
+        Ring ring = rings.computeIfAbsent(address, Ring::new);
+        return (CRPBleDevice) Proxy.newProxyInstance(CRPBleDevice.class.getClassLoader(),
+                new Class<?>[]{CRPBleDevice.class}, ring);
+    }
+
+    /** Every link connect() opened to the ring, oldest first. */
+    List<Link> links(String address) {
+        Ring ring = rings.get(address);
+        return ring != null ? ring.links : List.of();
+    }
+
+    /** Calls made on the links of every ring, by SDK method name. */
+    int calls(String method) {
+        int total = 0;
+        for (Ring ring : rings.values()) {
+            AtomicInteger count = ring.calls.get(method);
+            total += count != null ? count.get() : 0;
+        }
+        return total;
+    }
+
+    /** Delivers samples realtime heart rate readings to the ring's current link from threads threads at once. */
+    void burst(String address, int samples, int threads) throws InterruptedException {
+        final Link link = rings.get(address).link;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> started = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final int share = samples / threads + (i < samples % threads ? 1 : 0);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                CRPHeartRateChangeListener listener = link.listener("setHeartRateChangeListener");
+                for (int j = 0; j < share; j++) {
+                    listener.onRealtimeHeartRate(70 + (j & 3));
+                }
+            }, "RingRadioBurst");
+            thread.start();
+            started.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : started) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Records a day of the ring's own timed temperature sampling, one value per
+     * 5-minute slot with 0 for unmeasured ones, for {@code queryHistoryTemp} to hand back.
+     */
+    void recordTimedTemperature(String address, CRPHistoryDay day, Float... slots) {
+        rings.get(address).temperatureDays.put(day, Arrays.asList(slots));
+    }
+
+    /** Records a day of timed temperature slots and pushes it with no measurement asked for. */
+    void pushTimedTemperature(String address, CRPHistoryDay day, Float... slots) {
+        recordTimedTemperature(address, day, slots);
+        final Link link = rings.get(address).link;
+        radio.execute(() -> ((CRPTempChangeListener) link.listener("setTempChangeListener")).onHistoryTempChange(
+                new CRPHistoryTempInfo(day, Arrays.asList(slots))));
+    }
+
+    /** Drops the ring's current link, as walking out of range does. */
+    void dropLink(String address) {
+        final Link link = rings.get(address).link;
+        radio.execute(link::drop);
+    }
+
+    void shutdown() {
+        radio.shutdownNow();
+    }
+
+    private long latencyMs() {
+        return script.minLatencyMs + (long) (random.nextDouble() * (script.maxLatencyMs - script.minLatencyMs + 1));
+    }
+
+    /** One address; every connect() opens a new link. */
+    private final class Ring implements InvocationHandler {
+        final String address;
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final List<Link> links = new CopyOnWriteArrayList<>();
+        // Timed temperature slots recorded per day
+        final Map<CRPHistoryDay, List<Float>> temperatureDays = new ConcurrentHashMap<>();
+        volatile Link link;
+
+        Ring(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "connect":
+                    connects.incrementAndGet();
+                    link = new Link(this);
+                    links.add(link);
+                    return Proxy.newProxyInstance(CRPBleConnection.class.getClassLoader(),
+                            new Class<?>[]{CRPBleConnection.class}, link);
+                case "getAddress":
+                    return address;
+                case "isConnected":
+                    Link current = link;
+                    return current != null && current.connected;
+                default:
+                    return defaultValue(method);
+            }
+        }
+    }
+
+    /** One connection: keeps its listeners and answers measurements until closed or dropped. */
+    final class Link implements InvocationHandler {
+        final Ring ring;
+        final Map<String, Object> listeners = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        // Measurement type and the start call it is answering, cleared by the matching stop
+        final Map<String, Integer> running = new ConcurrentHashMap<>();
+        final AtomicInteger starts = new AtomicInteger();
+        volatile boolean connected = false;
+        volatile boolean closed = false;
+
+        Link(Ring ring) {
+            this.ring = ring;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T listener(String setter) {
+            return (T) listeners.get(setter);
+        }
+
+        /** Calls made on this link, by SDK method name. */
+        int count(String method) {
+            AtomicInteger count = calls.get(method);
+            return count != null ? count.get() : 0;
+        }
+
+        /** Reports a connection state change from the calling thread. */
+        void reportState(int state) {
+            connected = state == CRPBleConnectionStateListener.STATE_CONNECTED;
+            ((CRPBleConnectionStateListener) listener("setConnectionStateListener")).onConnectionStateChange(state);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.startsWith("set") && name.endsWith("Listener")) {
+                if (args[0] != null) {
+                    listeners.put(name, args[0]);
+                    if (name.equals("setConnectionStateListener") && !connected && !script.manual) {
+                        radio.schedule(this::reportConnected, script.connectLatencyMs, TimeUnit.MILLISECONDS);
+                    }
+                }
+                return null;
+            }
+            ring.calls.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+            calls.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+            callThreads.add(Thread.currentThread().getName());
+            switch (name) {
+                case "startMeasureHeartRate":
+                    measure("heartRate");
+                    break;
+                case "startMeasureHrv":
+                    measure("hrv");
+                    break;
+                case "startMeasureStress":
+                    measure("stress");
+                    break;
+                case "startMeasureBloodOxygen":
+                    measure("bloodOxygen");
+                    break;
+                case "enableTimingTemp":
+                    measure("temperature");
+                    break;
+                case "stopMeasureHeartRate":
+                    running.remove("heartRate");
+                    break;
+                case "stopMeasureHrv":
+                    running.remove("hrv");
+                    break;
+                case "stopMeasureStress":
+                    running.remove("stress");
+                    break;
+                case "stopMeasureBloodOxygen":
+                    running.remove("bloodOxygen");
+                    break;
+                case "disableTimingTemp":
+                    running.remove("temperature");
+                    break;
+                case "readDeviceRssi":
+                    radio.execute(() -> {
+                        CRPDeviceRssiListener rssi = listener("setDeviceRssiListener");
+                        if (!closed && rssi != null) {
+                            rssi.onDeviceRssi(script.rssi);
+                        }
+                    });
+                    break;
+                case "queryHistoryTemp":
+                    final CRPHistoryDay day = (CRPHistoryDay) args[0];
+                    if (!script.manual) {
+                        radio.execute(() -> {
+                            CRPTempChangeListener temperature = listener("setTempChangeListener");
+                            if (!closed && temperature != null) {
+                                temperature.onHistoryTempChange(new CRPHistoryTempInfo(day,
+                                        ring.temperatureDays.getOrDefault(day, List.of())));
+                            }
+                        });
+                    }
+                    break;
+                case "queryBattery":
+                    radio.execute(() -> {
+                        CRPBatteryListener battery = listener("setBatteryListener");
+                        if (!closed && battery != null) {
+                            battery.onBattery(80);
+                        }
+                    });
+                    break;
+                case "close":
+                    closed = true;
+                    connected = false;
+                    running.clear();
+                    break;
+                default:
+                    break;
+            }
+            return defaultValue(method);
+        }
+
+        private void reportConnected() {
+            if (closed) {
+                return;
+            }
+            connected = true;
+            CRPBleConnectionStateListener state = listener("setConnectionStateListener");
+            if (state != null) {
+                state.onConnectionStateChange(CRPBleConnectionStateListener.STATE_CONNECTED);
+            }
+        }
+
+        void drop() {
+            dropouts.incrementAndGet();
+            closed = true;
+            connected = false;
+            running.clear();
+            CRPBleConnectionStateListener state = listener("setConnectionStateListener");
+            if (state != null) {
+                state.onConnectionStateChange(CRPBleConnectionStateListener.STATE_DISCONNECTED);
+            }
+        }
+
+        private void measure(final String type) {
+            final int start = starts.incrementAndGet();
+            running.put(type, start);
+            if (script.manual) {
+                return;
+            }
+            radio.schedule(() -> answer(type, start), latencyMs(), TimeUnit.MILLISECONDS);
+        }
+
+        private void answer(String type, int start) {
+            Integer current = running.get(type);
+            if (closed || current == null || current != start) {
+                // Stopped, restarted or disconnected meanwhile
+                return;
+            }
+            double roll = random.nextDouble();
+            if (roll < script.dropoutRate) {
+                drop();
+                return;
+            }
+            if (roll < script.dropoutRate + script.lossRate) {
+                lost.incrementAndGet();
+                return;
+            }
+            results.incrementAndGet();
+            int jitter = random.nextInt(3) - 1;
+            switch (type) {
+                case "heartRate":
+                    ((CRPHeartRateChangeListener) listener("setHeartRateChangeListener")).onHeartRate(72 + jitter);
+                    break;
+                case "hrv":
+                    ((CRPHrvChangeListener) listener("setHrvChangeListener")).onHrv(45 + jitter);
+                    break;
+                case "stress":
+                    ((CRPStressChangeListener) listener("setStressChangeListener")).onStressChange(30 + jitter);
+                    break;
+                case "bloodOxygen":
+                    ((CRPBloodOxygenChangeListener) listener("setBloodOxygenChangeListener"))
+                            .onBloodOxygen(97 + jitter);
+                    break;
+                case "temperature":
+                    ((CRPTempChangeListener) listener("setTempChangeListener")).onHistoryTempChange(
+                            new CRPHistoryTempInfo(CRPHistoryDay.TODAY, Arrays.asList(36.5f + jitter / 10f)));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
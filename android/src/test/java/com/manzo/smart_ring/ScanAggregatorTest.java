@@ -0,0 +1,131 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * {@link ScanAggregator} reporting each address once, rate-limiting updates,
+ * filtering, keeping the strongest N and staying bounded in a crowded scan.
+ */
+public class ScanAggregatorTest {
+    private long nowMs = 0;
+    private final List<String> reported = new ArrayList<>();
+
+    private ScanAggregator aggregator(int capacity) {
+        return aggregator(capacity, ScanFilter.ANY, 0);
+    }
+
+    private ScanAggregator aggregator(int capacity, ScanFilter filter, int limit) {
+        ScanAggregator aggregator = new ScanAggregator(() -> nowMs, capacity, 1000, 5, 1000,
+                (name, address, rssi, update) -> reported.add((update ? "update " : "new ") + address + " " + name
+                        + " " + rssi));
+        aggregator.start(filter, limit);
+        return aggregator;
+    }
+
+    @Test
+    public void repeatedAdvertisementsAreReportedOnce() {
+        ScanAggregator aggregator = aggregator(16);
+        assertTrue(aggregator.onAdvertisement("R02", "AA", -60));
+        for (int i = 0; i < 100; i++) {
+            nowMs += 50;
+            assertFalse(aggregator.onAdvertisement("R02", "AA", -60 + i % 3));
+        }
+        assertEquals(List.of("new AA R02 -60"), reported);
+        assertEquals(101, aggregator.advertisements());
+    }
+
+    @Test
+    public void rssiAndNameChangesAreRateLimited() {
+        ScanAggregator aggregator = aggregator(16);
+        aggregator.onAdvertisement("Unknown", "AA", -80);
+
+        // Big move, but too soon
+        nowMs += 500;
+        assertFalse(aggregator.onAdvertisement("Unknown", "AA", -60));
+        nowMs += 500;
+        assertTrue(aggregator.onAdvertisement("Unknown", "AA", -61));
+        // Name resolved
+        nowMs += 1000;
+        assertTrue(aggregator.onAdvertisement("R02", "AA", -61));
+
+        assertEquals(List.of("new AA Unknown -80", "update AA Unknown -61", "update AA R02 -61"), reported);
+    }
+
+    @Test
+    public void flushReportsChangesHeldBackByTheRateLimit() {
+        ScanAggregator aggregator = aggregator(16);
+        aggregator.onAdvertisement("R02", "AA", -80);
+        aggregator.onAdvertisement("R03", "BB", -70);
+        nowMs += 100;
+        aggregator.onAdvertisement("R02", "AA", -50);
+        aggregator.onAdvertisement("R03", "BB", -71);
+
+        aggregator.flush();
+        assertEquals(List.of("new AA R02 -80", "new BB R03 -70", "update AA R02 -50"), reported);
+        // Nothing left to flush
+        aggregator.flush();
+        assertEquals(3, reported.size());
+    }
+
+    @Test
+    public void staysBoundedAndForgetsTheLeastRecentlySeen() {
+        ScanAggregator aggregator = aggregator(64);
+        for (int i = 0; i < 10_000; i++) {
+            aggregator.onAdvertisement("Ring", "addr" + i, -70);
+            // One ring keeps advertising and is never evicted
+            aggregator.onAdvertisement("Mine", "mine", -40);
+        }
+        assertEquals(64, aggregator.size());
+        assertEquals(10_001, reported.size());
+
+        reported.clear();
+        aggregator.onAdvertisement("Ring", "addr0", -70);
+        assertEquals(List.of("new addr0 Ring -70"), reported);
+    }
+
+    @Test
+    public void filterDropsUnnamedWeakAndUnlistedDevices() {
+        ScanAggregator aggregator = aggregator(16, new ScanFilter("r0", -80, List.of("aa", "BB", "CC")), 0);
+        assertFalse(aggregator.onAdvertisement(null, "AA", -60));
+        assertFalse(aggregator.onAdvertisement("Watch", "AA", -60));
+        assertFalse(aggregator.onAdvertisement("R02", "BB", -90));
+        assertFalse(aggregator.onAdvertisement("R02", "DD", -50));
+        assertTrue(aggregator.onAdvertisement("R02", "AA", -60));
+        assertTrue(aggregator.onAdvertisement("r03", "cc", -80));
+
+        assertEquals(List.of("new AA R02 -60", "new cc r03 -80"), reported);
+        assertEquals(2, aggregator.size());
+        assertEquals(6, aggregator.advertisements());
+    }
+
+    @Test
+    public void keepsTheStrongestNAndSettlesBeforeEndingEarly() {
+        ScanAggregator aggregator = aggregator(16, ScanFilter.ANY, 2);
+        aggregator.onAdvertisement("R", "far", -90);
+        aggregator.onAdvertisement("R", "mid", -70);
+        assertFalse(aggregator.isSatisfied());
+
+        // Full, but a stronger ring may still show up
+        nowMs += 500;
+        assertFalse(aggregator.isSatisfied());
+        assertTrue(aggregator.onAdvertisement("R", "near", -40));
+        assertFalse(aggregator.onAdvertisement("R", "weaker", -95));
+
+        nowMs += 999;
+        assertFalse(aggregator.isSatisfied());
+        nowMs += 1;
+        assertTrue(aggregator.isSatisfied());
+
+        // The displaced ring gets no more updates
+        nowMs += 2000;
+        assertFalse(aggregator.onAdvertisement("R", "far", -91));
+        assertEquals(List.of("new far R -90", "new mid R -70", "new near R -40"), reported);
+    }
+}
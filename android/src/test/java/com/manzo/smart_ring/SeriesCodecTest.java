@@ -0,0 +1,124 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Round trips and compression ratio of {@link SeriesCodec} on synthetic
+ * series shaped like ring data: per-minute samples with a little
+ * timestamp jitter, slowly drifting integer vitals and 0.1 degree temperature steps.
+ * Also the timestamp sort that callers run before encoding.
+ */
+public class SeriesCodecTest {
+    private static final int SAMPLES = 30 * 24 * 60; // a month of per-minute data
+
+    private static final class Series {
+        final String name;
+        final long[] timestamps = new long[SAMPLES];
+        final float[] values = new float[SAMPLES];
+
+        Series(String name) {
+            this.name = name;
+        }
+    }
+
+    private static Series walk(String name, long seed, int min, int max, int start, float scale) {
+        Random random = new Random(seed);
+        Series series = new Series(name);
+        long timestamp = 1_700_000_000_000L;
+        int level = start;
+        for (int i = 0; i < SAMPLES; i++) {
+            // Live readings land within a few hundred ms of the minute mark
+            timestamp += 60_000 + random.nextInt(401) - 200;
+            level = Math.max(min, Math.min(max, level + random.nextInt(5) - 2));
+            series.timestamps[i] = timestamp;
+            series.values[i] = scale == 1f ? level : level * scale;
+        }
+        return series;
+    }
+
+    private static Series[] ringSeries() {
+        return new Series[]{
+                walk("heartRate", 1, 45, 150, 68, 1f),
+                walk("bloodOxygen", 2, 92, 100, 97, 1f),
+                walk("stress", 3, 1, 99, 30, 1f),
+                walk("bodyTemperature", 4, 355, 375, 365, 0.1f),
+        };
+    }
+
+    private static byte[] encode(Series series) {
+        SeriesCodec.ByteSink sink = new SeriesCodec.ByteSink(SAMPLES * 2);
+        SeriesCodec.encode(series.timestamps, series.values, 0, SAMPLES, sink);
+        return sink.toByteArray();
+    }
+
+    private static int decode(byte[] data, long[] timestamps, float[] values) {
+        int offset = 0;
+        int decoded = 0;
+        while (offset < data.length) {
+            int count = SeriesCodec.blockCount(data, offset);
+            offset += SeriesCodec.decodeBlock(data, offset, timestamps, values, decoded);
+            decoded += count;
+        }
+        return decoded;
+    }
+
+    @Test
+    public void roundTripsRingSeries() {
+        for (Series series : ringSeries()) {
+            byte[] encoded = encode(series);
+            long[] timestamps = new long[SAMPLES];
+            float[] values = new float[SAMPLES];
+            assertEquals(series.name, SAMPLES, decode(encoded, timestamps, values));
+            assertArrayEquals(series.name, series.timestamps, timestamps);
+            assertArrayEquals(series.name, series.values, values, 0f);
+        }
+    }
+
+    @Test
+    public void roundTripsIrregularAndExtremeValues() {
+        long[] timestamps = {0, 1, 1, 5_000_000_000L, 4_999_999_999L, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2 + 60_000};
+        float[] values = {0f, -1f, Float.NaN, Float.MAX_VALUE, -0.5f, 1e-30f, 36.6f};
+        SeriesCodec.ByteSink sink = new SeriesCodec.ByteSink(64);
+        SeriesCodec.encode(timestamps, values, 0, timestamps.length, sink);
+
+        long[] decodedTimestamps = new long[SeriesCodec.BLOCK_SIZE];
+        float[] decodedValues = new float[SeriesCodec.BLOCK_SIZE];
+        SeriesCodec.decodeBlock(sink.toByteArray(), 0, decodedTimestamps, decodedValues, 0);
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], decodedTimestamps[i]);
+            assertEquals(Float.floatToIntBits(values[i]), Float.floatToIntBits(decodedValues[i]));
+        }
+    }
+
+    @Test
+    public void ringSeriesTakeAFractionOfTheFixedWidthRecord() {
+        for (Series series : ringSeries()) {
+            double bytesPerSample = encode(series).length / (double) SAMPLES;
+            // Well under the 12-byte fixed-width record even with timestamp jitter
+            assertTrue(series.name + " bytes/sample " + bytesPerSample, bytesPerSample < 5);
+        }
+    }
+
+    @Test
+    public void sortByTimestampKeepsEqualTimestampsInOrder() {
+        long[] timestamps = {1_700_000_300_000L, 1_700_000_100_000L, 1_700_000_300_000L, 1_700_000_200_000L, 0};
+        int[] values = {1, 2, 3, 4, 5};
+        SeriesCodec.sortByTimestamp(timestamps, values, 4);
+        assertArrayEquals(new long[] {1_700_000_100_000L, 1_700_000_200_000L, 1_700_000_300_000L,
+                1_700_000_300_000L, 0}, timestamps);
+        assertArrayEquals(new int[] {2, 4, 1, 3, 5}, values);
+
+        // Negative timestamps don't fit the packed keys and take the slower path
+        long[] negative = {5, -3, 5, -7};
+        float[] floats = {1, 2, 3, 4};
+        SeriesCodec.sortByTimestamp(negative, floats, 4);
+        assertArrayEquals(new long[] {-7, -3, 5, 5}, negative);
+        assertArrayEquals(new float[] {4, 2, 1, 3}, floats, 0);
+    }
+}
@@ -0,0 +1,437 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.crrepa.ble.conn.type.CRPHistoryDay;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Drives {@link SmartRingPlugin} through its method calls against a
+ * {@link RingSimulator}: thousands of measurement cycles on several rings,
+ * realtime bursts from many threads, and lossy links that drop mid-measurement.
+ * Checks that every cycle finishes, that throughput and worker latency stay
+ * within generous bounds, and that closing the rings leaves no timers behind.
+ */
+public class SmartRingPluginLoadTest {
+    private static final String[] TYPES = {"temperature", "heartRate", "hrv", "stress", "bloodOxygen"};
+    private static final String[] START_METHODS = {"startTemperatureMeasurement", "startHeartRateMeasurement",
+            "startHrvMeasurement", "startStressMeasurement", "startBloodOxygenMeasurement"};
+    private static final long CYCLE_TIMEOUT_MS = 10_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RingSimulator simulator;
+    private SmartRingPlugin plugin;
+
+    /** What a method call answered. */
+    private static final class Reply implements MethodChannel.Result {
+        final CountDownLatch done = new CountDownLatch(1);
+        Object value;
+        String error;
+
+        @Override
+        public void success(Object result) {
+            value = result;
+            done.countDown();
+        }
+
+        @Override
+        public void error(String code, String message, Object details) {
+            error = code + ": " + message;
+            done.countDown();
+        }
+
+        @Override
+        public void notImplemented() {
+            error = "not implemented";
+            done.countDown();
+        }
+    }
+
+    private void start(RingSimulator.Script script) throws Exception {
+        simulator = new RingSimulator(script);
+        plugin = new SmartRingPlugin(simulator);
+        plugin.start(null, folder.newFolder("series"));
+        call("configureTimingSync", args("syncOnConnect", false));
+        // Lost results time out within a few wheel ticks instead of 90 s
+        call("configureMeasurementTimeouts", args("minTimeoutMs", 300, "maxTimeoutMs", 300));
+    }
+
+    @After
+    public void tearDown() {
+        if (plugin != null) {
+            plugin.stop();
+        }
+        if (simulator != null) {
+            simulator.shutdown();
+        }
+    }
+
+    private static Map<String, Object> args(Object... keysAndValues) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    private Object call(String method, Map<String, Object> arguments) {
+        Reply reply = new Reply();
+        plugin.onMethodCall(new MethodCall(method, arguments), reply);
+        assertNull(method + " failed", reply.error);
+        return reply.value;
+    }
+
+    private static String address(int ring) {
+        return String.format("AA:BB:CC:DD:EE:%02X", ring);
+    }
+
+    private void connect(int rings) throws Exception {
+        for (int ring = 0; ring < rings; ring++) {
+            call("connectToDevice", args("deviceAddress", address(ring)));
+        }
+        for (int ring = 0; ring < rings; ring++) {
+            awaitState(address(ring), 2);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void awaitState(String address, int state) throws Exception {
+        long deadline = System.currentTimeMillis() + CYCLE_TIMEOUT_MS;
+        while (true) {
+            for (Map<String, Object> device : (List<Map<String, Object>>) call("getConnectedDevices", args())) {
+                if (device.get("address").equals(address) && device.get("connectionState").equals(state)) {
+                    return;
+                }
+            }
+            assertTrue(address + " never reached state " + state, System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitIdle(String address) throws Exception {
+        long deadline = System.currentTimeMillis() + CYCLE_TIMEOUT_MS;
+        while ((Integer) call("getMeasurementStatus", args("deviceAddress", address)) != 0) {
+            assertTrue(address + " measurement never finished", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> section(String name) {
+        return (Map<String, Object>) ((Map<String, Object>) call("getMetrics", args())).get(name);
+    }
+
+    private long counter(String name) {
+        Object value = section("counters").get(name);
+        return value != null ? (Long) value : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private double histogram(String name, String stat) {
+        Map<String, Object> stats = (Map<String, Object>) section("histograms").get(name);
+        return stats != null ? ((Number) stats.get(stat)).doubleValue() : 0;
+    }
+
+    private long events(byte type) {
+        Object count = section("eventsByType").get((int) type);
+        return count != null ? (Long) count : 0;
+    }
+
+    // Runs cycles measurements on every ring at once, each ring from its own thread
+    private void runCycles(int rings, final int cycles, final Map<String, Object> retryPlan) throws Exception {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int ring = 0; ring < rings; ring++) {
+            final String address = address(ring);
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int cycle = 0; cycle < cycles; cycle++) {
+                        // A ring the last cycle dropped is reconnecting
+                        awaitState(address, 2);
+                        String method = cycle % 10 == 9 ? "startFullMeasurement"
+                                : START_METHODS[cycle % START_METHODS.length];
+                        if (!(Boolean) call(method, args("deviceAddress", address, "attempts", retryPlan))) {
+                            // Only a reconnected ring is busy here, running the work the drop cut short
+                            assertTrue(method + " refused", simulator.dropouts.get() > 0);
+                            cycle--;
+                        }
+                        awaitIdle(address);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    // Waits until every ring is connected and idle, including work resumed after a late drop
+    private void awaitSettled(int rings) throws Exception {
+        int dropouts;
+        do {
+            dropouts = simulator.dropouts.get();
+            for (int ring = 0; ring < rings; ring++) {
+                awaitState(address(ring), 2);
+                awaitIdle(address(ring));
+            }
+        } while (dropouts != simulator.dropouts.get());
+    }
+
+    // Disconnects every ring and waits until no session, timer or retry is left on the worker
+    private void disconnectAndAwaitQuiet(int rings) throws Exception {
+        for (int ring = 0; ring < rings; ring++) {
+            call("disconnect", args("deviceAddress", address(ring)));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            Map<String, Object> queues = section("queues");
+            if ((Integer) queues.get("sessions") == 0 && (Integer) queues.get("worker") == 0) {
+                return;
+            }
+            assertTrue("still pending after disconnect: " + queues, System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void thousandsOfCyclesCompleteAndLeaveNoTimersBehind() throws Exception {
+        start(new RingSimulator.Script().latency(1, 4));
+        int rings = 4;
+        int cycles = 300;
+        connect(rings);
+
+        long startedAt = System.nanoTime();
+        runCycles(rings, cycles, null);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        long measurements = 0;
+        for (String type : TYPES) {
+            measurements += (long) histogram(PluginMetrics.MEASUREMENT + type, "count");
+            assertEquals(type, 0, counter(PluginMetrics.TIMEOUTS + type));
+            assertEquals(type, 0, counter(PluginMetrics.FAILURES + type));
+        }
+        // Singles measure one type, full measurements all five
+        int fullPerRing = cycles / 10;
+        assertEquals(rings * ((cycles - fullPerRing) + fullPerRing * TYPES.length), measurements);
+        assertEquals(measurements, simulator.results.get());
+        assertEquals(rings * fullPerRing, events(EventCodec.FULL_MEASUREMENT_COMPLETE));
+
+        assertTrue("throughput " + measurements / seconds + "/s", measurements / seconds > 100);
+        assertTrue("worker queue p99 " + histogram(PluginMetrics.WORKER_QUEUE, "p99Ms") + " ms",
+                histogram(PluginMetrics.WORKER_QUEUE, "p99Ms") < 100);
+
+        disconnectAndAwaitQuiet(rings);
+    }
+
+    @Test
+    public void realtimeBurstsAreHandledOnceEach() throws Exception {
+        start(new RingSimulator.Script());
+        int rings = 3;
+        int samples = 20_000;
+        connect(rings);
+        call("startHeartRateMeasurement", args("deviceAddress", address(0)));
+
+        long startedAt = System.nanoTime();
+        for (int ring = 0; ring < rings; ring++) {
+            simulator.burst(address(ring), samples, 4);
+        }
+        long deadline = System.currentTimeMillis() + CYCLE_TIMEOUT_MS;
+        while (events(EventCodec.REALTIME_HEART_RATE) + counter(PluginMetrics.REJECTED + "heartRate")
+                < rings * samples) {
+            assertTrue("burst not drained", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        // Samples 70-73 never look like spikes
+        assertEquals(rings * samples, events(EventCodec.REALTIME_HEART_RATE));
+        assertTrue("throughput " + rings * samples / seconds + "/s", rings * samples / seconds > 10_000);
+        assertTrue("worker queue p99 " + histogram(PluginMetrics.WORKER_QUEUE, "p99Ms") + " ms",
+                histogram(PluginMetrics.WORKER_QUEUE, "p99Ms") < 1_000);
+
+        call("stopAllMeasurements", args("deviceAddress", address(0)));
+        awaitIdle(address(0));
+        disconnectAndAwaitQuiet(rings);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> awaitStored(String address, String metric, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + CYCLE_TIMEOUT_MS;
+        while (true) {
+            Map<String, Object> range = (Map<String, Object>) call("queryRange", args("deviceAddress", address,
+                    "metric", metric, "from", 0L, "to", Long.MAX_VALUE));
+            int stored = ((long[]) range.get("timestamps")).length;
+            if (stored >= count) {
+                assertEquals(count, stored);
+                return range;
+            }
+            assertTrue("only " + stored + " " + metric + " readings stored", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitEvents(byte type, long count) throws Exception {
+        long deadline = System.currentTimeMillis() + CYCLE_TIMEOUT_MS;
+        while (events(type) < count) {
+            assertTrue("only " + events(type) + " events of type " + type, System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        assertEquals(count, events(type));
+    }
+
+    private static long midnight(int daysAgo) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_MONTH, -daysAgo);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void timedTemperatureIsStoredAndLeftOnWhenConfigured() throws Exception {
+        start(new RingSimulator.Script());
+        connect(1);
+        long slot = TimingSync.SLOT_MINUTES * 60_000L;
+        long yesterday = midnight(1);
+        simulator.pushTimedTemperature(address(0), CRPHistoryDay.YESTERDAY, 0f, 36.4f, 0f, 36.8f);
+
+        Map<String, Object> range = awaitStored(address(0), "bodyTemperature", 2);
+        assertArrayEquals(new long[] {yesterday + slot, yesterday + 3 * slot}, (long[]) range.get("timestamps"));
+        assertArrayEquals(new double[] {36.4, 36.8}, (double[]) range.get("values"), 0.001);
+        // One trend per push, after both new slots moved it
+        awaitEvents(EventCodec.TEMPERATURE_TREND, 1);
+
+        // The next push repeats the day so far; only the new slot is stored
+        simulator.pushTimedTemperature(address(0), CRPHistoryDay.YESTERDAY, 0f, 36.4f, 0f, 36.8f, 36.9f);
+        range = awaitStored(address(0), "bodyTemperature", 3);
+        assertEquals(yesterday + 4 * slot, ((long[]) range.get("timestamps"))[2]);
+        awaitEvents(EventCodec.TEMPERATURE_TREND, 2);
+
+        assertEquals(0, simulator.calls("disableTimingTemp"));
+        assertEquals(0, events(EventCodec.BODY_TEMPERATURE));
+        assertEquals(0, (int) (Integer) call("getMeasurementStatus", args("deviceAddress", address(0))));
+
+        // A measurement started here switches the sampling it enabled off again
+        call("startTemperatureMeasurement", args("deviceAddress", address(0)));
+        awaitIdle(address(0));
+        assertEquals(1, simulator.calls("disableTimingTemp"));
+        assertEquals(1, events(EventCodec.BODY_TEMPERATURE));
+
+        // but leaves it on once the app has configured it
+        call("configureTimingMeasurement", args("deviceAddress", address(0), "metric", "temperature",
+                "interval", 1));
+        assertEquals(2, simulator.calls("enableTimingTemp"));
+        call("startTemperatureMeasurement", args("deviceAddress", address(0)));
+        awaitIdle(address(0));
+        assertEquals(1, simulator.calls("disableTimingTemp"));
+        assertEquals(2, events(EventCodec.BODY_TEMPERATURE));
+        // The second measurement repeated today's slot, which the trend already had
+        assertEquals(3, events(EventCodec.TEMPERATURE_TREND));
+
+        disconnectAndAwaitQuiet(1);
+    }
+
+    @Test
+    public void temperatureDaysArePulledWithTheTimingData() throws Exception {
+        start(new RingSimulator.Script());
+        connect(1);
+        simulator.pushTimedTemperature(address(0), CRPHistoryDay.DAYS_AGO_2, 36.1f, 0f, 36.3f);
+        awaitStored(address(0), "bodyTemperature", 2);
+        // Sampled by the ring while the app was away
+        simulator.recordTimedTemperature(address(0), CRPHistoryDay.YESTERDAY, 0f, 36.6f);
+
+        assertEquals(1, call("syncTimingData", args("deviceAddress", address(0),
+                "metrics", List.of("temperature"))));
+        Map<String, Object> range = awaitStored(address(0), "bodyTemperature", 3);
+        assertEquals(midnight(1) + TimingSync.SLOT_MINUTES * 60_000L, ((long[]) range.get("timestamps"))[2]);
+        assertEquals(36.6, ((double[]) range.get("values"))[2], 0.001);
+        long deadline = System.currentTimeMillis() + CYCLE_TIMEOUT_MS;
+        while (events(EventCodec.TIMING_SYNC_PROGRESS) == 0) {
+            assertTrue("timing pull never finished", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        // The watermark limits the pull to the days since the last stored slot
+        assertEquals(3, simulator.calls("queryHistoryTemp"));
+
+        disconnectAndAwaitQuiet(1);
+    }
+
+    @Test
+    public void aDroppedRingThatIsNotReconnectedFreesItsPlaceInThePool() throws Exception {
+        start(new RingSimulator.Script());
+        call("setMaxConnections", args("maxConnections", 2));
+        connect(2);
+
+        // Auto-reconnect is off by default
+        simulator.dropLink(address(0));
+        long deadline = System.currentTimeMillis() + CYCLE_TIMEOUT_MS;
+        while ((Integer) section("queues").get("sessions") != 1) {
+            assertTrue("dropped session never closed", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+
+        // Fails the test with CONNECTION_LIMIT if the dead session still counted
+        call("connectToDevice", args("deviceAddress", address(2)));
+        awaitState(address(2), 2);
+        disconnectAndAwaitQuiet(3);
+    }
+
+    @Test
+    public void lossyLinksAreRetriedAndReconnected() throws Exception {
+        start(new RingSimulator.Script().latency(1, 8).loss(0.1).dropouts(0.05));
+        call("configureAutoReconnect", args("enabled", true, "initialDelayMs", 5, "maxDelayMs", 20,
+                "maxAttempts", 0));
+        int rings = 3;
+        int cycles = 60;
+        connect(rings);
+
+        runCycles(rings, cycles, args("attempts", 3, "delayMs", 5));
+        awaitSettled(rings);
+
+        long retries = 0;
+        long timeouts = 0;
+        for (String type : TYPES) {
+            retries += counter(PluginMetrics.RETRIES + type);
+            timeouts += counter(PluginMetrics.TIMEOUTS + type);
+        }
+        assertTrue("no result was lost", simulator.lost.get() > 0);
+        assertTrue("no link dropped", simulator.dropouts.get() > 0);
+        // Lost results time out and are retried, unless a drop or the last attempt gets there first
+        assertTrue("timeouts " + timeouts, timeouts > 0 && timeouts <= simulator.lost.get());
+        assertTrue("retries " + retries, retries > 0);
+        assertEquals(simulator.dropouts.get(), (long) histogram(PluginMetrics.RECONNECT, "count"));
+        assertEquals(rings + simulator.dropouts.get(), simulator.connects.get());
+
+        disconnectAndAwaitQuiet(rings);
+    }
+}
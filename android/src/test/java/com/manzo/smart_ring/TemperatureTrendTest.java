@@ -0,0 +1,56 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * {@link TemperatureTrend} baseline, deviation and spread over its rolling window.
+ */
+public class TemperatureTrendTest {
+    private final TemperatureTrend trend = new TemperatureTrend();
+
+    @Test
+    public void firstReadingIsItsOwnBaseline() {
+        trend.add(36.6f);
+        assertEquals(36.6f, trend.baseline(), 0f);
+        assertEquals(0f, trend.deviation(), 0f);
+        assertEquals(0, trend.baselineSamples());
+    }
+
+    @Test
+    public void deviationIsAgainstEarlierReadings() {
+        trend.add(36.4f);
+        trend.add(36.6f);
+        trend.add(37.5f);
+        assertEquals(2, trend.baselineSamples());
+        assertEquals(36.5f, trend.baseline(), 1e-4f);
+        assertEquals(1.0f, trend.deviation(), 1e-4f);
+        assertEquals(0.1f, trend.spread(), 1e-4f);
+    }
+
+    @Test
+    public void oldReadingsLeaveTheWindow() {
+        for (int i = 0; i < TemperatureTrend.WINDOW; i++) {
+            trend.add(35.0f);
+        }
+        for (int i = 0; i < TemperatureTrend.WINDOW; i++) {
+            trend.add(37.0f);
+        }
+        trend.add(37.2f);
+        assertEquals(TemperatureTrend.WINDOW, trend.baselineSamples());
+        assertEquals(37.0f, trend.baseline(), 1e-4f);
+        assertEquals(0.2f, trend.deviation(), 1e-4f);
+        assertEquals(0f, trend.spread(), 1e-3f);
+    }
+
+    @Test
+    public void longRunsDoNotDrift() {
+        for (int i = 0; i < 100_000; i++) {
+            trend.add(36.0f + (i % 8) / 10f);
+        }
+        trend.add(36.35f);
+        assertEquals(36.35f, trend.baseline(), 1e-3f);
+        assertEquals(0f, trend.deviation(), 1e-3f);
+    }
+}
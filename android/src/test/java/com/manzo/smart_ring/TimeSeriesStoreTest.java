@@ -0,0 +1,147 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link TimeSeriesStore} reopening its segments from disk, staying shut once
+ * closed, being shared per directory, and answering in time order when history
+ * is backfilled.
+ */
+public class TimeSeriesStoreTest {
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readingsSurviveAReopen() throws Exception {
+        long now = System.currentTimeMillis();
+        TimeSeriesStore store = new TimeSeriesStore(folder.getRoot(), DAY_MS);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(store.append(TimeSeriesStore.METRIC_HEART_RATE, now + i, 60 + i));
+        }
+        store.close();
+
+        TimeSeriesStore reopened = new TimeSeriesStore(folder.getRoot(), DAY_MS);
+        TimeSeriesStore.QueryResult result = reopened.queryRange(TimeSeriesStore.METRIC_HEART_RATE, now,
+                now + 9, 100);
+        assertEquals(10, result.timestamps.length);
+        assertEquals(69, result.values[9], 0);
+        reopened.close();
+    }
+
+    @Test
+    public void aClosedStoreIgnoresAppendsAndQueries() throws Exception {
+        long now = System.currentTimeMillis();
+        TimeSeriesStore store = new TimeSeriesStore(folder.getRoot(), DAY_MS);
+        assertTrue(store.append(TimeSeriesStore.METRIC_HRV, now, 40));
+        store.close();
+
+        assertFalse(store.append(TimeSeriesStore.METRIC_HRV, now + 1, 41));
+        assertEquals(0, store.queryRange(TimeSeriesStore.METRIC_HRV, now, now + 1, 100).timestamps.length);
+        assertArrayEquals(new byte[] {TimeSeriesStore.METRIC_HRV, 0, 0, 0, 0},
+                store.exportRange(TimeSeriesStore.METRIC_HRV, now, now + 1));
+
+        // The late append did not reach the disk either
+        TimeSeriesStore reopened = new TimeSeriesStore(folder.getRoot(), DAY_MS);
+        assertEquals(1, reopened.queryRange(TimeSeriesStore.METRIC_HRV, now, now + 1, 100).timestamps.length);
+        reopened.close();
+    }
+
+    @Test
+    public void acquiredStoresAreSharedUntilTheLastRelease() throws Exception {
+        long now = System.currentTimeMillis();
+        File dir = new File(folder.getRoot(), "AA_BB");
+        TimeSeriesStore first = TimeSeriesStore.acquire(dir, DAY_MS);
+        TimeSeriesStore second = TimeSeriesStore.acquire(new File(folder.getRoot(), "./AA_BB"), DAY_MS);
+        assertSame(first, second);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(first.append(TimeSeriesStore.METRIC_HEART_RATE, now + 2 * i, 60));
+            assertTrue(second.append(TimeSeriesStore.METRIC_HEART_RATE, now + 2 * i + 1, 70));
+        }
+
+        first.release();
+        assertTrue(second.append(TimeSeriesStore.METRIC_HEART_RATE, now + 10, 80));
+        second.release();
+        assertFalse(second.append(TimeSeriesStore.METRIC_HEART_RATE, now + 11, 90));
+
+        TimeSeriesStore reopened = TimeSeriesStore.acquire(dir, DAY_MS);
+        assertNotSame(first, reopened);
+        assertEquals(11, reopened.queryRange(TimeSeriesStore.METRIC_HEART_RATE, now, now + 11, 100)
+                .timestamps.length);
+        reopened.release();
+    }
+
+    @Test
+    public void backfilledReadingsComeBackOldestFirst() throws Exception {
+        long now = System.currentTimeMillis();
+        long hour = 60 * 60 * 1000L;
+        TimeSeriesStore store = new TimeSeriesStore(folder.getRoot(), DAY_MS);
+        assertTrue(store.append(TimeSeriesStore.METRIC_HEART_RATE, now, 70));
+        assertTrue(store.append(TimeSeriesStore.METRIC_HEART_RATE, now - hour, 65));
+        assertTrue(store.append(TimeSeriesStore.METRIC_HEART_RATE, now - 2 * hour, 60));
+
+        TimeSeriesStore.QueryResult result = store.queryRange(TimeSeriesStore.METRIC_HEART_RATE,
+                now - 3 * hour, now, 2);
+        assertArrayEquals(new long[] {now - 2 * hour, now - hour}, result.timestamps);
+        assertEquals(60, result.values[0], 0);
+        assertEquals(65, result.values[1], 0);
+        assertTrue(result.truncated);
+
+        byte[] export = store.exportRange(TimeSeriesStore.METRIC_HEART_RATE, now - 3 * hour, now);
+        long[] timestamps = new long[3];
+        float[] values = new float[3];
+        SeriesCodec.decodeBlock(export, 5, timestamps, values, 0);
+        assertArrayEquals(new long[] {now - 2 * hour, now - hour, now}, timestamps);
+        store.close();
+    }
+
+    @Test
+    public void queriesSpanASealedSegmentAndTheBackfillAfterIt() throws Exception {
+        long minute = 60 * 1000L;
+        long base = System.currentTimeMillis() - 30 * DAY_MS;
+        TimeSeriesStore store = new TimeSeriesStore(folder.getRoot(), 60 * DAY_MS);
+        for (int i = 0; i < TimeSeriesStore.RECORDS_PER_SEGMENT; i++) {
+            assertTrue(store.append(TimeSeriesStore.METRIC_STRESS, base + i * minute, i % 100));
+        }
+        // Older readings roll over into a second segment and seal the first
+        for (int i = 1; i <= 10; i++) {
+            assertTrue(store.append(TimeSeriesStore.METRIC_STRESS, base - i * minute, 100 + i));
+        }
+        store.close();
+
+        TimeSeriesStore reopened = new TimeSeriesStore(folder.getRoot(), 60 * DAY_MS);
+        long last = base + TimeSeriesStore.RECORDS_PER_SEGMENT * minute;
+        assertTrue(reopened.append(TimeSeriesStore.METRIC_STRESS, last, 42));
+        File[] files = new File(folder.getRoot(), "stress").listFiles();
+        assertEquals(2, files.length);
+
+        TimeSeriesStore.QueryResult oldest = reopened.queryRange(TimeSeriesStore.METRIC_STRESS,
+                base - DAY_MS, last, 12);
+        assertEquals(12, oldest.timestamps.length);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(base - (10 - i) * minute, oldest.timestamps[i]);
+            assertEquals(110 - i, oldest.values[i], 0);
+        }
+        assertEquals(base, oldest.timestamps[10]);
+        assertEquals(base + minute, oldest.timestamps[11]);
+
+        TimeSeriesStore.QueryResult sealedTail = reopened.queryRange(TimeSeriesStore.METRIC_STRESS,
+                last - 2 * minute, last, 100);
+        assertArrayEquals(new long[] {last - 2 * minute, last - minute, last}, sealedTail.timestamps);
+        assertEquals(42, sealedTail.values[2], 0);
+        assertFalse(sealedTail.truncated);
+        reopened.close();
+    }
+}
@@ -0,0 +1,194 @@
+package com.manzo.smart_ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link TimerWheel} driven by a virtual clock: deadlines, cancellation,
+ * deadlines past one revolution, and the waker that keeps it ticking.
+ */
+public class TimerWheelTest {
+    private static final long TICK_MS = 250;
+    private static final int SLOTS = 16; // 4 s per revolution
+
+    private static final class VirtualClock implements TimerWheel.Clock {
+        long nowMs = 1_000;
+
+        @Override
+        public long nowMs() {
+            return nowMs;
+        }
+    }
+
+    private final VirtualClock clock = new VirtualClock();
+
+    private void advanceTo(TimerWheel wheel, long elapsedMs, long startMs) {
+        while (clock.nowMs < startMs + elapsedMs) {
+            clock.nowMs = Math.min(clock.nowMs + TICK_MS, startMs + elapsedMs);
+            wheel.advance();
+        }
+    }
+
+    @Test
+    public void firesAtTheDeadlineAndNeverEarly() {
+        TimerWheel wheel = new TimerWheel(clock, TICK_MS, SLOTS, null);
+        final List<String> fired = new ArrayList<>();
+        wheel.schedule(() -> fired.add("a"), 1_000);
+        wheel.schedule(() -> fired.add("b"), 1_100);
+
+        clock.nowMs += 999;
+        assertEquals(0, wheel.advance());
+        clock.nowMs += 1;
+        assertEquals(1, wheel.advance());
+        assertEquals(List.of("a"), fired);
+
+        // b rounds up to the next tick
+        clock.nowMs += 100;
+        assertEquals(0, wheel.advance());
+        clock.nowMs += 150;
+        assertEquals(1, wheel.advance());
+        assertEquals(List.of("a", "b"), fired);
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    public void cancelledTimersDoNotFire() {
+        TimerWheel wheel = new TimerWheel(clock, TICK_MS, SLOTS, null);
+        final int[] fired = new int[1];
+        TimerWheel.Timeout keep = wheel.schedule(() -> fired[0]++, 500);
+        TimerWheel.Timeout drop = wheel.schedule(() -> fired[0] += 100, 500);
+
+        assertTrue(drop.cancel());
+        assertFalse(drop.cancel());
+        assertFalse(drop.isPending());
+        assertEquals(1, wheel.pending());
+
+        clock.nowMs += 500;
+        wheel.advance();
+        assertEquals(1, fired[0]);
+        assertFalse(keep.isPending());
+        assertFalse(keep.cancel());
+    }
+
+    @Test
+    public void aTaskCanCancelAnotherDueInTheSameTick() {
+        TimerWheel wheel = new TimerWheel(clock, TICK_MS, SLOTS, null);
+        final int[] fired = new int[1];
+        final TimerWheel.Timeout[] other = new TimerWheel.Timeout[1];
+        // Buckets are LIFO, so the later timer is swept first
+        other[0] = wheel.schedule(() -> fired[0]++, 250);
+        wheel.schedule(() -> other[0].cancel(), 250);
+
+        clock.nowMs += 250;
+        assertEquals(1, wheel.advance());
+        assertEquals(0, fired[0]);
+    }
+
+    @Test
+    public void deadlinesBeyondOneRevolutionWaitForTheirRound() {
+        TimerWheel wheel = new TimerWheel(clock, TICK_MS, SLOTS, null);
+        long start = clock.nowMs;
+        final long[] firedAt = {-1, -1};
+        // Same bucket, two revolutions apart
+        wheel.schedule(() -> firedAt[0] = clock.nowMs - start, 1_000);
+        wheel.schedule(() -> firedAt[1] = clock.nowMs - start, 1_000 + 2 * SLOTS * TICK_MS);
+
+        advanceTo(wheel, 10_000, start);
+        assertEquals(1_000, firedAt[0]);
+        assertEquals(9_000, firedAt[1]);
+    }
+
+    @Test
+    public void catchesUpAfterALongGap() {
+        TimerWheel wheel = new TimerWheel(clock, TICK_MS, SLOTS, null);
+        final int[] fired = new int[1];
+        for (int i = 1; i <= 40; i++) {
+            wheel.schedule(() -> fired[0]++, i * 1_000L);
+        }
+        // The worker was asleep for a minute
+        clock.nowMs += 60_000;
+        assertEquals(40, wheel.advance());
+        assertEquals(40, fired[0]);
+    }
+
+    @Test
+    public void tasksMayRescheduleThemselves() {
+        TimerWheel wheel = new TimerWheel(clock, TICK_MS, SLOTS, null);
+        long start = clock.nowMs;
+        final List<Long> firedAt = new ArrayList<>();
+        final Runnable[] retry = new Runnable[1];
+        retry[0] = () -> {
+            firedAt.add(clock.nowMs - start);
+            if (firedAt.size() < 3) {
+                wheel.schedule(retry[0], 2_000);
+            }
+        };
+        wheel.schedule(retry[0], 2_000);
+
+        advanceTo(wheel, 10_000, start);
+        assertEquals(List.of(2_000L, 4_000L, 6_000L), firedAt);
+    }
+
+    @Test
+    public void hundredsOfRandomDeadlinesFireOnTimeOrWithinATick() {
+        TimerWheel wheel = new TimerWheel(clock, TICK_MS, SLOTS, null);
+        Random random = new Random(42);
+        long start = clock.nowMs;
+        final int count = 800;
+        final long[] deadline = new long[count];
+        final long[] firedAt = new long[count];
+        List<TimerWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            deadline[i] = random.nextInt(120_000);
+            firedAt[i] = -1;
+            timeouts.add(wheel.schedule(() -> firedAt[index] = clock.nowMs - start, deadline[i]));
+        }
+        // Cancel every third one, as results arrive before most timeouts
+        for (int i = 0; i < count; i += 3) {
+            timeouts.get(i).cancel();
+        }
+        assertEquals(count - (count + 2) / 3, wheel.pending());
+
+        advanceTo(wheel, 121_000, start);
+        for (int i = 0; i < count; i++) {
+            if (i % 3 == 0) {
+                assertEquals(-1, firedAt[i]);
+            } else {
+                assertTrue("fired early: " + i, firedAt[i] >= deadline[i]);
+                assertTrue("fired late: " + i, firedAt[i] <= deadline[i] + TICK_MS);
+            }
+        }
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    public void wakerIsArmedOnlyWhileTimersArePending() {
+        final List<Long> wakes = new ArrayList<>();
+        TimerWheel wheel = new TimerWheel(clock, TICK_MS, SLOTS, wakes::add);
+
+        TimerWheel.Timeout first = wheel.schedule(() -> { }, 500);
+        wheel.schedule(() -> { }, 500);
+        assertEquals(1, wakes.size());
+        assertEquals(Long.valueOf(TICK_MS), wakes.get(0));
+
+        // Still pending after this tick, so it re-arms once
+        clock.nowMs += TICK_MS;
+        wheel.advance();
+        assertEquals(2, wakes.size());
+
+        first.cancel();
+        clock.nowMs += TICK_MS;
+        wheel.advance();
+        // Nothing left, the wheel goes quiet
+        assertEquals(2, wakes.size());
+        assertEquals(0, wheel.pending());
+    }
+}
@@ -1,16 +1,46 @@
 import 'dart:async';
+import 'dart:typed_data';
 import 'package:fpdart/fpdart.dart';
 import 'smart_ring_platform_interface.dart';
 import 'smart_ring_errors.dart';
+import 'smart_ring_event_codec.dart';
 
 // Export classes for public use
 export 'smart_ring_platform_interface.dart'
     show
         MeasurementError,
         MeasurementStatus,
+        FullMeasurementProgress,
+        MeasurementTimeoutStats,
+        RetryBackoff,
+        RetryPolicy,
+        RetryPlan,
         ScannedDevice,
         ConnectionState,
-        BatteryWarning;
+        ConnectedDevice,
+        ReconnectAttempt,
+        BatteryWarning,
+        RealtimeHeartRateMode,
+        HeartRateWindow,
+        TemperatureSeries,
+        TemperatureTrend,
+        EventDeliveryMode,
+        EventDeliveryStats,
+        EventCategory,
+        BackpressurePolicy,
+        LatencyStats,
+        PluginMetrics,
+        HistoryMetric,
+        HistoryChunk,
+        HistorySyncProgress,
+        TimingMetric,
+        SeriesMetric,
+        StoredSeries,
+        CollectedSeries,
+        BackgroundMeasurement,
+        BackgroundCollectionStatus;
+export 'smart_ring_series_codec.dart' show decodeSeriesExport;
+export 'smart_ring_event_codec.dart' show SmartRingEvent, SmartRingEventType;
 export 'smart_ring_errors.dart'
     show
         Failure,
@@ -30,30 +60,108 @@ class SmartRing {
   // ==================== Connection Methods ====================
 
   /// Start scanning for nearby Smart Ring devices
-  Future<Either<SmartRingFailure, Unit>> startScan() {
-    return _platform.startScan();
+  ///
+  /// Filtering and ranking happen natively, so only matching devices reach
+  /// [deviceScannedStream]. With a [limit] the scan keeps the strongest
+  /// matches and ends early, before [duration], once that many have been
+  /// found and held their places for a second.
+  ///
+  /// [namePrefix] - Only devices whose name starts with this, ignoring case;
+  /// unnamed devices never match
+  /// [minRssi] - Only devices at least this strong, in dBm
+  /// [addresses] - Only these MAC addresses
+  /// [limit] - Report at most this many devices, strongest first (default: 0, no limit)
+  /// [duration] - How long to scan (default: 30 seconds)
+  Future<Either<SmartRingFailure, Unit>> startScan({
+    String? namePrefix,
+    int? minRssi,
+    List<String>? addresses,
+    int limit = 0,
+    Duration duration = const Duration(seconds: 30),
+  }) {
+    return _platform.startScan(
+      namePrefix: namePrefix,
+      minRssi: minRssi,
+      addresses: addresses,
+      limit: limit,
+      duration: duration,
+    );
   }
 
   /// Connect to a Smart Ring device by its address
   ///
+  /// Several rings can be connected at once, up to [setMaxConnections]. Each
+  /// keeps its own connection state, measurements and syncs; methods taking a
+  /// `deviceAddress` act on that ring, or on the most recently connected one
+  /// when it is omitted.
+  ///
   /// [deviceAddress] - The Bluetooth MAC address of the device (e.g., "XX:XX:XX:XX:XX:XX")
   Future<Either<SmartRingFailure, Unit>> connectToDevice(String deviceAddress) {
     return _platform.connectToDevice(deviceAddress);
   }
 
-  /// Disconnect from the currently connected device
-  Future<Either<SmartRingFailure, Unit>> disconnect() {
-    return _platform.disconnect();
+  /// Disconnect a device and release its slot in the connection pool
+  ///
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
+  Future<Either<SmartRingFailure, Unit>> disconnect({String? deviceAddress}) {
+    return _platform.disconnect(deviceAddress: deviceAddress);
+  }
+
+  /// Get the current measurement status of a device
+  ///
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
+  Future<Either<SmartRingFailure, MeasurementStatus>> getMeasurementStatus({
+    String? deviceAddress,
+  }) {
+    return _platform.getMeasurementStatus(deviceAddress: deviceAddress);
+  }
+
+  /// Stop all ongoing measurements of a device
+  ///
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
+  Future<Either<SmartRingFailure, Unit>> stopAllMeasurements({
+    String? deviceAddress,
+  }) {
+    return _platform.stopAllMeasurements(deviceAddress: deviceAddress);
+  }
+
+  /// List the devices in the connection pool, in connection order
+  Future<Either<SmartRingFailure, List<ConnectedDevice>>>
+  getConnectedDevices() {
+    return _platform.getConnectedDevices();
   }
 
-  /// Get the current measurement status
-  Future<Either<SmartRingFailure, MeasurementStatus>> getMeasurementStatus() {
-    return _platform.getMeasurementStatus();
+  /// Limit how many rings may be connected at once
+  ///
+  /// Android's GATT stack typically supports around 7 concurrent connections,
+  /// which is the default. Values above 15 are capped.
+  ///
+  /// Returns the limit that was applied
+  Future<Either<SmartRingFailure, int>> setMaxConnections(int maxConnections) {
+    return _platform.setMaxConnections(maxConnections);
   }
 
-  /// Stop all ongoing measurements
-  Future<Either<SmartRingFailure, Unit>> stopAllMeasurements() {
-    return _platform.stopAllMeasurements();
+  /// Reconnect rings whose link drops unexpectedly (off by default)
+  ///
+  /// Attempt n waits up to `initialDelay * 2^(n-1)`, capped at [maxDelay] and
+  /// randomised so rings that dropped together do not retry in lockstep. Each
+  /// attempt is reported on [reconnectStream]. Once back, the ring resumes the
+  /// measurement and syncs that the drop interrupted. After [maxAttempts]
+  /// failed attempts (0 for no limit) the ring is released and an error is
+  /// sent on [connectionErrorStream]. [disconnect] never triggers a reconnect,
+  /// and [connectToDevice] on a reconnecting ring retries right away.
+  Future<Either<SmartRingFailure, Unit>> configureAutoReconnect({
+    bool enabled = true,
+    Duration initialDelay = const Duration(milliseconds: 500),
+    Duration maxDelay = const Duration(seconds: 30),
+    int maxAttempts = 10,
+  }) {
+    return _platform.configureAutoReconnect(
+      enabled: enabled,
+      initialDelay: initialDelay,
+      maxDelay: maxDelay,
+      maxAttempts: maxAttempts,
+    );
   }
 
   // ==================== Measurement Methods ====================
@@ -61,67 +169,120 @@ class SmartRing {
   /// Start a temperature measurement
   ///
   /// [attempts] - Number of retry attempts if measurement fails (default: 2)
+  /// [retryPlan] - Backoff, retry time budget and connection requirements; replaces [attempts] when set
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
   ///
   /// Returns `Either<SmartRingFailure, bool>` where bool is `true` if the measurement was started successfully, `false` if another measurement is in progress
   Future<Either<SmartRingFailure, bool>> startTemperatureMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) {
-    return _platform.startTemperatureMeasurement(attempts: attempts);
+    return _platform.startTemperatureMeasurement(
+      attempts: attempts,
+      retryPlan: retryPlan,
+      deviceAddress: deviceAddress,
+    );
   }
 
   /// Start a heart rate measurement
   ///
   /// [attempts] - Number of retry attempts if measurement fails (default: 2)
+  /// [retryPlan] - Backoff, retry time budget and connection requirements; replaces [attempts] when set
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
   ///
   /// Returns `Either<SmartRingFailure, bool>` where bool is `true` if the measurement was started successfully, `false` if another measurement is in progress
   Future<Either<SmartRingFailure, bool>> startHeartRateMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) {
-    return _platform.startHeartRateMeasurement(attempts: attempts);
+    return _platform.startHeartRateMeasurement(
+      attempts: attempts,
+      retryPlan: retryPlan,
+      deviceAddress: deviceAddress,
+    );
   }
 
   /// Start an HRV (Heart Rate Variability) measurement
   ///
   /// [attempts] - Number of retry attempts if measurement fails (default: 2)
+  /// [retryPlan] - Backoff, retry time budget and connection requirements; replaces [attempts] when set
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
   ///
   /// Returns `Either<SmartRingFailure, bool>` where bool is `true` if the measurement was started successfully, `false` if another measurement is in progress
   Future<Either<SmartRingFailure, bool>> startHrvMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) {
-    return _platform.startHrvMeasurement(attempts: attempts);
+    return _platform.startHrvMeasurement(
+      attempts: attempts,
+      retryPlan: retryPlan,
+      deviceAddress: deviceAddress,
+    );
   }
 
   /// Start a stress level measurement
   ///
   /// [attempts] - Number of retry attempts if measurement fails (default: 2)
+  /// [retryPlan] - Backoff, retry time budget and connection requirements; replaces [attempts] when set
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
   ///
   /// Returns `Either<SmartRingFailure, bool>` where bool is `true` if the measurement was started successfully, `false` if another measurement is in progress
   Future<Either<SmartRingFailure, bool>> startStressMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) {
-    return _platform.startStressMeasurement(attempts: attempts);
+    return _platform.startStressMeasurement(
+      attempts: attempts,
+      retryPlan: retryPlan,
+      deviceAddress: deviceAddress,
+    );
   }
 
   /// Start a blood oxygen (SpO2) measurement
   ///
   /// [attempts] - Number of retry attempts if measurement fails (default: 2)
+  /// [retryPlan] - Backoff, retry time budget and connection requirements; replaces [attempts] when set
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
   ///
   /// Returns `Either<SmartRingFailure, bool>` where bool is `true` if the measurement was started successfully, `false` if another measurement is in progress
   Future<Either<SmartRingFailure, bool>> startBloodOxygenMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) {
-    return _platform.startBloodOxygenMeasurement(attempts: attempts);
+    return _platform.startBloodOxygenMeasurement(
+      attempts: attempts,
+      retryPlan: retryPlan,
+      deviceAddress: deviceAddress,
+    );
   }
 
   /// Start a full measurement sequence (temperature, HRV, heart rate, stress, blood oxygen)
   ///
+  /// Temperature is measured alongside the optical measurements, which run back
+  /// to back. Each finished step is reported on [fullMeasurementProgressStream].
+  /// A step in [RetryPlan.criticalSteps] (heart rate by default) that fails
+  /// after its retries ends the sequence.
+  ///
   /// [attempts] - Number of retry attempts if measurement fails (default: 2)
+  /// [retryPlan] - Backoff, retry time budget and connection requirements; replaces [attempts] when set
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
   ///
   /// Returns `Either<SmartRingFailure, bool>` where bool is `true` if the measurement was started successfully, `false` if another measurement is in progress
   Future<Either<SmartRingFailure, bool>> startFullMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) {
-    return _platform.startFullMeasurement(attempts: attempts);
+    return _platform.startFullMeasurement(
+      attempts: attempts,
+      retryPlan: retryPlan,
+      deviceAddress: deviceAddress,
+    );
   }
 
   // ==================== Measurement Streams ====================
@@ -129,12 +290,27 @@ class SmartRing {
   /// Stream of temperature measurements in Celsius (using num type)
   Stream<num> get temperatureStream => _platform.temperatureStream;
 
+  /// Stream of every day of temperature slots the ring sends, with a
+  /// measurement, from its timed sampling or for a timing pull
+  Stream<TemperatureSeries> get temperatureSeriesStream =>
+      _platform.temperatureSeriesStream;
+
+  /// Stream of the newest temperature reading against the ring's rolling
+  /// baseline, once per batch of new readings
+  Stream<TemperatureTrend> get temperatureTrendStream =>
+      _platform.temperatureTrendStream;
+
   /// Stream of heart rate measurements in BPM (using num type)
   Stream<num> get heartRateStream => _platform.heartRateStream;
 
   /// Stream of real-time heart rate updates in BPM (using num type)
   Stream<num> get realtimeHeartRateStream => _platform.realtimeHeartRateStream;
 
+  /// Stream of realtime heart rate summaries in
+  /// [RealtimeHeartRateMode.window] mode
+  Stream<HeartRateWindow> get realtimeHeartRateWindowStream =>
+      _platform.realtimeHeartRateWindowStream;
+
   /// Stream of HRV (Heart Rate Variability) measurements (using num type)
   Stream<num> get hrvStream => _platform.hrvStream;
 
@@ -148,7 +324,7 @@ class SmartRing {
   Stream<MeasurementError> get measurementErrorStream =>
       _platform.measurementErrorStream;
 
-  /// Stream of measurement status updates
+  /// Stream of measurement status updates, sent only when the status changes
   Stream<MeasurementStatus> get measurementStatusStream =>
       _platform.measurementStatusStream;
 
@@ -156,6 +332,11 @@ class SmartRing {
   Stream<bool> get fullMeasurementCompleteStream =>
       _platform.fullMeasurementCompleteStream;
 
+  /// Stream of full measurement progress, emitted as each step finishes with
+  /// the wall-clock time elapsed since the sequence started
+  Stream<FullMeasurementProgress> get fullMeasurementProgressStream =>
+      _platform.fullMeasurementProgressStream;
+
   // ==================== Connection Streams ====================
 
   /// Stream of scanned devices
@@ -172,11 +353,33 @@ class SmartRing {
   /// Stream of connection errors
   Stream<String> get connectionErrorStream => _platform.connectionErrorStream;
 
+  /// Stream of reconnect attempts scheduled by [configureAutoReconnect]
+  Stream<ReconnectAttempt> get reconnectStream => _platform.reconnectStream;
+
+  /// Stream of every event from every ring, tagged with
+  /// [SmartRingEvent.deviceAddress]
+  ///
+  /// The typed streams above merge all connected rings; use this stream or
+  /// [eventsFor] to tell them apart.
+  ///
+  /// Measurement results carry [SmartRingEvent.quality], their agreement with
+  /// the ring's recent samples and results; implausible results are retried
+  /// natively before they get here.
+  Stream<SmartRingEvent> get eventStream => _platform.eventStream;
+
+  /// Stream of the events of a single ring
+  Stream<SmartRingEvent> eventsFor(String deviceAddress) =>
+      _platform.eventStream.where((e) => e.deviceAddress == deviceAddress);
+
   // ==================== Battery Methods ====================
 
   /// Request the current battery level from the device
-  Future<Either<SmartRingFailure, Unit>> getBatteryLevel() {
-    return _platform.getBatteryLevel();
+  ///
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
+  Future<Either<SmartRingFailure, Unit>> getBatteryLevel({
+    String? deviceAddress,
+  }) {
+    return _platform.getBatteryLevel(deviceAddress: deviceAddress);
   }
 
   /// Stream of battery level updates (0-100) (using num type)
@@ -202,4 +405,358 @@ class SmartRing {
   /// Stream of blood oxygen timing interval updates (using num type)
   Stream<num> get bloodOxygenTimingIntervalStream =>
       _platform.bloodOxygenTimingIntervalStream;
+
+  // ==================== History Sync ====================
+
+  /// Pull the records stored on the ring and stream them in bounded chunks
+  ///
+  /// [metrics] - Metrics to sync (default: heart rate, HRV, SpO2 and stress)
+  /// [chunkSize] - Maximum records per [HistoryChunk] (default: 64)
+  /// [incremental] - Only emit records newer than the device's last acknowledged
+  /// sync (default: true)
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
+  ///
+  /// Returns the sync id, or `null` if a sync is already running on that ring.
+  /// Sync ids are per ring.
+  Future<Either<SmartRingFailure, int?>> syncHistory({
+    List<HistoryMetric>? metrics,
+    int chunkSize = 64,
+    bool incremental = true,
+    String? deviceAddress,
+  }) {
+    return _platform.syncHistory(
+      metrics: metrics,
+      chunkSize: chunkSize,
+      incremental: incremental,
+      deviceAddress: deviceAddress,
+    );
+  }
+
+  /// Acknowledge that every chunk of [syncId] up to and including [chunkIndex]
+  /// has been stored, advancing the device's persisted sync watermark
+  ///
+  /// [deviceAddress] - Ring that ran the sync (default: the most recently
+  /// connected ring)
+  ///
+  /// Returns `false` if [syncId] is not the ring's latest sync
+  Future<Either<SmartRingFailure, bool>> acknowledgeHistory(
+    int syncId,
+    int chunkIndex, {
+    String? deviceAddress,
+  }) {
+    return _platform.acknowledgeHistory(
+      syncId,
+      chunkIndex,
+      deviceAddress: deviceAddress,
+    );
+  }
+
+  /// Forget the sync watermarks of [deviceAddress], or of every device when null,
+  /// so the next sync re-sends the full history
+  Future<Either<SmartRingFailure, Unit>> resetHistoryWatermarks({
+    String? deviceAddress,
+  }) {
+    return _platform.resetHistoryWatermarks(deviceAddress: deviceAddress);
+  }
+
+  /// Cancel the running history sync of a device
+  Future<Either<SmartRingFailure, Unit>> cancelHistorySync({
+    String? deviceAddress,
+  }) {
+    return _platform.cancelHistorySync(deviceAddress: deviceAddress);
+  }
+
+  /// Stream of history record chunks
+  Stream<HistoryChunk> get historyChunkStream => _platform.historyChunkStream;
+
+  /// Stream of history sync progress, emitted after each metric
+  Stream<HistorySyncProgress> get historySyncProgressStream =>
+      _platform.historySyncProgressStream;
+
+  // ==================== Timing Measurements ====================
+
+  /// Let the ring sample [metric] on its own schedule, which costs far less
+  /// power and airtime than phone-driven measurements
+  ///
+  /// [interval] - Sampling interval in the ring's units, as reported by the
+  /// timing interval streams; 0 disables timing for [metric]. Temperature
+  /// timing is only switched on or off, and temperature measurements leave it
+  /// on while it is configured.
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
+  Future<Either<SmartRingFailure, Unit>> configureTimingMeasurement(
+    TimingMetric metric,
+    int interval, {
+    String? deviceAddress,
+  }) {
+    return _platform.configureTimingMeasurement(
+      metric,
+      interval,
+      deviceAddress: deviceAddress,
+    );
+  }
+
+  /// Ask the ring for its current timing configuration; results arrive on the
+  /// timing interval and temperature timing state streams
+  Future<Either<SmartRingFailure, Unit>> queryTimingMeasurementState({
+    String? deviceAddress,
+  }) {
+    return _platform.queryTimingMeasurementState(deviceAddress: deviceAddress);
+  }
+
+  /// Pull the samples the ring has taken on its own schedule into the
+  /// on-device store, streaming them as [timingChunkStream] chunks.
+  /// Temperature days arrive on [temperatureSeriesStream] instead.
+  ///
+  /// Only days since the device's last pull are queried. This runs
+  /// automatically on connect unless disabled with [configureTimingSync].
+  ///
+  /// [metrics] - Metrics to pull (default: heart rate, HRV, SpO2 and temperature)
+  /// [days] - How many days back to pull, at most 15 (default: 15)
+  /// [deviceAddress] - Ring to target (default: the most recently connected ring)
+  ///
+  /// Returns the sync id, or `null` if a pull is already running on that ring
+  Future<Either<SmartRingFailure, int?>> syncTimingData({
+    List<TimingMetric>? metrics,
+    int days = 15,
+    String? deviceAddress,
+  }) {
+    return _platform.syncTimingData(
+      metrics: metrics,
+      days: days,
+      deviceAddress: deviceAddress,
+    );
+  }
+
+  /// Cancel the running timing data pull of a device
+  Future<Either<SmartRingFailure, Unit>> cancelTimingSync({
+    String? deviceAddress,
+  }) {
+    return _platform.cancelTimingSync(deviceAddress: deviceAddress);
+  }
+
+  /// Configure the automatic timing data pull on connect
+  ///
+  /// [syncOnConnect] - Pull timing data whenever a device connects (default: true)
+  /// [days] - How many days back to pull, at most 15 (default: 15)
+  Future<Either<SmartRingFailure, Unit>> configureTimingSync({
+    bool syncOnConnect = true,
+    int days = 15,
+  }) {
+    return _platform.configureTimingSync(
+      syncOnConnect: syncOnConnect,
+      days: days,
+    );
+  }
+
+  /// Stream of pulled timing data chunks
+  Stream<HistoryChunk> get timingChunkStream => _platform.timingChunkStream;
+
+  /// Stream of timing data pull progress, emitted after each metric
+  Stream<HistorySyncProgress> get timingSyncProgressStream =>
+      _platform.timingSyncProgressStream;
+
+  // ==================== Local Store ====================
+
+  /// Read readings of [metric] recorded on this phone between [from] and [to]
+  ///
+  /// Every heart rate, HRV, stress, blood oxygen and body temperature reading
+  /// is appended to a native on-device store as it arrives, whether or not a
+  /// listener is attached.
+  ///
+  /// [limit] - Maximum number of readings returned, oldest first (default: 10000)
+  /// [deviceAddress] - Ring whose readings to read; each ring has its own store,
+  /// which stays readable after it disconnects (default: the most recently
+  /// connected ring)
+  Future<Either<SmartRingFailure, StoredSeries>> queryRange(
+    SeriesMetric metric,
+    DateTime from,
+    DateTime to, {
+    int limit = 10000,
+    String? deviceAddress,
+  }) {
+    return _platform.queryRange(
+      metric,
+      from,
+      to,
+      limit: limit,
+      deviceAddress: deviceAddress,
+    );
+  }
+
+  /// Export readings of [metric] between [from] and [to] in the store's
+  /// compressed block encoding, for writing to a file or uploading
+  ///
+  /// Decode the bytes with [decodeSeriesExport].
+  Future<Either<SmartRingFailure, Uint8List>> exportRange(
+    SeriesMetric metric,
+    DateTime from,
+    DateTime to, {
+    String? deviceAddress,
+  }) {
+    return _platform.exportRange(
+      metric,
+      from,
+      to,
+      deviceAddress: deviceAddress,
+    );
+  }
+
+  /// Read everything recorded since [from] (until [to], default now) in one
+  /// call, one [CollectedSeries] per ring and metric that has readings
+  ///
+  /// Meant for catching up after [startBackgroundCollection] measured while
+  /// the app was closed.
+  ///
+  /// [deviceAddresses] - Rings to read (default: the collected rings and
+  /// every ring read since the plugin started)
+  Future<Either<SmartRingFailure, List<CollectedSeries>>> readCollectedData(
+    DateTime from, {
+    DateTime? to,
+    List<String>? deviceAddresses,
+  }) {
+    return _platform.readCollectedData(
+      from,
+      to: to,
+      deviceAddresses: deviceAddresses,
+    );
+  }
+
+  // ==================== Background Collection ====================
+
+  /// Keep measuring while the app is in the background or closed
+  ///
+  /// A foreground service with an ongoing notification holds the ring
+  /// connections and wakes every [interval] (5 minutes to 24 hours; Doze may
+  /// stretch it) to run [measurement]. Readings go straight to the on-device
+  /// store without starting Flutter; read them with [readCollectedData]. The
+  /// collection survives the app being closed and resumes after its process
+  /// is restarted, until [stopBackgroundCollection].
+  ///
+  /// On Android 13+ ask for the notification permission first, or the
+  /// service runs without a visible notification.
+  ///
+  /// [deviceAddresses] - Rings to collect from (default: the connected rings)
+  Future<Either<SmartRingFailure, Unit>> startBackgroundCollection({
+    Duration interval = const Duration(minutes: 30),
+    BackgroundMeasurement measurement = BackgroundMeasurement.full,
+    List<String>? deviceAddresses,
+  }) {
+    return _platform.startBackgroundCollection(
+      interval: interval,
+      measurement: measurement,
+      deviceAddresses: deviceAddresses,
+    );
+  }
+
+  /// Stop background collection and its service; rings stay connected
+  Future<Either<SmartRingFailure, Unit>> stopBackgroundCollection() {
+    return _platform.stopBackgroundCollection();
+  }
+
+  /// Whether background collection runs, with its settings and last run
+  Future<Either<SmartRingFailure, BackgroundCollectionStatus>>
+  getBackgroundCollectionStatus() {
+    return _platform.getBackgroundCollectionStatus();
+  }
+
+  // ==================== Measurement Timeouts ====================
+
+  /// Configure how measurement timeouts adapt to each ring's observed latency
+  ///
+  /// The plugin records how long each ring takes to return every measurement
+  /// type and times out at [percentile] of those latencies, clamped to
+  /// [minTimeout] and [maxTimeout]. Until a type has a few samples,
+  /// [maxTimeout] is used.
+  ///
+  /// [percentile] - Latency percentile in (0, 1] used as the timeout (default: 0.99)
+  /// [minTimeout] - Shortest timeout ever used (default: 15 s)
+  /// [maxTimeout] - Longest timeout, and the one used without samples (default: 90 s)
+  Future<Either<SmartRingFailure, Unit>> configureMeasurementTimeouts({
+    double percentile = 0.99,
+    Duration minTimeout = const Duration(seconds: 15),
+    Duration maxTimeout = const Duration(seconds: 90),
+  }) {
+    return _platform.configureMeasurementTimeouts(
+      percentile: percentile,
+      minTimeout: minTimeout,
+      maxTimeout: maxTimeout,
+    );
+  }
+
+  /// Get the latency histogram and current timeout of each measurement type,
+  /// keyed by type ("temperature", "heartRate", "hrv", "stress", "bloodOxygen")
+  ///
+  /// [deviceAddress] - Ring to inspect; histograms outlive the connection
+  /// (default: the most recently connected ring)
+  Future<Either<SmartRingFailure, Map<String, MeasurementTimeoutStats>>>
+  getMeasurementTimeouts({String? deviceAddress}) {
+    return _platform.getMeasurementTimeouts(deviceAddress: deviceAddress);
+  }
+
+  // ==================== Event Delivery ====================
+
+  /// Configure how native events are batched before crossing the platform channel
+  ///
+  /// Events wait in a native buffer of [bufferBytes] (4 KiB to 16 MiB). Events
+  /// sent while nothing listens, e.g. before the first subscription or while
+  /// the app runs [startBackgroundCollection], are replayed on the next listen.
+  /// When the buffer fills, each [EventCategory] follows its
+  /// [BackpressurePolicy]. Status and realtime events default to
+  /// [BackpressurePolicy.coalesceLatest], results to
+  /// [BackpressurePolicy.keepAll], and history and scan events to
+  /// [BackpressurePolicy.dropOldest]. Categories missing from [policies] keep
+  /// their default. Dropped events are counted in [getMetrics].
+  ///
+  /// [mode] - Flush once per frame or once per [intervalMs] (default: frame)
+  Future<Either<SmartRingFailure, Unit>> configureEventDelivery({
+    EventDeliveryMode mode = EventDeliveryMode.frame,
+    int intervalMs = 50,
+    int bufferBytes = 256 * 1024,
+    Map<EventCategory, BackpressurePolicy> policies = const {},
+  }) {
+    return _platform.configureEventDelivery(
+      mode: mode,
+      intervalMs: intervalMs,
+      bufferBytes: bufferBytes,
+      policies: policies,
+    );
+  }
+
+  /// Get batch size and flush latency counters for native event delivery
+  Future<Either<SmartRingFailure, EventDeliveryStats>> getEventDeliveryStats() {
+    return _platform.getEventDeliveryStats();
+  }
+
+  /// Reset native event delivery counters
+  Future<Either<SmartRingFailure, Unit>> resetEventDeliveryStats() {
+    return _platform.resetEventDeliveryStats();
+  }
+
+  /// Choose what the native side sends of the realtime heart rate
+  ///
+  /// [mode] - Every sample, the first sample per [window], or one
+  /// [HeartRateWindow] summary per [window] (default: raw). Applies to every
+  /// ring; [window] must be between 100 ms and 60 s.
+  Future<Either<SmartRingFailure, Unit>> configureRealtimeHeartRate({
+    RealtimeHeartRateMode mode = RealtimeHeartRateMode.raw,
+    Duration window = const Duration(seconds: 1),
+  }) {
+    return _platform.configureRealtimeHeartRate(mode: mode, window: window);
+  }
+
+  // ==================== Metrics ====================
+
+  /// Get the native plugin's counters, latency histograms and queue depths
+  ///
+  /// Covers connect-to-ready and start-to-result times, retries, timeouts,
+  /// events emitted per type, dispatch latency and dropped events since the
+  /// plugin attached or [resetMetrics] was last called.
+  Future<Either<SmartRingFailure, PluginMetrics>> getMetrics() {
+    return _platform.getMetrics();
+  }
+
+  /// Reset native counters and latency histograms
+  Future<Either<SmartRingFailure, Unit>> resetMetrics() {
+    return _platform.resetMetrics();
+  }
 }
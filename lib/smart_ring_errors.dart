@@ -13,6 +13,8 @@ enum SmartRingFailureType {
   bloodOxygen,
   fullMeasurement,
   anyMeasurement,
+  history,
+  timing,
   unknown,
 }
 
@@ -29,6 +31,8 @@ extension SmartRingFailureTypeExtension on SmartRingFailureType {
     SmartRingFailureType.bloodOxygen => 'bloodoxygen',
     SmartRingFailureType.fullMeasurement => 'fullmeasurement',
     SmartRingFailureType.anyMeasurement => 'anymeasurement',
+    SmartRingFailureType.history => 'history',
+    SmartRingFailureType.timing => 'timing',
     SmartRingFailureType.unknown => 'unknown',
   };
 }
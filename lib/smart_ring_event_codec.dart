@@ -0,0 +1,378 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'smart_ring_platform_interface.dart';
+
+/// Event type identifiers of the native binary event stream.
+///
+/// Must be kept in sync with `EventCodec.java` in the Android module.
+abstract final class SmartRingEventType {
+  static const int bodyTemperature = 1;
+  static const int heartRate = 2;
+  static const int realtimeHeartRate = 3;
+  static const int hrv = 4;
+  static const int stress = 5;
+  static const int bloodOxygen = 6;
+  static const int measurementError = 7;
+  static const int measurementStatus = 8;
+  static const int fullMeasurementComplete = 9;
+  static const int deviceScanned = 10;
+  static const int scanComplete = 11;
+  static const int connectionState = 12;
+  static const int connectionError = 13;
+  static const int battery = 14;
+  static const int realtimeBattery = 15;
+  static const int batteryWarning = 16;
+  static const int temperatureTimingState = 17;
+  static const int heartRateTimingInterval = 18;
+  static const int hrvTimingInterval = 19;
+  static const int bloodOxygenTimingInterval = 20;
+  static const int historyChunk = 21;
+  static const int historySyncProgress = 22;
+  static const int timingChunk = 23;
+  static const int timingSyncProgress = 24;
+  static const int deviceSlot = 25;
+  static const int fullMeasurementProgress = 26;
+  static const int reconnecting = 27;
+  static const int realtimeHeartRateWindow = 28;
+  static const int temperatureSeries = 29;
+  static const int temperatureTrend = 30;
+}
+
+/// A single record decoded from a native event batch.
+///
+/// Numeric payloads are exposed through [value], boolean payloads through
+/// [flag] and string payloads, in wire order, through [strings]. Structured
+/// payloads such as history chunks are decoded into [payload].
+///
+/// Measurement results carry a [quality] score from 0 to 1: how well the
+/// value agrees with the ring's recent realtime samples and results. Results
+/// scoring under 0.5 are retried natively and never reach Dart.
+///
+/// [deviceAddress] is the ring the event came from, or null for events that
+/// do not belong to a connected ring such as scan results.
+class SmartRingEvent {
+  final int type;
+  final int timestampMs;
+  final String? deviceAddress;
+  final num? value;
+  final bool? flag;
+  final List<String> strings;
+  final Object? payload;
+  final double? quality;
+
+  const SmartRingEvent({
+    required this.type,
+    required this.timestampMs,
+    this.deviceAddress,
+    this.value,
+    this.flag,
+    this.strings = const [],
+    this.payload,
+    this.quality,
+  });
+
+  @override
+  String toString() =>
+      'SmartRingEvent(type: $type, timestampMs: $timestampMs, '
+      'deviceAddress: $deviceAddress, value: $value, flag: $flag, '
+      'strings: $strings, payload: $payload, quality: $quality)';
+}
+
+/// Decodes a native event batch of
+/// `[u8 type][u8 device][i64 timestampMs][payload]` little-endian records.
+///
+/// `device` is a connection slot bound to an address by a preceding
+/// [SmartRingEventType.deviceSlot] record of the same batch; slot 0 means no
+/// device. Decoding stops at the first unknown type, since its payload length
+/// cannot be known.
+Iterable<SmartRingEvent> decodeSmartRingEvents(Uint8List bytes) sync* {
+  final reader = _EventReader(bytes);
+  final addresses = <int, String>{};
+
+  while (reader.remaining >= 10) {
+    final type = reader.readUint8();
+    final device = reader.readUint8();
+    final timestampMs = reader.readInt64();
+    final deviceAddress = addresses[device];
+
+    switch (type) {
+      case SmartRingEventType.deviceSlot:
+        addresses[device] = reader.readString();
+        break;
+      case SmartRingEventType.heartRate:
+      case SmartRingEventType.hrv:
+      case SmartRingEventType.stress:
+      case SmartRingEventType.bloodOxygen:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          value: reader.readInt32(),
+          quality: reader.readFloat32(),
+        );
+        break;
+      case SmartRingEventType.realtimeHeartRate:
+      case SmartRingEventType.measurementStatus:
+      case SmartRingEventType.connectionState:
+      case SmartRingEventType.battery:
+      case SmartRingEventType.heartRateTimingInterval:
+      case SmartRingEventType.hrvTimingInterval:
+      case SmartRingEventType.bloodOxygenTimingInterval:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          value: reader.readInt32(),
+        );
+        break;
+      case SmartRingEventType.bodyTemperature:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          value: reader.readFloat32(),
+          quality: reader.readFloat32(),
+        );
+        break;
+      case SmartRingEventType.temperatureTimingState:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          flag: reader.readUint8() != 0,
+        );
+        break;
+      case SmartRingEventType.fullMeasurementComplete:
+      case SmartRingEventType.scanComplete:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+        );
+        break;
+      case SmartRingEventType.connectionError:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          strings: [reader.readString()],
+        );
+        break;
+      case SmartRingEventType.deviceScanned:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          strings: [reader.readString(), reader.readString()],
+          value: reader.readInt32(),
+          flag: reader.readUint8() != 0,
+        );
+        break;
+      case SmartRingEventType.measurementError:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          strings: [
+            reader.readString(),
+            reader.readString(),
+            reader.readString(),
+          ],
+        );
+        break;
+      case SmartRingEventType.realtimeHeartRateWindow:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          payload: HeartRateWindow(
+            count: reader.readInt32(),
+            min: reader.readInt32(),
+            max: reader.readInt32(),
+            mean: reader.readFloat32(),
+            last: reader.readInt32(),
+            duration: Duration(milliseconds: reader.readInt32()),
+          ),
+        );
+        break;
+      case SmartRingEventType.temperatureSeries:
+        final day = reader.readUint8();
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          payload: TemperatureSeries(
+            day: day,
+            celsius: reader.readFloat32List(reader.readInt32()),
+          ),
+        );
+        break;
+      case SmartRingEventType.temperatureTrend:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          payload: TemperatureTrend(
+            celsius: reader.readFloat32(),
+            baseline: reader.readFloat32(),
+            deviation: reader.readFloat32(),
+            spread: reader.readFloat32(),
+            baselineSamples: reader.readInt32(),
+          ),
+        );
+        break;
+      case SmartRingEventType.reconnecting:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          value: reader.readInt32(),
+          payload: Duration(milliseconds: reader.readInt32()),
+        );
+        break;
+      case SmartRingEventType.realtimeBattery:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          value: reader.readInt32(),
+          flag: reader.readUint8() != 0,
+        );
+        break;
+      case SmartRingEventType.batteryWarning:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          value: reader.readInt32(),
+          flag: reader.readUint8() != 0,
+          strings: [reader.readString()],
+        );
+        break;
+      case SmartRingEventType.historyChunk:
+      case SmartRingEventType.timingChunk:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          payload: _readHistoryChunk(reader),
+        );
+        break;
+      case SmartRingEventType.historySyncProgress:
+      case SmartRingEventType.timingSyncProgress:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          payload: _readHistorySyncProgress(reader),
+        );
+        break;
+      case SmartRingEventType.fullMeasurementProgress:
+        yield SmartRingEvent(
+          type: type,
+          timestampMs: timestampMs,
+          deviceAddress: deviceAddress,
+          payload: FullMeasurementProgress(
+            step: reader.readString(),
+            succeeded: reader.readUint8() != 0,
+            completedSteps: reader.readUint8(),
+            totalSteps: reader.readUint8(),
+            elapsed: Duration(milliseconds: reader.readInt32()),
+          ),
+        );
+        break;
+      default:
+        return;
+    }
+  }
+}
+
+HistoryChunk _readHistoryChunk(_EventReader reader) {
+  final metric = HistoryMetric.fromId(reader.readUint8());
+  final syncId = reader.readInt32();
+  final chunkIndex = reader.readInt32();
+  final count = reader.readInt32();
+  final timestamps = Int64List(count);
+  for (var i = 0; i < count; i++) {
+    timestamps[i] = reader.readInt64();
+  }
+  final values = Int32List(count);
+  for (var i = 0; i < count; i++) {
+    values[i] = reader.readInt32();
+  }
+  return HistoryChunk(
+    metric: metric,
+    syncId: syncId,
+    chunkIndex: chunkIndex,
+    timestamps: timestamps,
+    values: values,
+  );
+}
+
+HistorySyncProgress _readHistorySyncProgress(_EventReader reader) {
+  final syncId = reader.readInt32();
+  final metric = HistoryMetric.fromId(reader.readUint8());
+  final records = reader.readInt32();
+  final completedMetrics = reader.readUint8();
+  final totalMetrics = reader.readUint8();
+  final flags = reader.readUint8();
+  return HistorySyncProgress(
+    syncId: syncId,
+    metric: metric,
+    records: records,
+    completedMetrics: completedMetrics,
+    totalMetrics: totalMetrics,
+    isComplete: (flags & 0x01) != 0,
+    metricFailed: (flags & 0x02) != 0,
+  );
+}
+
+class _EventReader {
+  final Uint8List _bytes;
+  final ByteData _data;
+  int _offset = 0;
+
+  _EventReader(this._bytes) : _data = ByteData.sublistView(_bytes);
+
+  int get remaining => _data.lengthInBytes - _offset;
+
+  int readUint8() => _data.getUint8(_offset++);
+
+  int readInt32() {
+    final value = _data.getInt32(_offset, Endian.little);
+    _offset += 4;
+    return value;
+  }
+
+  int readInt64() {
+    final value = _data.getInt64(_offset, Endian.little);
+    _offset += 8;
+    return value;
+  }
+
+  double readFloat32() {
+    final value = _data.getFloat32(_offset, Endian.little);
+    _offset += 4;
+    return value;
+  }
+
+  Float32List readFloat32List(int count) {
+    final values = Float32List(count);
+    for (var i = 0; i < count; i++) {
+      values[i] = _data.getFloat32(_offset, Endian.little);
+      _offset += 4;
+    }
+    return values;
+  }
+
+  String readString() {
+    final length = _data.getUint16(_offset, Endian.little);
+    _offset += 2;
+    final value = utf8.decode(
+      Uint8List.sublistView(_bytes, _offset, _offset + length),
+    );
+    _offset += length;
+    return value;
+  }
+}
@@ -1,11 +1,12 @@
 import 'dart:async';
-import 'dart:convert';
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 import 'package:fpdart/fpdart.dart';
 
 import 'smart_ring_platform_interface.dart';
 import 'smart_ring_errors.dart';
+import 'smart_ring_event_codec.dart';
+import 'smart_ring_series_codec.dart';
 
 /// An implementation of [SmartRingPlatform] that uses method channels.
 class MethodChannelSmartRing extends SmartRingPlatform {
@@ -15,8 +16,14 @@ class MethodChannelSmartRing extends SmartRingPlatform {
 
   // Stream controllers
   final _temperatureController = StreamController<num>.broadcast();
+  final _temperatureSeriesController =
+      StreamController<TemperatureSeries>.broadcast();
+  final _temperatureTrendController =
+      StreamController<TemperatureTrend>.broadcast();
   final _heartRateController = StreamController<num>.broadcast();
   final _realtimeHeartRateController = StreamController<num>.broadcast();
+  final _realtimeHeartRateWindowController =
+      StreamController<HeartRateWindow>.broadcast();
   final _hrvController = StreamController<num>.broadcast();
   final _stressController = StreamController<num>.broadcast();
   final _bloodOxygenController = StreamController<num>.broadcast();
@@ -25,11 +32,14 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   final _measurementStatusController =
       StreamController<MeasurementStatus>.broadcast();
   final _fullMeasurementCompleteController = StreamController<bool>.broadcast();
+  final _fullMeasurementProgressController =
+      StreamController<FullMeasurementProgress>.broadcast();
   final _deviceScannedController = StreamController<ScannedDevice>.broadcast();
   final _scanCompleteController = StreamController<void>.broadcast();
   final _connectionStateController =
       StreamController<ConnectionState>.broadcast();
   final _connectionErrorController = StreamController<String>.broadcast();
+  final _reconnectController = StreamController<ReconnectAttempt>.broadcast();
   final _batteryController = StreamController<num>.broadcast();
   final _batteryWarningController =
       StreamController<BatteryWarning>.broadcast();
@@ -38,6 +48,14 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   final _hrvTimingIntervalController = StreamController<num>.broadcast();
   final _bloodOxygenTimingIntervalController =
       StreamController<num>.broadcast();
+  final _historyChunkController = StreamController<HistoryChunk>.broadcast();
+  final _historySyncProgressController =
+      StreamController<HistorySyncProgress>.broadcast();
+  final _timingChunkController = StreamController<HistoryChunk>.broadcast();
+  final _timingSyncProgressController =
+      StreamController<HistorySyncProgress>.broadcast();
+
+  final _eventController = StreamController<SmartRingEvent>.broadcast();
 
   StreamSubscription<dynamic>? _eventSubscription;
 
@@ -49,97 +67,149 @@ class MethodChannelSmartRing extends SmartRingPlatform {
     _eventSubscription = eventChannel.receiveBroadcastStream().listen((
       dynamic event,
     ) {
-      if (event is Map) {
-        _processEvent(event['event'] as String?, event['data']);
+      if (event is Uint8List) {
+        _processBatch(event);
       }
     }, onError: (error) => debugPrint('Event channel error: $error'));
+  }
 
-    methodChannel.setMethodCallHandler((call) async {
-      _processEvent(call.method, call.arguments);
-    });
+  /// Unpacks a native binary event batch.
+  void _processBatch(Uint8List batch) {
+    try {
+      for (final event in decodeSmartRingEvents(batch)) {
+        _eventController.add(event);
+        _processEvent(event);
+      }
+    } catch (e) {
+      debugPrint('Error decoding event batch: $e');
+    }
   }
 
-  void _processEvent(String? eventType, dynamic data) {
+  void _processEvent(SmartRingEvent event) {
     try {
-      switch (eventType) {
-        case 'bodyTemperature':
-          _addIfNum(data, _temperatureController);
+      switch (event.type) {
+        case SmartRingEventType.bodyTemperature:
+          // Native sends raw float32; keep the historical one-decimal precision
+          _temperatureController.add((event.value! * 10).round() / 10);
           break;
-        case 'heartRate':
-          _addIfNum(data, _heartRateController);
+        case SmartRingEventType.heartRate:
+          _heartRateController.add(event.value!);
           break;
-        case 'realtimeHeartRate':
-          _addIfNum(data, _realtimeHeartRateController);
+        case SmartRingEventType.realtimeHeartRate:
+          _realtimeHeartRateController.add(event.value!);
           break;
-        case 'hrv':
-          _addIfNum(data, _hrvController);
+        case SmartRingEventType.temperatureSeries:
+          _temperatureSeriesController.add(event.payload as TemperatureSeries);
           break;
-        case 'stress':
-          _addIfNum(data, _stressController);
+        case SmartRingEventType.temperatureTrend:
+          _temperatureTrendController.add(event.payload as TemperatureTrend);
           break;
-        case 'bloodOxygen':
-          _addIfNum(data, _bloodOxygenController);
+        case SmartRingEventType.realtimeHeartRateWindow:
+          _realtimeHeartRateWindowController.add(
+            event.payload as HeartRateWindow,
+          );
           break;
-        case 'measurementError':
-          _parseJsonAndAdd<MeasurementError>(
-            data,
-            MeasurementError.fromJson,
-            _measurementErrorController,
+        case SmartRingEventType.hrv:
+          _hrvController.add(event.value!);
+          break;
+        case SmartRingEventType.stress:
+          _stressController.add(event.value!);
+          break;
+        case SmartRingEventType.bloodOxygen:
+          _bloodOxygenController.add(event.value!);
+          break;
+        case SmartRingEventType.measurementError:
+          _measurementErrorController.add(
+            MeasurementError(
+              type: event.strings[0],
+              errorType: event.strings[1].isEmpty ? null : event.strings[1],
+              errorMessage: event.strings[2],
+            ),
           );
           break;
-        case 'measurementStatus':
-          _parseJsonAndAdd<MeasurementStatus>(
-            data,
-            MeasurementStatus.fromJson,
-            _measurementStatusController,
+        case SmartRingEventType.measurementStatus:
+          _measurementStatusController.add(
+            MeasurementStatus.fromBits(event.value!.toInt()),
           );
           break;
-        case 'fullMeasurementComplete':
+        case SmartRingEventType.fullMeasurementComplete:
           _fullMeasurementCompleteController.add(true);
           break;
-        case 'onDeviceScanned':
-          _parseDevice(data);
+        case SmartRingEventType.fullMeasurementProgress:
+          _fullMeasurementProgressController.add(
+            event.payload as FullMeasurementProgress,
+          );
+          break;
+        case SmartRingEventType.deviceScanned:
+          _deviceScannedController.add(
+            ScannedDevice(
+              name: event.strings[0],
+              address: event.strings[1],
+              rssi: event.value?.toInt() ?? 0,
+              isUpdate: event.flag ?? false,
+            ),
+          );
           break;
-        case 'onScanComplete':
+        case SmartRingEventType.scanComplete:
           _scanCompleteController.add(null);
           break;
-        case 'onConnectionStateChanged':
-          if (data is String) {
-            final state = int.tryParse(data);
-            if (state != null) {
-              _connectionStateController.add(ConnectionState.fromInt(state));
-            }
-          }
+        case SmartRingEventType.connectionState:
+          _connectionStateController.add(
+            ConnectionState.fromInt(event.value!.toInt()),
+          );
+          break;
+        case SmartRingEventType.connectionError:
+          _connectionErrorController.add(event.strings[0]);
           break;
-        case 'connectionError':
-          if (data is String) {
-            _connectionErrorController.add(data);
-          }
+        case SmartRingEventType.reconnecting:
+          _reconnectController.add(
+            ReconnectAttempt(
+              deviceAddress: event.deviceAddress ?? '',
+              attempt: event.value!.toInt(),
+              delay: event.payload as Duration,
+            ),
+          );
           break;
-        case 'onBattery':
-        case 'onRealTimeBattery':
-          _addIfNum(data, _batteryController);
+        case SmartRingEventType.battery:
+        case SmartRingEventType.realtimeBattery:
+          _batteryController.add(event.value!);
           break;
-        case 'batteryWarning':
-          _parseJsonAndAdd<BatteryWarning>(
-            data,
-            BatteryWarning.fromJson,
-            _batteryWarningController,
+        case SmartRingEventType.batteryWarning:
+          _batteryWarningController.add(
+            BatteryWarning(
+              level: event.value!,
+              charging: event.flag ?? false,
+              message: event.strings[0],
+            ),
           );
           break;
-        case 'temperatureTimingState':
-          if (data is String) {
-            _temperatureTimingStateController.add(data.toLowerCase() == 'true');
-          }
+        case SmartRingEventType.temperatureTimingState:
+          _temperatureTimingStateController.add(event.flag ?? false);
+          break;
+        case SmartRingEventType.heartRateTimingInterval:
+          _heartRateTimingIntervalController.add(event.value!);
+          break;
+        case SmartRingEventType.hrvTimingInterval:
+          _hrvTimingIntervalController.add(event.value!);
+          break;
+        case SmartRingEventType.bloodOxygenTimingInterval:
+          _bloodOxygenTimingIntervalController.add(event.value!);
           break;
-        case 'heartRateTimingInterval':
-          _addIfNum(data, _heartRateTimingIntervalController);
+        case SmartRingEventType.historyChunk:
+          _historyChunkController.add(event.payload as HistoryChunk);
           break;
-        case 'hrvTimingInterval':
-          _addIfNum(data, _hrvTimingIntervalController);
+        case SmartRingEventType.historySyncProgress:
+          _historySyncProgressController.add(
+            event.payload as HistorySyncProgress,
+          );
+          break;
+        case SmartRingEventType.timingChunk:
+          _timingChunkController.add(event.payload as HistoryChunk);
           break;
-        case 'bloodOxygenTimingInterval':
-          _addIfNum(data, _bloodOxygenTimingIntervalController);
+        case SmartRingEventType.timingSyncProgress:
+          _timingSyncProgressController.add(
+            event.payload as HistorySyncProgress,
+          );
           break;
       }
     } catch (e) {
@@ -147,42 +217,6 @@ class MethodChannelSmartRing extends SmartRingPlatform {
     }
   }
 
-  void _addIfNum(dynamic data, StreamController<num> controller) {
-    if (data is String) {
-      final value = num.tryParse(data);
-      if (value != null) controller.add(value);
-    }
-  }
-
-  void _parseJsonAndAdd<T>(
-    dynamic data,
-    T Function(Map<String, dynamic>) fromJson,
-    StreamController<T> controller,
-  ) {
-    if (data is! String) return;
-    try {
-      final json = jsonDecode(data) as Map<String, dynamic>;
-      controller.add(fromJson(json));
-    } catch (e) {
-      debugPrint('Error parsing JSON: $e');
-    }
-  }
-
-  void _parseDevice(dynamic data) {
-    try {
-      if (data is String) {
-        final json = jsonDecode(data) as Map<String, dynamic>;
-        _deviceScannedController.add(ScannedDevice.fromJson(json));
-      } else if (data is Map) {
-        _deviceScannedController.add(
-          ScannedDevice.fromJson(Map<String, dynamic>.from(data)),
-        );
-      }
-    } catch (e) {
-      debugPrint('Error parsing device: $e');
-    }
-  }
-
   Exception? _convertPlatformExceptionToCustomException(
     PlatformException error,
     String operation,
@@ -388,9 +422,21 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   }
 
   @override
-  Future<Either<SmartRingFailure, Unit>> startScan() async {
+  Future<Either<SmartRingFailure, Unit>> startScan({
+    String? namePrefix,
+    int? minRssi,
+    List<String>? addresses,
+    int limit = 0,
+    Duration duration = const Duration(seconds: 30),
+  }) async {
     try {
-      await methodChannel.invokeMethod('startScan');
+      await methodChannel.invokeMethod('startScan', {
+        'namePrefix': namePrefix,
+        'minRssi': minRssi,
+        'addresses': addresses,
+        'limit': limit,
+        'durationMs': duration.inMilliseconds,
+      });
       return const Right(unit);
     } catch (e) {
       return _handleError<Unit>(e, 'startScan', SmartRingFailureType.scan);
@@ -416,9 +462,13 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   }
 
   @override
-  Future<Either<SmartRingFailure, Unit>> disconnect() async {
+  Future<Either<SmartRingFailure, Unit>> disconnect({
+    String? deviceAddress,
+  }) async {
     try {
-      await methodChannel.invokeMethod('disconnect');
+      await methodChannel.invokeMethod('disconnect', {
+        'deviceAddress': deviceAddress,
+      });
       return const Right(unit);
     } catch (e) {
       return _handleError<Unit>(
@@ -430,35 +480,15 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   }
 
   @override
-  Future<Either<SmartRingFailure, MeasurementStatus>>
-  getMeasurementStatus() async {
+  Future<Either<SmartRingFailure, MeasurementStatus>> getMeasurementStatus({
+    String? deviceAddress,
+  }) async {
     try {
-      final statusMap = await methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+      final bits = await methodChannel.invokeMethod<int>(
         'getMeasurementStatus',
+        {'deviceAddress': deviceAddress},
       );
-      if (statusMap != null) {
-        try {
-          return Right(
-            MeasurementStatus.fromJson(Map<String, dynamic>.from(statusMap)),
-          );
-        } catch (e) {
-          throw SmartRingDecodeException(
-            type: SmartRingFailureType.unknown,
-            reasons: ['Failed to decode measurement status: ${e.toString()}'],
-          );
-        }
-      }
-      return Right(
-        MeasurementStatus(
-          temperature: false,
-          heartRate: false,
-          hrv: false,
-          stress: false,
-          bloodOxygen: false,
-          fullMeasurement: false,
-          anyMeasurement: false,
-        ),
-      );
+      return Right(MeasurementStatus.fromBits(bits ?? 0));
     } catch (e) {
       return _handleError<MeasurementStatus>(
         e,
@@ -469,9 +499,13 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   }
 
   @override
-  Future<Either<SmartRingFailure, Unit>> stopAllMeasurements() async {
+  Future<Either<SmartRingFailure, Unit>> stopAllMeasurements({
+    String? deviceAddress,
+  }) async {
     try {
-      await methodChannel.invokeMethod('stopAllMeasurements');
+      await methodChannel.invokeMethod('stopAllMeasurements', {
+        'deviceAddress': deviceAddress,
+      });
       return const Right(unit);
     } catch (e) {
       return _handleError<Unit>(
@@ -482,14 +516,87 @@ class MethodChannelSmartRing extends SmartRingPlatform {
     }
   }
 
+  @override
+  Future<Either<SmartRingFailure, List<ConnectedDevice>>>
+  getConnectedDevices() async {
+    try {
+      final devices = await methodChannel.invokeMethod<List<dynamic>>(
+        'getConnectedDevices',
+      );
+      return Right(
+        (devices ?? const [])
+            .map(
+              (d) => ConnectedDevice.fromMap(
+                Map<String, dynamic>.from(d as Map<dynamic, dynamic>),
+              ),
+            )
+            .toList(),
+      );
+    } catch (e) {
+      return _handleError<List<ConnectedDevice>>(
+        e,
+        'getConnectedDevices',
+        SmartRingFailureType.connection,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, int>> setMaxConnections(
+    int maxConnections,
+  ) async {
+    try {
+      final applied = await methodChannel.invokeMethod<int>(
+        'setMaxConnections',
+        {'maxConnections': maxConnections},
+      );
+      return Right(applied ?? maxConnections);
+    } catch (e) {
+      return _handleError<int>(
+        e,
+        'setMaxConnections',
+        SmartRingFailureType.connection,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureAutoReconnect({
+    bool enabled = true,
+    Duration initialDelay = const Duration(milliseconds: 500),
+    Duration maxDelay = const Duration(seconds: 30),
+    int maxAttempts = 10,
+  }) async {
+    try {
+      await methodChannel.invokeMethod('configureAutoReconnect', {
+        'enabled': enabled,
+        'initialDelayMs': initialDelay.inMilliseconds,
+        'maxDelayMs': maxDelay.inMilliseconds,
+        'maxAttempts': maxAttempts,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'configureAutoReconnect',
+        SmartRingFailureType.connection,
+      );
+    }
+  }
+
   @override
   Future<Either<SmartRingFailure, bool>> startTemperatureMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) async {
     try {
       final result = await methodChannel.invokeMethod<bool>(
         'startTemperatureMeasurement',
-        {'attempts': attempts},
+        {
+          'attempts': retryPlan?.toMap() ?? attempts,
+          'deviceAddress': deviceAddress,
+        },
       );
       return Right(result ?? false);
     } catch (e) {
@@ -504,11 +611,16 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   @override
   Future<Either<SmartRingFailure, bool>> startHeartRateMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) async {
     try {
       final result = await methodChannel.invokeMethod<bool>(
         'startHeartRateMeasurement',
-        {'attempts': attempts},
+        {
+          'attempts': retryPlan?.toMap() ?? attempts,
+          'deviceAddress': deviceAddress,
+        },
       );
       return Right(result ?? false);
     } catch (e) {
@@ -523,11 +635,16 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   @override
   Future<Either<SmartRingFailure, bool>> startHrvMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) async {
     try {
       final result = await methodChannel.invokeMethod<bool>(
         'startHrvMeasurement',
-        {'attempts': attempts},
+        {
+          'attempts': retryPlan?.toMap() ?? attempts,
+          'deviceAddress': deviceAddress,
+        },
       );
       return Right(result ?? false);
     } catch (e) {
@@ -542,11 +659,16 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   @override
   Future<Either<SmartRingFailure, bool>> startStressMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) async {
     try {
       final result = await methodChannel.invokeMethod<bool>(
         'startStressMeasurement',
-        {'attempts': attempts},
+        {
+          'attempts': retryPlan?.toMap() ?? attempts,
+          'deviceAddress': deviceAddress,
+        },
       );
       return Right(result ?? false);
     } catch (e) {
@@ -561,11 +683,16 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   @override
   Future<Either<SmartRingFailure, bool>> startBloodOxygenMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) async {
     try {
       final result = await methodChannel.invokeMethod<bool>(
         'startBloodOxygenMeasurement',
-        {'attempts': attempts},
+        {
+          'attempts': retryPlan?.toMap() ?? attempts,
+          'deviceAddress': deviceAddress,
+        },
       );
       return Right(result ?? false);
     } catch (e) {
@@ -580,11 +707,16 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   @override
   Future<Either<SmartRingFailure, bool>> startFullMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) async {
     try {
       final result = await methodChannel.invokeMethod<bool>(
         'startFullMeasurement',
-        {'attempts': attempts},
+        {
+          'attempts': retryPlan?.toMap() ?? attempts,
+          'deviceAddress': deviceAddress,
+        },
       );
       return Right(result ?? false);
     } catch (e) {
@@ -596,9 +728,521 @@ class MethodChannelSmartRing extends SmartRingPlatform {
     }
   }
 
+  @override
+  Future<Either<SmartRingFailure, int?>> syncHistory({
+    List<HistoryMetric>? metrics,
+    int chunkSize = 64,
+    bool incremental = true,
+    String? deviceAddress,
+  }) async {
+    try {
+      final syncId = await methodChannel.invokeMethod<int>('syncHistory', {
+        if (metrics != null) 'metrics': metrics.map((m) => m.name).toList(),
+        'chunkSize': chunkSize,
+        'incremental': incremental,
+        'deviceAddress': deviceAddress,
+      });
+      return Right(syncId);
+    } catch (e) {
+      return _handleError<int?>(
+        e,
+        'syncHistory',
+        SmartRingFailureType.history,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, bool>> acknowledgeHistory(
+    int syncId,
+    int chunkIndex, {
+    String? deviceAddress,
+  }) async {
+    try {
+      final result = await methodChannel.invokeMethod<bool>(
+        'acknowledgeHistory',
+        {
+          'syncId': syncId,
+          'chunkIndex': chunkIndex,
+          'deviceAddress': deviceAddress,
+        },
+      );
+      return Right(result ?? false);
+    } catch (e) {
+      return _handleError<bool>(
+        e,
+        'acknowledgeHistory',
+        SmartRingFailureType.history,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> resetHistoryWatermarks({
+    String? deviceAddress,
+  }) async {
+    try {
+      await methodChannel.invokeMethod('resetHistoryWatermarks', {
+        'deviceAddress': deviceAddress,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'resetHistoryWatermarks',
+        SmartRingFailureType.history,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> cancelHistorySync({
+    String? deviceAddress,
+  }) async {
+    try {
+      await methodChannel.invokeMethod('cancelHistorySync', {
+        'deviceAddress': deviceAddress,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'cancelHistorySync',
+        SmartRingFailureType.history,
+      );
+    }
+  }
+
+  @override
+  Stream<HistoryChunk> get historyChunkStream =>
+      _historyChunkController.stream;
+
+  @override
+  Stream<HistorySyncProgress> get historySyncProgressStream =>
+      _historySyncProgressController.stream;
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureTimingMeasurement(
+    TimingMetric metric,
+    int interval, {
+    String? deviceAddress,
+  }) async {
+    try {
+      await methodChannel.invokeMethod('configureTimingMeasurement', {
+        'metric': metric.name,
+        'interval': interval,
+        'deviceAddress': deviceAddress,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'configureTimingMeasurement',
+        SmartRingFailureType.timing,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> queryTimingMeasurementState({
+    String? deviceAddress,
+  }) async {
+    try {
+      await methodChannel.invokeMethod('queryTimingMeasurementState', {
+        'deviceAddress': deviceAddress,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'queryTimingMeasurementState',
+        SmartRingFailureType.timing,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, int?>> syncTimingData({
+    List<TimingMetric>? metrics,
+    int days = 15,
+    String? deviceAddress,
+  }) async {
+    try {
+      final syncId = await methodChannel.invokeMethod<int>('syncTimingData', {
+        if (metrics != null) 'metrics': metrics.map((m) => m.name).toList(),
+        'days': days,
+        'deviceAddress': deviceAddress,
+      });
+      return Right(syncId);
+    } catch (e) {
+      return _handleError<int?>(
+        e,
+        'syncTimingData',
+        SmartRingFailureType.timing,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> cancelTimingSync({
+    String? deviceAddress,
+  }) async {
+    try {
+      await methodChannel.invokeMethod('cancelTimingSync', {
+        'deviceAddress': deviceAddress,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'cancelTimingSync',
+        SmartRingFailureType.timing,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureTimingSync({
+    bool syncOnConnect = true,
+    int days = 15,
+  }) async {
+    try {
+      await methodChannel.invokeMethod('configureTimingSync', {
+        'syncOnConnect': syncOnConnect,
+        'days': days,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'configureTimingSync',
+        SmartRingFailureType.timing,
+      );
+    }
+  }
+
+  @override
+  Stream<HistoryChunk> get timingChunkStream => _timingChunkController.stream;
+
+  @override
+  Stream<HistorySyncProgress> get timingSyncProgressStream =>
+      _timingSyncProgressController.stream;
+
+  @override
+  Future<Either<SmartRingFailure, StoredSeries>> queryRange(
+    SeriesMetric metric,
+    DateTime from,
+    DateTime to, {
+    int limit = 10000,
+    String? deviceAddress,
+  }) async {
+    try {
+      final rangeMap = await methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+        'queryRange',
+        {
+          'metric': metric.name,
+          'from': from.millisecondsSinceEpoch,
+          'to': to.millisecondsSinceEpoch,
+          'limit': limit,
+          'deviceAddress': deviceAddress,
+        },
+      );
+      return Right(
+        StoredSeries.fromMap(
+          metric,
+          Map<String, dynamic>.from(rangeMap ?? const {}),
+        ),
+      );
+    } catch (e) {
+      return _handleError<StoredSeries>(
+        e,
+        'queryRange',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Uint8List>> exportRange(
+    SeriesMetric metric,
+    DateTime from,
+    DateTime to, {
+    String? deviceAddress,
+  }) async {
+    try {
+      final bytes = await methodChannel.invokeMethod<Uint8List>('exportRange', {
+        'metric': metric.name,
+        'from': from.millisecondsSinceEpoch,
+        'to': to.millisecondsSinceEpoch,
+        'deviceAddress': deviceAddress,
+      });
+      return Right(bytes ?? Uint8List(0));
+    } catch (e) {
+      return _handleError<Uint8List>(
+        e,
+        'exportRange',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, List<CollectedSeries>>> readCollectedData(
+    DateTime from, {
+    DateTime? to,
+    List<String>? deviceAddresses,
+  }) async {
+    try {
+      final exports = await methodChannel.invokeMethod<List<dynamic>>(
+        'readCollectedData',
+        {
+          'from': from.millisecondsSinceEpoch,
+          'to': to?.millisecondsSinceEpoch,
+          'deviceAddresses': deviceAddresses,
+        },
+      );
+      return Right([
+        for (final export in exports ?? const [])
+          CollectedSeries(
+            deviceAddress: export['deviceAddress'] as String,
+            series: decodeSeriesExport(export['data'] as Uint8List),
+          ),
+      ]);
+    } catch (e) {
+      return _handleError<List<CollectedSeries>>(
+        e,
+        'readCollectedData',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> startBackgroundCollection({
+    Duration interval = const Duration(minutes: 30),
+    BackgroundMeasurement measurement = BackgroundMeasurement.full,
+    List<String>? deviceAddresses,
+  }) async {
+    try {
+      await methodChannel.invokeMethod('startBackgroundCollection', {
+        'intervalMs': interval.inMilliseconds,
+        'measurement': measurement.name,
+        'deviceAddresses': deviceAddresses,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'startBackgroundCollection',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> stopBackgroundCollection() async {
+    try {
+      await methodChannel.invokeMethod('stopBackgroundCollection');
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'stopBackgroundCollection',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, BackgroundCollectionStatus>>
+  getBackgroundCollectionStatus() async {
+    try {
+      final statusMap = await methodChannel
+          .invokeMethod<Map<dynamic, dynamic>>('getBackgroundCollectionStatus');
+      return Right(
+        BackgroundCollectionStatus.fromMap(
+          Map<String, dynamic>.from(statusMap ?? const {}),
+        ),
+      );
+    } catch (e) {
+      return _handleError<BackgroundCollectionStatus>(
+        e,
+        'getBackgroundCollectionStatus',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureMeasurementTimeouts({
+    double percentile = 0.99,
+    Duration minTimeout = const Duration(seconds: 15),
+    Duration maxTimeout = const Duration(seconds: 90),
+  }) async {
+    try {
+      await methodChannel.invokeMethod('configureMeasurementTimeouts', {
+        'percentile': percentile,
+        'minTimeoutMs': minTimeout.inMilliseconds,
+        'maxTimeoutMs': maxTimeout.inMilliseconds,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'configureMeasurementTimeouts',
+        SmartRingFailureType.anyMeasurement,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Map<String, MeasurementTimeoutStats>>>
+  getMeasurementTimeouts({String? deviceAddress}) async {
+    try {
+      final timeoutsMap = await methodChannel
+          .invokeMethod<Map<dynamic, dynamic>>('getMeasurementTimeouts', {
+            'deviceAddress': deviceAddress,
+          });
+      return Right({
+        for (final entry in (timeoutsMap ?? const {}).entries)
+          entry.key as String: MeasurementTimeoutStats.fromMap(
+            Map<String, dynamic>.from(entry.value as Map),
+          ),
+      });
+    } catch (e) {
+      return _handleError<Map<String, MeasurementTimeoutStats>>(
+        e,
+        'getMeasurementTimeouts',
+        SmartRingFailureType.anyMeasurement,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureEventDelivery({
+    EventDeliveryMode mode = EventDeliveryMode.frame,
+    int intervalMs = 50,
+    int bufferBytes = 256 * 1024,
+    Map<EventCategory, BackpressurePolicy> policies = const {},
+  }) async {
+    try {
+      await methodChannel.invokeMethod('configureEventDelivery', {
+        'mode': mode.name,
+        'intervalMs': intervalMs,
+        'bufferBytes': bufferBytes,
+        'policies': {
+          for (final entry in policies.entries) entry.key.name: entry.value.name,
+        },
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'configureEventDelivery',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, EventDeliveryStats>>
+  getEventDeliveryStats() async {
+    try {
+      final statsMap = await methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+        'getEventDeliveryStats',
+      );
+      return Right(
+        EventDeliveryStats.fromMap(
+          Map<String, dynamic>.from(statsMap ?? const {}),
+        ),
+      );
+    } catch (e) {
+      return _handleError<EventDeliveryStats>(
+        e,
+        'getEventDeliveryStats',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> resetEventDeliveryStats() async {
+    try {
+      await methodChannel.invokeMethod('resetEventDeliveryStats');
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'resetEventDeliveryStats',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureRealtimeHeartRate({
+    RealtimeHeartRateMode mode = RealtimeHeartRateMode.raw,
+    Duration window = const Duration(seconds: 1),
+  }) async {
+    try {
+      await methodChannel.invokeMethod('configureRealtimeHeartRate', {
+        'mode': mode.name,
+        'windowMs': window.inMilliseconds,
+      });
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'configureRealtimeHeartRate',
+        SmartRingFailureType.heartRate,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, PluginMetrics>> getMetrics() async {
+    try {
+      final metricsMap = await methodChannel
+          .invokeMethod<Map<dynamic, dynamic>>('getMetrics');
+      return Right(
+        PluginMetrics.fromMap(
+          Map<String, dynamic>.from(metricsMap ?? const {}),
+        ),
+      );
+    } catch (e) {
+      return _handleError<PluginMetrics>(
+        e,
+        'getMetrics',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> resetMetrics() async {
+    try {
+      await methodChannel.invokeMethod('resetMetrics');
+      return const Right(unit);
+    } catch (e) {
+      return _handleError<Unit>(
+        e,
+        'resetMetrics',
+        SmartRingFailureType.platform,
+      );
+    }
+  }
+
   @override
   Stream<num> get temperatureStream => _temperatureController.stream;
 
+  @override
+  Stream<TemperatureSeries> get temperatureSeriesStream =>
+      _temperatureSeriesController.stream;
+
+  @override
+  Stream<TemperatureTrend> get temperatureTrendStream =>
+      _temperatureTrendController.stream;
+
   @override
   Stream<num> get heartRateStream => _heartRateController.stream;
 
@@ -606,6 +1250,10 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   Stream<num> get realtimeHeartRateStream =>
       _realtimeHeartRateController.stream;
 
+  @override
+  Stream<HeartRateWindow> get realtimeHeartRateWindowStream =>
+      _realtimeHeartRateWindowController.stream;
+
   @override
   Stream<num> get hrvStream => _hrvController.stream;
 
@@ -627,6 +1275,10 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   Stream<bool> get fullMeasurementCompleteStream =>
       _fullMeasurementCompleteController.stream;
 
+  @override
+  Stream<FullMeasurementProgress> get fullMeasurementProgressStream =>
+      _fullMeasurementProgressController.stream;
+
   @override
   Stream<ScannedDevice> get deviceScannedStream =>
       _deviceScannedController.stream;
@@ -642,9 +1294,19 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   Stream<String> get connectionErrorStream => _connectionErrorController.stream;
 
   @override
-  Future<Either<SmartRingFailure, Unit>> getBatteryLevel() async {
+  Stream<ReconnectAttempt> get reconnectStream => _reconnectController.stream;
+
+  @override
+  Stream<SmartRingEvent> get eventStream => _eventController.stream;
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> getBatteryLevel({
+    String? deviceAddress,
+  }) async {
     try {
-      await methodChannel.invokeMethod('getBatteryLevel');
+      await methodChannel.invokeMethod('getBatteryLevel', {
+        'deviceAddress': deviceAddress,
+      });
       return const Right(unit);
     } catch (e) {
       return _handleError<Unit>(
@@ -681,23 +1343,33 @@ class MethodChannelSmartRing extends SmartRingPlatform {
   void dispose() {
     _eventSubscription?.cancel();
     _temperatureController.close();
+    _temperatureSeriesController.close();
+    _temperatureTrendController.close();
     _heartRateController.close();
     _realtimeHeartRateController.close();
+    _realtimeHeartRateWindowController.close();
     _hrvController.close();
     _stressController.close();
     _bloodOxygenController.close();
     _measurementErrorController.close();
     _measurementStatusController.close();
     _fullMeasurementCompleteController.close();
+    _fullMeasurementProgressController.close();
     _deviceScannedController.close();
     _scanCompleteController.close();
     _connectionStateController.close();
     _connectionErrorController.close();
+    _reconnectController.close();
     _batteryController.close();
     _batteryWarningController.close();
     _temperatureTimingStateController.close();
     _heartRateTimingIntervalController.close();
     _hrvTimingIntervalController.close();
     _bloodOxygenTimingIntervalController.close();
+    _historyChunkController.close();
+    _historySyncProgressController.close();
+    _timingChunkController.close();
+    _timingSyncProgressController.close();
+    _eventController.close();
   }
 }
@@ -1,9 +1,11 @@
 import 'package:plugin_platform_interface/plugin_platform_interface.dart';
 import 'package:fpdart/fpdart.dart';
 import 'dart:async';
+import 'dart:typed_data';
 
 import 'smart_ring_method_channel.dart';
 import 'smart_ring_errors.dart';
+import 'smart_ring_event_codec.dart';
 
 abstract class SmartRingPlatform extends PlatformInterface {
   /// Constructs a SmartRingPlatform.
@@ -29,51 +31,92 @@ abstract class SmartRingPlatform extends PlatformInterface {
   Future<Either<SmartRingFailure, String>> getPlatformVersion();
 
   // ==================== Connection Methods ====================
-  Future<Either<SmartRingFailure, Unit>> startScan();
+  Future<Either<SmartRingFailure, Unit>> startScan({
+    String? namePrefix,
+    int? minRssi,
+    List<String>? addresses,
+    int limit = 0,
+    Duration duration = const Duration(seconds: 30),
+  });
   Future<Either<SmartRingFailure, Unit>> connectToDevice(String deviceAddress);
-  Future<Either<SmartRingFailure, Unit>> disconnect();
-  Future<Either<SmartRingFailure, MeasurementStatus>> getMeasurementStatus();
-  Future<Either<SmartRingFailure, Unit>> stopAllMeasurements();
+  Future<Either<SmartRingFailure, Unit>> disconnect({String? deviceAddress});
+  Future<Either<SmartRingFailure, MeasurementStatus>> getMeasurementStatus({
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, Unit>> stopAllMeasurements({
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, List<ConnectedDevice>>>
+  getConnectedDevices();
+  Future<Either<SmartRingFailure, int>> setMaxConnections(int maxConnections);
+  Future<Either<SmartRingFailure, Unit>> configureAutoReconnect({
+    bool enabled = true,
+    Duration initialDelay = const Duration(milliseconds: 500),
+    Duration maxDelay = const Duration(seconds: 30),
+    int maxAttempts = 10,
+  });
 
   // ==================== Measurement Methods ====================
   Future<Either<SmartRingFailure, bool>> startTemperatureMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   });
   Future<Either<SmartRingFailure, bool>> startHeartRateMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   });
   Future<Either<SmartRingFailure, bool>> startHrvMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   });
   Future<Either<SmartRingFailure, bool>> startStressMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   });
   Future<Either<SmartRingFailure, bool>> startBloodOxygenMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   });
   Future<Either<SmartRingFailure, bool>> startFullMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   });
 
   // ==================== Measurement Streams ====================
   Stream<num> get temperatureStream;
+  Stream<TemperatureSeries> get temperatureSeriesStream;
+  Stream<TemperatureTrend> get temperatureTrendStream;
   Stream<num> get heartRateStream;
   Stream<num> get realtimeHeartRateStream;
+  Stream<HeartRateWindow> get realtimeHeartRateWindowStream;
   Stream<num> get hrvStream;
   Stream<num> get stressStream;
   Stream<num> get bloodOxygenStream;
   Stream<MeasurementError> get measurementErrorStream;
   Stream<MeasurementStatus> get measurementStatusStream;
   Stream<bool> get fullMeasurementCompleteStream;
+  Stream<FullMeasurementProgress> get fullMeasurementProgressStream;
 
   // ==================== Connection Streams ====================
   Stream<ScannedDevice> get deviceScannedStream;
   Stream<void> get scanCompleteStream;
   Stream<ConnectionState> get connectionStateStream;
   Stream<String> get connectionErrorStream;
+  Stream<ReconnectAttempt> get reconnectStream;
+
+  /// Every decoded event, tagged with the address of the ring it came from
+  Stream<SmartRingEvent> get eventStream;
 
   // ==================== Battery Methods ====================
-  Future<Either<SmartRingFailure, Unit>> getBatteryLevel();
+  Future<Either<SmartRingFailure, Unit>> getBatteryLevel({
+    String? deviceAddress,
+  });
   Stream<num> get batteryStream;
   Stream<BatteryWarning> get batteryWarningStream;
 
@@ -82,6 +125,184 @@ abstract class SmartRingPlatform extends PlatformInterface {
   Stream<num> get heartRateTimingIntervalStream;
   Stream<num> get hrvTimingIntervalStream;
   Stream<num> get bloodOxygenTimingIntervalStream;
+
+  // ==================== History Sync ====================
+  Future<Either<SmartRingFailure, int?>> syncHistory({
+    List<HistoryMetric>? metrics,
+    int chunkSize = 64,
+    bool incremental = true,
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, bool>> acknowledgeHistory(
+    int syncId,
+    int chunkIndex, {
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, Unit>> resetHistoryWatermarks({
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, Unit>> cancelHistorySync({
+    String? deviceAddress,
+  });
+  Stream<HistoryChunk> get historyChunkStream;
+  Stream<HistorySyncProgress> get historySyncProgressStream;
+
+  // ==================== Timing Measurements ====================
+  Future<Either<SmartRingFailure, Unit>> configureTimingMeasurement(
+    TimingMetric metric,
+    int interval, {
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, Unit>> queryTimingMeasurementState({
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, int?>> syncTimingData({
+    List<TimingMetric>? metrics,
+    int days = 15,
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, Unit>> cancelTimingSync({
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, Unit>> configureTimingSync({
+    bool syncOnConnect = true,
+    int days = 15,
+  });
+  Stream<HistoryChunk> get timingChunkStream;
+  Stream<HistorySyncProgress> get timingSyncProgressStream;
+
+  // ==================== Local Store ====================
+  Future<Either<SmartRingFailure, StoredSeries>> queryRange(
+    SeriesMetric metric,
+    DateTime from,
+    DateTime to, {
+    int limit = 10000,
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, Uint8List>> exportRange(
+    SeriesMetric metric,
+    DateTime from,
+    DateTime to, {
+    String? deviceAddress,
+  });
+  Future<Either<SmartRingFailure, List<CollectedSeries>>> readCollectedData(
+    DateTime from, {
+    DateTime? to,
+    List<String>? deviceAddresses,
+  });
+
+  // ==================== Background Collection ====================
+  Future<Either<SmartRingFailure, Unit>> startBackgroundCollection({
+    Duration interval = const Duration(minutes: 30),
+    BackgroundMeasurement measurement = BackgroundMeasurement.full,
+    List<String>? deviceAddresses,
+  });
+  Future<Either<SmartRingFailure, Unit>> stopBackgroundCollection();
+  Future<Either<SmartRingFailure, BackgroundCollectionStatus>>
+  getBackgroundCollectionStatus();
+
+  // ==================== Measurement Timeouts ====================
+  Future<Either<SmartRingFailure, Unit>> configureMeasurementTimeouts({
+    double percentile = 0.99,
+    Duration minTimeout = const Duration(seconds: 15),
+    Duration maxTimeout = const Duration(seconds: 90),
+  });
+  Future<Either<SmartRingFailure, Map<String, MeasurementTimeoutStats>>>
+  getMeasurementTimeouts({String? deviceAddress});
+
+  // ==================== Event Delivery ====================
+  Future<Either<SmartRingFailure, Unit>> configureEventDelivery({
+    EventDeliveryMode mode = EventDeliveryMode.frame,
+    int intervalMs = 50,
+    int bufferBytes = 256 * 1024,
+    Map<EventCategory, BackpressurePolicy> policies = const {},
+  });
+  Future<Either<SmartRingFailure, EventDeliveryStats>> getEventDeliveryStats();
+  Future<Either<SmartRingFailure, Unit>> resetEventDeliveryStats();
+  Future<Either<SmartRingFailure, Unit>> configureRealtimeHeartRate({
+    RealtimeHeartRateMode mode = RealtimeHeartRateMode.raw,
+    Duration window = const Duration(seconds: 1),
+  });
+
+  // ==================== Metrics ====================
+  Future<Either<SmartRingFailure, PluginMetrics>> getMetrics();
+  Future<Either<SmartRingFailure, Unit>> resetMetrics();
+}
+
+/// How retries are spaced
+enum RetryBackoff {
+  /// The same delay before every retry
+  fixed,
+
+  /// Delay doubling from retry to retry, up to a ceiling
+  exponential,
+}
+
+/// How a measurement is retried after a timeout or an unusable reading
+class RetryPolicy {
+  /// Retries after the first attempt
+  final int attempts;
+  final RetryBackoff backoff;
+
+  /// Delay before the first retry, or every retry with fixed backoff
+  final Duration delay;
+
+  /// Ceiling of the exponential backoff
+  final Duration maxDelay;
+
+  /// Draw each delay from the upper half of its value, so rings do not retry
+  /// in lockstep
+  final bool jitter;
+
+  /// Hold retries back while the link is weaker than this RSSI (dBm)
+  final int? minRssi;
+
+  const RetryPolicy({
+    this.attempts = 2,
+    this.backoff = RetryBackoff.fixed,
+    this.delay = const Duration(seconds: 2),
+    this.maxDelay = const Duration(seconds: 30),
+    this.jitter = false,
+    this.minRssi,
+  });
+
+  Map<String, Object> toMap() => {
+    'attempts': attempts,
+    'backoff': backoff.name,
+    'delayMs': delay.inMilliseconds,
+    'maxDelayMs': maxDelay.inMilliseconds,
+    'jitter': jitter,
+    if (minRssi != null) 'minRssi': minRssi!,
+  };
+}
+
+/// Retry policies of one measurement run
+///
+/// [policy] applies to every measurement type without an entry in [types],
+/// keyed by "temperature", "heartRate", "hrv", "stress" or "bloodOxygen".
+/// Once the run's retries have taken [budget] in total no more are made. A
+/// failed step listed in [criticalSteps] ends a full measurement.
+class RetryPlan {
+  final RetryPolicy policy;
+  final Map<String, RetryPolicy> types;
+  final Duration? budget;
+  final Set<String> criticalSteps;
+
+  const RetryPlan({
+    this.policy = const RetryPolicy(),
+    this.types = const {},
+    this.budget,
+    this.criticalSteps = const {'heartRate'},
+  });
+
+  Map<String, Object> toMap() => {
+    ...policy.toMap(),
+    'types': {
+      for (final entry in types.entries) entry.key: entry.value.toMap(),
+    },
+    if (budget != null) 'budgetMs': budget!.inMilliseconds,
+    'critical': criticalSteps.toList(),
+  };
 }
 
 /// Represents a measurement error
@@ -142,19 +363,49 @@ class MeasurementStatus {
       anyMeasurement: json['anyMeasurement'] as bool? ?? false,
     );
   }
+
+  /// Decodes the native status bitmask
+  /// (bit 0 temperature, 1 heart rate, 2 HRV, 3 stress, 4 SpO2, 5 full measurement).
+  factory MeasurementStatus.fromBits(int bits) {
+    return MeasurementStatus(
+      temperature: (bits & 0x01) != 0,
+      heartRate: (bits & 0x02) != 0,
+      hrv: (bits & 0x04) != 0,
+      stress: (bits & 0x08) != 0,
+      bloodOxygen: (bits & 0x10) != 0,
+      fullMeasurement: (bits & 0x20) != 0,
+      anyMeasurement: bits != 0,
+    );
+  }
 }
 
 /// Represents a scanned device
+///
+/// Each address is reported once per scan, then again only when its name
+/// changes or its signal strength moves noticeably, at most once a second.
 class ScannedDevice {
   final String name;
   final String address;
 
-  ScannedDevice({required this.name, required this.address});
+  /// Signal strength in dBm
+  final int rssi;
+
+  /// Whether this address was already reported during the current scan
+  final bool isUpdate;
+
+  ScannedDevice({
+    required this.name,
+    required this.address,
+    this.rssi = 0,
+    this.isUpdate = false,
+  });
 
   factory ScannedDevice.fromJson(Map<String, dynamic> json) {
     return ScannedDevice(
       name: json['name'] as String? ?? 'Unknown',
       address: json['address'] as String? ?? '',
+      rssi: (json['rssi'] as num?)?.toInt() ?? 0,
+      isUpdate: json['isUpdate'] as bool? ?? false,
     );
   }
 }
@@ -182,6 +433,46 @@ enum ConnectionState {
   }
 }
 
+/// A ring in the plugin's connection pool
+class ConnectedDevice {
+  final String address;
+  final ConnectionState state;
+
+  /// Whether calls without a `deviceAddress` are routed to this ring
+  final bool isDefault;
+
+  ConnectedDevice({
+    required this.address,
+    required this.state,
+    this.isDefault = false,
+  });
+
+  factory ConnectedDevice.fromMap(Map<String, dynamic> map) {
+    return ConnectedDevice(
+      address: map['address'] as String? ?? '',
+      state: ConnectionState.fromInt(map['connectionState'] as int? ?? 0),
+      isDefault: map['isDefault'] as bool? ?? false,
+    );
+  }
+}
+
+/// A reconnect scheduled after a ring dropped its link
+class ReconnectAttempt {
+  final String deviceAddress;
+
+  /// 1-based attempt number since the link dropped
+  final int attempt;
+
+  /// How long the plugin waits before this attempt
+  final Duration delay;
+
+  ReconnectAttempt({
+    required this.deviceAddress,
+    required this.attempt,
+    required this.delay,
+  });
+}
+
 /// Represents a battery warning
 class BatteryWarning {
   final num level;
@@ -202,3 +493,567 @@ class BatteryWarning {
     );
   }
 }
+
+/// The readings of one day the ring sent, with a temperature measurement,
+/// from its timed sampling or for a timing pull
+class TemperatureSeries {
+  /// 0 for today, 1 for yesterday and so on
+  final int day;
+
+  /// Readings in °C per 5-minute slot from local midnight; 0 marks a slot
+  /// without a reading
+  final Float32List celsius;
+
+  TemperatureSeries({required this.day, required this.celsius});
+
+  @override
+  String toString() =>
+      'TemperatureSeries(day: $day, readings: ${celsius.length})';
+}
+
+/// A body temperature reading against the ring's rolling baseline
+///
+/// The baseline is the mean of the ring's previous readings, up to the last
+/// 288 (a day of 5-minute slots), kept natively for as long as the ring stays
+/// connected. Every new reading of a series moves it; one trend is sent per
+/// series, for its newest reading.
+class TemperatureTrend {
+  final double celsius;
+  final double baseline;
+
+  /// [celsius] minus [baseline]
+  final double deviation;
+
+  /// Standard deviation of the readings behind [baseline]
+  final double spread;
+
+  /// How many readings [baseline] covers; 0 for a ring's first reading
+  final int baselineSamples;
+
+  TemperatureTrend({
+    required this.celsius,
+    required this.baseline,
+    required this.deviation,
+    required this.spread,
+    required this.baselineSamples,
+  });
+
+  @override
+  String toString() =>
+      'TemperatureTrend(celsius: $celsius, baseline: $baseline, '
+      'deviation: $deviation, spread: $spread, '
+      'baselineSamples: $baselineSamples)';
+}
+
+/// What the native side sends of the realtime heart rate
+enum RealtimeHeartRateMode {
+  /// Every sample, on the realtime heart rate stream
+  raw,
+
+  /// The first sample of each window, on the realtime heart rate stream
+  decimate,
+
+  /// A [HeartRateWindow] summary per window, on its own stream
+  window,
+}
+
+/// Summary of the realtime heart rate samples of one window
+class HeartRateWindow {
+  final int count;
+  final int min;
+  final int max;
+  final double mean;
+  final int last;
+
+  /// Time the window covers; shorter than configured when cut short
+  final Duration duration;
+
+  HeartRateWindow({
+    required this.count,
+    required this.min,
+    required this.max,
+    required this.mean,
+    required this.last,
+    required this.duration,
+  });
+
+  @override
+  String toString() =>
+      'HeartRateWindow(count: $count, min: $min, max: $max, mean: $mean, '
+      'last: $last, duration: $duration)';
+}
+
+/// How the native side batches events before sending them to Flutter
+enum EventDeliveryMode {
+  /// Flush pending events once per display frame (vsync)
+  frame,
+
+  /// Flush pending events after a fixed interval
+  interval,
+}
+
+/// Kinds of native events that share a [BackpressurePolicy]
+enum EventCategory {
+  /// Measurement status, connection state, battery, progress and the
+  /// temperature trend
+  status,
+
+  /// Realtime heart rate samples and windows
+  realtime,
+
+  /// Measurement results and errors
+  results,
+
+  /// History and timing chunks and temperature series, sent again by later
+  /// syncs
+  history,
+
+  /// Scanned devices
+  scan,
+}
+
+/// What the native event buffer does with a category when Dart does not keep up
+enum BackpressurePolicy {
+  /// Drop the oldest events once the buffer is full
+  dropOldest,
+
+  /// While nobody listens or the buffer is half full, keep only the latest
+  /// event of each type and ring; drop the oldest once full
+  coalesceLatest,
+
+  /// Keep past the buffer size, up to twice it; beyond that drop the oldest
+  keepAll,
+}
+
+/// Counters describing native event batching
+class EventDeliveryStats {
+  final EventDeliveryMode mode;
+  final int intervalMs;
+  final int flushCount;
+  final int eventCount;
+  final int pendingEvents;
+
+  /// Bytes of the events waiting in the native buffer, and its size
+  final int pendingBytes;
+  final int bufferBytes;
+  final Map<EventCategory, BackpressurePolicy> policies;
+  final int lastBatchSize;
+  final int maxBatchSize;
+  final double averageBatchSize;
+  final double averageFlushLatencyMs;
+  final double maxFlushLatencyMs;
+
+  EventDeliveryStats({
+    required this.mode,
+    required this.intervalMs,
+    required this.flushCount,
+    required this.eventCount,
+    required this.pendingEvents,
+    this.pendingBytes = 0,
+    this.bufferBytes = 0,
+    this.policies = const {},
+    required this.lastBatchSize,
+    required this.maxBatchSize,
+    required this.averageBatchSize,
+    required this.averageFlushLatencyMs,
+    required this.maxFlushLatencyMs,
+  });
+
+  factory EventDeliveryStats.fromMap(Map<String, dynamic> map) {
+    return EventDeliveryStats(
+      mode: map['mode'] == 'interval'
+          ? EventDeliveryMode.interval
+          : EventDeliveryMode.frame,
+      intervalMs: (map['intervalMs'] as num?)?.toInt() ?? 0,
+      flushCount: (map['flushCount'] as num?)?.toInt() ?? 0,
+      eventCount: (map['eventCount'] as num?)?.toInt() ?? 0,
+      pendingEvents: (map['pendingEvents'] as num?)?.toInt() ?? 0,
+      pendingBytes: (map['pendingBytes'] as num?)?.toInt() ?? 0,
+      bufferBytes: (map['bufferBytes'] as num?)?.toInt() ?? 0,
+      policies: {
+        for (final entry
+            in (map['policies'] as Map<dynamic, dynamic>? ?? const {}).entries)
+          EventCategory.values.byName(entry.key as String):
+              BackpressurePolicy.values.byName(entry.value as String),
+      },
+      lastBatchSize: (map['lastBatchSize'] as num?)?.toInt() ?? 0,
+      maxBatchSize: (map['maxBatchSize'] as num?)?.toInt() ?? 0,
+      averageBatchSize: (map['averageBatchSize'] as num?)?.toDouble() ?? 0,
+      averageFlushLatencyMs:
+          (map['averageFlushLatencyMs'] as num?)?.toDouble() ?? 0,
+      maxFlushLatencyMs: (map['maxFlushLatencyMs'] as num?)?.toDouble() ?? 0,
+    );
+  }
+
+  @override
+  String toString() =>
+      'EventDeliveryStats(flushes: $flushCount, events: $eventCount, '
+      'avgBatch: ${averageBatchSize.toStringAsFixed(1)}, '
+      'avgLatencyMs: ${averageFlushLatencyMs.toStringAsFixed(1)})';
+}
+
+/// Distribution of one native latency, in milliseconds
+///
+/// Percentiles are accurate to about 6%.
+class LatencyStats {
+  final int count;
+  final double meanMs;
+  final double p50Ms;
+  final double p90Ms;
+  final double p99Ms;
+  final double maxMs;
+
+  LatencyStats({
+    required this.count,
+    required this.meanMs,
+    required this.p50Ms,
+    required this.p90Ms,
+    required this.p99Ms,
+    required this.maxMs,
+  });
+
+  factory LatencyStats.fromMap(Map<String, dynamic> map) {
+    double ms(String key) => (map[key] as num?)?.toDouble() ?? 0;
+    return LatencyStats(
+      count: (map['count'] as num?)?.toInt() ?? 0,
+      meanMs: ms('meanMs'),
+      p50Ms: ms('p50Ms'),
+      p90Ms: ms('p90Ms'),
+      p99Ms: ms('p99Ms'),
+      maxMs: ms('maxMs'),
+    );
+  }
+
+  @override
+  String toString() =>
+      'LatencyStats(count: $count, p50Ms: ${p50Ms.toStringAsFixed(1)}, '
+      'p99Ms: ${p99Ms.toStringAsFixed(1)}, maxMs: ${maxMs.toStringAsFixed(1)})';
+}
+
+/// Counters, latency histograms and queue depths of the native plugin
+class PluginMetrics {
+  /// Retries, timeouts and failures per measurement type (`retries.heartRate`,
+  /// `timeouts.hrv`, `failures.stress`, ...), milliseconds spent retrying
+  /// (`retryTimeMs.<type>`), retries held back for a weak link
+  /// (`retriesDeferred.<type>`), `retryBudgetExhausted`, `connectTimeouts`,
+  /// `droppedEvents`, events dropped (`eventsDropped.<category>`) or replaced
+  /// by a newer one (`eventsCoalesced.<category>`) by a full event buffer,
+  /// `backgroundRuns` and `backgroundBusy` (rings a background run found
+  /// already measuring)
+  final Map<String, int> counters;
+
+  /// `connect` (connect until ready), `measurement.<type>` (start until
+  /// result), `dispatch` (SDK callback until delivered to Dart) and
+  /// `workerQueue` (SDK callback until handled)
+  final Map<String, LatencyStats> latencies;
+
+  /// Events emitted, keyed by [SmartRingEventType] code
+  final Map<int, int> eventsByType;
+
+  /// Current depth of the `worker` queue, undelivered `pendingEvents` and
+  /// open `sessions`
+  final Map<String, int> queues;
+
+  PluginMetrics({
+    required this.counters,
+    required this.latencies,
+    required this.eventsByType,
+    required this.queues,
+  });
+
+  int get droppedEvents => counters['droppedEvents'] ?? 0;
+
+  factory PluginMetrics.fromMap(Map<String, dynamic> map) {
+    Map<dynamic, dynamic> section(String key) =>
+        (map[key] as Map?) ?? const {};
+    return PluginMetrics(
+      counters: {
+        for (final entry in section('counters').entries)
+          entry.key as String: (entry.value as num).toInt(),
+      },
+      latencies: {
+        for (final entry in section('histograms').entries)
+          entry.key as String: LatencyStats.fromMap(
+            Map<String, dynamic>.from(entry.value as Map),
+          ),
+      },
+      eventsByType: {
+        for (final entry in section('eventsByType').entries)
+          (entry.key as num).toInt(): (entry.value as num).toInt(),
+      },
+      queues: {
+        for (final entry in section('queues').entries)
+          entry.key as String: (entry.value as num).toInt(),
+      },
+    );
+  }
+
+  @override
+  String toString() =>
+      'PluginMetrics(counters: $counters, latencies: $latencies, '
+      'queues: $queues)';
+}
+
+/// Metrics stored on the ring that can be pulled with a history sync
+enum HistoryMetric {
+  heartRate(1),
+  hrv(2),
+  bloodOxygen(3),
+  stress(4);
+
+  final int id;
+  const HistoryMetric(this.id);
+
+  static HistoryMetric? fromId(int id) {
+    for (final metric in HistoryMetric.values) {
+      if (metric.id == id) return metric;
+    }
+    return null;
+  }
+}
+
+/// Metrics the ring can sample on its own schedule
+enum TimingMetric { heartRate, hrv, bloodOxygen, temperature }
+
+/// A bounded chunk of stored history records for one metric
+class HistoryChunk {
+  final HistoryMetric? metric;
+  final int syncId;
+  final int chunkIndex;
+
+  /// Record timestamps in milliseconds since epoch
+  final Int64List timestamps;
+  final Int32List values;
+
+  HistoryChunk({
+    required this.metric,
+    required this.syncId,
+    required this.chunkIndex,
+    required this.timestamps,
+    required this.values,
+  });
+
+  int get length => values.length;
+
+  DateTime timeAt(int index) =>
+      DateTime.fromMillisecondsSinceEpoch(timestamps[index]);
+
+  @override
+  String toString() =>
+      'HistoryChunk(metric: $metric, syncId: $syncId, chunk: $chunkIndex, '
+      'records: $length)';
+}
+
+/// Progress of a running history sync, emitted after each metric
+class HistorySyncProgress {
+  final int syncId;
+  final HistoryMetric? metric;
+
+  /// Number of records received for [metric]
+  final int records;
+  final int completedMetrics;
+  final int totalMetrics;
+  final bool isComplete;
+  final bool metricFailed;
+
+  HistorySyncProgress({
+    required this.syncId,
+    required this.metric,
+    required this.records,
+    required this.completedMetrics,
+    required this.totalMetrics,
+    required this.isComplete,
+    required this.metricFailed,
+  });
+
+  @override
+  String toString() =>
+      'HistorySyncProgress(syncId: $syncId, metric: $metric, records: $records, '
+      '$completedMetrics/$totalMetrics, complete: $isComplete)';
+}
+
+/// Observed time-to-result of one measurement type on one ring, and the
+/// timeout derived from it
+///
+/// Latencies are kept in buckets about 19% wide; percentiles report the upper
+/// bound of their bucket and are [Duration.zero] when there are no samples.
+class MeasurementTimeoutStats {
+  final Duration timeout;
+  final int samples;
+  final Duration p50;
+  final Duration p90;
+  final Duration p99;
+
+  /// Latency at the configured timeout percentile
+  final Duration percentile;
+
+  /// Upper bounds of the non-empty histogram buckets, in milliseconds
+  final List<int> bucketUpperMs;
+  final List<int> bucketCounts;
+
+  MeasurementTimeoutStats({
+    required this.timeout,
+    required this.samples,
+    required this.p50,
+    required this.p90,
+    required this.p99,
+    required this.percentile,
+    required this.bucketUpperMs,
+    required this.bucketCounts,
+  });
+
+  factory MeasurementTimeoutStats.fromMap(Map<String, dynamic> map) {
+    Duration ms(String key) =>
+        Duration(milliseconds: (map[key] as num?)?.toInt() ?? 0);
+    List<int> ints(String key) => ((map[key] as List?) ?? const [])
+        .map((value) => (value as num).toInt())
+        .toList();
+    return MeasurementTimeoutStats(
+      timeout: ms('timeoutMs'),
+      samples: (map['samples'] as num?)?.toInt() ?? 0,
+      p50: ms('p50Ms'),
+      p90: ms('p90Ms'),
+      p99: ms('p99Ms'),
+      percentile: ms('percentileMs'),
+      bucketUpperMs: ints('bucketUpperMs'),
+      bucketCounts: ints('bucketCounts'),
+    );
+  }
+
+  @override
+  String toString() =>
+      'MeasurementTimeoutStats(timeout: $timeout, samples: $samples, '
+      'p50: $p50, p99: $p99)';
+}
+
+/// Progress of a running full measurement, emitted as each step finishes
+///
+/// Temperature runs alongside the optical steps, so steps may finish out of
+/// order. [elapsed] is the wall-clock time since the full measurement started;
+/// on the last step it is the total duration.
+class FullMeasurementProgress {
+  /// Measurement type of the finished step, e.g. "hrv"
+  final String step;
+  final bool succeeded;
+  final int completedSteps;
+  final int totalSteps;
+  final Duration elapsed;
+
+  FullMeasurementProgress({
+    required this.step,
+    required this.succeeded,
+    required this.completedSteps,
+    required this.totalSteps,
+    required this.elapsed,
+  });
+
+  bool get isComplete => completedSteps >= totalSteps;
+
+  @override
+  String toString() =>
+      'FullMeasurementProgress(step: $step, succeeded: $succeeded, '
+      '$completedSteps/$totalSteps, elapsed: $elapsed)';
+}
+
+/// Metrics kept in the on-device reading store
+enum SeriesMetric { heartRate, hrv, bloodOxygen, stress, bodyTemperature }
+
+/// Readings of one metric read back from the on-device store, oldest first
+class StoredSeries {
+  final SeriesMetric metric;
+
+  /// Reading timestamps in milliseconds since epoch
+  final Int64List timestamps;
+  final Float64List values;
+
+  /// Whether more readings matched than the query limit allowed
+  final bool truncated;
+
+  StoredSeries({
+    required this.metric,
+    required this.timestamps,
+    required this.values,
+    this.truncated = false,
+  });
+
+  factory StoredSeries.fromMap(SeriesMetric metric, Map<String, dynamic> map) {
+    return StoredSeries(
+      metric: metric,
+      timestamps: map['timestamps'] as Int64List? ?? Int64List(0),
+      values: map['values'] as Float64List? ?? Float64List(0),
+      truncated: map['truncated'] as bool? ?? false,
+    );
+  }
+
+  int get length => values.length;
+
+  DateTime timeAt(int index) =>
+      DateTime.fromMillisecondsSinceEpoch(timestamps[index]);
+
+  @override
+  String toString() =>
+      'StoredSeries(metric: $metric, readings: $length, truncated: $truncated)';
+}
+
+/// Readings of one metric of one ring, as returned by `readCollectedData`
+class CollectedSeries {
+  final String deviceAddress;
+  final StoredSeries series;
+
+  CollectedSeries({required this.deviceAddress, required this.series});
+
+  @override
+  String toString() => 'CollectedSeries($deviceAddress, $series)';
+}
+
+/// What each background collection run measures
+enum BackgroundMeasurement { full, temperature, heartRate, hrv, stress, bloodOxygen }
+
+/// Whether background collection runs and what it does
+class BackgroundCollectionStatus {
+  final bool active;
+  final Duration? interval;
+  final BackgroundMeasurement? measurement;
+  final List<String> deviceAddresses;
+  final DateTime? startedAt;
+
+  /// When the last run started; null before the first one
+  final DateTime? lastRunAt;
+
+  BackgroundCollectionStatus({
+    required this.active,
+    this.interval,
+    this.measurement,
+    this.deviceAddresses = const [],
+    this.startedAt,
+    this.lastRunAt,
+  });
+
+  factory BackgroundCollectionStatus.fromMap(Map<String, dynamic> map) {
+    DateTime? time(String key) {
+      final ms = map[key] as int? ?? 0;
+      return ms > 0 ? DateTime.fromMillisecondsSinceEpoch(ms) : null;
+    }
+
+    final intervalMs = map['intervalMs'] as int?;
+    final measurement = map['measurement'] as String?;
+    return BackgroundCollectionStatus(
+      active: map['active'] as bool? ?? false,
+      interval: intervalMs != null ? Duration(milliseconds: intervalMs) : null,
+      measurement: measurement != null
+          ? BackgroundMeasurement.values.byName(measurement)
+          : null,
+      deviceAddresses: List<String>.from(
+        map['deviceAddresses'] as List? ?? const [],
+      ),
+      startedAt: time('startedAtMs'),
+      lastRunAt: time('lastRunAtMs'),
+    );
+  }
+
+  @override
+  String toString() =>
+      'BackgroundCollectionStatus(active: $active, interval: $interval, '
+      'measurement: $measurement, devices: $deviceAddresses, '
+      'lastRunAt: $lastRunAt)';
+}
@@ -0,0 +1,135 @@
+import 'dart:typed_data';
+
+import 'smart_ring_platform_interface.dart';
+
+const int _blockHeaderBytes = 15;
+const int _modeInteger = 1;
+
+/// Decodes a series exported with `exportRange`: `[u8 metric][i32 count]`
+/// followed by codec blocks.
+///
+/// Each block is `[u8 mode][u16 count][i64 firstTs][i32 firstValueBits]` and an
+/// MSB-first bit stream of delta-of-delta timestamps, then values as zigzag
+/// deltas or XOR of the float bits. Must be kept in sync with `SeriesCodec.java`
+/// in the Android module.
+StoredSeries decodeSeriesExport(Uint8List bytes) {
+  final data = ByteData.sublistView(bytes);
+  final metricId = data.getUint8(0);
+  final count = data.getInt32(1, Endian.little);
+  final timestamps = Int64List(count);
+  final values = Float64List(count);
+
+  var offset = 5;
+  var decoded = 0;
+  while (offset + _blockHeaderBytes <= bytes.length && decoded < count) {
+    final blockCount = data.getUint16(offset + 1, Endian.little);
+    offset = _decodeBlock(data, offset, timestamps, values, decoded);
+    decoded += blockCount;
+  }
+
+  return StoredSeries(
+    metric: SeriesMetric.values[metricId - 1],
+    timestamps: timestamps,
+    values: values,
+  );
+}
+
+/// Decodes the block at [offset] into the outputs starting at [outOffset] and
+/// returns the offset of the next block.
+int _decodeBlock(
+  ByteData data,
+  int offset,
+  Int64List timestamps,
+  Float64List values,
+  int outOffset,
+) {
+  final mode = data.getUint8(offset);
+  final count = data.getUint16(offset + 1, Endian.little);
+  final firstTs = data.getInt64(offset + 3, Endian.little);
+  final firstBits = data.getInt32(offset + 11, Endian.little);
+  if (count == 0) return offset + _blockHeaderBytes;
+
+  final reader = _BitReader(data, offset + _blockHeaderBytes);
+  timestamps[outOffset] = firstTs;
+  var delta = 0;
+  for (var i = 1; i < count; i++) {
+    delta += _readDeltaOfDelta(reader);
+    timestamps[outOffset + i] = timestamps[outOffset + i - 1] + delta;
+  }
+
+  final floatBits = ByteData(4);
+  double bitsToFloat(int bits) {
+    floatBits.setInt32(0, bits);
+    return floatBits.getFloat32(0);
+  }
+
+  values[outOffset] = bitsToFloat(firstBits);
+  if (mode == _modeInteger) {
+    var previous = values[outOffset].toInt();
+    for (var i = 1; i < count; i++) {
+      previous += _readIntegerDelta(reader);
+      values[outOffset + i] = previous.toDouble();
+    }
+  } else {
+    var previousBits = firstBits;
+    var windowLeading = 0;
+    var windowTrailing = 0;
+    for (var i = 1; i < count; i++) {
+      if (reader.read(1) != 0) {
+        if (reader.read(1) != 0) {
+          windowLeading = reader.read(5);
+          windowTrailing = 32 - windowLeading - (reader.read(5) + 1);
+        }
+        final xor =
+            reader.read(32 - windowLeading - windowTrailing) << windowTrailing;
+        previousBits = (previousBits ^ xor).toSigned(32);
+      }
+      values[outOffset + i] = bitsToFloat(previousBits);
+    }
+  }
+  return reader.position;
+}
+
+int _readDeltaOfDelta(_BitReader reader) {
+  if (reader.read(1) == 0) return 0;
+  if (reader.read(1) == 0) return reader.readSigned(7);
+  if (reader.read(1) == 0) return reader.readSigned(9);
+  if (reader.read(1) == 0) return reader.readSigned(12);
+  if (reader.read(1) == 0) return reader.readSigned(32);
+  return reader.read(32) << 32 | reader.read(32);
+}
+
+int _readIntegerDelta(_BitReader reader) {
+  final int zigzag;
+  if (reader.read(1) == 0) {
+    return 0;
+  } else if (reader.read(1) == 0) {
+    zigzag = reader.read(4);
+  } else if (reader.read(1) == 0) {
+    zigzag = reader.read(8);
+  } else {
+    zigzag = reader.read(33);
+  }
+  return (zigzag >>> 1) ^ -(zigzag & 1);
+}
+
+class _BitReader {
+  final ByteData _data;
+  int position;
+  int _pending = 0;
+  int _pendingBits = 0;
+
+  _BitReader(this._data, this.position);
+
+  /// Reads [bits] (at most 33) bits, most significant first
+  int read(int bits) {
+    while (_pendingBits < bits) {
+      _pending = (_pending << 8) | _data.getUint8(position++);
+      _pendingBits += 8;
+    }
+    _pendingBits -= bits;
+    return (_pending >>> _pendingBits) & ((1 << bits) - 1);
+  }
+
+  int readSigned(int bits) => read(bits).toSigned(bits);
+}
@@ -0,0 +1,210 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter_test/flutter_test.dart';
+import 'package:smart_ring/smart_ring_event_codec.dart';
+import 'package:smart_ring/smart_ring_platform_interface.dart';
+
+class _BatchBuilder {
+  final _bytes = BytesBuilder();
+
+  void record(int type, int timestampMs, {int device = 0}) {
+    _bytes.addByte(type);
+    _bytes.addByte(device);
+    final ts = ByteData(8)..setInt64(0, timestampMs, Endian.little);
+    _bytes.add(ts.buffer.asUint8List());
+  }
+
+  void uint8(int value) => _bytes.addByte(value);
+
+  void int32(int value) {
+    final data = ByteData(4)..setInt32(0, value, Endian.little);
+    _bytes.add(data.buffer.asUint8List());
+  }
+
+  void float32(double value) {
+    final data = ByteData(4)..setFloat32(0, value, Endian.little);
+    _bytes.add(data.buffer.asUint8List());
+  }
+
+  void string(String value) {
+    final encoded = utf8.encode(value);
+    final length = ByteData(2)..setUint16(0, encoded.length, Endian.little);
+    _bytes.add(length.buffer.asUint8List());
+    _bytes.add(encoded);
+  }
+
+  Uint8List build() => _bytes.toBytes();
+}
+
+void main() {
+  test('decodes numeric, float and string records in order', () {
+    final builder = _BatchBuilder()
+      ..record(SmartRingEventType.heartRate, 1000)
+      ..int32(72)
+      ..float32(0.75)
+      ..record(SmartRingEventType.bodyTemperature, 1001)
+      ..float32(36.5)
+      ..float32(1)
+      ..record(SmartRingEventType.measurementError, 1002)
+      ..string('hrv')
+      ..string('')
+      ..string('Invalid HRV reading')
+      ..record(SmartRingEventType.scanComplete, 1003);
+
+    final events = decodeSmartRingEvents(builder.build()).toList();
+
+    expect(events, hasLength(4));
+    expect(events[0].type, SmartRingEventType.heartRate);
+    expect(events[0].timestampMs, 1000);
+    expect(events[0].value, 72);
+    expect(events[0].quality, 0.75);
+    expect(events[1].value, 36.5);
+    expect(events[1].quality, 1);
+    expect(events[2].strings, ['hrv', '', 'Invalid HRV reading']);
+    expect(events[3].type, SmartRingEventType.scanComplete);
+  });
+
+  test('stops decoding at an unknown record type', () {
+    final builder = _BatchBuilder()
+      ..record(SmartRingEventType.stress, 1)
+      ..int32(40)
+      ..float32(1)
+      ..record(250, 2)
+      ..int32(0);
+
+    final events = decodeSmartRingEvents(builder.build()).toList();
+
+    expect(events, hasLength(1));
+    expect(events.single.value, 40);
+  });
+
+  test('tags records with the address bound to their device slot', () {
+    final builder = _BatchBuilder()
+      ..record(SmartRingEventType.deviceSlot, 1, device: 1)
+      ..string('AA:BB:CC:DD:EE:01')
+      ..record(SmartRingEventType.deviceSlot, 1, device: 2)
+      ..string('AA:BB:CC:DD:EE:02')
+      ..record(SmartRingEventType.heartRate, 2, device: 2)
+      ..int32(64)
+      ..float32(1)
+      ..record(SmartRingEventType.heartRate, 3, device: 1)
+      ..int32(81)
+      ..float32(0.5)
+      ..record(SmartRingEventType.scanComplete, 4);
+
+    final events = decodeSmartRingEvents(builder.build()).toList();
+
+    expect(events, hasLength(3));
+    expect(events[0].deviceAddress, 'AA:BB:CC:DD:EE:02');
+    expect(events[0].value, 64);
+    expect(events[1].deviceAddress, 'AA:BB:CC:DD:EE:01');
+    expect(events[1].value, 81);
+    expect(events[2].deviceAddress, isNull);
+  });
+
+  test('decodes scanned devices with their signal strength', () {
+    final builder = _BatchBuilder()
+      ..record(SmartRingEventType.deviceScanned, 6)
+      ..string('R02')
+      ..string('AA:BB:CC:DD:EE:01')
+      ..int32(-67)
+      ..uint8(1)
+      ..record(SmartRingEventType.scanComplete, 7);
+
+    final events = decodeSmartRingEvents(builder.build()).toList();
+
+    expect(events, hasLength(2));
+    expect(events[0].strings, ['R02', 'AA:BB:CC:DD:EE:01']);
+    expect(events[0].value, -67);
+    expect(events[0].flag, isTrue);
+    expect(events[1].type, SmartRingEventType.scanComplete);
+  });
+
+  test('decodes full measurement progress', () {
+    final builder = _BatchBuilder()
+      ..record(SmartRingEventType.fullMeasurementProgress, 5)
+      ..string('hrv')
+      ..uint8(1)
+      ..uint8(2)
+      ..uint8(5)
+      ..int32(41250);
+
+    final progress =
+        decodeSmartRingEvents(builder.build()).single.payload
+            as FullMeasurementProgress;
+
+    expect(progress.step, 'hrv');
+    expect(progress.succeeded, isTrue);
+    expect(progress.completedSteps, 2);
+    expect(progress.totalSteps, 5);
+    expect(progress.elapsed, const Duration(milliseconds: 41250));
+    expect(progress.isComplete, isFalse);
+  });
+
+  test('decodes reconnect attempts of a ring', () {
+    final builder = _BatchBuilder()
+      ..record(SmartRingEventType.deviceSlot, 1, device: 3)
+      ..string('AA:BB:CC:DD:EE:03')
+      ..record(SmartRingEventType.reconnecting, 2, device: 3)
+      ..int32(4)
+      ..int32(3750);
+
+    final event = decodeSmartRingEvents(builder.build()).single;
+
+    expect(event.deviceAddress, 'AA:BB:CC:DD:EE:03');
+    expect(event.value, 4);
+    expect(event.payload, const Duration(milliseconds: 3750));
+  });
+
+  test('decodes realtime heart rate windows', () {
+    final builder = _BatchBuilder()
+      ..record(SmartRingEventType.realtimeHeartRateWindow, 8)
+      ..int32(12)
+      ..int32(61)
+      ..int32(74)
+      ..float32(66.5)
+      ..int32(70)
+      ..int32(1000);
+
+    final window =
+        decodeSmartRingEvents(builder.build()).single.payload
+            as HeartRateWindow;
+
+    expect(window.count, 12);
+    expect(window.min, 61);
+    expect(window.max, 74);
+    expect(window.mean, 66.5);
+    expect(window.last, 70);
+    expect(window.duration, const Duration(seconds: 1));
+  });
+
+  test('decodes temperature series as Float32List and trends', () {
+    final builder = _BatchBuilder()
+      ..record(SmartRingEventType.temperatureSeries, 9)
+      ..uint8(1)
+      ..int32(3)
+      ..float32(0)
+      ..float32(36.5)
+      ..float32(36.75)
+      ..record(SmartRingEventType.temperatureTrend, 10)
+      ..float32(37.25)
+      ..float32(36.5)
+      ..float32(0.75)
+      ..float32(0.25)
+      ..int32(2);
+
+    final events = decodeSmartRingEvents(builder.build()).toList();
+
+    final series = events[0].payload as TemperatureSeries;
+    expect(series.day, 1);
+    expect(series.celsius, isA<Float32List>());
+    expect(series.celsius, [0, 36.5, 36.75]);
+    final trend = events[1].payload as TemperatureTrend;
+    expect(trend.celsius, 37.25);
+    expect(trend.baseline, 36.5);
+    expect(trend.deviation, 0.75);
+    expect(trend.spread, 0.25);
+    expect(trend.baselineSamples, 2);
+  });
+}
@@ -0,0 +1,46 @@
+import 'dart:typed_data';
+
+import 'package:flutter_test/flutter_test.dart';
+import 'package:smart_ring/smart_ring_platform_interface.dart';
+import 'package:smart_ring/smart_ring_series_codec.dart';
+
+// Exports produced by SeriesCodec.java for the timestamps below
+const _timestamps = [
+  1700000000000,
+  1700000060000,
+  1700000120150,
+  1700000179900,
+  1700000240000,
+];
+
+const _heartRateExport = [
+  1, 5, 0, 0, 0, 1, 5, 0, 0, 104, 229, 207, 139, 1, 0, 0, 0, 0, 144, 66, //
+  240, 0, 7, 83, 6, 75, 119, 56, 112, 175, 38, 166, 32,
+];
+
+const _temperatureExport = [
+  5, 5, 0, 0, 0, 0, 5, 0, 0, 104, 229, 207, 139, 1, 0, 0, 0, 0, 18, 66, //
+  240, 0, 7, 83, 6, 75, 119, 56, 112, 175, 56, 183, 51, 61, 207, 255, 255,
+  219, 11, 255, 248,
+];
+
+void main() {
+  test('decodes an integer-mode export', () {
+    final series = decodeSeriesExport(Uint8List.fromList(_heartRateExport));
+
+    expect(series.metric, SeriesMetric.heartRate);
+    expect(series.timestamps, _timestamps);
+    expect(series.values, [72.0, 72.0, 75.0, 70.0, 71.0]);
+  });
+
+  test('decodes an XOR-mode export', () {
+    final series = decodeSeriesExport(Uint8List.fromList(_temperatureExport));
+
+    expect(series.metric, SeriesMetric.bodyTemperature);
+    expect(series.timestamps, _timestamps);
+    expect(
+      series.values,
+      Float32List.fromList([36.5, 36.5, 36.6, 36.4, 37.1]),
+    );
+  });
+}
@@ -1,4 +1,5 @@
 import 'dart:async';
+import 'dart:typed_data';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:fpdart/fpdart.dart';
 import 'package:smart_ring/smart_ring.dart';
@@ -15,8 +16,13 @@ class MockSmartRingPlatform
       Future.value(Right('42'));
 
   @override
-  Future<Either<SmartRingFailure, Unit>> startScan() =>
-      Future.value(const Right(unit));
+  Future<Either<SmartRingFailure, Unit>> startScan({
+    String? namePrefix,
+    int? minRssi,
+    List<String>? addresses,
+    int limit = 0,
+    Duration duration = const Duration(seconds: 30),
+  }) => Future.value(const Right(unit));
 
   @override
   Future<Either<SmartRingFailure, Unit>> connectToDevice(
@@ -24,12 +30,13 @@ class MockSmartRingPlatform
   ) => Future.value(const Right(unit));
 
   @override
-  Future<Either<SmartRingFailure, Unit>> disconnect() =>
+  Future<Either<SmartRingFailure, Unit>> disconnect({String? deviceAddress}) =>
       Future.value(const Right(unit));
 
   @override
-  Future<Either<SmartRingFailure, MeasurementStatus>> getMeasurementStatus() =>
-      Future.value(
+  Future<Either<SmartRingFailure, MeasurementStatus>> getMeasurementStatus({
+    String? deviceAddress,
+  }) => Future.value(
         Right(
           MeasurementStatus(
             temperature: false,
@@ -44,48 +51,88 @@ class MockSmartRingPlatform
       );
 
   @override
-  Future<Either<SmartRingFailure, Unit>> stopAllMeasurements() =>
-      Future.value(const Right(unit));
+  Future<Either<SmartRingFailure, Unit>> stopAllMeasurements({
+    String? deviceAddress,
+  }) => Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, List<ConnectedDevice>>>
+  getConnectedDevices() => Future.value(const Right([]));
+
+  @override
+  Future<Either<SmartRingFailure, int>> setMaxConnections(int maxConnections) =>
+      Future.value(Right(maxConnections));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureAutoReconnect({
+    bool enabled = true,
+    Duration initialDelay = const Duration(milliseconds: 500),
+    Duration maxDelay = const Duration(seconds: 30),
+    int maxAttempts = 10,
+  }) => Future.value(const Right(unit));
 
   @override
   Future<Either<SmartRingFailure, bool>> startTemperatureMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) => Future.value(const Right(true));
 
   @override
   Future<Either<SmartRingFailure, bool>> startHeartRateMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) => Future.value(const Right(true));
 
   @override
   Future<Either<SmartRingFailure, bool>> startHrvMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) => Future.value(const Right(true));
 
   @override
   Future<Either<SmartRingFailure, bool>> startStressMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) => Future.value(const Right(true));
 
   @override
   Future<Either<SmartRingFailure, bool>> startBloodOxygenMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) => Future.value(const Right(true));
 
   @override
   Future<Either<SmartRingFailure, bool>> startFullMeasurement({
     int attempts = 2,
+    RetryPlan? retryPlan,
+    String? deviceAddress,
   }) => Future.value(const Right(true));
 
   @override
   Stream<num> get temperatureStream => const Stream.empty();
 
+  @override
+  Stream<TemperatureSeries> get temperatureSeriesStream =>
+      const Stream.empty();
+
+  @override
+  Stream<TemperatureTrend> get temperatureTrendStream => const Stream.empty();
+
   @override
   Stream<num> get heartRateStream => const Stream.empty();
 
   @override
   Stream<num> get realtimeHeartRateStream => const Stream.empty();
 
+  @override
+  Stream<HeartRateWindow> get realtimeHeartRateWindowStream =>
+      const Stream.empty();
+
   @override
   Stream<num> get hrvStream => const Stream.empty();
 
@@ -104,6 +151,10 @@ class MockSmartRingPlatform
   @override
   Stream<bool> get fullMeasurementCompleteStream => const Stream.empty();
 
+  @override
+  Stream<FullMeasurementProgress> get fullMeasurementProgressStream =>
+      const Stream.empty();
+
   @override
   Stream<ScannedDevice> get deviceScannedStream => const Stream.empty();
 
@@ -117,8 +168,15 @@ class MockSmartRingPlatform
   Stream<String> get connectionErrorStream => const Stream.empty();
 
   @override
-  Future<Either<SmartRingFailure, Unit>> getBatteryLevel() =>
-      Future.value(const Right(unit));
+  Stream<ReconnectAttempt> get reconnectStream => const Stream.empty();
+
+  @override
+  Stream<SmartRingEvent> get eventStream => const Stream.empty();
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> getBatteryLevel({
+    String? deviceAddress,
+  }) => Future.value(const Right(unit));
 
   @override
   Stream<num> get batteryStream => const Stream.empty();
@@ -137,6 +195,182 @@ class MockSmartRingPlatform
 
   @override
   Stream<num> get bloodOxygenTimingIntervalStream => const Stream.empty();
+
+  @override
+  Future<Either<SmartRingFailure, int?>> syncHistory({
+    List<HistoryMetric>? metrics,
+    int chunkSize = 64,
+    bool incremental = true,
+    String? deviceAddress,
+  }) => Future.value(const Right(1));
+
+  @override
+  Future<Either<SmartRingFailure, bool>> acknowledgeHistory(
+    int syncId,
+    int chunkIndex, {
+    String? deviceAddress,
+  }) => Future.value(const Right(true));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> resetHistoryWatermarks({
+    String? deviceAddress,
+  }) => Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> cancelHistorySync({
+    String? deviceAddress,
+  }) => Future.value(const Right(unit));
+
+  @override
+  Stream<HistoryChunk> get historyChunkStream => const Stream.empty();
+
+  @override
+  Stream<HistorySyncProgress> get historySyncProgressStream =>
+      const Stream.empty();
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureMeasurementTimeouts({
+    double percentile = 0.99,
+    Duration minTimeout = const Duration(seconds: 15),
+    Duration maxTimeout = const Duration(seconds: 90),
+  }) => Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, Map<String, MeasurementTimeoutStats>>>
+  getMeasurementTimeouts({String? deviceAddress}) => Future.value(const Right({}));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureEventDelivery({
+    EventDeliveryMode mode = EventDeliveryMode.frame,
+    int intervalMs = 50,
+    int bufferBytes = 256 * 1024,
+    Map<EventCategory, BackpressurePolicy> policies = const {},
+  }) => Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, EventDeliveryStats>>
+  getEventDeliveryStats() => Future.value(
+    Right(
+      EventDeliveryStats(
+        mode: EventDeliveryMode.frame,
+        intervalMs: 50,
+        flushCount: 0,
+        eventCount: 0,
+        pendingEvents: 0,
+        lastBatchSize: 0,
+        maxBatchSize: 0,
+        averageBatchSize: 0,
+        averageFlushLatencyMs: 0,
+        maxFlushLatencyMs: 0,
+      ),
+    ),
+  );
+
+  @override
+  Future<Either<SmartRingFailure, StoredSeries>> queryRange(
+    SeriesMetric metric,
+    DateTime from,
+    DateTime to, {
+    int limit = 10000,
+    String? deviceAddress,
+  }) => Future.value(
+    Right(
+      StoredSeries(
+        metric: metric,
+        timestamps: Int64List(0),
+        values: Float64List(0),
+      ),
+    ),
+  );
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureTimingMeasurement(
+    TimingMetric metric,
+    int interval, {
+    String? deviceAddress,
+  }) => Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> queryTimingMeasurementState({
+    String? deviceAddress,
+  }) => Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, int?>> syncTimingData({
+    List<TimingMetric>? metrics,
+    int days = 15,
+    String? deviceAddress,
+  }) => Future.value(const Right(1));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> cancelTimingSync({
+    String? deviceAddress,
+  }) => Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureTimingSync({
+    bool syncOnConnect = true,
+    int days = 15,
+  }) => Future.value(const Right(unit));
+
+  @override
+  Stream<HistoryChunk> get timingChunkStream => const Stream.empty();
+
+  @override
+  Stream<HistorySyncProgress> get timingSyncProgressStream =>
+      const Stream.empty();
+
+  @override
+  Future<Either<SmartRingFailure, Uint8List>> exportRange(
+    SeriesMetric metric,
+    DateTime from,
+    DateTime to, {
+    String? deviceAddress,
+  }) => Future.value(Right(Uint8List(0)));
+
+  @override
+  Future<Either<SmartRingFailure, List<CollectedSeries>>> readCollectedData(
+    DateTime from, {
+    DateTime? to,
+    List<String>? deviceAddresses,
+  }) => Future.value(const Right([]));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> startBackgroundCollection({
+    Duration interval = const Duration(minutes: 30),
+    BackgroundMeasurement measurement = BackgroundMeasurement.full,
+    List<String>? deviceAddresses,
+  }) => Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> stopBackgroundCollection() =>
+      Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, BackgroundCollectionStatus>>
+  getBackgroundCollectionStatus() =>
+      Future.value(Right(BackgroundCollectionStatus(active: false)));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> resetEventDeliveryStats() =>
+      Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> configureRealtimeHeartRate({
+    RealtimeHeartRateMode mode = RealtimeHeartRateMode.raw,
+    Duration window = const Duration(seconds: 1),
+  }) => Future.value(const Right(unit));
+
+  @override
+  Future<Either<SmartRingFailure, PluginMetrics>> getMetrics() => Future.value(
+    Right(
+      PluginMetrics(counters: {}, latencies: {}, eventsByType: {}, queues: {}),
+    ),
+  );
+
+  @override
+  Future<Either<SmartRingFailure, Unit>> resetMetrics() =>
+      Future.value(const Right(unit));
 }
 
 void main() {